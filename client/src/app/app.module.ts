@@ -23,7 +23,6 @@ import {MatProgressSpinnerModule} from "@angular/material/progress-spinner";
 import {FormsModule, ReactiveFormsModule} from "@angular/forms";
 import {MatFormFieldModule} from "@angular/material/form-field";
 import {MatInputModule} from "@angular/material/input";
-import {NgxCsvParserModule} from "ngx-csv-parser";
 import {MatExpansionModule} from "@angular/material/expansion";
 import {HttpClientModule} from "@angular/common/http";
 import {CADFileService} from "./service/cad/cad-file.service";
@@ -82,7 +81,6 @@ const materialModules: any[] = [
 		BrowserAnimationsModule,
 		ReactiveFormsModule,
 		...materialModules,
-		NgxCsvParserModule,
 		MarkdownModule.forRoot(),
 		FormsModule,
 		ColorPickerModule
@@ -8,6 +8,11 @@ export interface CADFileReference {
 	 */
 	id: number;
 
+	/**
+	 * Version of the CAD file, changes with every update.
+	 */
+	version?: number;
+
 	/**
 	 * Name of the CAD file.
 	 */
@@ -18,4 +23,29 @@ export interface CADFileReference {
 	 */
 	createdTimestamp: string;
 
+	/**
+	 * Type of the file (for example DXF).
+	 */
+	type?: string;
+
+	/**
+	 * Charset to interpret the file data with.
+	 */
+	charsetName?: string;
+
+	/**
+	 * Size of the file data in bytes.
+	 */
+	size?: number;
+
+	/**
+	 * Hash of the file data.
+	 */
+	contentHash?: string;
+
+	/**
+	 * Timestamp of when the file was last changed.
+	 */
+	updatedTimestamp?: string;
+
 }
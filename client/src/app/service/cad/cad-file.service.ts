@@ -1,7 +1,9 @@
 import {Injectable} from "@angular/core";
-import {HttpClient} from "@angular/common/http";
+import {HttpClient, HttpParams, HttpResponse} from "@angular/common/http";
 import {CADFileReference} from "./cad-file-reference";
 import {CADFile} from "./cad-file";
+import {Page, toPage} from "../page";
+import {GeometryTileSet} from "./geometry-tile-set";
 
 /**
  * Service managing CAD files.
@@ -30,10 +32,43 @@ export class CADFileService {
 	}
 
 	/**
-	 * Get references to all available CAD files.
+	 * Upload the passed file as new CAD file.
+	 * The file is sent as multipart request instead of a base64 encoded JSON body.
+	 * @param file to upload
+	 * @param type of the CAD file (for example DXF)
+	 * @param charsetName to interpret the file data with
 	 */
-	public async getAll(): Promise<CADFileReference[]> {
-		return await this.http.get<CADFileReference[]>(`${CADFileService.CONTROLLER_PATH}`).toPromise();
+	public async upload(file: File, type: string, charsetName?: string): Promise<CADFileReference> {
+		const formData: FormData = new FormData();
+		formData.append("file", file, file.name);
+		formData.append("type", type);
+		if (!!charsetName) {
+			formData.append("charsetName", charsetName);
+		}
+
+		return await this.http.post<CADFileReference>(`${CADFileService.CONTROLLER_PATH}/upload`, formData).toPromise();
+	}
+
+	/**
+	 * Get a page of references to the available CAD files, newest first.
+	 * @param namePrefix the file names have to start with
+	 * @param after cursor of the page to get (next cursor of the previous page)
+	 */
+	public async getPage(namePrefix?: string, after?: string): Promise<Page<CADFileReference>> {
+		let params: HttpParams = new HttpParams();
+		if (!!namePrefix) {
+			params = params.set("name", namePrefix);
+		}
+		if (!!after) {
+			params = params.set("after", after);
+		}
+
+		const response: HttpResponse<CADFileReference[]> = await this.http.get<CADFileReference[]>(`${CADFileService.CONTROLLER_PATH}`, {
+			params,
+			observe: "response"
+		}).toPromise();
+
+		return toPage(response);
 	}
 
 	/**
@@ -44,6 +79,92 @@ export class CADFileService {
 		return await this.http.get<CADFile>(`${CADFileService.CONTROLLER_PATH}/${id}`).toPromise();
 	}
 
+	/**
+	 * Get the raw data of a specific CAD file.
+	 * When the hash of the data is known it is requested by hash, which the browser caches without revalidation.
+	 * @param id of the file to get data for
+	 * @param contentHash of the data to get
+	 */
+	public async getData(id: number, contentHash?: string): Promise<Uint8Array> {
+		const url: string = !!contentHash
+			? `${CADFileService.CONTROLLER_PATH}/${id}/data?hash=${encodeURIComponent(contentHash)}`
+			: `${CADFileService.CONTROLLER_PATH}/${id}/data`;
+
+		const buffer: ArrayBuffer = await this.http.get(url, {responseType: "arraybuffer"}).toPromise();
+		return new Uint8Array(buffer);
+	}
+
+	/**
+	 * Get the tolerances of the levels of detail of a CAD file's geometry from the coarsest to the finest.
+	 * The curves of each level deviate at most by its tolerance (in drawing units) from the exact curves.
+	 * @param id of the CAD file
+	 * @param contentHash of the data to get the levels of, makes the response cacheable forever
+	 */
+	public async getGeometryLevels(id: number, contentHash?: string): Promise<number[]> {
+		const query: string = !!contentHash ? `?hash=${encodeURIComponent(contentHash)}` : "";
+
+		return await this.http.get<number[]>(`${CADFileService.CONTROLLER_PATH}/${id}/geometry/levels${query}`).toPromise();
+	}
+
+	/**
+	 * Get the geometry of a CAD file in the binary geometry format.
+	 * @param id of the CAD file
+	 * @param tolerance maximum deviation of tessellated curves in drawing units, usually half the size
+	 * of a pixel at the current zoom level; the coarsest level of detail meeting it is returned
+	 * (curves are tessellated at a fixed resolution when omitted)
+	 * @param contentHash of the data to get the geometry of, makes the response cacheable forever
+	 */
+	public async getGeometry(id: number, tolerance?: number, contentHash?: string): Promise<ArrayBuffer> {
+		const params: string[] = [];
+		if (tolerance !== undefined && tolerance !== null) {
+			params.push(`tolerance=${CADFileService.snapTolerance(tolerance)}`);
+		}
+		if (!!contentHash) {
+			params.push(`hash=${encodeURIComponent(contentHash)}`);
+		}
+		const query: string = params.length > 0 ? `?${params.join("&")}` : "";
+
+		return await this.http.get(`${CADFileService.CONTROLLER_PATH}/${id}/geometry${query}`, {
+			responseType: "arraybuffer"
+		}).toPromise();
+	}
+
+	/**
+	 * Round the passed tolerance down to a power of two, so that zooming
+	 * only causes a few distinct (and thus cacheable) geometry requests.
+	 * @param tolerance to round
+	 */
+	private static snapTolerance(tolerance: number): number {
+		return tolerance > 0 ? Math.pow(2, Math.floor(Math.log2(tolerance))) : 0;
+	}
+
+	/**
+	 * Get the description of the vector tile quadtree of a CAD file.
+	 * @param id of the CAD file
+	 * @param contentHash of the data to get the tile set of, makes the response cacheable forever
+	 */
+	public async getTileSet(id: number, contentHash?: string): Promise<GeometryTileSet> {
+		const query: string = !!contentHash ? `?hash=${encodeURIComponent(contentHash)}` : "";
+
+		return await this.http.get<GeometryTileSet>(`${CADFileService.CONTROLLER_PATH}/${id}/tiles${query}`).toPromise();
+	}
+
+	/**
+	 * Get a vector tile of the geometry of a CAD file in the binary geometry format.
+	 * @param id of the CAD file
+	 * @param z zoom level
+	 * @param x column of the tile
+	 * @param y row of the tile (counted from the bottom)
+	 * @param contentHash of the data to get the tile of, makes the response cacheable forever
+	 */
+	public async getTile(id: number, z: number, x: number, y: number, contentHash?: string): Promise<ArrayBuffer> {
+		const query: string = !!contentHash ? `?hash=${encodeURIComponent(contentHash)}` : "";
+
+		return await this.http.get(`${CADFileService.CONTROLLER_PATH}/${id}/tiles/${z}/${x}/${y}${query}`, {
+			responseType: "arraybuffer"
+		}).toPromise();
+	}
+
 	/**
 	 * Update the passed already existing CAD file.
 	 * @param file to update
@@ -9,6 +9,11 @@ export interface CADFile {
 	 */
 	id?: number;
 
+	/**
+	 * Version of the CAD file, changes with every update.
+	 */
+	version?: number;
+
 	/**
 	 * Name of the file.
 	 */
@@ -0,0 +1,43 @@
+/**
+ * Description of the vector tile quadtree of a CAD file's geometry.
+ * Tile (z, x, y) covers the square of side length `size / 2^z` in column x and row y
+ * (counted from the bottom) starting at the lower left corner of the root tile.
+ */
+export interface GeometryTileSet {
+
+	/**
+	 * X-coordinate of the origin all tile coordinates are relative to.
+	 */
+	originX: number;
+
+	/**
+	 * Y-coordinate of the origin all tile coordinates are relative to.
+	 */
+	originY: number;
+
+	/**
+	 * X-coordinate of the lower left corner of the root tile (relative to the origin).
+	 */
+	minX: number;
+
+	/**
+	 * Y-coordinate of the lower left corner of the root tile (relative to the origin).
+	 */
+	minY: number;
+
+	/**
+	 * Length of the sides of the root tile.
+	 */
+	size: number;
+
+	/**
+	 * Maximum zoom level.
+	 */
+	maxZoom: number;
+
+	/**
+	 * Resolution in pixels along a side the tiles are cut for.
+	 */
+	tileResolution: number;
+
+}
@@ -0,0 +1,36 @@
+import {HttpResponse} from "@angular/common/http";
+
+/**
+ * Page of a keyset paginated listing.
+ */
+export interface Page<T> {
+
+	/**
+	 * Items on the page.
+	 */
+	items: T[];
+
+	/**
+	 * Cursor to get the next page with.
+	 * Not set on the last page.
+	 */
+	next?: string;
+
+}
+
+/**
+ * Get the page of the passed listing response.
+ * The cursor of the next page is taken from the link in the Link header.
+ * @param response of the listing request
+ */
+export function toPage<T>(response: HttpResponse<T[]>): Page<T> {
+	const page: Page<T> = {items: response.body ?? []};
+
+	const link: string | null = response.headers.get("Link");
+	const match: RegExpMatchArray | null = !!link ? link.match(/<([^>]*)>\s*;\s*rel="next"/) : null;
+	if (!!match) {
+		page.next = new URL(match[1], window.location.href).searchParams.get("after") ?? undefined;
+	}
+
+	return page;
+}
@@ -0,0 +1,37 @@
+/**
+ * Statistics of the rooms of one category in a room mapping collection.
+ */
+export interface RoomCategoryStatistics {
+
+	/**
+	 * ID of the room mapping collection.
+	 */
+	mappingID: number;
+
+	/**
+	 * ID of the CAD file (building plan) the collection belongs to.
+	 */
+	cadFileID: number;
+
+	/**
+	 * The category.
+	 */
+	category: number;
+
+	/**
+	 * Number of rooms of the category.
+	 */
+	roomCount: number;
+
+	/**
+	 * Number of rooms of the category with a known area.
+	 * Only rooms mapped by explicit vertices have an area, not rooms mapped by a mapping vertex only.
+	 */
+	measuredRoomCount: number;
+
+	/**
+	 * Total area of the measured rooms of the category (if any room has a known area).
+	 */
+	area?: number;
+
+}
@@ -10,6 +10,11 @@ export interface RoomMappingCollection {
 	 */
 	id?: number;
 
+	/**
+	 * Version of the collection, changes with every update.
+	 */
+	version?: number;
+
 	/**
 	 * Name of the collection.
 	 */
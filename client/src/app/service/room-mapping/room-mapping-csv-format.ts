@@ -0,0 +1,36 @@
+/**
+ * Format of a room mapping CSV file to import.
+ */
+export interface RoomMappingCSVFormat {
+
+	/**
+	 * Delimiter separating the fields of a record.
+	 */
+	delimiter: string;
+
+	/**
+	 * Header of the room name column.
+	 */
+	roomNameHeader: string;
+
+	/**
+	 * Header of the category column.
+	 */
+	categoryHeader: string;
+
+	/**
+	 * Header of the description column.
+	 */
+	descriptionHeader: string;
+
+	/**
+	 * Header of the mapping vertex column.
+	 */
+	mappingVertexHeader: string;
+
+	/**
+	 * Header of the polygon list column.
+	 */
+	polygonHeader: string;
+
+}
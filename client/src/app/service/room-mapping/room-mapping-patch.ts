@@ -0,0 +1,61 @@
+import {Vertex} from "./vertex";
+
+/**
+ * Operation on the mapping of a single room, identified by its room name.
+ * Fields left out are not changed by an update.
+ */
+export interface RoomMappingOperation {
+
+	/**
+	 * Type of the operation.
+	 */
+	op: "ADD" | "UPDATE" | "DELETE";
+
+	/**
+	 * Name of the room the operation applies to.
+	 */
+	roomName: string;
+
+	/**
+	 * Category to set.
+	 */
+	category?: number;
+
+	/**
+	 * Description to set.
+	 */
+	description?: string;
+
+	/**
+	 * Mapping vertex to set.
+	 */
+	mappingVertex?: Vertex;
+
+	/**
+	 * Vertices to set.
+	 */
+	vertices?: Vertex[];
+
+}
+
+/**
+ * Changes of single rooms of a room mapping collection.
+ */
+export interface RoomMappingPatch {
+
+	/**
+	 * Version of the collection the changes are based on.
+	 */
+	version?: number;
+
+	/**
+	 * New name of the collection.
+	 */
+	name?: string;
+
+	/**
+	 * Operations on single rooms, applied in order.
+	 */
+	operations?: RoomMappingOperation[];
+
+}
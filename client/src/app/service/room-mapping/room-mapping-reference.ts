@@ -8,6 +8,11 @@ export interface RoomMappingReference {
 	 */
 	id: number;
 
+	/**
+	 * Version of the collection, changes with every update.
+	 */
+	version?: number;
+
 	/**
 	 * Name of the mapping.
 	 */
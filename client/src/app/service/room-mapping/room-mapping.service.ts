@@ -1,7 +1,11 @@
 import {Injectable} from "@angular/core";
-import {HttpClient} from "@angular/common/http";
+import {HttpClient, HttpParams, HttpResponse} from "@angular/common/http";
 import {RoomMappingCollection} from "./room-mapping-collection";
 import {RoomMappingReference} from "./room-mapping-reference";
+import {Page, toPage} from "../page";
+import {RoomMappingCSVFormat} from "./room-mapping-csv-format";
+import {RoomMappingPatch} from "./room-mapping-patch";
+import {RoomCategoryStatistics} from "./room-category-statistics";
 
 /**
  * Service manging room mappings.
@@ -30,18 +34,49 @@ export class RoomMappingService {
 	}
 
 	/**
-	 * Get references to all available room mapping collections.
+	 * Import a new mapping from the passed CSV file.
+	 * The file is parsed by the server, so it does not have to be held in memory here.
+	 * @param file CSV file to import
+	 * @param cadFileID ID of the CAD file the mapping belongs to
+	 * @param format of the CSV file
 	 */
-	public async getAll(): Promise<RoomMappingReference[]> {
-		return await this.http.get<RoomMappingReference[]>(`${RoomMappingService.CONTROLLER_PATH}`).toPromise();
+	public async importCSV(file: File, cadFileID: number, format: RoomMappingCSVFormat): Promise<RoomMappingReference> {
+		const formData: FormData = new FormData();
+		formData.append("file", file, file.name);
+		formData.append("cadFileID", `${cadFileID}`);
+		formData.append("delimiter", format.delimiter);
+		formData.append("roomNameHeader", format.roomNameHeader);
+		formData.append("categoryHeader", format.categoryHeader);
+		formData.append("descriptionHeader", format.descriptionHeader);
+		formData.append("mappingVertexHeader", format.mappingVertexHeader);
+		formData.append("polygonHeader", format.polygonHeader);
+
+		return await this.http.post<RoomMappingReference>(`${RoomMappingService.CONTROLLER_PATH}/import`, formData).toPromise();
+	}
+
+	/**
+	 * Get a page of references to the available room mapping collections, newest first.
+	 * @param namePrefix the collection names have to start with
+	 * @param after cursor of the page to get (next cursor of the previous page)
+	 */
+	public async getPage(namePrefix?: string, after?: string): Promise<Page<RoomMappingReference>> {
+		return await this.fetchPage(`${RoomMappingService.CONTROLLER_PATH}`, namePrefix, after);
 	}
 
 	/**
-	 * Get all room mapping collections that relate to the passed CAD file ID.
+	 * Get all room mapping collections that relate to the passed CAD file ID, newest first.
 	 * @param id of the CAD file to get mappings for
 	 */
 	public async getAllForCADFileID(id: number): Promise<RoomMappingReference[]> {
-		return await this.http.get<RoomMappingReference[]>(`${RoomMappingService.CONTROLLER_PATH}/for/${id}`).toPromise();
+		const references: RoomMappingReference[] = [];
+
+		let page: Page<RoomMappingReference> | undefined;
+		do {
+			page = await this.fetchPage(`${RoomMappingService.CONTROLLER_PATH}/for/${id}`, undefined, page?.next);
+			references.push(...page.items);
+		} while (!!page.next);
+
+		return references;
 	}
 
 	/**
@@ -52,6 +87,25 @@ export class RoomMappingService {
 		return await this.http.get<RoomMappingCollection>(`${RoomMappingService.CONTROLLER_PATH}/${id}`).toPromise();
 	}
 
+	/**
+	 * Get the number of rooms and their area per category, without downloading any mappings.
+	 * @param cadFileIDs IDs of the CAD files to get statistics of their mappings for (all if not passed)
+	 */
+	public async getStatistics(cadFileIDs?: number[]): Promise<RoomCategoryStatistics[]> {
+		let params: HttpParams = new HttpParams();
+		if (!!cadFileIDs) {
+			if (cadFileIDs.length === 0) {
+				return [];
+			}
+
+			for (const id of cadFileIDs) {
+				params = params.append("cadFileID", `${id}`);
+			}
+		}
+
+		return await this.http.get<RoomCategoryStatistics[]>(`${RoomMappingService.CONTROLLER_PATH}/statistics`, {params}).toPromise();
+	}
+
 	/**
 	 * Update the passed already existing room mapping collection.
 	 * @param mapping to update
@@ -60,6 +114,15 @@ export class RoomMappingService {
 		return await this.http.put<RoomMappingReference>(`${RoomMappingService.CONTROLLER_PATH}`, mapping).toPromise();
 	}
 
+	/**
+	 * Change single rooms of a room mapping collection without sending the whole collection.
+	 * @param id of the room mapping collection to change
+	 * @param patch changes to apply
+	 */
+	public async patch(id: number, patch: RoomMappingPatch): Promise<RoomMappingReference> {
+		return await this.http.patch<RoomMappingReference>(`${RoomMappingService.CONTROLLER_PATH}/${id}`, patch).toPromise();
+	}
+
 	/**
 	 * Delete a room mapping collection.
 	 * @param id of the room mapping collection to delete
@@ -68,4 +131,27 @@ export class RoomMappingService {
 		return await this.http.delete<RoomMappingReference>(`${RoomMappingService.CONTROLLER_PATH}/${id}`).toPromise();
 	}
 
+	/**
+	 * Fetch a page of references to room mapping collections.
+	 * @param url of the listing
+	 * @param namePrefix the collection names have to start with
+	 * @param after cursor of the page to get
+	 */
+	private async fetchPage(url: string, namePrefix?: string, after?: string): Promise<Page<RoomMappingReference>> {
+		let params: HttpParams = new HttpParams();
+		if (!!namePrefix) {
+			params = params.set("name", namePrefix);
+		}
+		if (!!after) {
+			params = params.set("after", after);
+		}
+
+		const response: HttpResponse<RoomMappingReference[]> = await this.http.get<RoomMappingReference[]>(url, {
+			params,
+			observe: "response"
+		}).toPromise();
+
+		return toPage(response);
+	}
+
 }
@@ -30,4 +30,20 @@ export interface RoomMapping {
 	 */
 	vertices?: Vertex[];
 
+	/**
+	 * Area of the polygon described by the vertices, calculated by the server.
+	 * Not set for mappings with a mapping vertex only, even if it resolves to a room polygon.
+	 */
+	area?: number;
+
+	/**
+	 * ID of the room polygon in the CAD file the mapping vertex has been resolved to by the server.
+	 */
+	roomPolygonID?: number;
+
+	/**
+	 * Vertices of the room polygon in the CAD file the mapping vertex has been resolved to by the server.
+	 */
+	roomPolygon?: Vertex[];
+
 }
@@ -1,5 +1,4 @@
 import {CanvasSource} from "./canvas-source";
-import {CADFile} from "../../../service/cad/cad-file";
 
 /**
  * Reader for a canvas source.
@@ -7,9 +6,10 @@ import {CADFile} from "../../../service/cad/cad-file";
 export interface CanvasSourceReader {
 
 	/**
-	 * Read a canvas source from the passed file.
-	 * @param file to read canvas source from
+	 * Read a canvas source from the passed file data.
+	 * @param data of the file to read canvas source from
+	 * @param charsetName to interpret the data with (if it is text)
 	 */
-	read(file: CADFile): Promise<CanvasSource>;
+	read(data: Uint8Array, charsetName?: string): Promise<CanvasSource>;
 
 }
@@ -1,22 +1,49 @@
 import {CanvasSource} from "../canvas-source";
-import {Box3, BufferGeometry, Camera, Intersection, Object3D, Raycaster, Scene, Shape, ShapeBufferGeometry, Vector3} from "three";
-import {Dxf, DxfEntity, DxfPosition} from "dxf";
-import {EntityHandler} from "./handler/entity-handler";
-import {EntityHandlers} from "./handler/entity-handlers";
+import {Box3, BufferGeometry, Camera, Intersection, Line, LineSegments, Mesh, Object3D, Raycaster, Scene, Shape, ShapeBufferGeometry, Vector2, Vector3} from "three";
+import {Dxf, DxfPosition} from "dxf";
 import {Bounds3D} from "../util/bounds";
-import {MTextHandler} from "./handler/mtext-handler";
 import {RoomMapping} from "../../../../service/room-mapping/room-mapping";
 import {Vertex} from "../../../../service/room-mapping/vertex";
+import {DxfGlobals} from "./util/dxf-globals";
+import {DxfObjectFactory} from "./util/dxf-object-factory";
+import {VerticesHash} from "./util/vertices-hash";
+import {DxfWorkerJob, DxfWorkerPool} from "./worker/dxf-worker-pool";
+import {DxfSceneBuilder} from "./dxf-scene-builder";
+import {DxfFileParser} from "./util/dxf-file-parser";
+import {DxfGeometryBatch, DxfGeometryChunk, DxfWorkerResponse} from "./worker/dxf-worker-messages";
 
 /**
  * A canvas source read from DXF.
+ * The file is parsed and its geometry built by a web worker, so that the main thread
+ * stays responsive while loading big plans.
+ * Where workers are not available (for example in exports), it is built on the main thread instead.
  */
 export class DxfCanvasSource implements CanvasSource {
 
 	/**
-	 * Parsed DXF format.
+	 * Next ID of a source, identifying its parsed file in the workers.
 	 */
-	private readonly dxf: Dxf;
+	private static nextID: number = 0;
+
+	/**
+	 * ID of the source.
+	 */
+	private readonly id: number = DxfCanvasSource.nextID++;
+
+	/**
+	 * Data of the DXF file.
+	 */
+	private readonly data: Uint8Array;
+
+	/**
+	 * Name of the charset to decode the data with.
+	 */
+	private readonly charsetName?: string;
+
+	/**
+	 * Parsed DXF file when built on the main thread, kept for redrawing.
+	 */
+	private dxf: Dxf | null = null;
 
 	/**
 	 * Bounds of the drawn object.
@@ -28,7 +55,7 @@ export class DxfCanvasSource implements CanvasSource {
 	};
 
 	/**
-	 * All possible room objects we can map to.
+	 * All possible room objects we can map to (by their room index).
 	 */
 	private possibleRoomObjects: Object3D[] = [];
 
@@ -43,13 +70,19 @@ export class DxfCanvasSource implements CanvasSource {
 	private readonly raycaster: Raycaster = new Raycaster();
 
 	/**
-	 * Map containing hashcodes for vertices that should be transformed in the
-	 * transformRoomMapping method.
+	 * Map containing the shapes room mappings with vertices of certain hashcodes
+	 * should be transformed to in the mapToRoom method.
 	 */
-	private readonly roomMappingVerticesToTransform: Map<number, RoomMappingTransformEntry> = new Map<number, RoomMappingTransformEntry>();
+	private readonly roomMappingVerticesToTransform: Map<number, Shape> = new Map<number, Shape>();
 
-	constructor(dxf: Dxf) {
-		this.dxf = dxf;
+	/**
+	 * Index tables of the drawn merged geometry mapped by the object ids.
+	 */
+	private readonly batches: Map<string, DxfGeometryBatch> = new Map<string, DxfGeometryBatch>();
+
+	constructor(data: Uint8Array, charsetName?: string) {
+		this.data = data;
+		this.charsetName = charsetName;
 	}
 
 	/**
@@ -62,30 +95,146 @@ export class DxfCanvasSource implements CanvasSource {
 
 		this.possibleRoomObjects = [];
 		this.possibleRoomObjectsShapes.clear();
+		this.roomMappingVerticesToTransform.clear();
+		this.batches.clear();
 
-		const totalEntityCount: number = this.dxf.entities.length;
-		let counter: number = 0;
-		const publishProgressEvery: number = Math.round(totalEntityCount / 1000);
-		for (const entity of this.dxf.entities) {
-			try {
-				this.drawEntity(entity, scene);
-			} catch (e) {
-				console.warn(e.message);
-			}
+		if (!DxfWorkerPool.available || !(await this.drawInWorker(scene, progressConsumer))) {
+			this.drawInThread(scene);
+		}
+
+		this.raycaster.params.Line.threshold = (this.bounds.x.max - this.bounds.x.min) / 100000;
+
+		return this.bounds;
+	}
 
-			counter++;
+	/**
+	 * Build the geometry in a worker and draw it on the given scene.
+	 * @param scene to draw on
+	 * @param progressConsumer consumer to publish the current progress in range [0; 100] over
+	 * @returns false in case the worker failed before drawing anything, so that the geometry has to be built otherwise
+	 */
+	private async drawInWorker(scene: Scene, progressConsumer: (progress: number) => Promise<boolean>): Promise<boolean> {
+		// Globals are read when starting, as the source is redrawn whenever they change
+		let job: DxfWorkerJob;
+		try {
+			job = DxfWorkerPool.shared.run({
+				sourceID: this.id,
+				data: this.data,
+				charsetName: this.charsetName,
+				contrastColor: DxfGlobals.getContrastColor(),
+				backgroundColor: DxfGlobals.getBackgroundColor(),
+				divisions: DxfGlobals.divisions
+			});
+		} catch (e) {
+			console.warn(`Could not start a DXF worker, building on the main thread: ${e.message}`);
+			DxfWorkerPool.reportFailure();
+			return false;
+		}
 
-			if (counter % publishProgressEvery === 0) {
-				const cancelRequested: boolean = !(await progressConsumer(counter * 100 / totalEntityCount));
-				if (cancelRequested) {
-					break;
+		let drawn: boolean = false;
+		while (true) {
+			const response: DxfWorkerResponse = await job.next();
+			if (response.type === "error") {
+				if (response.workerFailure && !drawn) {
+					console.warn(`DXF worker failed, building on the main thread: ${response.message}`);
+					DxfWorkerPool.reportFailure();
+					return false;
 				}
+
+				console.error(response.message);
+				break;
+			}
+
+			const chunk: DxfGeometryChunk = response.chunk;
+			this.drawChunk(chunk, scene);
+			drawn = true;
+			if (chunk.last) {
+				break;
+			}
+
+			const cancelRequested: boolean = !(await progressConsumer(chunk.progress));
+			if (cancelRequested) {
+				job.cancel();
+				break;
 			}
 		}
 
-		this.raycaster.params.Line.threshold = (this.bounds.x.max - this.bounds.x.min) / 100000;
+		return true;
+	}
 
-		return this.bounds;
+	/**
+	 * Build the geometry on the main thread and draw it on the given scene.
+	 * The parsed file is kept, so redrawing (for example with other colors) only builds the geometry again.
+	 * @param scene to draw on
+	 */
+	private drawInThread(scene: Scene): void {
+		try {
+			if (!this.dxf) {
+				this.dxf = DxfFileParser.parse(this.data, this.charsetName);
+			}
+
+			new DxfSceneBuilder(this.dxf).build(chunk => this.drawChunk(chunk, scene));
+		} catch (e) {
+			console.error(e.message);
+		}
+	}
+
+	/**
+	 * Draw the passed chunk of geometry built by the worker.
+	 * @param chunk to draw
+	 * @param scene to draw on
+	 */
+	private drawChunk(chunk: DxfGeometryChunk, scene: Scene): void {
+		for (const batch of chunk.batches) {
+			const object: Object3D = DxfObjectFactory.createBatch(batch);
+			this.batches.set(object.uuid, batch);
+			scene.add(object);
+		}
+
+		for (const instanced of chunk.instances) {
+			scene.add(DxfObjectFactory.createInstanced(instanced));
+		}
+
+		// Room outlines are only used for raycasting and thus not added to the scene
+		for (const room of chunk.rooms) {
+			const geometry: BufferGeometry = new BufferGeometry().setFromPoints(DxfCanvasSource.toVectors3(room.linePositions));
+			const line: Line = new LineSegments(geometry);
+
+			this.possibleRoomObjects.push(line);
+			this.possibleRoomObjectsShapes.set(line.uuid, new Shape(DxfCanvasSource.toVectors2(room.shapePoints)));
+		}
+
+		for (const transform of chunk.roomTransforms) {
+			this.roomMappingVerticesToTransform.set(transform.hashCode, new Shape(DxfCanvasSource.toVectors2(transform.shapePoints)));
+		}
+
+		this.bounds = chunk.bounds;
+	}
+
+	/**
+	 * Convert the passed coordinates (x, y, z) to vectors.
+	 * @param positions to convert
+	 */
+	private static toVectors3(positions: Float32Array): Vector3[] {
+		const result: Vector3[] = [];
+		for (let i = 0; i < positions.length; i += 3) {
+			result.push(new Vector3(positions[i], positions[i + 1], positions[i + 2]));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Convert the passed coordinates (x, y) to vectors.
+	 * @param points to convert
+	 */
+	private static toVectors2(points: Float32Array): Vector2[] {
+		const result: Vector2[] = [];
+		for (let i = 0; i < points.length; i += 2) {
+			result.push(new Vector2(points[i], points[i + 1]));
+		}
+
+		return result;
 	}
 
 	/**
@@ -169,7 +318,21 @@ export class DxfCanvasSource implements CanvasSource {
 	 * @param camera of the canvas
 	 */
 	public mapToRoom(mapping: RoomMapping, scene: Scene, camera: Camera): BufferGeometry {
-		if (!!mapping.mappingVertex) {
+		if (!!mapping.roomPolygon) {
+			// Already resolved by the server, no need to raycast
+			const shape: Shape = new Shape();
+			for (let i = 0; i < mapping.roomPolygon.length; i++) {
+				const vertex: Vertex = mapping.roomPolygon[i];
+
+				if (i == 0) {
+					shape.moveTo(vertex.x, vertex.y);
+				} else {
+					shape.lineTo(vertex.x, vertex.y);
+				}
+			}
+
+			return new ShapeBufferGeometry(shape);
+		} else if (!!mapping.mappingVertex) {
 			const object: Object3D | null = this.mapVertexToObject(mapping.mappingVertex.x, mapping.mappingVertex.y, camera);
 
 			if (!!object) {
@@ -191,12 +354,12 @@ export class DxfCanvasSource implements CanvasSource {
 			}
 
 			// Calculate hash code for the vertices
-			const hashCode: number = DxfCanvasSource.calculateVerticesHashCode(vertices);
+			const hashCode: number = VerticesHash.calculateVerticesHashCode(vertices);
 
 			// Check if we have something to transform in the current mapping
-			const entry: RoomMappingTransformEntry = this.roomMappingVerticesToTransform.get(hashCode);
-			if (!!entry) {
-				return entry.transformed;
+			const transformed: Shape = this.roomMappingVerticesToTransform.get(hashCode);
+			if (!!transformed) {
+				return new ShapeBufferGeometry(transformed);
 			}
 
 			const shape: Shape = new Shape();
@@ -214,48 +377,6 @@ export class DxfCanvasSource implements CanvasSource {
 		}
 	}
 
-	/**
-	 * Add vertices that should be transformed later for room mappings.
-	 * See method transformRoomMapping.
-	 * @param vertices to transform later
-	 * @param transformed the transformed vertices
-	 */
-	public addVerticesToTransformForRoomMappings(vertices: DxfPosition[], transformed: BufferGeometry) {
-		this.roomMappingVerticesToTransform.set(
-			DxfCanvasSource.calculateVerticesHashCode(vertices),
-			{
-				vertices,
-				transformed
-			}
-		);
-	}
-
-	/**
-	 * Calculate a hash code for the given vertices.
-	 * @param vertices to calculate hash code for
-	 */
-	private static calculateVerticesHashCode(vertices: DxfPosition[]): number {
-		let hashCode: number = 1;
-
-		for (const vertex of vertices) {
-			hashCode = 31 * hashCode + DxfCanvasSource.calculateVertexHashCode(vertex);
-		}
-
-		return Math.round(hashCode);
-	}
-
-	/**
-	 * Calculate a hash code for the passed vertex.
-	 * @param vertex to calculate hash code for
-	 */
-	private static calculateVertexHashCode(vertex: DxfPosition): number {
-		let result: number = vertex.x;
-		result = 31 * result + vertex.y;
-		result = 31 * result + (vertex.z ?? 0);
-
-		return Math.round(result);
-	}
-
 	/**
 	 * Check whether the two passed vertex lists are equal.
 	 * @param v1 first vertex list
@@ -290,22 +411,42 @@ export class DxfCanvasSource implements CanvasSource {
 	}
 
 	/**
-	 * Draw the passed entity.
-	 * @param entity to draw
-	 * @param scene to draw onto
+	 * Get the source of a primitive picked from the scene, for example by a raycaster.
+	 * @param intersection of the picked primitive
+	 * @returns the source or null if the intersected object is not merged geometry of the source
 	 */
-	private drawEntity(entity: DxfEntity, scene: Scene): void {
-		const type: string = entity.type;
+	public getPickedSource(intersection: Intersection): PickedSource | null {
+		const batch: DxfGeometryBatch = this.batches.get(intersection.object.uuid);
+		if (!batch) {
+			return null;
+		}
 
-		const handler: EntityHandler = EntityHandlers.getHandler(type);
-		if (!handler) {
-			throw new Error(`Entity type '${type}' is not supported`);
+		const vertexIndex: number = intersection.object instanceof Mesh
+			? intersection.faceIndex * 3
+			: intersection.index;
+		if (vertexIndex === undefined || vertexIndex === null) {
+			return null;
 		}
 
-		const object: Object3D = handler.process(entity, this.dxf, this);
-		scene.add(object);
+		// Binary search for the last merged object starting at or before the vertex
+		let low: number = 0;
+		let high: number = batch.starts.length - 1;
+		while (low < high) {
+			const mid: number = (low + high + 1) >>> 1;
+			if (batch.starts[mid] <= vertexIndex) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
 
-		this.updateBounds(object);
+		const roomIndex: number = batch.roomIndices[low];
+		return {
+			entityIndex: batch.entityIndices[low],
+			roomShape: roomIndex >= 0
+				? this.possibleRoomObjectsShapes.get(this.possibleRoomObjects[roomIndex].uuid) ?? null
+				: null
+		};
 	}
 
 	/**
@@ -319,72 +460,21 @@ export class DxfCanvasSource implements CanvasSource {
 		};
 	}
 
-	/**
-	 * Add a room object the user is able to map to.
-	 * @param roomObject that is mappable to
-	 * @param shape of the object
-	 */
-	public addMappingRoom(roomObject: Object3D, shape: Shape): void {
-		this.possibleRoomObjects.push(roomObject);
-		this.possibleRoomObjectsShapes.set(roomObject.uuid, shape);
-	}
-
-	/**
-	 * Update the current bounds.
-	 * @param object of a drawn object
-	 */
-	private updateBounds(object: Object3D) {
-		const bounds: Box3 = new Box3().setFromObject(object);
-
-		if (bounds.min.x !== undefined && bounds.min.x !== null) {
-			if (!this.bounds.x.min || this.bounds.x.min > bounds.min.x) {
-				this.bounds.x.min = bounds.min.x;
-			}
-		}
-		if (bounds.max.x !== undefined && bounds.max.x !== null) {
-			if (!this.bounds.x.max || this.bounds.x.max < bounds.max.x) {
-				this.bounds.x.max = bounds.max.x;
-			}
-		}
-
-		if (bounds.min.y !== undefined && bounds.min.y !== null) {
-			if (!this.bounds.y.min || this.bounds.y.min > bounds.min.y) {
-				this.bounds.y.min = bounds.min.y;
-			}
-		}
-		if (bounds.max.y !== undefined && bounds.max.y !== null) {
-			if (!this.bounds.y.max || this.bounds.y.max < bounds.max.y) {
-				this.bounds.y.max = bounds.max.y;
-			}
-		}
-
-		if (bounds.min.z !== undefined && bounds.min.z !== null) {
-			if (!this.bounds.z.min || this.bounds.z.min > bounds.min.z) {
-				this.bounds.z.min = bounds.min.z;
-			}
-		}
-		if (bounds.max.z !== undefined && bounds.max.z !== null) {
-			if (!this.bounds.z.max || this.bounds.z.max < bounds.max.z) {
-				this.bounds.z.max = bounds.max.z;
-			}
-		}
-	}
-
 }
 
 /**
- * Entry to transform later for room mappings.
+ * Source of a picked primitive.
  */
-interface RoomMappingTransformEntry {
+export interface PickedSource {
 
 	/**
-	 * The vertices of the room mapping.
+	 * Index of the DXF entity the primitive has been drawn for.
 	 */
-	vertices: DxfPosition[];
+	entityIndex: number;
 
 	/**
-	 * The transformed vertices.
+	 * Shape of the room the primitive outlines or null if it does not belong to a room object.
 	 */
-	transformed: BufferGeometry;
+	roomShape: Shape | null;
 
 }
@@ -0,0 +1,268 @@
+import {Box3, Line, Matrix4, Object3D, Shape, Vector2} from "three";
+import {Dxf, DxfBlock, DxfEntity} from "./dxf";
+import {DxfPosition} from "dxf";
+import {EntityHandler} from "./handler/entity-handler";
+import {EntityHandlers} from "./handler/entity-handlers";
+import {Bounds3D} from "../util/bounds";
+import {BlockInstancer, InstancedDrawing} from "./util/block-instancer";
+import {GeometryBatcher} from "./util/geometry-batcher";
+import {VerticesHash} from "./util/vertices-hash";
+import {DxfGlobals} from "./util/dxf-globals";
+import {DxfGeometryChunk, DxfInstancedGeometry, DxfRoomOutline, DxfRoomTransform} from "./worker/dxf-worker-messages";
+
+/**
+ * Builds the geometry of a parsed DXF file in chunks of plain data,
+ * so that it can be built by a web worker and transferred to the main thread.
+ */
+export class DxfSceneBuilder {
+
+	/**
+	 * Number of chunks the entities are split into to report progress.
+	 */
+	private static readonly CHUNK_COUNT: number = 10;
+
+	/**
+	 * Minimum number of entities per chunk.
+	 */
+	private static readonly MIN_CHUNK_SIZE: number = 1000;
+
+	/**
+	 * Parsed DXF format.
+	 */
+	private readonly dxf: Dxf;
+
+	/**
+	 * Bounds of the built geometry.
+	 */
+	private readonly bounds: Bounds3D = {
+		x: {min: null, max: null},
+		y: {min: null, max: null},
+		z: {min: null, max: null},
+	};
+
+	/**
+	 * Instancer drawing the placements of blocks.
+	 */
+	private readonly blockInstancer: BlockInstancer = new BlockInstancer();
+
+	/**
+	 * Batcher merging the static geometry of the drawn entities.
+	 */
+	private readonly geometryBatcher: GeometryBatcher = new GeometryBatcher();
+
+	/**
+	 * Indices of the room objects mapped by their object ids.
+	 */
+	private readonly roomIndices: Map<string, number> = new Map<string, number>();
+
+	/**
+	 * Room objects registered since the last chunk.
+	 */
+	private pendingRooms: PendingRoom[] = [];
+
+	/**
+	 * Room mapping transformations registered since the last chunk.
+	 */
+	private pendingRoomTransforms: DxfRoomTransform[] = [];
+
+	constructor(dxf: Dxf) {
+		this.dxf = dxf;
+	}
+
+	/**
+	 * Build the geometry of all entities.
+	 * @param chunkConsumer consumer of the built chunks
+	 */
+	public build(chunkConsumer: (chunk: DxfGeometryChunk) => void): void {
+		const entities: DxfEntity[] = this.dxf.entities;
+		const chunkSize: number = Math.max(DxfSceneBuilder.MIN_CHUNK_SIZE, Math.ceil(entities.length / DxfSceneBuilder.CHUNK_COUNT));
+
+		for (let i = 0; i < entities.length; i++) {
+			try {
+				this.buildEntity(entities[i], i);
+			} catch (e) {
+				console.warn(e.message);
+			}
+
+			if ((i + 1) % chunkSize === 0 && i + 1 < entities.length) {
+				chunkConsumer(this.flush((i + 1) * 100 / entities.length, false));
+			}
+		}
+
+		chunkConsumer(this.flush(100, true));
+	}
+
+	/**
+	 * Build the geometry of the passed entity.
+	 * @param entity to build
+	 * @param index of the entity
+	 */
+	private buildEntity(entity: DxfEntity, index: number): void {
+		const type: string = entity.type;
+
+		const handler: EntityHandler = EntityHandlers.getHandler(type);
+		if (!handler) {
+			throw new Error(`Entity type '${type}' is not supported`);
+		}
+
+		const object: Object3D | null = handler.process(entity, this.dxf, this);
+		if (!object) {
+			return; // Built with the last chunk
+		}
+
+		this.updateBounds(new Box3().setFromObject(object));
+
+		if (!this.geometryBatcher.add(object, index, o => this.roomIndices.get(o.uuid) ?? -1)) {
+			throw new Error(`Geometry of entity type '${type}' cannot be transferred`);
+		}
+	}
+
+	/**
+	 * Take the geometry built since the last call as chunk.
+	 * @param progress of the building in range [0; 100]
+	 * @param last whether this is the last chunk
+	 */
+	private flush(progress: number, last: boolean): DxfGeometryChunk {
+		let instances: DxfInstancedGeometry[] = [];
+		if (last) {
+			const instanced: InstancedDrawing = this.blockInstancer.build();
+			if (!instanced.bounds.isEmpty()) {
+				this.updateBounds(instanced.bounds);
+			}
+			instances = instanced.geometries;
+		}
+
+		const rooms: DxfRoomOutline[] = this.pendingRooms.map(room => {
+			room.object.updateWorldMatrix(true, false);
+
+			return {
+				linePositions: new Float32Array(GeometryBatcher.positions(room.object, room.object.matrixWorld)),
+				shapePoints: DxfSceneBuilder.shapePoints(room.shape)
+			};
+		});
+		const roomTransforms: DxfRoomTransform[] = this.pendingRoomTransforms;
+
+		this.pendingRooms = [];
+		this.pendingRoomTransforms = [];
+
+		return {
+			progress,
+			last,
+			bounds: {
+				x: {...this.bounds.x},
+				y: {...this.bounds.y},
+				z: {...this.bounds.z},
+			},
+			batches: this.geometryBatcher.flush(),
+			instances,
+			rooms,
+			roomTransforms
+		};
+	}
+
+	/**
+	 * Draw a placement of the passed block.
+	 * Placements are instanced where possible and built with the last chunk.
+	 * @param block to draw
+	 * @param transform from block coordinates into the coordinates of the placement
+	 * @param expand function expanding the block definition into objects in block coordinates
+	 * @returns null in case the placement is instanced, otherwise the expanded and transformed block
+	 */
+	public drawBlock(block: DxfBlock, transform: Matrix4, expand: () => Object3D): Object3D | null {
+		return this.blockInstancer.draw(block, transform, expand);
+	}
+
+	/**
+	 * Add a room object the user is able to map to.
+	 * @param roomObject that is mappable to
+	 * @param shape of the object
+	 */
+	public addMappingRoom(roomObject: Line, shape: Shape): void {
+		if (this.blockInstancer.buildingPrototype) {
+			// The object is in block coordinates, so the block is expanded for each placement instead
+			this.blockInstancer.notifyRoomObject();
+			return;
+		}
+
+		this.roomIndices.set(roomObject.uuid, this.roomIndices.size);
+		this.pendingRooms.push({object: roomObject, shape});
+	}
+
+	/**
+	 * Add vertices that should be transformed later for room mappings.
+	 * See method mapToRoom of the canvas source.
+	 * @param vertices to transform later
+	 * @param transformed the shape to transform to
+	 */
+	public addVerticesToTransformForRoomMappings(vertices: DxfPosition[], transformed: Shape): void {
+		this.pendingRoomTransforms.push({
+			hashCode: VerticesHash.calculateVerticesHashCode(vertices),
+			shapePoints: DxfSceneBuilder.shapePoints(transformed)
+		});
+	}
+
+	/**
+	 * Get the interpolated points of the passed shape.
+	 * @param shape to get points of
+	 */
+	private static shapePoints(shape: Shape): Float32Array {
+		const points: Vector2[] = shape.getPoints(DxfGlobals.divisions);
+
+		const result: Float32Array = new Float32Array(points.length * 2);
+		for (let i = 0; i < points.length; i++) {
+			result[i * 2] = points[i].x;
+			result[i * 2 + 1] = points[i].y;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Update the current bounds.
+	 * @param bounds of a drawn object
+	 */
+	private updateBounds(bounds: Box3): void {
+		if (bounds.isEmpty()) {
+			return;
+		}
+
+		if (this.bounds.x.min === null || this.bounds.x.min > bounds.min.x) {
+			this.bounds.x.min = bounds.min.x;
+		}
+		if (this.bounds.x.max === null || this.bounds.x.max < bounds.max.x) {
+			this.bounds.x.max = bounds.max.x;
+		}
+
+		if (this.bounds.y.min === null || this.bounds.y.min > bounds.min.y) {
+			this.bounds.y.min = bounds.min.y;
+		}
+		if (this.bounds.y.max === null || this.bounds.y.max < bounds.max.y) {
+			this.bounds.y.max = bounds.max.y;
+		}
+
+		if (this.bounds.z.min === null || this.bounds.z.min > bounds.min.z) {
+			this.bounds.z.min = bounds.min.z;
+		}
+		if (this.bounds.z.max === null || this.bounds.z.max < bounds.max.z) {
+			this.bounds.z.max = bounds.max.z;
+		}
+	}
+
+}
+
+/**
+ * Room object waiting to be sent with the next chunk.
+ */
+interface PendingRoom {
+
+	/**
+	 * Outline of the room.
+	 */
+	object: Line;
+
+	/**
+	 * Shape of the room.
+	 */
+	shape: Shape;
+
+}
@@ -314,6 +314,26 @@ export interface DxfInsertEntity extends DxfEntity, DxfPosition {
 	 */
 	block: string;
 
+	/**
+	 * Rotation of the block in degrees.
+	 */
+	rotation?: number;
+
+	/**
+	 * Scale of the block along the X-axis.
+	 */
+	scaleX?: number;
+
+	/**
+	 * Scale of the block along the Y-axis.
+	 */
+	scaleY?: number;
+
+	/**
+	 * Scale of the block along the Z-axis.
+	 */
+	scaleZ?: number;
+
 }
 
 /**
@@ -1,7 +1,7 @@
 import {AbstractEntityHandler} from "./abstract-entity-handler";
 import {Dxf, DxfArcEntity, DxfEntity} from "../dxf";
 import {ArcCurve, BufferGeometry, Line, LineBasicMaterial, Material, Object3D} from "three";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 import {DxfGlobals} from "../util/dxf-globals";
 
 /**
@@ -18,9 +18,9 @@ export class ArcHandler extends AbstractEntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
 	 */
-	public process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D {
+	public process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D {
 		const e: DxfArcEntity = entity as DxfArcEntity;
 
 		const arc: ArcCurve = new ArcCurve(
@@ -1,6 +1,6 @@
 import {Object3D} from "three";
 import {Dxf, DxfEntity} from "../dxf";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 
 /**
  * Handler dealing with drawing DXF entities.
@@ -11,8 +11,9 @@ export interface EntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
+	 * @returns the drawn object or null if the entity is built by the scene builder later on (for example instanced)
 	 */
-	process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D;
+	process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D | null;
 
 }
@@ -1,12 +1,14 @@
 import {AbstractEntityHandler} from "./abstract-entity-handler";
 import {Dxf, DxfBlock, DxfEntity, DxfInsertEntity} from "../dxf";
-import {Object3D} from "three";
+import {Euler, Matrix4, Object3D, Quaternion, Vector3} from "three";
 import {EntityHandler} from "./entity-handler";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 import {EntityHandlers} from "./entity-handlers";
 
 /**
  * Handler being able to process Insert entities.
+ * Placements of blocks are instanced by the scene builder where possible
+ * instead of copying the block's geometry for each of them.
  */
 export class InsertHandler extends AbstractEntityHandler {
 
@@ -19,17 +21,24 @@ export class InsertHandler extends AbstractEntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
 	 */
-	public process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D {
+	public process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D | null {
 		const e: DxfInsertEntity = entity as DxfInsertEntity;
 
 		const block: DxfBlock = dxf.blocksByName.get(e.block);
 
+		return src.drawBlock(block, InsertHandler.transform(e, block), () => this.expand(block, dxf, src));
+	}
+
+	/**
+	 * Expand the entities of the passed block in block coordinates.
+	 * @param block to expand
+	 * @param dxf the DXF format
+	 * @param src the scene builder
+	 */
+	private expand(block: DxfBlock, dxf: Dxf, src: DxfSceneBuilder): Object3D {
 		const group: Object3D = new Object3D();
-		group.position.x = e.x ?? 0;
-		group.position.y = e.y ?? 0;
-		group.position.z = e.z ?? 0;
 
 		if (!!block.entities) {
 			for (const entity of block.entities) {
@@ -38,13 +47,30 @@ export class InsertHandler extends AbstractEntityHandler {
 					throw new Error(`Entity type '${entity.type}' is not supported`);
 				}
 
-				const object: Object3D = handler.process(entity, dxf, src);
-
-				group.add(object);
+				const object: Object3D | null = handler.process(entity, dxf, src);
+				if (!!object) {
+					group.add(object);
+				}
 			}
 		}
 
 		return group;
 	}
 
+	/**
+	 * Get the transformation from block coordinates into the coordinates of the passed placement.
+	 * @param e placement of the block
+	 * @param block to place
+	 */
+	private static transform(e: DxfInsertEntity, block: DxfBlock): Matrix4 {
+		const placement: Matrix4 = new Matrix4().compose(
+			new Vector3(e.x ?? 0, e.y ?? 0, e.z ?? 0),
+			new Quaternion().setFromEuler(new Euler(0, 0, (e.rotation ?? 0) * Math.PI / 180)),
+			new Vector3(e.scaleX ?? 1, e.scaleY ?? 1, e.scaleZ ?? 1)
+		);
+
+		// The base point of the block is placed at the insertion point
+		return placement.multiply(new Matrix4().makeTranslation(-(block.x ?? 0), -(block.y ?? 0), -(block.z ?? 0)));
+	}
+
 }
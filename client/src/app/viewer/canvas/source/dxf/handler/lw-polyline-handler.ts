@@ -1,7 +1,7 @@
 import {AbstractEntityHandler} from "./abstract-entity-handler";
 import {Dxf, DxfEntity, DxfLWPolylineEntity, DxfPolylineVertex} from "../dxf";
-import {BufferGeometry, Line, LineBasicMaterial, Material, MeshBasicMaterial, Object3D, Shape, ShapeBufferGeometry, Vector2} from "three";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {BufferGeometry, Line, LineBasicMaterial, Material, MeshBasicMaterial, Object3D, Shape, Vector2} from "three";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 import {DxfGlobals} from "../util/dxf-globals";
 
 /**
@@ -18,9 +18,9 @@ export class LWPolylineHandler extends AbstractEntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
 	 */
-	public process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D {
+	public process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D {
 		const e: DxfLWPolylineEntity = entity as DxfLWPolylineEntity;
 
 		const vertices: DxfPolylineVertex[] = [...e.vertices];
@@ -76,7 +76,7 @@ export class LWPolylineHandler extends AbstractEntityHandler {
 		const material: Material = new LineBasicMaterial({linewidth: e.thickness ?? 1, color: color});
 
 		if (containedBulge) {
-			src.addVerticesToTransformForRoomMappings(e.vertices, new ShapeBufferGeometry(shape));
+			src.addVerticesToTransformForRoomMappings(e.vertices, shape);
 		}
 
 		const line: Line = new Line(geometry, material);
@@ -1,7 +1,7 @@
 import {AbstractEntityHandler} from "./abstract-entity-handler";
 import {Dxf, DxfEntity, DxfMTextEntity} from "../dxf";
 import {Box3, Font, FontLoader, Material, Mesh, MeshBasicMaterial, Object3D, TextGeometry} from "three";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 import {FontUtil} from "../../../../../util/font/font-util";
 
 /**
@@ -42,13 +42,13 @@ export class MTextHandler extends AbstractEntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
 	 */
-	public process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D {
+	public process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D {
 		const e: DxfMTextEntity = entity as DxfMTextEntity;
 
 		const geometry: TextGeometry = new TextGeometry(e.string, {
-			font: MTextHandler.font,
+			font: MTextHandler.getFont(),
 			height: 0,
 			size: e.nominalTextHeight * 4 / 5
 		});
@@ -13,7 +13,7 @@ import {
 	Vector3
 } from "three";
 import {Curve} from "three/src/extras/core/Curve";
-import {DxfCanvasSource} from "../dxf-canvas-source";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
 import {DxfGlobals} from "../util/dxf-globals";
 
 /**
@@ -30,9 +30,9 @@ export class SplineHandler extends AbstractEntityHandler {
 	 * Process the passed entity.
 	 * @param entity to process
 	 * @param dxf the DXF format
-	 * @param src the canvas source object
+	 * @param src the scene builder
 	 */
-	public process(entity: DxfEntity, dxf: Dxf, src: DxfCanvasSource): Object3D {
+	public process(entity: DxfEntity, dxf: Dxf, src: DxfSceneBuilder): Object3D {
 		const e: DxfSplineEntity = entity as DxfSplineEntity;
 
 		const curves: Curve<Vector2 | Vector3>[] = this.getCurves(e);
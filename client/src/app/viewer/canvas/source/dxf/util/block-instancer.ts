@@ -0,0 +1,222 @@
+import {Box3, Line, Matrix4, Mesh, Object3D, Points} from "three";
+import {DxfBlock} from "../dxf";
+import {DxfInstancedGeometry} from "../worker/dxf-worker-messages";
+import {GeometryBatcher} from "./geometry-batcher";
+
+/**
+ * Collects the placements (INSERT entities) of block definitions of a DXF file,
+ * so that each block definition can be drawn once for all its placements by using GPU instancing.
+ * Memory and draw calls then scale with the number of distinct blocks instead of the number of placements.
+ * Blocks containing objects the user can map rooms to are expanded for every placement,
+ * as room hit-testing needs them individually.
+ */
+export class BlockInstancer {
+
+	/**
+	 * Number of floats of an instance transformation matrix.
+	 */
+	private static readonly MATRIX_SIZE: number = 16;
+
+	/**
+	 * Instanced blocks mapped by their name.
+	 */
+	private readonly blocks: Map<string, InstancedBlock> = new Map<string, InstancedBlock>();
+
+	/**
+	 * Names of blocks that cannot be instanced.
+	 */
+	private readonly expandedBlocks: Set<string> = new Set<string>();
+
+	/**
+	 * Depth of the block definitions currently being expanded.
+	 * Inserts nested in a block definition are part of the expanded geometry and thus never instanced.
+	 */
+	private expandDepth: number = 0;
+
+	/**
+	 * Whether a block definition is currently being expanded into a prototype.
+	 */
+	private _buildingPrototype: boolean = false;
+
+	/**
+	 * Whether a room object has been registered while building the current prototype.
+	 */
+	private roomObjectRegistered: boolean = false;
+
+	/**
+	 * Whether a block definition is currently being expanded into a prototype.
+	 * Objects created meanwhile are in block coordinates and must not be registered as room objects.
+	 */
+	public get buildingPrototype(): boolean {
+		return this._buildingPrototype;
+	}
+
+	/**
+	 * Notify the instancer that a room object has been created while building a prototype,
+	 * which prevents the block from being instanced.
+	 */
+	public notifyRoomObject(): void {
+		this.roomObjectRegistered = true;
+	}
+
+	/**
+	 * Draw a placement of the passed block.
+	 * @param block to draw
+	 * @param transform of the placement
+	 * @param expand function expanding the block definition into objects in block coordinates
+	 * @returns null in case the placement is instanced, otherwise the expanded and transformed block
+	 */
+	public draw(block: DxfBlock, transform: Matrix4, expand: () => Object3D): Object3D | null {
+		if (this.expandDepth === 0 && !this.expandedBlocks.has(block.name)) {
+			let instanced: InstancedBlock = this.blocks.get(block.name);
+			if (!instanced) {
+				instanced = this.createInstancedBlock(expand);
+			}
+
+			if (!!instanced) {
+				this.blocks.set(block.name, instanced);
+				instanced.transforms.push(transform);
+				return null;
+			}
+
+			this.expandedBlocks.add(block.name);
+		}
+
+		const group: Object3D = this.expand(expand);
+		group.applyMatrix4(transform);
+
+		return group;
+	}
+
+	/**
+	 * Build the geometry drawing all instanced placements.
+	 */
+	public build(): InstancedDrawing {
+		const geometries: DxfInstancedGeometry[] = [];
+		const bounds: Box3 = new Box3();
+
+		for (const instanced of this.blocks.values()) {
+			instanced.prototype.traverse(object => {
+				if (object instanceof Line || object instanceof Mesh || object instanceof Points) {
+					geometries.push(BlockInstancer.instance(object, instanced.transforms));
+				}
+			});
+
+			if (!instanced.bounds.isEmpty()) {
+				for (const transform of instanced.transforms) {
+					bounds.union(instanced.bounds.clone().applyMatrix4(transform));
+				}
+			}
+		}
+
+		return {geometries, bounds};
+	}
+
+	/**
+	 * Expand a block definition.
+	 * @param expand function expanding the block definition
+	 */
+	private expand(expand: () => Object3D): Object3D {
+		this.expandDepth++;
+		try {
+			return expand();
+		} finally {
+			this.expandDepth--;
+		}
+	}
+
+	/**
+	 * Expand the block definition once to serve as prototype of all its placements.
+	 * @param expand function expanding the block definition
+	 * @returns the instanced block or null if the block cannot be instanced
+	 */
+	private createInstancedBlock(expand: () => Object3D): InstancedBlock | null {
+		this._buildingPrototype = true;
+		this.roomObjectRegistered = false;
+
+		let prototype: Object3D;
+		try {
+			prototype = this.expand(expand);
+		} finally {
+			this._buildingPrototype = false;
+		}
+		if (this.roomObjectRegistered) {
+			return null;
+		}
+
+		let supported: boolean = true;
+		prototype.traverse(object => supported = supported && GeometryBatcher.isSupported(object));
+		if (!supported) {
+			return null;
+		}
+
+		prototype.updateMatrixWorld(true);
+
+		return {
+			prototype,
+			bounds: new Box3().setFromObject(prototype),
+			transforms: []
+		};
+	}
+
+	/**
+	 * Get the geometry drawing the passed object of a block prototype for all placements.
+	 * @param object of the block prototype
+	 * @param transforms of the placements
+	 */
+	private static instance(object: Line | Mesh | Points, transforms: Matrix4[]): DxfInstancedGeometry {
+		const matrix: Matrix4 = new Matrix4();
+		const matrices: Float32Array = new Float32Array(transforms.length * BlockInstancer.MATRIX_SIZE);
+		for (let i = 0; i < transforms.length; i++) {
+			matrix.multiplyMatrices(transforms[i], object.matrixWorld).toArray(matrices, i * BlockInstancer.MATRIX_SIZE);
+		}
+
+		return {
+			kind: GeometryBatcher.kind(object),
+			color: GeometryBatcher.color(object),
+			size: GeometryBatcher.size(object),
+			positions: new Float32Array(GeometryBatcher.positions(object, new Matrix4())),
+			matrices
+		};
+	}
+
+}
+
+/**
+ * Block drawn for all its placements by instancing.
+ */
+interface InstancedBlock {
+
+	/**
+	 * Objects of the block definition in block coordinates.
+	 */
+	prototype: Object3D;
+
+	/**
+	 * Bounds of the prototype.
+	 */
+	bounds: Box3;
+
+	/**
+	 * Transformations of the placements.
+	 */
+	transforms: Matrix4[];
+
+}
+
+/**
+ * Geometry drawing the instanced block placements.
+ */
+export interface InstancedDrawing {
+
+	/**
+	 * Geometry of the instanced objects.
+	 */
+	geometries: DxfInstancedGeometry[];
+
+	/**
+	 * Bounds of all placements.
+	 */
+	bounds: Box3;
+
+}
@@ -0,0 +1,29 @@
+import {Dxf, DxfBlock, Helper} from "dxf";
+
+/**
+ * Parser of DXF file data, used by the web workers and the main thread alike.
+ */
+export class DxfFileParser {
+
+	/**
+	 * Parse the passed DXF file data.
+	 * @param data to parse
+	 * @param charsetName to decode the data with
+	 */
+	public static parse(data: Uint8Array, charsetName?: string): Dxf {
+		const contents: string = new TextDecoder(charsetName).decode(data);
+
+		const helper: Helper = new Helper(contents);
+
+		const dxf: Dxf = helper.parsed as Dxf;
+
+		// Create a lookup map for blocks by their name
+		dxf.blocksByName = new Map<string, DxfBlock>();
+		for (const block of dxf.blocks) {
+			dxf.blocksByName.set(block.name, block);
+		}
+
+		return dxf;
+	}
+
+}
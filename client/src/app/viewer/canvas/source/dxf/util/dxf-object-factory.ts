@@ -0,0 +1,151 @@
+import {
+	BufferAttribute,
+	BufferGeometry,
+	InstancedBufferGeometry,
+	InstancedInterleavedBuffer,
+	InstancedMesh,
+	InterleavedBufferAttribute,
+	LineBasicMaterial,
+	LineSegments,
+	Material,
+	Matrix4,
+	Mesh,
+	MeshBasicMaterial,
+	Object3D,
+	Points,
+	PointsMaterial,
+	Shader
+} from "three";
+import {DxfGeometryBatch, DxfGeometryKind, DxfInstancedGeometry} from "../worker/dxf-worker-messages";
+
+/**
+ * Factory creating the three.js objects of geometry built by a DXF worker.
+ */
+export class DxfObjectFactory {
+
+	/**
+	 * Number of floats per vertex.
+	 */
+	private static readonly VERTEX_SIZE: number = 3;
+
+	/**
+	 * Number of floats of an instance transformation matrix.
+	 */
+	private static readonly MATRIX_SIZE: number = 16;
+
+	/**
+	 * Render order of lines and points, drawn on top of fills.
+	 */
+	private static readonly LINE_RENDER_ORDER: number = 1;
+
+	/**
+	 * Create the object drawing the passed merged geometry.
+	 * @param batch to draw
+	 */
+	public static createBatch(batch: DxfGeometryBatch): Object3D {
+		const geometry: BufferGeometry = new BufferGeometry();
+		geometry.setAttribute("position", new BufferAttribute(batch.positions, DxfObjectFactory.VERTEX_SIZE));
+		geometry.computeBoundingSphere();
+
+		return DxfObjectFactory.createObject(batch.kind, geometry, DxfObjectFactory.createMaterial(batch.kind, batch.color, batch.size));
+	}
+
+	/**
+	 * Create the object drawing the passed block geometry for all its placements.
+	 * @param instanced geometry to draw
+	 */
+	public static createInstanced(instanced: DxfInstancedGeometry): Object3D {
+		const count: number = instanced.matrices.length / DxfObjectFactory.MATRIX_SIZE;
+		const material: Material = DxfObjectFactory.createMaterial(instanced.kind, instanced.color, instanced.size);
+
+		if (instanced.kind === "fills") {
+			const geometry: BufferGeometry = new BufferGeometry();
+			geometry.setAttribute("position", new BufferAttribute(instanced.positions, DxfObjectFactory.VERTEX_SIZE));
+
+			const mesh: InstancedMesh = new InstancedMesh(geometry, material, count);
+			const matrix: Matrix4 = new Matrix4();
+			for (let i = 0; i < count; i++) {
+				mesh.setMatrixAt(i, matrix.fromArray(instanced.matrices, i * DxfObjectFactory.MATRIX_SIZE));
+			}
+			mesh.frustumCulled = false; // The bounding sphere of the geometry does not cover the instances
+
+			return mesh;
+		}
+
+		// Three.js only supports instancing of meshes, so lines and points get the
+		// per instance transformation injected into the vertex shader of their material
+		const buffer: InstancedInterleavedBuffer = new InstancedInterleavedBuffer(instanced.matrices, DxfObjectFactory.MATRIX_SIZE, 1);
+
+		const geometry: InstancedBufferGeometry = new InstancedBufferGeometry();
+		geometry.setAttribute("position", new BufferAttribute(instanced.positions, DxfObjectFactory.VERTEX_SIZE));
+		for (let column = 0; column < 4; column++) {
+			geometry.setAttribute(`instanceColumn${column}`, new InterleavedBufferAttribute(buffer, 4, column * 4));
+		}
+		geometry.instanceCount = count;
+
+		material.onBeforeCompile = DxfObjectFactory.injectInstanceTransform;
+		material.customProgramCacheKey = () => "block-instance";
+
+		const result: Object3D = DxfObjectFactory.createObject(instanced.kind, geometry, material);
+		result.frustumCulled = false;
+
+		return result;
+	}
+
+	/**
+	 * Create the object of the passed kind.
+	 * @param kind of the geometry
+	 * @param geometry to draw
+	 * @param material to draw with
+	 */
+	private static createObject(kind: DxfGeometryKind, geometry: BufferGeometry, material: Material): Object3D {
+		if (kind === "fills") {
+			return new Mesh(geometry, material);
+		}
+
+		const result: Object3D = kind === "lines"
+			? new LineSegments(geometry, material)
+			: new Points(geometry, material);
+		result.renderOrder = DxfObjectFactory.LINE_RENDER_ORDER;
+
+		return result;
+	}
+
+	/**
+	 * Create the material for geometry of the passed kind.
+	 * @param kind of the geometry
+	 * @param color of the material
+	 * @param size of points
+	 */
+	private static createMaterial(kind: DxfGeometryKind, color: number, size: number): Material {
+		switch (kind) {
+			case "fills":
+				return new MeshBasicMaterial({color});
+			case "lines":
+				return new LineBasicMaterial({color});
+			case "points":
+				return new PointsMaterial({color, size});
+		}
+	}
+
+	/**
+	 * Apply the per instance transformation in the vertex shader.
+	 * @param shader to modify
+	 */
+	private static injectInstanceTransform(shader: Shader): void {
+		shader.vertexShader = [
+			"attribute vec4 instanceColumn0;",
+			"attribute vec4 instanceColumn1;",
+			"attribute vec4 instanceColumn2;",
+			"attribute vec4 instanceColumn3;",
+			shader.vertexShader.replace(
+				"#include <begin_vertex>",
+				[
+					"#include <begin_vertex>",
+					"transformed = (mat4(instanceColumn0, instanceColumn1, instanceColumn2, instanceColumn3) * vec4(transformed, 1.0)).xyz;"
+				].join("\n")
+			)
+		].join("\n");
+	}
+
+}
@@ -0,0 +1,246 @@
+import {
+	BufferAttribute,
+	BufferGeometry,
+	Geometry,
+	Line,
+	LineBasicMaterial,
+	LineLoop,
+	LineSegments,
+	Matrix4,
+	Mesh,
+	MeshBasicMaterial,
+	Object3D,
+	Points,
+	PointsMaterial,
+	Vector3
+} from "three";
+import {DxfGeometryBatch, DxfGeometryKind} from "../worker/dxf-worker-messages";
+
+/**
+ * Merges the static line and fill geometry of drawn DXF entities sharing a material
+ * into a few large buffers, so that big plans need a few draw calls instead of one per entity.
+ * Each buffer comes with an index table mapping its primitives back to the entity
+ * and room object they have been created from.
+ */
+export class GeometryBatcher {
+
+	/**
+	 * Number of floats per vertex.
+	 */
+	private static readonly VERTEX_SIZE: number = 3;
+
+	/**
+	 * Batches mapped by their kind and material.
+	 */
+	private readonly batches: Map<string, Batch> = new Map<string, Batch>();
+
+	/**
+	 * Add the geometry of the passed drawn object to the batches.
+	 * Nothing is added unless all geometry of the object can be merged.
+	 * @param object drawn for the entity
+	 * @param entityIndex index of the entity the object has been drawn for
+	 * @param roomIndexOf function returning the room index of an object or -1 if it is no room object
+	 * @returns whether the object has been added
+	 */
+	public add(object: Object3D, entityIndex: number, roomIndexOf: (object: Object3D) => number): boolean {
+		let supported: boolean = true;
+		object.traverse(o => supported = supported && GeometryBatcher.isSupported(o));
+		if (!supported) {
+			return false;
+		}
+
+		object.updateMatrixWorld(true);
+		object.traverse(o => {
+			if (o instanceof Line || o instanceof Mesh || o instanceof Points) {
+				const batch: Batch = this.batch(o);
+				batch.starts.push(batch.positions.length / GeometryBatcher.VERTEX_SIZE);
+				batch.entityIndices.push(entityIndex);
+				batch.roomIndices.push(roomIndexOf(o));
+
+				for (const value of GeometryBatcher.positions(o, o.matrixWorld)) {
+					batch.positions.push(value);
+				}
+			}
+		});
+
+		return true;
+	}
+
+	/**
+	 * Take the merged geometry added since the last call.
+	 */
+	public flush(): DxfGeometryBatch[] {
+		const result: DxfGeometryBatch[] = [];
+		for (const batch of this.batches.values()) {
+			result.push({
+				kind: batch.kind,
+				color: batch.color,
+				size: batch.size,
+				positions: new Float32Array(batch.positions),
+				starts: Uint32Array.from(batch.starts),
+				entityIndices: Uint32Array.from(batch.entityIndices),
+				roomIndices: Int32Array.from(batch.roomIndices)
+			});
+		}
+
+		this.batches.clear();
+
+		return result;
+	}
+
+	/**
+	 * Check whether the geometry of the passed object can be merged.
+	 * @param object to check
+	 */
+	public static isSupported(object: Object3D): boolean {
+		if (object instanceof Line) {
+			return object.material instanceof LineBasicMaterial && !object.material.transparent;
+		}
+		if (object instanceof Mesh) {
+			return object.material instanceof MeshBasicMaterial && !object.material.transparent;
+		}
+		if (object instanceof Points) {
+			return object.material instanceof PointsMaterial && !object.material.transparent;
+		}
+
+		return object.type === "Object3D" || object.type === "Group";
+	}
+
+	/**
+	 * Get the kind of geometry of the passed object.
+	 * @param object to get kind of
+	 */
+	public static kind(object: Line | Mesh | Points): DxfGeometryKind {
+		if (object instanceof Line) {
+			return "lines";
+		}
+
+		return object instanceof Mesh ? "fills" : "points";
+	}
+
+	/**
+	 * Get the color of the material of the passed object.
+	 * @param object to get color of
+	 */
+	public static color(object: Line | Mesh | Points): number {
+		return (object.material as LineBasicMaterial | MeshBasicMaterial | PointsMaterial).color.getHex();
+	}
+
+	/**
+	 * Get the size of points of the passed object.
+	 * @param object to get size of
+	 */
+	public static size(object: Line | Mesh | Points): number {
+		return object instanceof Points ? (object.material as PointsMaterial).size : 1;
+	}
+
+	/**
+	 * Get the vertices of the passed object transformed by the passed matrix.
+	 * Lines are converted to line segments and indexed geometry is expanded,
+	 * so that meshes result in a plain list of triangles.
+	 * @param object to get vertices of
+	 * @param matrix to transform the vertices with
+	 */
+	public static positions(object: Line | Mesh | Points, matrix: Matrix4): number[] {
+		let geometry: BufferGeometry;
+		if (object.geometry instanceof Geometry) {
+			geometry = object instanceof Mesh
+				? new BufferGeometry().fromGeometry(object.geometry)
+				: new BufferGeometry().setFromObject(object);
+		} else {
+			geometry = object.geometry as BufferGeometry;
+		}
+		if (!!geometry.getIndex()) {
+			geometry = geometry.toNonIndexed();
+		}
+
+		const attribute: BufferAttribute = geometry.getAttribute("position") as BufferAttribute;
+		const vertices: number[] = [];
+		const vertex: Vector3 = new Vector3();
+		for (let i = 0; i < attribute.count; i++) {
+			vertex.fromBufferAttribute(attribute, i).applyMatrix4(matrix);
+			vertices.push(vertex.x, vertex.y, vertex.z);
+		}
+
+		if (!(object instanceof Line) || object instanceof LineSegments) {
+			return vertices;
+		}
+
+		// Convert the line strip (or loop) to line segments
+		const count: number = attribute.count;
+		const segmentCount: number = object instanceof LineLoop && count > 2 ? count : count - 1;
+		const result: number[] = [];
+		for (let i = 0; i < segmentCount; i++) {
+			const start: number = i * GeometryBatcher.VERTEX_SIZE;
+			const end: number = ((i + 1) % count) * GeometryBatcher.VERTEX_SIZE;
+			result.push(
+				vertices[start], vertices[start + 1], vertices[start + 2],
+				vertices[end], vertices[end + 1], vertices[end + 2]
+			);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Get or create the batch for the kind and material of the passed object.
+	 * @param object to get batch for
+	 */
+	private batch(object: Line | Mesh | Points): Batch {
+		const kind: DxfGeometryKind = GeometryBatcher.kind(object);
+		const color: number = GeometryBatcher.color(object);
+		const size: number = GeometryBatcher.size(object);
+		const key: string = `${kind}:${color}:${size}`;
+
+		let batch: Batch = this.batches.get(key);
+		if (!batch) {
+			batch = {kind, color, size, positions: [], starts: [], entityIndices: [], roomIndices: []};
+			this.batches.set(key, batch);
+		}
+
+		return batch;
+	}
+
+}
+
+/**
+ * Geometry of a single kind and material being collected.
+ */
+interface Batch {
+
+	/**
+	 * Kind of the geometry.
+	 */
+	kind: DxfGeometryKind;
+
+	/**
+	 * Color of the material.
+	 */
+	color: number;
+
+	/**
+	 * Size of points.
+	 */
+	size: number;
+
+	/**
+	 * Vertex positions.
+	 */
+	positions: number[];
+
+	/**
+	 * Index of the first vertex of each added object.
+	 */
+	starts: number[];
+
+	/**
+	 * Index of the entity each added object has been drawn for.
+	 */
+	entityIndices: number[];
+
+	/**
+	 * Room index of each added object.
+	 */
+	roomIndices: number[];
+
+}
@@ -0,0 +1,34 @@
+import {DxfPosition} from "dxf";
+
+/**
+ * Hash codes of vertex lists used to look up room mappings.
+ */
+export class VerticesHash {
+
+	/**
+	 * Calculate a hash code for the given vertices.
+	 * @param vertices to calculate hash code for
+	 */
+	public static calculateVerticesHashCode(vertices: DxfPosition[]): number {
+		let hashCode: number = 1;
+
+		for (const vertex of vertices) {
+			hashCode = 31 * hashCode + VerticesHash.calculateVertexHashCode(vertex);
+		}
+
+		return Math.round(hashCode);
+	}
+
+	/**
+	 * Calculate a hash code for the passed vertex.
+	 * @param vertex to calculate hash code for
+	 */
+	private static calculateVertexHashCode(vertex: DxfPosition): number {
+		let result: number = vertex.x;
+		result = 31 * result + vertex.y;
+		result = 31 * result + (vertex.z ?? 0);
+
+		return Math.round(result);
+	}
+
+}
@@ -0,0 +1,93 @@
+import {Dxf} from "dxf";
+import {DxfGlobals} from "../util/dxf-globals";
+import {DxfFileParser} from "../util/dxf-file-parser";
+import {DxfSceneBuilder} from "../dxf-scene-builder";
+import {DxfGeometryChunk, DxfWorkerRequest, DxfWorkerResponse} from "./dxf-worker-messages";
+
+/**
+ * Share of the progress reserved for parsing the DXF file.
+ */
+const PARSE_PROGRESS: number = 20;
+
+/**
+ * Scope of the worker.
+ */
+const scope: Worker = self as unknown as Worker;
+
+/**
+ * Last parsed DXF file, kept so that redrawing the same source does not parse it again.
+ */
+let cached: {sourceID: number, dxf: Dxf} | null = null;
+
+/**
+ * Parse a DXF file and build its geometry in chunks posted back to the main thread.
+ */
+scope.addEventListener("message", (event: MessageEvent) => {
+	const request: DxfWorkerRequest = event.data as DxfWorkerRequest;
+
+	try {
+		DxfGlobals.setContrastColor(request.contrastColor);
+		DxfGlobals.setBackgroundColor(request.backgroundColor);
+		DxfGlobals.divisions = request.divisions;
+
+		const dxf: Dxf = parse(request);
+
+		new DxfSceneBuilder(dxf).build(chunk => {
+			chunk.progress = PARSE_PROGRESS + chunk.progress * (100 - PARSE_PROGRESS) / 100;
+			post({type: "chunk", chunk}, transferables(chunk));
+		});
+	} catch (e) {
+		post({type: "error", message: e.message, workerFailure: false});
+	}
+});
+
+/**
+ * Get the parsed DXF file of the passed request, parsing it unless it is cached.
+ * @param request to get the parsed file of
+ */
+function parse(request: DxfWorkerRequest): Dxf {
+	if (!!cached && cached.sourceID === request.sourceID) {
+		return cached.dxf;
+	}
+
+	cached = null;
+	if (!request.data) {
+		throw new Error(`Data of source ${request.sourceID} has not been sent`);
+	}
+
+	const dxf: Dxf = DxfFileParser.parse(request.data, request.charsetName);
+	cached = {sourceID: request.sourceID, dxf};
+
+	return dxf;
+}
+
+/**
+ * Post the passed response to the main thread.
+ * @param response to post
+ * @param transfer objects to transfer instead of copy
+ */
+function post(response: DxfWorkerResponse, transfer: Transferable[] = []): void {
+	scope.postMessage(response, transfer);
+}
+
+/**
+ * Get the buffers of the typed arrays of the passed chunk.
+ * @param chunk to get buffers of
+ */
+function transferables(chunk: DxfGeometryChunk): Transferable[] {
+	const result: Transferable[] = [];
+	for (const batch of chunk.batches) {
+		result.push(batch.positions.buffer, batch.starts.buffer, batch.entityIndices.buffer, batch.roomIndices.buffer);
+	}
+	for (const instanced of chunk.instances) {
+		result.push(instanced.positions.buffer, instanced.matrices.buffer);
+	}
+	for (const room of chunk.rooms) {
+		result.push(room.linePositions.buffer, room.shapePoints.buffer);
+	}
+	for (const transform of chunk.roomTransforms) {
+		result.push(transform.shapePoints.buffer);
+	}
+
+	return result;
+}
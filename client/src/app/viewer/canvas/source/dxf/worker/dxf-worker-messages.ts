@@ -0,0 +1,240 @@
+import {Bounds3D} from "../../util/bounds";
+
+/**
+ * Request to a DXF worker to build the geometry of a DXF file.
+ */
+export interface DxfWorkerRequest {
+
+	/**
+	 * ID of the canvas source the DXF file belongs to.
+	 */
+	sourceID: number;
+
+	/**
+	 * Data of the DXF file, omitted if the worker still holds the parsed file of the source.
+	 */
+	data?: Uint8Array;
+
+	/**
+	 * Name of the charset to decode the data with.
+	 */
+	charsetName?: string;
+
+	/**
+	 * Contrast color to draw entities without color with.
+	 */
+	contrastColor: number;
+
+	/**
+	 * Background color entities are drawn on.
+	 */
+	backgroundColor: number;
+
+	/**
+	 * Divisions used to interpolate shapes.
+	 */
+	divisions: number;
+
+}
+
+/**
+ * Response of a DXF worker.
+ */
+export type DxfWorkerResponse = DxfGeometryChunkMessage | DxfErrorMessage;
+
+/**
+ * Message carrying a chunk of built geometry.
+ */
+export interface DxfGeometryChunkMessage {
+
+	/**
+	 * Type of the message.
+	 */
+	type: "chunk";
+
+	/**
+	 * The chunk.
+	 */
+	chunk: DxfGeometryChunk;
+
+}
+
+/**
+ * Message reporting that the geometry could not be built.
+ */
+export interface DxfErrorMessage {
+
+	/**
+	 * Type of the message.
+	 */
+	type: "error";
+
+	/**
+	 * Message of the error.
+	 */
+	message: string;
+
+	/**
+	 * Whether the worker itself failed (for example because its script could not be loaded)
+	 * instead of the DXF file.
+	 */
+	workerFailure: boolean;
+
+}
+
+/**
+ * Chunk of geometry built from the entities of a DXF file.
+ * All typed arrays of a chunk are transferred instead of copied.
+ */
+export interface DxfGeometryChunk {
+
+	/**
+	 * Progress of building the geometry in range [0; 100].
+	 */
+	progress: number;
+
+	/**
+	 * Whether this is the last chunk.
+	 */
+	last: boolean;
+
+	/**
+	 * Bounds of all geometry built so far.
+	 */
+	bounds: Bounds3D;
+
+	/**
+	 * Merged static geometry of the chunk.
+	 */
+	batches: DxfGeometryBatch[];
+
+	/**
+	 * Instanced block geometry (only sent with the last chunk).
+	 */
+	instances: DxfInstancedGeometry[];
+
+	/**
+	 * Room objects the user can map to, continuing the room indices of previous chunks.
+	 */
+	rooms: DxfRoomOutline[];
+
+	/**
+	 * Shapes room mappings with certain vertices are transformed to.
+	 */
+	roomTransforms: DxfRoomTransform[];
+
+}
+
+/**
+ * Kind of geometry.
+ * Lines are line segments (vertex pairs), fills are triangles (vertex triples).
+ */
+export type DxfGeometryKind = "lines" | "fills" | "points";
+
+/**
+ * Geometry of a single kind and material merged from many objects.
+ */
+export interface DxfGeometryBatch {
+
+	/**
+	 * Kind of the geometry.
+	 */
+	kind: DxfGeometryKind;
+
+	/**
+	 * Color of the material.
+	 */
+	color: number;
+
+	/**
+	 * Size of points.
+	 */
+	size: number;
+
+	/**
+	 * Vertex positions in world coordinates (x, y, z).
+	 */
+	positions: Float32Array;
+
+	/**
+	 * Index of the first vertex of each merged object (ascending).
+	 */
+	starts: Uint32Array;
+
+	/**
+	 * Index of the DXF entity each merged object has been drawn for.
+	 */
+	entityIndices: Uint32Array;
+
+	/**
+	 * Index of the room each merged object is or -1 if it is no room object.
+	 */
+	roomIndices: Int32Array;
+
+}
+
+/**
+ * Geometry of a block definition drawn once per placement.
+ */
+export interface DxfInstancedGeometry {
+
+	/**
+	 * Kind of the geometry.
+	 */
+	kind: DxfGeometryKind;
+
+	/**
+	 * Color of the material.
+	 */
+	color: number;
+
+	/**
+	 * Size of points.
+	 */
+	size: number;
+
+	/**
+	 * Vertex positions in the coordinates of the object within the block (x, y, z).
+	 */
+	positions: Float32Array;
+
+	/**
+	 * Transformation matrices (column-major, 16 floats each) of the placements.
+	 */
+	matrices: Float32Array;
+
+}
+
+/**
+ * Room object the user can map to.
+ */
+export interface DxfRoomOutline {
+
+	/**
+	 * Vertex positions of the outline in world coordinates as line segments (x, y, z).
+	 */
+	linePositions: Float32Array;
+
+	/**
+	 * Points of the room's shape (x, y).
+	 */
+	shapePoints: Float32Array;
+
+}
+
+/**
+ * Shape room mappings with certain vertices are transformed to.
+ */
+export interface DxfRoomTransform {
+
+	/**
+	 * Hash code of the vertices of the room mapping.
+	 */
+	hashCode: number;
+
+	/**
+	 * Points of the shape to transform to (x, y).
+	 */
+	shapePoints: Float32Array;
+
+}
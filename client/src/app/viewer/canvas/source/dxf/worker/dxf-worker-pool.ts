@@ -0,0 +1,314 @@
+import {DxfWorkerRequest, DxfWorkerResponse} from "./dxf-worker-messages";
+
+/**
+ * Pool of web workers building the geometry of DXF files off the main thread.
+ * Each file is parsed by a single worker, as DXF cannot be split reliably,
+ * but several files (for example of multiple open viewers) are built in parallel.
+ * Workers keep the last file they parsed, so jobs redrawing a source prefer the worker holding it.
+ */
+export class DxfWorkerPool {
+
+	/**
+	 * Maximum number of workers of the shared pool.
+	 */
+	private static readonly MAX_SIZE: number = 4;
+
+	/**
+	 * The shared pool.
+	 */
+	private static sharedPool: DxfWorkerPool;
+
+	/**
+	 * Whether a worker failed to start, in which case workers are not used anymore.
+	 */
+	private static failed: boolean = false;
+
+	/**
+	 * Maximum number of workers.
+	 */
+	private readonly size: number;
+
+	/**
+	 * Number of created workers.
+	 */
+	private created: number = 0;
+
+	/**
+	 * Workers waiting for a job.
+	 */
+	private readonly idle: Worker[] = [];
+
+	/**
+	 * Jobs waiting for a worker.
+	 */
+	private readonly queue: DxfWorkerJob[] = [];
+
+	/**
+	 * IDs of the sources whose parsed file the workers hold.
+	 */
+	private readonly parsedSources: Map<Worker, number> = new Map<Worker, number>();
+
+	constructor(size: number) {
+		this.size = Math.max(1, size);
+	}
+
+	/**
+	 * Get the pool shared by all DXF canvas sources.
+	 * It leaves one core to the main thread.
+	 */
+	public static get shared(): DxfWorkerPool {
+		if (!DxfWorkerPool.sharedPool) {
+			const cores: number = navigator.hardwareConcurrency ?? 2;
+			DxfWorkerPool.sharedPool = new DxfWorkerPool(Math.min(cores - 1, DxfWorkerPool.MAX_SIZE));
+		}
+
+		return DxfWorkerPool.sharedPool;
+	}
+
+	/**
+	 * Check whether DXF files can be built by workers.
+	 * Exports are single inlined files opened from anywhere (also from file://),
+	 * which do not contain the separately bundled worker script.
+	 */
+	public static get available(): boolean {
+		return !DxfWorkerPool.failed
+			&& typeof Worker !== "undefined"
+			&& location.protocol !== "file:"
+			&& window["app_isExportMode"] !== true;
+	}
+
+	/**
+	 * Stop using workers after one of them failed to start.
+	 */
+	public static reportFailure(): void {
+		DxfWorkerPool.failed = true;
+	}
+
+	/**
+	 * Run the passed request as soon as a worker is available.
+	 * @param request to run
+	 * @throws Error in case a worker could not be created
+	 */
+	public run(request: DxfWorkerRequest): DxfWorkerJob {
+		const job: DxfWorkerJob = new DxfWorkerJob(request, this);
+
+		const worker: Worker | null = this.acquire(request.sourceID);
+		if (!!worker) {
+			job.start(worker);
+		} else {
+			this.queue.push(job);
+		}
+
+		return job;
+	}
+
+	/**
+	 * Give back the worker of a finished or cancelled job.
+	 * @param worker to give back
+	 * @param terminate whether the worker is still busy and must be terminated
+	 */
+	public release(worker: Worker, terminate: boolean): void {
+		if (terminate) {
+			this.parsedSources.delete(worker);
+			worker.terminate();
+			worker = DxfWorkerPool.createWorker();
+		}
+
+		const next: DxfWorkerJob | undefined = this.queue.shift();
+		if (!!next) {
+			next.start(worker);
+		} else {
+			this.idle.push(worker);
+		}
+	}
+
+	/**
+	 * Remove a job still waiting for a worker.
+	 * @param job to remove
+	 */
+	public dequeue(job: DxfWorkerJob): void {
+		const index: number = this.queue.indexOf(job);
+		if (index >= 0) {
+			this.queue.splice(index, 1);
+		}
+	}
+
+	/**
+	 * Check whether the passed worker holds the parsed file of a source.
+	 * @param worker to check
+	 * @param sourceID ID of the source
+	 */
+	public holdsSource(worker: Worker, sourceID: number): boolean {
+		return this.parsedSources.get(worker) === sourceID;
+	}
+
+	/**
+	 * Remember the source the passed worker holds the parsed file of.
+	 * @param worker holding the file
+	 * @param sourceID ID of the source or null if the worker holds no file
+	 */
+	public setParsedSource(worker: Worker, sourceID: number | null): void {
+		if (sourceID === null) {
+			this.parsedSources.delete(worker);
+		} else {
+			this.parsedSources.set(worker, sourceID);
+		}
+	}
+
+	/**
+	 * Get an idle worker, preferring one that holds the parsed file of the passed source,
+	 * or create one if the pool is not exhausted.
+	 * @param sourceID ID of the source to build
+	 */
+	private acquire(sourceID: number): Worker | null {
+		if (this.idle.length > 0) {
+			const index: number = this.idle.findIndex(worker => this.holdsSource(worker, sourceID));
+			return index >= 0 ? this.idle.splice(index, 1)[0] : this.idle.pop();
+		}
+
+		if (this.created < this.size) {
+			const worker: Worker = DxfWorkerPool.createWorker();
+			this.created++;
+			return worker;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Create a new worker.
+	 */
+	private static createWorker(): Worker {
+		return new Worker(new URL("./dxf-canvas-source.worker", import.meta.url), {type: "module"});
+	}
+
+}
+
+/**
+ * Job of a DXF worker delivering its responses in order.
+ */
+export class DxfWorkerJob {
+
+	/**
+	 * Request of the job.
+	 */
+	private readonly request: DxfWorkerRequest;
+
+	/**
+	 * Pool running the job.
+	 */
+	private readonly pool: DxfWorkerPool;
+
+	/**
+	 * Worker running the job or null if not running.
+	 */
+	private worker: Worker | null = null;
+
+	/**
+	 * Responses received but not yet taken.
+	 */
+	private readonly responses: DxfWorkerResponse[] = [];
+
+	/**
+	 * Function resolving the pending call of next() or null.
+	 */
+	private waiting: ((response: DxfWorkerResponse) => void) | null = null;
+
+	/**
+	 * Whether the job has been finished or cancelled.
+	 */
+	private finished: boolean = false;
+
+	constructor(request: DxfWorkerRequest, pool: DxfWorkerPool) {
+		this.request = request;
+		this.pool = pool;
+	}
+
+	/**
+	 * Start the job on the passed worker.
+	 * @param worker to run the job on
+	 */
+	public start(worker: Worker): void {
+		this.worker = worker;
+
+		worker.onmessage = (event: MessageEvent) => {
+			const response: DxfWorkerResponse = event.data as DxfWorkerResponse;
+			if (response.type === "error") {
+				this.pool.setParsedSource(worker, null);
+			}
+			if (response.type === "error" || response.chunk.last) {
+				this.finish(false);
+			}
+
+			this.deliver(response);
+		};
+		worker.onerror = (event: ErrorEvent) => {
+			event.preventDefault();
+
+			this.finish(true);
+			this.deliver({type: "error", message: event.message, workerFailure: true});
+		};
+
+		// The data is only copied to workers that do not hold the parsed file yet
+		const holdsSource: boolean = this.pool.holdsSource(worker, this.request.sourceID);
+		this.pool.setParsedSource(worker, this.request.sourceID);
+		worker.postMessage({...this.request, data: holdsSource ? undefined : this.request.data});
+	}
+
+	/**
+	 * Get the next response of the job.
+	 */
+	public next(): Promise<DxfWorkerResponse> {
+		if (this.responses.length > 0) {
+			return Promise.resolve(this.responses.shift());
+		}
+
+		return new Promise<DxfWorkerResponse>(resolve => this.waiting = resolve);
+	}
+
+	/**
+	 * Cancel the job.
+	 */
+	public cancel(): void {
+		if (this.finished) {
+			return;
+		}
+
+		if (!!this.worker) {
+			this.finish(true);
+		} else {
+			this.finished = true;
+			this.pool.dequeue(this);
+		}
+	}
+
+	/**
+	 * Deliver the passed response to the pending or next call of next().
+	 * @param response to deliver
+	 */
+	private deliver(response: DxfWorkerResponse): void {
+		if (!!this.waiting) {
+			const resolve: (response: DxfWorkerResponse) => void = this.waiting;
+			this.waiting = null;
+			resolve(response);
+		} else {
+			this.responses.push(response);
+		}
+	}
+
+	/**
+	 * Finish the job and give back its worker.
+	 * @param terminate whether the worker is still busy and must be terminated
+	 */
+	private finish(terminate: boolean): void {
+		const worker: Worker = this.worker;
+		worker.onmessage = null;
+		worker.onerror = null;
+
+		this.worker = null;
+		this.finished = true;
+
+		this.pool.release(worker, terminate);
+	}
+
+}
@@ -1,7 +1,8 @@
-import {ChangeDetectionStrategy, Component, OnInit} from "@angular/core";
+import {ChangeDetectionStrategy, ChangeDetectorRef, Component, OnDestroy, OnInit} from "@angular/core";
 import {MatDialogRef} from "@angular/material/dialog";
 import {CADFileService} from "../../../../service/cad/cad-file.service";
 import {CADFileReference} from "../../../../service/cad/cad-file-reference";
+import {Page} from "../../../../service/page";
 
 /**
  * Dialog component to open an already uploaded CAD file.
@@ -12,16 +13,47 @@ import {CADFileReference} from "../../../../service/cad/cad-file-reference";
 	styleUrls: ["open-dialog.component.scss"],
 	changeDetection: ChangeDetectionStrategy.OnPush
 })
-export class OpenDialogComponent implements OnInit {
+export class OpenDialogComponent implements OnInit, OnDestroy {
 
 	/**
-	 * Promise for loading CAD file references.
+	 * Delay after the last filter change before the listing is reloaded (in milliseconds).
 	 */
-	public referencePromise: Promise<CADFileReference[]>;
+	private static readonly FILTER_DELAY: number = 300;
+
+	/**
+	 * CAD file references loaded so far (newest first).
+	 */
+	public references: CADFileReference[] = [];
+
+	/**
+	 * Whether a page of references is currently loading.
+	 */
+	public loading: boolean = true;
+
+	/**
+	 * Cursor of the next page of references, if there is one.
+	 */
+	public next?: string;
+
+	/**
+	 * Prefix the names of the listed CAD files have to start with.
+	 */
+	public filter: string = "";
+
+	/**
+	 * Timeout ID of the pending filter reload.
+	 */
+	private filterTimeoutID?: number;
+
+	/**
+	 * Counter of the issued listing requests used to drop outdated responses.
+	 */
+	private requestCounter: number = 0;
 
 	constructor(
 		private readonly dialogRef: MatDialogRef<OpenDialogComponent>,
-		private readonly cadFileService: CADFileService
+		private readonly cadFileService: CADFileService,
+		private readonly cd: ChangeDetectorRef
 	) {
 	}
 
@@ -29,12 +61,57 @@ export class OpenDialogComponent implements OnInit {
 	 * Called on component initialization.
 	 */
 	public ngOnInit(): void {
-		this.referencePromise = this.cadFileService.getAll().then((refs) => refs.sort((r1, r2) => {
-			const date1: Date = new Date(r1.createdTimestamp);
-			const date2: Date = new Date(r2.createdTimestamp);
+		this.load(false);
+	}
+
+	/**
+	 * Called on component destruction.
+	 */
+	public ngOnDestroy(): void {
+		window.clearTimeout(this.filterTimeoutID);
+	}
+
+	/**
+	 * Called when the name filter changed.
+	 */
+	public onFilterChange(): void {
+		window.clearTimeout(this.filterTimeoutID);
+		this.filterTimeoutID = window.setTimeout(() => this.load(false), OpenDialogComponent.FILTER_DELAY);
+	}
+
+	/**
+	 * Called when the next page of references should be loaded.
+	 */
+	public onLoadMore(): void {
+		this.load(true);
+	}
+
+	/**
+	 * Load a page of references.
+	 * @param more whether to append the next page instead of starting over
+	 */
+	private async load(more: boolean): Promise<void> {
+		const request: number = ++this.requestCounter;
+		this.loading = true;
+		if (!more) {
+			this.references = [];
+			this.next = undefined;
+		}
+		this.cd.markForCheck();
+
+		const namePrefix: string = this.filter.trim();
+		const page: Page<CADFileReference> = await this.cadFileService.getPage(
+			namePrefix.length > 0 ? namePrefix : undefined,
+			more ? this.next : undefined
+		);
+		if (request !== this.requestCounter) {
+			return; // Outdated by a newer request
+		}
 
-			return date2.getTime() - date1.getTime();
-		}));
+		this.references = more ? [...this.references, ...page.items] : page.items;
+		this.next = page.next;
+		this.loading = false;
+		this.cd.markForCheck();
 	}
 
 	/**
@@ -7,7 +7,6 @@ import {UploadDialogData} from "./upload-dialog-data";
 import {FileUtil} from "../../../../util/file-util";
 import {CanvasSourceReaders} from "../../../canvas/source/canvas-source-readers";
 import {CADFileReference} from "../../../../service/cad/cad-file-reference";
-import {CADFile} from "../../../../service/cad/cad-file";
 import {CADFileService} from "../../../../service/cad/cad-file.service";
 
 /**
@@ -95,14 +94,7 @@ export class UploadDialogComponent implements OnInit {
 
 			this.stepper.next();
 
-			const base64FileContents: string = await FileUtil.readFileBase64(this.selectedFile);
-			const cadFile: CADFile = {
-				name: this.selectedFile.name,
-				type: "DXF",
-				data: base64FileContents,
-				charsetName: "utf-8"
-			};
-			this.resultingReference = await this.cadFileService.create(cadFile);
+			this.resultingReference = await this.cadFileService.upload(this.selectedFile, "DXF", "utf-8");
 			this.snackBar.open(`CAD file with name '${this.resultingReference.name}' has been uploaded`, "OK", {
 				duration: 3000
 			});
@@ -3,15 +3,11 @@ import {MAT_DIALOG_DATA, MatDialogRef} from "@angular/material/dialog";
 import {FormBuilder, FormGroup, Validators} from "@angular/forms";
 import {MatVerticalStepper} from "@angular/material/stepper";
 import {RoomMappingUploadDialogData} from "./room-mapping-upload-dialog-data";
-import {NgxCsvParser, NgxCSVParserError} from "ngx-csv-parser";
 import {FileUtil} from "../../../../util/file-util";
-import {first} from "rxjs/operators";
-import {RoomMapping} from "../../../../service/room-mapping/room-mapping";
-import {Vertex} from "../../../../service/room-mapping/vertex";
 import {RoomMappingService} from "../../../../service/room-mapping/room-mapping.service";
-import {RoomMappingCollection} from "../../../../service/room-mapping/room-mapping-collection";
 import {RoomMappingReference} from "../../../../service/room-mapping/room-mapping-reference";
 import {MatSnackBar} from "@angular/material/snack-bar";
+import {HttpErrorResponse} from "@angular/common/http";
 
 /**
  * Component for uploading room mappings.
@@ -47,7 +43,6 @@ export class RoomMappingUploadDialogComponent implements OnInit {
 
 	constructor(
 		private readonly dialogRef: MatDialogRef<RoomMappingUploadDialogComponent>,
-		private readonly csvParser: NgxCsvParser,
 		private readonly formBuilder: FormBuilder,
 		private readonly roomMappingService: RoomMappingService,
 		private readonly snackBar: MatSnackBar,
@@ -88,102 +83,34 @@ export class RoomMappingUploadDialogComponent implements OnInit {
 		this.mappingFormGroup.controls.selectedFileCtrl.setValue(file.name);
 	}
 
-	/**
-	 * Read the mapping from the selected CSV file.
-	 * @param delimiter to use for parsing
-	 * @param roomNameHeader header name of the room name CSV header
-	 * @param categoryHeader header name of the category CSV header
-	 * @param descriptionHeader header name of the description CSV header
-	 * @param mappingVertexHeader header name of the mapping vertex CSV header
-	 * @param polygonListHeader header name of the polygon list CSV header
-	 */
-	private async readMappingFromCSV(
-		delimiter: string,
-		roomNameHeader: string,
-		categoryHeader: string,
-		descriptionHeader: string,
-		mappingVertexHeader: string,
-		polygonListHeader: string
-	): Promise<RoomMapping[]> {
-		const entries: any[] | NgxCSVParserError = await this.csvParser
-			.parse(this.selectedFile, {delimiter, header: true})
-			.pipe(first())
-			.toPromise();
-
-		if (entries instanceof NgxCSVParserError) {
-			throw new Error("Could not parse the provided CSV");
-		} else {
-			// Map entries to room mapping entries.
-			const result: RoomMapping[] = [];
-			for (const entry of entries) {
-				// Parse polygon list (if any).
-				const vertices: Vertex[] = [];
-				let polygonStr: string = entry[polygonListHeader];
-				if (!!polygonStr) {
-					polygonStr = polygonStr.substring(1, polygonStr.length - 1);
-					const parts: string[] = polygonStr.split(",");
-
-					for (let i = 0; i < parts.length; i += 2) {
-						const first: string = parts[i].trim().substring(1);
-						const second: string = parts[i + 1].substring(0, parts[i + 1].length - 1).trim();
-
-						vertices.push({
-							x: parseFloat(first),
-							y: parseFloat(second)
-						} as Vertex);
-					}
-				}
-
-				// Parse mapping vertex (if any).
-				let mappingVertex: Vertex = null;
-				const mappingVertexStr: string = entry[mappingVertexHeader];
-				if (!!mappingVertexStr) {
-					const parts: string[] = mappingVertexStr.split(",");
-					const first: string = parts[0].trim().substring(1);
-					const second: string = parts[1].substring(0, parts[1].length - 1).trim();
-
-					mappingVertex = {
-						x: parseFloat(first),
-						y: parseFloat(second)
-					};
-				}
-
-				result.push({
-					roomName: entry[roomNameHeader],
-					category: entry[categoryHeader],
-					description: entry[descriptionHeader],
-					mappingVertex: mappingVertex,
-					vertices
-				} as RoomMapping);
-			}
-
-			return result;
-		}
-	}
-
 	/**
 	 * Called when the upload should start.
+	 * The CSV file is parsed and imported by the server.
 	 */
 	public async onUpload(): Promise<void> {
 		if (!!this.selectedFile) {
 			this.stepper.next();
 
-			const roomMappings: RoomMapping[] = await this.readMappingFromCSV(
-				this.mappingFormGroup.controls.delimiter.value,
-				this.mappingFormGroup.controls.roomNameHeader.value,
-				this.mappingFormGroup.controls.categoryHeader.value,
-				this.mappingFormGroup.controls.descriptionHeader.value,
-				this.mappingFormGroup.controls.mappingVertexHeader.value,
-				this.mappingFormGroup.controls.polygonListHeader.value
-			);
-
-			const roomMappingCollection: RoomMappingCollection = {
-				cadFileID: this.data.cadFileID,
-				name: this.selectedFile.name,
-				mappings: roomMappings
-			};
-
-			this.resultingReference = await this.roomMappingService.create(roomMappingCollection);
+			try {
+				this.resultingReference = await this.roomMappingService.importCSV(this.selectedFile, this.data.cadFileID, {
+					delimiter: this.mappingFormGroup.controls.delimiter.value,
+					roomNameHeader: this.mappingFormGroup.controls.roomNameHeader.value,
+					categoryHeader: this.mappingFormGroup.controls.categoryHeader.value,
+					descriptionHeader: this.mappingFormGroup.controls.descriptionHeader.value,
+					mappingVertexHeader: this.mappingFormGroup.controls.mappingVertexHeader.value,
+					polygonHeader: this.mappingFormGroup.controls.polygonListHeader.value
+				});
+			} catch (e) {
+				const message: string = e instanceof HttpErrorResponse && typeof e.error === "string"
+					? e.error
+					: "The room mapping could not be uploaded";
+				this.snackBar.open(message, "OK", {
+					duration: 5000
+				});
+				this.dialogRef.close();
+				return;
+			}
+
 			this.snackBar.open(`Room mapping with name '${this.resultingReference.name}' has been uploaded`, "OK", {
 				duration: 3000
 			});
@@ -18,7 +18,6 @@ import {CanvasComponent, LoadEvent} from "./canvas/canvas.component";
 import {MatDialog, MatDialogRef} from "@angular/material/dialog";
 import {CADFileReference} from "../service/cad/cad-file-reference";
 import {CADFileService} from "../service/cad/cad-file.service";
-import {CADFile} from "../service/cad/cad-file";
 import {CanvasSourceReaders} from "./canvas/source/canvas-source-readers";
 import {CanvasSourceReader} from "./canvas/source/canvas-source-reader";
 import {OpenDialogComponent} from "./dialog/cad/open/open-dialog.component";
@@ -34,6 +33,7 @@ import {ExportSettings} from "../service/settings/export-settings";
 import {ExportService} from "../service/export/export.service";
 import {RoomMappingReference} from "../service/room-mapping/room-mapping-reference";
 import * as FileSaver from "file-saver";
+import {BinaryUtil} from "../util/binary-util";
 import {LegendComponent} from "./legend/legend.component";
 import {ColorSelectService} from "../service/colorSelect/colorSelect.service";
 
@@ -251,7 +251,7 @@ export class ViewerComponent implements OnInit, OnDestroy, AfterViewInit {
 			throw new Error(`CAD file type '${settings.cadFile.type}' is unsupported`);
 		}
 
-		this.canvasComponent.source = await reader.read(settings.cadFile);
+		this.canvasComponent.source = await reader.read(BinaryUtil.decodeBase64(settings.cadFile.data), settings.cadFile.charsetName);
 		this.canvasComponent.setRoomMappings(settings.roomMappingCollection.mappings, settings.colorMap);
 		this.controls.canvasOptionsEnabled = true;
 	}
@@ -272,14 +272,14 @@ export class ViewerComponent implements OnInit, OnDestroy, AfterViewInit {
 			this.loadEventSub = this.canvasComponent.loadEvents.subscribe((event) => this.onCanvasLoading(event));
 		}
 
-		const cadFile: CADFile = await this.cadFileService.getOne(reference.id);
-
-		const reader: CanvasSourceReader = CanvasSourceReaders.getReader(cadFile.type);
+		const reader: CanvasSourceReader = CanvasSourceReaders.getReader(reference.type);
 		if (!reader) {
-			throw new Error(`CAD file type '${cadFile.type}' is unsupported`);
+			throw new Error(`CAD file type '${reference.type}' is unsupported`);
 		}
 
-		this.canvasComponent.source = await reader.read(cadFile);
+		const data: Uint8Array = await this.cadFileService.getData(reference.id, reference.contentHash);
+
+		this.canvasComponent.source = await reader.read(data, reference.charsetName);
 		this.controls.canvasOptionsEnabled = true;
 	}
 
@@ -0,0 +1,86 @@
+package de.be.bpv.server.persistence.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Store for binary large objects addressed by the hash of their content.
+ * Storing identical content twice results in the same blob.
+ * As a blob may be shared, it is pinned from being stored until the reference
+ * to it has been committed, so that it cannot be deleted in the meantime.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the content read from the passed stream.
+     * If a blob with identical content already exists, it is reused.
+     * The blob is pinned until {@link #unpin(String)} is called, which has to happen
+     * once the reference to the blob has been committed or discarded.
+     *
+     * @param in stream to read the content from
+     * @return descriptor of the stored blob
+     * @throws IOException in case the content could not be stored
+     */
+    StoredBlob store(InputStream in) throws IOException;
+
+    /**
+     * Check whether a blob with the passed hash exists.
+     *
+     * @param hash of the blob
+     * @return whether the blob exists
+     */
+    boolean exists(String hash);
+
+    /**
+     * List the hashes of all stored blobs.
+     *
+     * @return hashes of the stored blobs
+     * @throws IOException in case the blobs could not be listed
+     */
+    List<String> list() throws IOException;
+
+    /**
+     * Open a stream to read the content of the blob with the passed hash.
+     *
+     * @param hash of the blob to read
+     * @return stream to read the content from
+     * @throws IOException in case the blob could not be opened
+     */
+    InputStream open(String hash) throws IOException;
+
+    /**
+     * Transfer a range of the content of the blob with the passed hash to the given channel.
+     *
+     * @param hash     of the blob to transfer
+     * @param position in bytes to start transferring from
+     * @param count    number of bytes to transfer
+     * @param target   to transfer the content to
+     * @throws IOException in case the content could not be transferred
+     */
+    void transferTo(String hash, long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Release a pin taken by {@link #store(InputStream)}.
+     *
+     * @param hash of the pinned blob
+     */
+    void unpin(String hash);
+
+    /**
+     * Delete the blob with the passed hash unless it is pinned or still referenced.
+     * The reference check is done while holding the lock of the blob, so a concurrent
+     * {@link #store(InputStream)} of identical content either pins the blob before
+     * or stores it anew after the deletion.
+     * Does nothing if there is no such blob.
+     *
+     * @param hash       of the blob to delete
+     * @param referenced check whether the blob is still referenced
+     * @return whether the blob was unreferenced and has been deleted
+     * @throws IOException in case the blob could not be deleted
+     */
+    boolean deleteIfUnreferenced(String hash, BooleanSupplier referenced) throws IOException;
+
+}
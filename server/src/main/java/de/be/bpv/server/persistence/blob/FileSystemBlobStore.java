@@ -0,0 +1,220 @@
+package de.be.bpv.server.persistence.blob;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Blob store keeping blobs as files named by the SHA-256 hash of their content.
+ * Reads are served using {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * so that the content never has to be copied through the heap.
+ */
+@Component
+@ConditionalOnProperty(name = "blob.store.type", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemBlobStore implements BlobStore {
+
+    /**
+     * Name of the folder temporary files are written to before being moved to their final location.
+     */
+    private static final String TEMP_FOLDER_NAME = "tmp";
+
+    /**
+     * Number of locks the blobs are striped over.
+     */
+    private static final int LOCK_COUNT = 64;
+
+    /**
+     * Root folder of the blob store.
+     */
+    private final Path root;
+
+    /**
+     * Locks guarding storing and deleting blobs, striped by the hash of the blobs.
+     */
+    private final Object[] locks = new Object[LOCK_COUNT];
+
+    /**
+     * Number of pins by the hash of the pinned blobs.
+     */
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    public FileSystemBlobStore(@Value("${blob.store.path}") String path) throws IOException {
+        this.root = Paths.get(path).toAbsolutePath().normalize();
+
+        Path tempFolder = Files.createDirectories(root.resolve(TEMP_FOLDER_NAME));
+
+        // Left over by uploads interrupted by the last shutdown
+        try (Stream<Path> tempFiles = Files.list(tempFolder)) {
+            for (Path tempFile : (Iterable<Path>) tempFiles::iterator) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public StoredBlob store(InputStream in) throws IOException {
+        Path tempFile = Files.createTempFile(root.resolve(TEMP_FOLDER_NAME), "blob-", ".tmp");
+        try {
+            MessageDigest digest = createDigest();
+            long size;
+            try (DigestInputStream digestIn = new DigestInputStream(in, digest)) {
+                size = Files.copy(digestIn, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String hash = toHex(digest.digest());
+            Path target = resolve(hash);
+            synchronized (lock(hash)) {
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // Stored concurrently with identical content
+                    }
+                }
+
+                pins.merge(hash, 1, Integer::sum);
+            }
+
+            return new StoredBlob(hash, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(resolve(hash));
+    }
+
+    @Override
+    public List<String> list() throws IOException {
+        try (Stream<Path> paths = Files.walk(root, 2)) {
+            return paths
+                    .filter(path -> path.getNameCount() - root.getNameCount() == 2
+                            && !path.getParent().getFileName().toString().equals(TEMP_FOLDER_NAME)
+                            && Files.isRegularFile(path))
+                    .map(path -> path.getFileName().toString())
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        return Files.newInputStream(resolve(hash));
+    }
+
+    @Override
+    public void transferTo(String hash, long position, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(hash), StandardOpenOption.READ)) {
+            long end = position + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break; // Reached the end of the file
+                }
+
+                position += transferred;
+            }
+        }
+    }
+
+    @Override
+    public void unpin(String hash) {
+        pins.computeIfPresent(hash, (h, count) -> count > 1 ? count - 1 : null);
+    }
+
+    @Override
+    public boolean deleteIfUnreferenced(String hash, BooleanSupplier referenced) throws IOException {
+        Path path = resolve(hash);
+        synchronized (lock(hash)) {
+            if (pins.containsKey(hash) || referenced.getAsBoolean()) {
+                return false;
+            }
+
+            Files.deleteIfExists(path);
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the lock guarding the blob with the passed hash.
+     *
+     * @param hash of the blob
+     * @return lock
+     */
+    private Object lock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_COUNT)];
+    }
+
+    /**
+     * Resolve the path of the blob with the passed hash.
+     * Blobs are spread over sub folders named by the first two characters of the hash
+     * to keep the number of files per folder small.
+     *
+     * @param hash of the blob
+     * @return path of the blob
+     */
+    private Path resolve(String hash) {
+        if (hash.length() < 3 || !hash.chars().allMatch(c -> Character.digit(c, 16) != -1)) {
+            throw new IllegalArgumentException("Invalid blob hash '" + hash + "'");
+        }
+
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Create the message digest used to hash blob contents.
+     *
+     * @return message digest
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Convert the passed bytes to a hex string.
+     *
+     * @param bytes to convert
+     * @return hex string
+     */
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+    }
+
+}
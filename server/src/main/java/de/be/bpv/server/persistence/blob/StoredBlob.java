@@ -0,0 +1,41 @@
+package de.be.bpv.server.persistence.blob;
+
+/**
+ * Descriptor of a blob in a {@link BlobStore}.
+ */
+public class StoredBlob {
+
+    /**
+     * Hex encoded SHA-256 hash of the blob content.
+     */
+    private final String hash;
+
+    /**
+     * Size of the blob content in bytes.
+     */
+    private final long size;
+
+    public StoredBlob(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+
+    /**
+     * Get the hex encoded SHA-256 hash of the blob content.
+     *
+     * @return hash
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the size of the blob content in bytes.
+     *
+     * @return size
+     */
+    public long getSize() {
+        return size;
+    }
+
+}
@@ -0,0 +1,94 @@
+package de.be.bpv.server.persistence.blob;
+
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import de.be.bpv.server.persistence.geometry.CADGeometryRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deletes blobs at startup that are no longer referenced by any CAD file or geometry.
+ * Blobs are released when their last reference is deleted, but references lost otherwise
+ * (e.g. the in-memory database being discarded on shutdown) would leave them behind forever.
+ */
+@Component
+public class UnreferencedBlobSweeper {
+
+    /**
+     * Logger of the sweeper.
+     */
+    private static final Logger LOGGER = Logger.getLogger(UnreferencedBlobSweeper.class.getName());
+
+    /**
+     * Store to sweep.
+     */
+    private final BlobStore blobStore;
+
+    /**
+     * Repository of the CAD files referencing their data.
+     */
+    private final CADFileRepository cadFileRepository;
+
+    /**
+     * Repository of the geometries referencing their geometry, room index and level blobs.
+     */
+    private final CADGeometryRepository cadGeometryRepository;
+
+    public UnreferencedBlobSweeper(
+            BlobStore blobStore,
+            CADFileRepository cadFileRepository,
+            CADGeometryRepository cadGeometryRepository
+    ) {
+        this.blobStore = blobStore;
+        this.cadFileRepository = cadFileRepository;
+        this.cadGeometryRepository = cadGeometryRepository;
+    }
+
+    /**
+     * Delete all unreferenced blobs once the application has started.
+     * Each blob is checked under its lock, so blobs stored concurrently are never deleted.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweep() {
+        List<String> hashes;
+        try {
+            hashes = blobStore.list();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list the stored blobs", e);
+            return;
+        }
+
+        int deleted = 0;
+        for (String hash : hashes) {
+            try {
+                if (blobStore.deleteIfUnreferenced(hash, () -> isReferenced(hash))) {
+                    deleted++;
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Could not delete blob " + hash, e);
+            }
+        }
+
+        int deletedCount = deleted;
+        LOGGER.info(() -> "Deleted " + deletedCount + " of " + hashes.size() + " stored blobs as unreferenced");
+    }
+
+    /**
+     * Check whether the blob with the passed hash is referenced by any CAD file or geometry.
+     *
+     * @param hash of the blob
+     * @return whether the blob is referenced
+     */
+    private boolean isReferenced(String hash) {
+        return cadFileRepository.countByContentHash(hash) > 0
+                || cadGeometryRepository.countByGeometryHash(hash) > 0
+                || cadGeometryRepository.countByRoomIndexHash(hash) > 0
+                || cadGeometryRepository.countByLevelsGeometryHash(hash) > 0;
+    }
+
+}
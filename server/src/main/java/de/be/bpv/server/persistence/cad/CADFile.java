@@ -2,6 +2,7 @@ package de.be.bpv.server.persistence.cad;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.lang.Nullable;
 
 import javax.persistence.Column;
@@ -11,24 +12,39 @@ import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.Lob;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 import java.util.Date;
 
 /**
  * Entity as representation for a CAD file.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_cad_file_name", columnList = "name, id"),
+        @Index(name = "idx_cad_file_created", columnList = "createdTimestamp, id")
+})
 @JsonInclude(JsonInclude.Include.NON_NULL)
-public class CADFile {
+public class CADFile implements CADFileMetadata {
 
     /**
      * ID of the CAD file.
      */
     @Id
     @Column(unique = true, nullable = false)
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cad_file_id")
+    @SequenceGenerator(name = "cad_file_id", sequenceName = "cad_file_id_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Version of the CAD file, incremented on every change.
+     */
+    @Version
+    private Long version;
+
     /**
      * Name of the CAD file.
      */
@@ -42,9 +58,23 @@ public class CADFile {
     private CADFileType type;
 
     /**
-     * The actual CAD file.
+     * Hex encoded SHA-256 hash of the CAD file data.
+     * The data itself lives in the blob store under this hash.
      */
-    @Lob
+    @Column(length = 64, nullable = true)
+    private String contentHash;
+
+    /**
+     * Size of the CAD file data in bytes.
+     */
+    @Column(nullable = true)
+    private Long size;
+
+    /**
+     * The actual CAD file data.
+     * Only used for the JSON representation, the data itself lives in the blob store.
+     */
+    @Transient
     private byte[] data;
 
     /**
@@ -61,11 +91,19 @@ public class CADFile {
     @CreationTimestamp
     private Date createdTimestamp;
 
+    /**
+     * Timestamp of when the CAD file was last changed.
+     */
+    @Column(nullable = false)
+    @UpdateTimestamp
+    private Date updatedTimestamp;
+
     /**
      * Get the ID of the CAD file.
      *
      * @return ID
      */
+    @Override
     public Long getId() {
         return id;
     }
@@ -79,11 +117,31 @@ public class CADFile {
         this.id = id;
     }
 
+    /**
+     * Get the version of the CAD file.
+     *
+     * @return version
+     */
+    @Override
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the CAD file.
+     *
+     * @param version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     /**
      * Get the name of the CAD file.
      *
      * @return name
      */
+    @Override
     public String getName() {
         return name;
     }
@@ -102,6 +160,7 @@ public class CADFile {
      *
      * @return type
      */
+    @Override
     public CADFileType getType() {
         return type;
     }
@@ -117,28 +176,65 @@ public class CADFile {
 
     /**
      * Get the files data.
+     * This is only set when the data has explicitly been loaded from the blob store.
      *
      * @return data
      */
+    @Nullable
     public byte[] getData() {
         return data;
     }
 
     /**
      * Set the files data.
+     * Note that this does not store the data, which is done by the {@link CADFileDataService}.
      *
      * @param data to set
      */
-    public void setData(byte[] data) {
+    public void setData(@Nullable byte[] data) {
         this.data = data;
     }
 
+    /**
+     * Get the hash of the files data in the blob store.
+     *
+     * @return content hash
+     */
+    @Override
+    @Nullable
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Set the hash and size of the files data in the blob store.
+     *
+     * @param contentHash to set
+     * @param size        of the data in bytes
+     */
+    public void setContent(String contentHash, long size) {
+        this.contentHash = contentHash;
+        this.size = size;
+    }
+
+    /**
+     * Get the size of the files data in bytes.
+     *
+     * @return size
+     */
+    @Override
+    @Nullable
+    public Long getSize() {
+        return size;
+    }
+
     /**
      * Get the name of the charset to interpret the data binary with.
      * This may be null if the data is not to be interpreted as text.
      *
      * @return charset name
      */
+    @Override
     @Nullable
     public String getCharsetName() {
         return charsetName;
@@ -158,6 +254,7 @@ public class CADFile {
      *
      * @return created timestamp
      */
+    @Override
     public Date getCreatedTimestamp() {
         return createdTimestamp;
     }
@@ -171,4 +268,23 @@ public class CADFile {
         this.createdTimestamp = createdTimestamp;
     }
 
+    /**
+     * Get the timestamp of the last change.
+     *
+     * @return updated timestamp
+     */
+    @Override
+    public Date getUpdatedTimestamp() {
+        return updatedTimestamp;
+    }
+
+    /**
+     * Set the timestamp of the last change.
+     *
+     * @param updatedTimestamp to set
+     */
+    public void setUpdatedTimestamp(Date updatedTimestamp) {
+        this.updatedTimestamp = updatedTimestamp;
+    }
+
 }
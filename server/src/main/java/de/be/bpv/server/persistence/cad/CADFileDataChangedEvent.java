@@ -0,0 +1,56 @@
+package de.be.bpv.server.persistence.cad;
+
+/**
+ * Event published when new data has been stored for a CAD file.
+ */
+public class CADFileDataChangedEvent {
+
+    /**
+     * Hash of the new data in the blob store.
+     */
+    private final String contentHash;
+
+    /**
+     * Type of the CAD file.
+     */
+    private final CADFileType type;
+
+    /**
+     * Name of the charset the data is encoded with (may be null).
+     */
+    private final String charsetName;
+
+    public CADFileDataChangedEvent(String contentHash, CADFileType type, String charsetName) {
+        this.contentHash = contentHash;
+        this.type = type;
+        this.charsetName = charsetName;
+    }
+
+    /**
+     * Get the hash of the new data in the blob store.
+     *
+     * @return content hash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Get the type of the CAD file.
+     *
+     * @return type
+     */
+    public CADFileType getType() {
+        return type;
+    }
+
+    /**
+     * Get the name of the charset the data is encoded with.
+     *
+     * @return charset name or null
+     */
+    public String getCharsetName() {
+        return charsetName;
+    }
+
+}
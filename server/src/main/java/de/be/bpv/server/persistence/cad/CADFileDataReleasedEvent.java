@@ -0,0 +1,27 @@
+package de.be.bpv.server.persistence.cad;
+
+/**
+ * Event published after data no CAD file references anymore has been deleted from the blob store.
+ * Listeners should drop everything derived from the data.
+ */
+public class CADFileDataReleasedEvent {
+
+    /**
+     * Hash of the released data.
+     */
+    private final String contentHash;
+
+    public CADFileDataReleasedEvent(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Get the hash of the released data.
+     *
+     * @return content hash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+}
@@ -0,0 +1,224 @@
+package de.be.bpv.server.persistence.cad;
+
+import de.be.bpv.server.persistence.blob.BlobStore;
+import de.be.bpv.server.persistence.blob.StoredBlob;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service streaming CAD file data from and to the blob store
+ * without ever holding a whole file in memory.
+ * Identical data uploaded multiple times is stored only once.
+ */
+@Service
+public class CADFileDataService {
+
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CADFileDataService.class.getName());
+
+    /**
+     * Repository managing CAD files.
+     */
+    private final CADFileRepository cadFileRepository;
+
+    /**
+     * Store holding the CAD file data.
+     */
+    private final BlobStore blobStore;
+
+    /**
+     * Publisher of data change events.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    public CADFileDataService(CADFileRepository cadFileRepository, BlobStore blobStore, ApplicationEventPublisher eventPublisher) {
+        this.cadFileRepository = cadFileRepository;
+        this.blobStore = blobStore;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Create a new CAD file with the data read from the passed stream.
+     *
+     * @param cadFile metadata of the CAD file to create
+     * @param data    stream to read the files data from
+     * @return the created CAD file
+     * @throws IOException in case the data could not be read
+     */
+    @Transactional
+    public CADFile create(CADFile cadFile, InputStream data) throws IOException {
+        StoredBlob blob = blobStore.store(data);
+        unpinAfterCompletion(blob.getHash());
+
+        cadFile.setContent(blob.getHash(), blob.getSize());
+        cadFile = cadFileRepository.save(cadFile);
+
+        publishDataChanged(cadFile);
+
+        return cadFile;
+    }
+
+    /**
+     * Replace the data of the passed CAD file.
+     *
+     * @param cadFile to replace data of
+     * @param data    stream to read the new data from
+     * @throws IOException in case the data could not be read
+     */
+    @Transactional
+    public void replaceData(CADFile cadFile, InputStream data) throws IOException {
+        String previousHash = cadFile.getContentHash();
+
+        StoredBlob blob = blobStore.store(data);
+        unpinAfterCompletion(blob.getHash());
+
+        cadFile.setContent(blob.getHash(), blob.getSize());
+        cadFileRepository.save(cadFile);
+
+        if (!blob.getHash().equals(previousHash)) {
+            publishDataChanged(cadFile);
+
+            if (previousHash != null) {
+                releaseAfterCommit(previousHash);
+            }
+        }
+    }
+
+    /**
+     * Delete the passed CAD file and its data if no other CAD file references it.
+     *
+     * @param cadFile to delete
+     */
+    @Transactional
+    public void delete(CADFile cadFile) {
+        cadFileRepository.delete(cadFile);
+
+        if (cadFile.getContentHash() != null) {
+            releaseAfterCommit(cadFile.getContentHash());
+        }
+    }
+
+    /**
+     * Open a stream to read the data of the passed CAD file.
+     *
+     * @param cadFile to read data of
+     * @return stream to read the data from
+     * @throws IOException in case the data could not be opened
+     */
+    public InputStream openData(CADFileMetadata cadFile) throws IOException {
+        if (cadFile.getContentHash() == null) {
+            return InputStream.nullInputStream();
+        }
+
+        return blobStore.open(cadFile.getContentHash());
+    }
+
+    /**
+     * Read the whole data of the passed CAD file into memory.
+     * Prefer {@link #openData(CADFileMetadata)} or {@link #transferData(CADFileMetadata, long, long, WritableByteChannel)}
+     * for anything but small files.
+     *
+     * @param cadFile to read data of
+     * @return data
+     * @throws IOException in case the data could not be read
+     */
+    public byte[] readData(CADFileMetadata cadFile) throws IOException {
+        try (InputStream in = openData(cadFile)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Transfer a range of the data of the passed CAD file to the given channel.
+     *
+     * @param cadFile to transfer data of
+     * @param offset  in bytes to start transferring from
+     * @param length  number of bytes to transfer
+     * @param target  to transfer the data to
+     * @throws IOException in case the data could not be transferred
+     */
+    public void transferData(CADFileMetadata cadFile, long offset, long length, WritableByteChannel target) throws IOException {
+        if (cadFile.getContentHash() != null) {
+            blobStore.transferTo(cadFile.getContentHash(), offset, length, target);
+        }
+    }
+
+    /**
+     * Publish that the passed CAD file references new data.
+     * Transactional listeners receive the event only once the current transaction committed.
+     *
+     * @param cadFile whose data changed
+     */
+    private void publishDataChanged(CADFile cadFile) {
+        eventPublisher.publishEvent(new CADFileDataChangedEvent(
+                cadFile.getContentHash(),
+                cadFile.getType(),
+                cadFile.getCharsetName()
+        ));
+    }
+
+    /**
+     * Unpin the blob with the passed hash once the current transaction completed.
+     * In case the transaction rolled back, the blob is deleted again unless
+     * it is referenced otherwise.
+     *
+     * @param hash of the blob stored in the current transaction
+     */
+    private void unpinAfterCompletion(String hash) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                blobStore.unpin(hash);
+
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteIfUnreferenced(hash);
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete the blob with the passed hash once the current transaction committed,
+     * given that no CAD file references it anymore.
+     * Afterwards a {@link CADFileDataReleasedEvent} is published.
+     *
+     * @param hash of the blob to release
+     */
+    private void releaseAfterCommit(String hash) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (deleteIfUnreferenced(hash)) {
+                    eventPublisher.publishEvent(new CADFileDataReleasedEvent(hash));
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete the blob with the passed hash unless it is pinned or a CAD file references it.
+     *
+     * @param hash of the blob to delete
+     * @return whether the blob has been deleted
+     */
+    private boolean deleteIfUnreferenced(String hash) {
+        try {
+            return blobStore.deleteIfUnreferenced(hash, () -> cadFileRepository.countByContentHash(hash) > 0);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete unreferenced blob " + hash, e);
+            return false;
+        }
+    }
+
+}
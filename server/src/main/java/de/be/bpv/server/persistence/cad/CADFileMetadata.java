@@ -0,0 +1,79 @@
+package de.be.bpv.server.persistence.cad;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Date;
+
+/**
+ * Metadata of a CAD file without its data.
+ * Used as projection so that looking up CAD files never loads any file data.
+ */
+public interface CADFileMetadata {
+
+    /**
+     * Get the ID of the CAD file.
+     *
+     * @return ID
+     */
+    Long getId();
+
+    /**
+     * Get the version of the CAD file.
+     *
+     * @return version
+     */
+    Long getVersion();
+
+    /**
+     * Get the name of the CAD file.
+     *
+     * @return name
+     */
+    String getName();
+
+    /**
+     * Get the type of the CAD file.
+     *
+     * @return type
+     */
+    CADFileType getType();
+
+    /**
+     * Get the name of the charset to interpret the data binary with.
+     *
+     * @return charset name
+     */
+    @Nullable
+    String getCharsetName();
+
+    /**
+     * Get the hash of the files data in the blob store.
+     *
+     * @return content hash
+     */
+    @Nullable
+    String getContentHash();
+
+    /**
+     * Get the size of the files data in bytes.
+     *
+     * @return size
+     */
+    @Nullable
+    Long getSize();
+
+    /**
+     * Get the created timestamp.
+     *
+     * @return created timestamp
+     */
+    Date getCreatedTimestamp();
+
+    /**
+     * Get the timestamp of the last change.
+     *
+     * @return updated timestamp
+     */
+    Date getUpdatedTimestamp();
+
+}
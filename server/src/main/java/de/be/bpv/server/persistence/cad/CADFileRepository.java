@@ -1,9 +1,33 @@
 package de.be.bpv.server.persistence.cad;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 /**
  * CAD file repository for spring data.
  */
-public interface CADFileRepository extends CrudRepository<CADFile, Long> {
+public interface CADFileRepository extends PagingAndSortingRepository<CADFile, Long>, CADFileRepositoryCustom {
+
+    /**
+     * Get the metadata of the CAD file with the passed ID without loading its data.
+     *
+     * @param id of the CAD file
+     * @return metadata of the CAD file
+     */
+    @Query("SELECT f.id AS id, f.version AS version, f.name AS name, f.type AS type, f.charsetName AS charsetName, "
+            + "f.contentHash AS contentHash, f.size AS size, f.createdTimestamp AS createdTimestamp, "
+            + "f.updatedTimestamp AS updatedTimestamp FROM CADFile f WHERE f.id = :id")
+    Optional<CADFileMetadata> findMetadataById(@Param("id") long id);
+
+    /**
+     * Count the CAD files referencing the data with the passed hash.
+     *
+     * @param contentHash of the data
+     * @return number of CAD files referencing the data
+     */
+    long countByContentHash(String contentHash);
+
 }
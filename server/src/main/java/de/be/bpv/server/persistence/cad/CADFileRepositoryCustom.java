@@ -0,0 +1,25 @@
+package de.be.bpv.server.persistence.cad;
+
+import de.be.bpv.server.persistence.keyset.KeysetCursor;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import org.springframework.lang.Nullable;
+
+/**
+ * Custom queries of the CAD file repository.
+ */
+public interface CADFileRepositoryCustom {
+
+    /**
+     * Find a keyset paginated page of CAD files.
+     * The CAD file data lives in the blob store, so no file data is loaded.
+     *
+     * @param namePrefix the names have to start with (optional)
+     * @param sort       order of the CAD files
+     * @param after      cursor to continue after, null for the first page
+     * @param size       maximum number of CAD files on the page
+     * @return the page
+     */
+    KeysetPage<CADFile> findPage(@Nullable String namePrefix, KeysetSort sort, @Nullable KeysetCursor after, int size);
+
+}
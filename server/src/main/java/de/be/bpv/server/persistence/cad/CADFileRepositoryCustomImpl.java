@@ -0,0 +1,40 @@
+package de.be.bpv.server.persistence.cad;
+
+import de.be.bpv.server.persistence.keyset.KeysetCursor;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetQuery;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Implementation of the custom CAD file queries.
+ */
+public class CADFileRepositoryCustomImpl implements CADFileRepositoryCustom {
+
+    /**
+     * Entity manager to query with.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public KeysetPage<CADFile> findPage(@Nullable String namePrefix, KeysetSort sort, @Nullable KeysetCursor after, int size) {
+        return KeysetQuery.find(
+                entityManager,
+                CADFile.class,
+                (cb, root, predicates) -> {
+                    if (namePrefix != null && !namePrefix.isEmpty()) {
+                        predicates.add(KeysetQuery.nameStartsWith(cb, root, namePrefix));
+                    }
+                },
+                sort,
+                after,
+                size,
+                cadFile -> sort.cursorOf(cadFile.getId(), cadFile.getName(), cadFile.getCreatedTimestamp())
+        );
+    }
+
+}
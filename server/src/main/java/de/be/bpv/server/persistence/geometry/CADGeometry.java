@@ -0,0 +1,222 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OrderBy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Entity referencing the preprocessed geometry of CAD file data.
+ * The geometry is derived from the data only, so it is shared between
+ * all CAD files referencing the same data.
+ */
+@Entity
+public class CADGeometry {
+
+    /**
+     * Hash of the CAD file data the geometry has been derived from.
+     */
+    @Id
+    @Column(length = 64, nullable = false)
+    private String contentHash;
+
+    /**
+     * Version of the binary format the geometry has been written in.
+     */
+    @Column(nullable = false)
+    private int formatVersion;
+
+    /**
+     * Version of the levels of detail (see {@link CADGeometryService#LEVEL_VERSION}).
+     */
+    @Column(nullable = false)
+    private int levelVersion;
+
+    /**
+     * Hash of the geometry in the blob store.
+     */
+    @Column(length = 64, nullable = false)
+    private String geometryHash;
+
+    /**
+     * Size of the geometry in bytes.
+     */
+    @Column(nullable = false)
+    private long size;
+
+    /**
+     * Hash of the {@link RoomPolygonIndex} in the blob store.
+     */
+    @Column(length = 64, nullable = true)
+    private String roomIndexHash;
+
+    /**
+     * Levels of detail with curves tessellated at decreasing tolerances.
+     */
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "cad_geometry_level")
+    @OrderBy("tolerance DESC")
+    private List<CADGeometryLevel> levels = new ArrayList<>();
+
+    /**
+     * Timestamp of when the geometry was created.
+     */
+    @Column(nullable = false, updatable = false)
+    @CreationTimestamp
+    private Date createdTimestamp;
+
+    /**
+     * Get the hash of the CAD file data the geometry has been derived from.
+     *
+     * @return content hash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Set the hash of the CAD file data the geometry has been derived from.
+     *
+     * @param contentHash to set
+     */
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Get the version of the binary format.
+     *
+     * @return format version
+     */
+    public int getFormatVersion() {
+        return formatVersion;
+    }
+
+    /**
+     * Set the version of the binary format.
+     *
+     * @param formatVersion to set
+     */
+    public void setFormatVersion(int formatVersion) {
+        this.formatVersion = formatVersion;
+    }
+
+    /**
+     * Get the hash of the geometry in the blob store.
+     *
+     * @return geometry hash
+     */
+    public String getGeometryHash() {
+        return geometryHash;
+    }
+
+    /**
+     * Set the hash of the geometry in the blob store.
+     *
+     * @param geometryHash to set
+     */
+    public void setGeometryHash(String geometryHash) {
+        this.geometryHash = geometryHash;
+    }
+
+    /**
+     * Get the size of the geometry in bytes.
+     *
+     * @return size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Set the size of the geometry in bytes.
+     *
+     * @param size to set
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Get the hash of the room polygon index in the blob store.
+     *
+     * @return room index hash
+     */
+    @Nullable
+    public String getRoomIndexHash() {
+        return roomIndexHash;
+    }
+
+    /**
+     * Set the hash of the room polygon index in the blob store.
+     *
+     * @param roomIndexHash to set
+     */
+    public void setRoomIndexHash(@Nullable String roomIndexHash) {
+        this.roomIndexHash = roomIndexHash;
+    }
+
+    /**
+     * Get the version of the levels of detail.
+     *
+     * @return level version
+     */
+    public int getLevelVersion() {
+        return levelVersion;
+    }
+
+    /**
+     * Set the version of the levels of detail.
+     *
+     * @param levelVersion to set
+     */
+    public void setLevelVersion(int levelVersion) {
+        this.levelVersion = levelVersion;
+    }
+
+    /**
+     * Get the levels of detail ordered from the coarsest to the finest.
+     *
+     * @return levels
+     */
+    public List<CADGeometryLevel> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Set the levels of detail ordered from the coarsest to the finest.
+     *
+     * @param levels to set
+     */
+    public void setLevels(List<CADGeometryLevel> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Get the created timestamp.
+     *
+     * @return created timestamp
+     */
+    public Date getCreatedTimestamp() {
+        return createdTimestamp;
+    }
+
+    /**
+     * Set the created timestamp.
+     *
+     * @param createdTimestamp to set
+     */
+    public void setCreatedTimestamp(Date createdTimestamp) {
+        this.createdTimestamp = createdTimestamp;
+    }
+
+}
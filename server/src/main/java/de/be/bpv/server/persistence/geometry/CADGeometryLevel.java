@@ -0,0 +1,86 @@
+package de.be.bpv.server.persistence.geometry;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+
+/**
+ * Level of detail of a {@link CADGeometry}.
+ * The curves of the level are tessellated so that the tessellation deviates
+ * from the exact curve by at most the tolerance of the level.
+ */
+@Embeddable
+public class CADGeometryLevel {
+
+    /**
+     * Maximum deviation of the tessellated curves from the exact curves in drawing units.
+     */
+    @Column(nullable = false)
+    private double tolerance;
+
+    /**
+     * Hash of the geometry of the level in the blob store.
+     */
+    @Column(length = 64, nullable = false)
+    private String geometryHash;
+
+    /**
+     * Size of the geometry of the level in bytes.
+     */
+    @Column(nullable = false)
+    private long size;
+
+    /**
+     * Get the maximum deviation of the tessellated curves from the exact curves.
+     *
+     * @return tolerance in drawing units
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the maximum deviation of the tessellated curves from the exact curves.
+     *
+     * @param tolerance to set
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the hash of the geometry of the level in the blob store.
+     *
+     * @return geometry hash
+     */
+    public String getGeometryHash() {
+        return geometryHash;
+    }
+
+    /**
+     * Set the hash of the geometry of the level in the blob store.
+     *
+     * @param geometryHash to set
+     */
+    public void setGeometryHash(String geometryHash) {
+        this.geometryHash = geometryHash;
+    }
+
+    /**
+     * Get the size of the geometry of the level in bytes.
+     *
+     * @return size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Set the size of the geometry of the level in bytes.
+     *
+     * @param size to set
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+}
@@ -0,0 +1,34 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.springframework.data.repository.CrudRepository;
+
+/**
+ * CAD geometry repository for spring data.
+ */
+public interface CADGeometryRepository extends CrudRepository<CADGeometry, String> {
+
+    /**
+     * Count the geometries stored under the passed hash in the blob store.
+     *
+     * @param geometryHash of the geometry
+     * @return number of geometries referencing the blob
+     */
+    long countByGeometryHash(String geometryHash);
+
+    /**
+     * Count the geometries whose room polygon index is stored under the passed hash in the blob store.
+     *
+     * @param roomIndexHash of the room polygon index
+     * @return number of geometries referencing the blob
+     */
+    long countByRoomIndexHash(String roomIndexHash);
+
+    /**
+     * Count the geometries having a level of detail stored under the passed hash in the blob store.
+     *
+     * @param geometryHash of the level
+     * @return number of geometries referencing the blob
+     */
+    long countByLevelsGeometryHash(String geometryHash);
+
+}
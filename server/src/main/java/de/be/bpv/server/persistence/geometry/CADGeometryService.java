@@ -0,0 +1,616 @@
+package de.be.bpv.server.persistence.geometry;
+
+import de.be.bpv.server.persistence.blob.BlobStore;
+import de.be.bpv.server.persistence.blob.StoredBlob;
+import de.be.bpv.server.persistence.cad.CADFileDataChangedEvent;
+import de.be.bpv.server.persistence.cad.CADFileDataReleasedEvent;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileType;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service preprocessing CAD file data into the compact binary format of the {@link GeometryBuffer}.
+ * The geometry is computed once in the background after new data has been uploaded
+ * and stored in the blob store next to the CAD file data, together with a
+ * {@link RoomPolygonIndex} of its closed polygons.
+ * {@link CADGeometryLevel Levels of detail} whose curves are tessellated adaptively
+ * at decreasing tolerances are only computed once they are first requested.
+ */
+@Service
+public class CADGeometryService {
+
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(CADGeometryService.class.getName());
+
+    /**
+     * Maximum number of room polygon indices to keep in memory.
+     */
+    private static final int ROOM_INDEX_CACHE_SIZE = 16;
+
+    /**
+     * Version of the levels of detail, to be increased whenever their tolerances
+     * or the tessellation of curves changes.
+     */
+    public static final int LEVEL_VERSION = 1;
+
+    /**
+     * Tolerances of the levels of detail relative to the larger side of the geometry's bounds,
+     * from the coarsest to the finest. Each level quarters the tolerance of the previous one,
+     * which halves the segment length of the tessellated curves.
+     */
+    private static final double[] RELATIVE_LEVEL_TOLERANCES = {1.0 / 1024, 1.0 / 4096, 1.0 / 16384, 1.0 / 65536};
+
+    /**
+     * Repository managing the preprocessed geometries.
+     */
+    private final CADGeometryRepository cadGeometryRepository;
+
+    /**
+     * Store holding the CAD file data and the geometries.
+     */
+    private final BlobStore blobStore;
+
+    /**
+     * Executor preprocessing geometries one after another,
+     * so that large uploads do not occupy all processors.
+     */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cad-geometry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Geometries currently being computed by the hash of their CAD file data.
+     */
+    private final Map<String, CompletableFuture<CADGeometry>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Geometries whose levels of detail are currently being computed by the hash of their CAD file data.
+     */
+    private final Map<String, CompletableFuture<CADGeometry>> pendingLevels = new ConcurrentHashMap<>();
+
+    /**
+     * Hashes of CAD file data whose geometry could not be computed since the start of the server,
+     * so that broken files are not parsed again on every request.
+     */
+    private final Set<String> failed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Recently used room polygon indices by their hash in the blob store.
+     */
+    private final Map<String, RoomPolygonIndex> roomIndexCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(ROOM_INDEX_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, RoomPolygonIndex> eldest) {
+                    return size() > ROOM_INDEX_CACHE_SIZE;
+                }
+            }
+    );
+
+    public CADGeometryService(CADGeometryRepository cadGeometryRepository, BlobStore blobStore) {
+        this.cadGeometryRepository = cadGeometryRepository;
+        this.blobStore = blobStore;
+    }
+
+    /**
+     * Check whether geometry can be derived from CAD files of the passed type.
+     *
+     * @param type of the CAD file
+     * @return whether the type is supported
+     */
+    public boolean isSupported(CADFileType type) {
+        return type == CADFileType.DXF;
+    }
+
+    /**
+     * Get the geometry of the passed CAD file, computing it if it is not available yet.
+     *
+     * @param cadFile to get geometry of
+     * @return the geometry or an empty optional if the CAD file has no data or is not supported
+     * @throws IOException in case the geometry could not be computed
+     */
+    public Optional<CADGeometry> getGeometry(CADFileMetadata cadFile) throws IOException {
+        if (!isSupported(cadFile.getType()) || cadFile.getContentHash() == null) {
+            return Optional.empty();
+        }
+
+        Optional<CADGeometry> geometry = cadGeometryRepository.findById(cadFile.getContentHash());
+        if (geometry.isPresent() && isUpToDate(geometry.get())) {
+            return geometry;
+        }
+        if (failed.contains(cadFile.getContentHash())) {
+            throw new IOException("Geometry of " + cadFile.getContentHash() + " could not be computed");
+        }
+
+        return Optional.of(join(prepare(cadFile.getContentHash(), cadFile.getCharsetName())));
+    }
+
+    /**
+     * Get the geometry of the passed CAD file with its levels of detail,
+     * computing the geometry first and then the levels if they are not available yet.
+     *
+     * @param cadFile to get geometry of
+     * @return the geometry or an empty optional if the CAD file has no data or is not supported
+     * @throws IOException in case the geometry or its levels could not be computed
+     */
+    public Optional<CADGeometry> getGeometryWithLevels(CADFileMetadata cadFile) throws IOException {
+        CADGeometry geometry = getGeometry(cadFile).orElse(null);
+        if (geometry == null || areLevelsUpToDate(geometry)) {
+            return Optional.ofNullable(geometry);
+        }
+
+        return Optional.of(join(prepareLevels(cadFile.getContentHash(), cadFile.getCharsetName())));
+    }
+
+    /**
+     * Get the room polygon index of the passed CAD file if it has already been computed.
+     * This never waits for the geometry to be computed: a missing index is scheduled
+     * to be computed in the background unless computing it failed before.
+     *
+     * @param cadFile to get room polygon index of
+     * @return the index or an empty optional if it is not available (yet)
+     * @throws IOException in case the index could not be read
+     */
+    public Optional<RoomPolygonIndex> findRoomPolygonIndex(CADFileMetadata cadFile) throws IOException {
+        if (!isSupported(cadFile.getType()) || cadFile.getContentHash() == null) {
+            return Optional.empty();
+        }
+
+        CADGeometry geometry = cadGeometryRepository.findById(cadFile.getContentHash()).orElse(null);
+        if (geometry == null || !isUpToDate(geometry)) {
+            if (!failed.contains(cadFile.getContentHash())) {
+                prepare(cadFile.getContentHash(), cadFile.getCharsetName());
+            }
+
+            return Optional.empty();
+        }
+
+        String hash = geometry.getRoomIndexHash();
+        RoomPolygonIndex index = roomIndexCache.get(hash);
+        if (index == null) {
+            try (InputStream in = blobStore.open(hash)) {
+                index = RoomPolygonIndex.read(in);
+            }
+            roomIndexCache.put(hash, index);
+        }
+
+        return Optional.of(index);
+    }
+
+    /**
+     * Read the passed geometry into memory.
+     *
+     * @param geometry to read
+     * @return the read geometry
+     * @throws IOException in case the geometry could not be read
+     */
+    public GeometryBuffer readGeometry(CADGeometry geometry) throws IOException {
+        try (InputStream in = blobStore.open(geometry.getGeometryHash())) {
+            return GeometryBuffer.read(in);
+        }
+    }
+
+    /**
+     * Get the coarsest level of detail of the passed geometry whose curves deviate at most by the passed tolerance.
+     * Falls back to the finest level in case no level is precise enough.
+     *
+     * @param geometry  to get level of
+     * @param tolerance maximum deviation of tessellated curves in drawing units
+     * @return the level or an empty optional if the geometry has no levels
+     */
+    public Optional<CADGeometryLevel> getLevel(CADGeometry geometry, double tolerance) {
+        CADGeometryLevel result = null;
+        for (CADGeometryLevel level : geometry.getLevels()) {
+            result = level; // Ordered from the coarsest to the finest
+            if (level.getTolerance() <= tolerance) {
+                break;
+            }
+        }
+
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * Transfer the passed level of detail to the given channel.
+     *
+     * @param level  to transfer
+     * @param target to transfer the level to
+     * @throws IOException in case the level could not be transferred
+     */
+    public void transferLevel(CADGeometryLevel level, WritableByteChannel target) throws IOException {
+        blobStore.transferTo(level.getGeometryHash(), 0, level.getSize(), target);
+    }
+
+    /**
+     * Transfer the passed geometry to the given channel.
+     *
+     * @param geometry to transfer
+     * @param target   to transfer the geometry to
+     * @throws IOException in case the geometry could not be transferred
+     */
+    public void transferGeometry(CADGeometry geometry, WritableByteChannel target) throws IOException {
+        blobStore.transferTo(geometry.getGeometryHash(), 0, geometry.getSize(), target);
+    }
+
+    /**
+     * Precompute the geometry once new CAD file data has been committed.
+     *
+     * @param event describing the new data
+     */
+    @TransactionalEventListener
+    public void onDataChanged(CADFileDataChangedEvent event) {
+        if (isSupported(event.getType()) && event.getContentHash() != null && !failed.contains(event.getContentHash())) {
+            prepare(event.getContentHash(), event.getCharsetName());
+        }
+    }
+
+    /**
+     * Delete the geometry derived from CAD file data that has been released.
+     * This is called after the releasing transaction has committed, so the
+     * deletion is done on the executor to run in a transaction of its own.
+     *
+     * @param event describing the released data
+     */
+    @EventListener
+    public void onDataReleased(CADFileDataReleasedEvent event) {
+        executor.execute(() -> cadGeometryRepository.findById(event.getContentHash()).ifPresent(geometry -> {
+            cadGeometryRepository.delete(geometry);
+            releaseBlob(geometry.getGeometryHash());
+            releaseBlob(geometry.getRoomIndexHash());
+            geometry.getLevels().forEach(level -> releaseBlob(level.getGeometryHash()));
+        }));
+    }
+
+    /**
+     * Shut down the executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Compute the geometry for the passed CAD file data in the background
+     * unless it is already being computed.
+     *
+     * @param contentHash of the CAD file data
+     * @param charsetName the CAD file data is encoded with
+     * @return future completing with the computed geometry
+     */
+    private CompletableFuture<CADGeometry> prepare(String contentHash, String charsetName) {
+        CompletableFuture<CADGeometry> future = pending.computeIfAbsent(
+                contentHash,
+                hash -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return compute(hash, charsetName);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not compute geometry of " + hash, e);
+                        failed.add(hash);
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor)
+        );
+        future.whenComplete((geometry, e) -> pending.remove(contentHash, future));
+
+        return future;
+    }
+
+    /**
+     * Compute the levels of detail for the passed CAD file data in the background
+     * unless they are already being computed.
+     * The levels are queued behind the geometry, so they are computed once it is available.
+     *
+     * @param contentHash of the CAD file data
+     * @param charsetName the CAD file data is encoded with
+     * @return future completing with the geometry including the computed levels
+     */
+    private CompletableFuture<CADGeometry> prepareLevels(String contentHash, String charsetName) {
+        CompletableFuture<CADGeometry> future = pendingLevels.computeIfAbsent(
+                contentHash,
+                hash -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return computeLevels(hash, charsetName);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not compute levels of detail of " + hash, e);
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor)
+        );
+        future.whenComplete((geometry, e) -> pendingLevels.remove(contentHash, future));
+
+        return future;
+    }
+
+    /**
+     * Wait for the passed future to complete.
+     *
+     * @param future to wait for
+     * @return the geometry the future completed with
+     * @throws IOException in case the geometry could not be computed
+     */
+    private static CADGeometry join(CompletableFuture<CADGeometry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * Compute and store the geometry for the passed CAD file data.
+     * Previous levels of detail are dropped, they are computed again when requested.
+     *
+     * @param contentHash of the CAD file data
+     * @param charsetName the CAD file data is encoded with
+     * @return the stored geometry
+     * @throws IOException in case the geometry could not be computed
+     */
+    private CADGeometry compute(String contentHash, String charsetName) throws IOException {
+        CADGeometry geometry = cadGeometryRepository.findById(contentHash).orElse(null);
+        if (geometry != null && isUpToDate(geometry)) {
+            return geometry; // Computed in the meantime
+        }
+
+        // The stored blobs stay pinned until the geometry referencing them has been saved
+        List<String> storedHashes = new ArrayList<>();
+        boolean saved = false;
+        try {
+            Charset charset = toCharset(charsetName);
+            GeometryBuffer buffer;
+            try (InputStream in = new BufferedInputStream(blobStore.open(contentHash))) {
+                buffer = DxfGeometryConverter.convert(in, charset);
+            }
+
+            StoredBlob geometryBlob = store(buffer::writeTo, storedHashes);
+            StoredBlob roomIndexBlob = store(RoomPolygonIndex.build(buffer)::writeTo, storedHashes);
+
+            String previousGeometryHash = null;
+            String previousRoomIndexHash = null;
+            List<CADGeometryLevel> previousLevels = Collections.emptyList();
+            if (geometry == null) {
+                geometry = new CADGeometry();
+                geometry.setContentHash(contentHash);
+            } else {
+                previousGeometryHash = geometry.getGeometryHash();
+                previousRoomIndexHash = geometry.getRoomIndexHash();
+                previousLevels = geometry.getLevels();
+            }
+
+            geometry.setFormatVersion(GeometryBuffer.FORMAT_VERSION);
+            geometry.setLevelVersion(0);
+            geometry.setGeometryHash(geometryBlob.getHash());
+            geometry.setSize(geometryBlob.getSize());
+            geometry.setRoomIndexHash(roomIndexBlob.getHash());
+            geometry.setLevels(new ArrayList<>());
+            geometry = cadGeometryRepository.save(geometry);
+            saved = true;
+
+            releaseBlob(previousGeometryHash);
+            releaseBlob(previousRoomIndexHash);
+            previousLevels.forEach(level -> releaseBlob(level.getGeometryHash()));
+
+            return geometry;
+        } finally {
+            storedHashes.forEach(blobStore::unpin);
+            if (!saved) {
+                storedHashes.forEach(this::releaseBlob);
+            }
+        }
+    }
+
+    /**
+     * Compute and store the levels of detail for the passed CAD file data,
+     * computing its geometry first if it is not up to date.
+     * The tolerances are relative to the size of the geometry tessellated at a fixed resolution.
+     * All levels are converted in a single pass over the data.
+     *
+     * @param contentHash of the CAD file data
+     * @param charsetName the CAD file data is encoded with
+     * @return the stored geometry including its levels
+     * @throws IOException in case the geometry or a level could not be computed
+     */
+    private CADGeometry computeLevels(String contentHash, String charsetName) throws IOException {
+        // Runs on the executor after the geometry has been prepared, so it is usually up to date
+        CADGeometry geometry = compute(contentHash, charsetName);
+        if (areLevelsUpToDate(geometry)) {
+            return geometry; // Computed in the meantime
+        }
+
+        GeometryBuffer buffer = readGeometry(geometry);
+        double extent = buffer.isEmpty()
+                ? 0
+                : Math.max(buffer.getMaxX() - buffer.getMinX(), buffer.getMaxY() - buffer.getMinY());
+
+        double[] tolerances = new double[RELATIVE_LEVEL_TOLERANCES.length];
+        for (int i = 0; i < tolerances.length; i++) {
+            tolerances[i] = extent * RELATIVE_LEVEL_TOLERANCES[i];
+        }
+
+        // The stored blobs stay pinned until the geometry referencing them has been saved
+        List<String> storedHashes = new ArrayList<>();
+        boolean saved = false;
+        try {
+            GeometryBuffer[] levelBuffers;
+            try (InputStream in = new BufferedInputStream(blobStore.open(contentHash))) {
+                levelBuffers = DxfGeometryConverter.convert(in, toCharset(charsetName), tolerances);
+            }
+
+            List<CADGeometryLevel> levels = new ArrayList<>(tolerances.length);
+            for (int i = 0; i < tolerances.length; i++) {
+                StoredBlob levelBlob = store(levelBuffers[i]::writeTo, storedHashes);
+                levelBuffers[i] = null; // Stored, so it can be collected
+
+                CADGeometryLevel level = new CADGeometryLevel();
+                level.setTolerance(tolerances[i]);
+                level.setGeometryHash(levelBlob.getHash());
+                level.setSize(levelBlob.getSize());
+                levels.add(level);
+            }
+
+            List<CADGeometryLevel> previousLevels = geometry.getLevels();
+            geometry.setLevelVersion(LEVEL_VERSION);
+            geometry.setLevels(levels);
+            geometry = cadGeometryRepository.save(geometry);
+            saved = true;
+
+            previousLevels.forEach(level -> releaseBlob(level.getGeometryHash()));
+
+            return geometry;
+        } finally {
+            storedHashes.forEach(blobStore::unpin);
+            if (!saved) {
+                storedHashes.forEach(this::releaseBlob);
+            }
+        }
+    }
+
+    /**
+     * Store the binary data written by the passed writer in the blob store.
+     * The data is written to a temporary file first, as the blob store needs to hash it.
+     *
+     * The stored blob is pinned, its hash is added to the passed list to unpin it later.
+     *
+     * @param writer       writing the data
+     * @param storedHashes to add the hash of the stored blob to
+     * @return the stored blob
+     * @throws IOException in case the data could not be written or stored
+     */
+    private StoredBlob store(BinaryWriter writer, List<String> storedHashes) throws IOException {
+        Path tempFile = Files.createTempFile("geometry", ".bin");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                writer.writeTo(out);
+            }
+            StoredBlob blob;
+            try (InputStream in = Files.newInputStream(tempFile)) {
+                blob = blobStore.store(in);
+            }
+            storedHashes.add(blob.getHash());
+
+            return blob;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Delete the blob with the passed hash unless it is pinned or a geometry still references it.
+     * Different data may result in the same geometry, so blobs may be shared.
+     *
+     * @param hash of the blob to release (may be null)
+     */
+    private void releaseBlob(String hash) {
+        if (hash == null) {
+            return;
+        }
+
+        try {
+            boolean deleted = blobStore.deleteIfUnreferenced(hash, () -> cadGeometryRepository.countByGeometryHash(hash) > 0
+                    || cadGeometryRepository.countByRoomIndexHash(hash) > 0
+                    || cadGeometryRepository.countByLevelsGeometryHash(hash) > 0);
+            if (deleted) {
+                roomIndexCache.remove(hash);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete unreferenced geometry " + hash, e);
+        }
+    }
+
+    /**
+     * Check whether the passed geometry has been written in the current format
+     * and is still available in the blob store together with its room polygon index.
+     *
+     * @param geometry to check
+     * @return whether the geometry is up to date
+     */
+    private boolean isUpToDate(CADGeometry geometry) {
+        return geometry.getFormatVersion() == GeometryBuffer.FORMAT_VERSION
+                && blobStore.exists(geometry.getGeometryHash())
+                && geometry.getRoomIndexHash() != null
+                && blobStore.exists(geometry.getRoomIndexHash());
+    }
+
+    /**
+     * Check whether the levels of detail of the passed up to date geometry have been computed
+     * with the current tolerances and are still available in the blob store.
+     *
+     * @param geometry to check
+     * @return whether the levels are up to date
+     */
+    private boolean areLevelsUpToDate(CADGeometry geometry) {
+        return geometry.getLevelVersion() == LEVEL_VERSION
+                && geometry.getLevels().size() == RELATIVE_LEVEL_TOLERANCES.length
+                && geometry.getLevels().stream().allMatch(level -> blobStore.exists(level.getGeometryHash()));
+    }
+
+    /**
+     * Get the charset with the passed name, falling back to UTF-8.
+     *
+     * @param charsetName name of the charset (may be null)
+     * @return charset
+     */
+    private static Charset toCharset(String charsetName) {
+        try {
+            if (charsetName != null && Charset.isSupported(charsetName)) {
+                return Charset.forName(charsetName);
+            }
+        } catch (IllegalArgumentException e) {
+            // Illegal charset name, fall back to the default
+        }
+
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Writer of binary data.
+     */
+    @FunctionalInterface
+    private interface BinaryWriter {
+
+        /**
+         * Write the data to the passed stream.
+         *
+         * @param out to write to
+         * @throws IOException in case the data could not be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,793 @@
+package de.be.bpv.server.persistence.geometry;
+
+import de.be.bpv.server.persistence.geometry.dxf.DxfBlock;
+import de.be.bpv.server.persistence.geometry.dxf.DxfColors;
+import de.be.bpv.server.persistence.geometry.dxf.DxfDocument;
+import de.be.bpv.server.persistence.geometry.dxf.DxfEntity;
+import de.be.bpv.server.persistence.geometry.dxf.DxfFormatException;
+import de.be.bpv.server.persistence.geometry.dxf.DxfParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Converter of DXF files into a {@link GeometryBuffer}.
+ * Block inserts are expanded and curves (arcs, circles, ellipses, splines and polyline bulges)
+ * are tessellated into polylines, either at a fixed resolution or adaptively so that
+ * the polylines deviate from the curves by at most a given tolerance.
+ */
+public class DxfGeometryConverter {
+
+    /**
+     * Number of segments a full circle is tessellated into.
+     */
+    private static final int SEGMENTS_PER_CIRCLE = 64;
+
+    /**
+     * Number of segments each span of a spline is tessellated into.
+     */
+    private static final int SEGMENTS_PER_SPLINE_SPAN = 8;
+
+    /**
+     * Minimum number of segments a full circle is tessellated into with a tolerance.
+     */
+    private static final int MIN_SEGMENTS_PER_CIRCLE = 4;
+
+    /**
+     * Maximum number of segments a full circle is tessellated into with a tolerance.
+     */
+    private static final int MAX_SEGMENTS_PER_CIRCLE = 1024;
+
+    /**
+     * Maximum number of segments each span of a spline is tessellated into with a tolerance.
+     */
+    private static final int MAX_SEGMENTS_PER_SPLINE_SPAN = 64;
+
+    /**
+     * Maximum depth of nested block inserts (guards against recursive blocks).
+     */
+    private static final int MAX_INSERT_DEPTH = 16;
+
+    /**
+     * Default color number (white/black depending on the background).
+     */
+    private static final int DEFAULT_COLOR = 7;
+
+    /**
+     * Transformation from a mirrored object coordinate system (extrusion direction (0, 0, -1))
+     * to the world coordinate system.
+     */
+    private static final Transform2D MIRROR_X = Transform2D.scaling(-1, 1);
+
+    /**
+     * Buffer to write the geometry to.
+     */
+    private final GeometryBuffer buffer = new GeometryBuffer();
+
+    /**
+     * Maximum deviation of tessellated curves from the exact curves in drawing units,
+     * zero to tessellate at a fixed resolution.
+     */
+    private final double tolerance;
+
+    private DxfGeometryConverter(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Convert the passed DXF data tessellating curves at a fixed resolution.
+     *
+     * @param in      stream to read the DXF data from
+     * @param charset the DXF data is encoded with
+     * @return the converted geometry
+     * @throws IOException in case the DXF data could not be read
+     */
+    public static GeometryBuffer convert(InputStream in, Charset charset) throws IOException {
+        return convert(in, charset, 0);
+    }
+
+    /**
+     * Convert the passed DXF data tessellating curves with the passed tolerance.
+     *
+     * @param in        stream to read the DXF data from
+     * @param charset   the DXF data is encoded with
+     * @param tolerance maximum deviation of tessellated curves in drawing units (zero for a fixed resolution)
+     * @return the converted geometry
+     * @throws IOException in case the DXF data could not be read
+     */
+    public static GeometryBuffer convert(InputStream in, Charset charset, double tolerance) throws IOException {
+        return convert(in, charset, new double[]{tolerance})[0];
+    }
+
+    /**
+     * Convert the passed DXF data once for each of the passed tolerances, parsing it only once.
+     *
+     * @param in         stream to read the DXF data from
+     * @param charset    the DXF data is encoded with
+     * @param tolerances maximum deviations of tessellated curves in drawing units (zero for a fixed resolution)
+     * @return the converted geometries in the order of the tolerances
+     * @throws IOException in case the DXF data could not be read
+     */
+    public static GeometryBuffer[] convert(InputStream in, Charset charset, double[] tolerances) throws IOException {
+        DxfGeometryConverter[] converters = new DxfGeometryConverter[tolerances.length];
+        for (int i = 0; i < tolerances.length; i++) {
+            converters[i] = new DxfGeometryConverter(tolerances[i]);
+        }
+
+        new DxfParser().parse(in, charset, (entity, document) -> {
+            for (DxfGeometryConverter converter : converters) {
+                converter.convert(entity, document, Transform2D.IDENTITY, "0", DEFAULT_COLOR, 0);
+            }
+        });
+
+        GeometryBuffer[] buffers = new GeometryBuffer[converters.length];
+        for (int i = 0; i < converters.length; i++) {
+            buffers[i] = converters[i].buffer;
+        }
+
+        return buffers;
+    }
+
+    /**
+     * Convert the passed entity.
+     *
+     * @param entity      to convert
+     * @param document    holding tables and blocks
+     * @param transform   to apply to the entity
+     * @param parentLayer layer of the enclosing block insert
+     * @param parentColor color of the enclosing block insert
+     * @param depth       of nested block inserts
+     * @throws IOException in case the entity is malformed
+     */
+    private void convert(
+            DxfEntity entity,
+            DxfDocument document,
+            Transform2D transform,
+            String parentLayer,
+            int parentColor,
+            int depth
+    ) throws IOException {
+        String layer = entity.getLayer();
+        if (depth > 0 && layer.equals("0")) {
+            layer = parentLayer; // Entities on layer 0 in blocks inherit the layer of the insert
+        }
+
+        int color = entity.getColor();
+        if (color == DxfColors.BY_LAYER) {
+            color = document.getLayerColor(layer);
+        } else if (color == DxfColors.BY_BLOCK) {
+            color = depth > 0 ? parentColor : DEFAULT_COLOR;
+        }
+
+        // Transformation for entities defined in their object coordinate system
+        Transform2D ocs = entity.isExtrusionMirrored() ? transform.multiply(MIRROR_X) : transform;
+
+        switch (entity.getType()) {
+            case "LINE":
+                convertLine(entity, buffer.group(layer, color), transform);
+                break;
+            case "LWPOLYLINE":
+                convertLwPolyline(entity, buffer.group(layer, color), ocs);
+                break;
+            case "POLYLINE":
+                convertPolyline(entity, buffer.group(layer, color), transform, ocs);
+                break;
+            case "CIRCLE":
+                convertCircle(entity, buffer.group(layer, color), ocs);
+                break;
+            case "ARC":
+                convertArc(entity, buffer.group(layer, color), ocs);
+                break;
+            case "ELLIPSE":
+                convertEllipse(entity, buffer.group(layer, color), transform);
+                break;
+            case "SPLINE":
+                convertSpline(entity, buffer.group(layer, color), transform);
+                break;
+            case "POINT":
+                convertPoint(entity, buffer.group(layer, color), transform);
+                break;
+            case "SOLID":
+            case "TRACE":
+                convertSolid(entity, buffer.group(layer, color), ocs);
+                break;
+            case "3DFACE":
+                convert3DFace(entity, buffer.group(layer, color), transform);
+                break;
+            case "TEXT":
+            case "ATTRIB":
+                convertText(entity, buffer.group(layer, color), ocs);
+                break;
+            case "MTEXT":
+                convertMText(entity, buffer.group(layer, color), transform);
+                break;
+            case "INSERT":
+                convertInsert(entity, document, transform, ocs, layer, color, depth);
+                break;
+            case "DIMENSION":
+                // The geometry of a dimension is stored in an anonymous block in world coordinates
+                convertBlock(document.getBlock(trim(entity.getString(2))), document, transform, layer, color, depth);
+                break;
+            default:
+                // Entity type not supported (for example HATCH or VIEWPORT)
+                break;
+        }
+    }
+
+    private void convertLine(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double x1 = entity.getDouble(10, 0);
+        double y1 = entity.getDouble(20, 0);
+        double x2 = entity.getDouble(11, 0);
+        double y2 = entity.getDouble(21, 0);
+
+        group.addLine(t.applyX(x1, y1), t.applyY(x1, y1), t.applyX(x2, y2), t.applyY(x2, y2));
+    }
+
+    private void convertLwPolyline(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        boolean closed = (entity.getInt(70, 0) & 1) != 0;
+
+        Vertices vertices = new Vertices();
+        for (int i = 0; i < entity.size(); i++) {
+            switch (entity.getCode(i)) {
+                case 10:
+                    vertices.add(entity.getDoubleValue(i));
+                    break;
+                case 20:
+                    vertices.setY(entity.getDoubleValue(i));
+                    break;
+                case 42:
+                    vertices.setBulge(entity.getDoubleValue(i));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        addPolyline(group, t, vertices, closed);
+    }
+
+    private void convertPolyline(DxfEntity entity, GeometryGroup group, Transform2D wcs, Transform2D ocs) throws DxfFormatException {
+        int flags = entity.getInt(70, 0);
+        if ((flags & (16 | 64)) != 0) {
+            return; // Polygon and polyface meshes are not supported
+        }
+
+        boolean closed = (flags & 1) != 0;
+        boolean is3D = (flags & 8) != 0;
+
+        Vertices vertices = new Vertices();
+        for (DxfEntity vertex : entity.getChildren()) {
+            if (!vertex.getType().equals("VERTEX") || (vertex.getInt(70, 0) & 16) != 0) {
+                continue; // Skip spline frame control points
+            }
+
+            vertices.add(vertex.getDouble(10, 0));
+            vertices.setY(vertex.getDouble(20, 0));
+            vertices.setBulge(vertex.getDouble(42, 0));
+        }
+
+        // 3D polylines are defined in world coordinates, 2D polylines in object coordinates
+        addPolyline(group, is3D ? wcs : ocs, vertices, closed);
+    }
+
+    private void convertCircle(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double cx = entity.getDouble(10, 0);
+        double cy = entity.getDouble(20, 0);
+        double r = entity.getDouble(40, 0);
+
+        int segments = segments(2 * Math.PI, r * t.getScale());
+        group.beginPolyline();
+        for (int i = 0; i < segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            addPolylineVertex(group, t, cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+        }
+        group.endPolyline(true);
+    }
+
+    private void convertArc(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double cx = entity.getDouble(10, 0);
+        double cy = entity.getDouble(20, 0);
+        double r = entity.getDouble(40, 0);
+        double start = Math.toRadians(entity.getDouble(50, 0));
+        double end = Math.toRadians(entity.getDouble(51, 360));
+        while (end <= start) {
+            end += 2 * Math.PI;
+        }
+
+        double sweep = end - start;
+        int segments = segments(sweep, r * t.getScale());
+        group.beginPolyline();
+        for (int i = 0; i <= segments; i++) {
+            double angle = start + sweep * i / segments;
+            addPolylineVertex(group, t, cx + r * Math.cos(angle), cy + r * Math.sin(angle));
+        }
+        group.endPolyline(false);
+    }
+
+    private void convertEllipse(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double cx = entity.getDouble(10, 0);
+        double cy = entity.getDouble(20, 0);
+        double majorX = entity.getDouble(11, 1);
+        double majorY = entity.getDouble(21, 0);
+        double ratio = entity.getDouble(40, 1);
+        double start = entity.getDouble(41, 0);
+        double end = entity.getDouble(42, 2 * Math.PI);
+        while (end <= start) {
+            end += 2 * Math.PI;
+        }
+
+        // The minor axis is the major axis rotated around the extrusion direction by 90 degrees
+        double minorSign = entity.isExtrusionMirrored() ? -1 : 1;
+        double minorX = -majorY * ratio * minorSign;
+        double minorY = majorX * ratio * minorSign;
+
+        double sweep = end - start;
+        boolean full = Math.abs(sweep - 2 * Math.PI) < 1e-9;
+        double radius = Math.hypot(majorX, majorY) * Math.max(1, Math.abs(ratio));
+        int segments = segments(sweep, radius * t.getScale());
+
+        group.beginPolyline();
+        for (int i = 0; i < (full ? segments : segments + 1); i++) {
+            double param = start + sweep * i / segments;
+            double cos = Math.cos(param);
+            double sin = Math.sin(param);
+
+            addPolylineVertex(group, t, cx + majorX * cos + minorX * sin, cy + majorY * cos + minorY * sin);
+        }
+        group.endPolyline(full);
+    }
+
+    private void convertSpline(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        int degree = entity.getInt(71, 3);
+        boolean closed = (entity.getInt(70, 0) & 1) != 0;
+
+        double[] knots = entity.getDoubles(40);
+        double[] weights = entity.getDoubles(41);
+        double[] controlX = entity.getDoubles(10);
+        double[] controlY = entity.getDoubles(20);
+        double[] fitX = entity.getDoubles(11);
+        double[] fitY = entity.getDoubles(21);
+
+        int controlCount = Math.min(controlX.length, controlY.length);
+        if (degree >= 1 && controlCount > degree && knots.length == controlCount + degree + 1) {
+            double[] w = weights.length == controlCount ? weights : null;
+            double[] point = new double[2];
+
+            group.beginPolyline();
+            evaluateSpline(degree, knots, controlX, controlY, w, knots[degree], point);
+            addPolylineVertex(group, t, point[0], point[1]);
+            for (int span = degree; span < controlCount; span++) {
+                double uStart = knots[span];
+                double uEnd = knots[span + 1];
+                if (uEnd <= uStart) {
+                    continue; // Repeated knot
+                }
+
+                int segments = splineSegments(degree, controlX, controlY, span, t.getScale());
+                for (int i = 1; i <= segments; i++) {
+                    double u = uStart + (uEnd - uStart) * i / segments;
+                    evaluateSpline(degree, knots, controlX, controlY, w, u, point);
+                    addPolylineVertex(group, t, point[0], point[1]);
+                }
+            }
+            group.endPolyline(closed);
+        } else {
+            // Fall back to the fit points or the control polygon
+            double[] xs = fitX.length >= 2 ? fitX : controlX;
+            double[] ys = fitX.length >= 2 ? fitY : controlY;
+
+            group.beginPolyline();
+            for (int i = 0; i < Math.min(xs.length, ys.length); i++) {
+                addPolylineVertex(group, t, xs[i], ys[i]);
+            }
+            group.endPolyline(closed);
+        }
+    }
+
+    private void convertPoint(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double x = entity.getDouble(10, 0);
+        double y = entity.getDouble(20, 0);
+
+        group.addPoint(t.applyX(x, y), t.applyY(x, y));
+    }
+
+    private void convertSolid(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double[] corners = readCorners(entity, t);
+
+        // Solids are defined in "Z" order: the fourth corner is opposite of the first one
+        addTriangle(group, corners, 0, 1, 2);
+        addTriangle(group, corners, 1, 3, 2);
+    }
+
+    private void convert3DFace(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        double[] corners = readCorners(entity, t);
+
+        addTriangle(group, corners, 0, 1, 2);
+        if (corners[4] != corners[6] || corners[5] != corners[7]) {
+            addTriangle(group, corners, 0, 2, 3);
+        }
+    }
+
+    private void convertText(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        if (entity.getType().equals("ATTRIB") && (entity.getInt(70, 0) & 1) != 0) {
+            return; // Invisible attribute
+        }
+
+        String text = entity.getString(1);
+        if (text == null || text.isBlank()) {
+            return;
+        }
+
+        double x = entity.getDouble(10, 0);
+        double y = entity.getDouble(20, 0);
+        double height = entity.getDouble(40, 1);
+        double rotation = Math.toRadians(entity.getDouble(50, 0));
+
+        addText(group, t, x, y, height, rotation, text);
+    }
+
+    private void convertMText(DxfEntity entity, GeometryGroup group, Transform2D t) throws DxfFormatException {
+        // Long texts are split into chunks of group code 3 followed by the rest in group code 1
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < entity.size(); i++) {
+            if (entity.getCode(i) == 3) {
+                text.append(entity.getValue(i));
+            }
+        }
+        String rest = entity.getString(1);
+        if (rest != null) {
+            text.append(rest);
+        }
+        if (text.toString().isBlank()) {
+            return;
+        }
+
+        double x = entity.getDouble(10, 0);
+        double y = entity.getDouble(20, 0);
+        double height = entity.getDouble(40, 1);
+        double rotation = entity.getString(11) != null
+                ? Math.atan2(entity.getDouble(21, 0), entity.getDouble(11, 1))
+                : entity.getDouble(50, 0);
+
+        addText(group, t, x, y, height, rotation, text.toString());
+    }
+
+    private void convertInsert(
+            DxfEntity entity,
+            DxfDocument document,
+            Transform2D wcs,
+            Transform2D ocs,
+            String layer,
+            int color,
+            int depth
+    ) throws IOException {
+        DxfBlock block = document.getBlock(trim(entity.getString(2)));
+        if (block != null && depth < MAX_INSERT_DEPTH) {
+            double x = entity.getDouble(10, 0);
+            double y = entity.getDouble(20, 0);
+            double scaleX = entity.getDouble(41, 1);
+            double scaleY = entity.getDouble(42, 1);
+            double rotation = Math.toRadians(entity.getDouble(50, 0));
+            int columns = Math.max(1, entity.getInt(70, 1));
+            int rows = Math.max(1, entity.getInt(71, 1));
+            double columnSpacing = entity.getDouble(44, 0);
+            double rowSpacing = entity.getDouble(45, 0);
+
+            Transform2D placement = ocs
+                    .multiply(Transform2D.translation(x, y))
+                    .multiply(Transform2D.rotation(rotation));
+            Transform2D blockTransform = Transform2D.scaling(scaleX, scaleY)
+                    .multiply(Transform2D.translation(-block.getBaseX(), -block.getBaseY()));
+
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    Transform2D transform = placement
+                            .multiply(Transform2D.translation(column * columnSpacing, row * rowSpacing))
+                            .multiply(blockTransform);
+
+                    for (DxfEntity blockEntity : block.getEntities()) {
+                        convert(blockEntity, document, transform, layer, color, depth + 1);
+                    }
+                }
+            }
+        }
+
+        // Attributes are placed in their own coordinate system
+        for (DxfEntity attribute : entity.getChildren()) {
+            convert(attribute, document, wcs, layer, color, depth);
+        }
+    }
+
+    private void convertBlock(
+            DxfBlock block,
+            DxfDocument document,
+            Transform2D transform,
+            String layer,
+            int color,
+            int depth
+    ) throws IOException {
+        if (block == null || depth >= MAX_INSERT_DEPTH) {
+            return;
+        }
+
+        for (DxfEntity blockEntity : block.getEntities()) {
+            convert(blockEntity, document, transform, layer, color, depth + 1);
+        }
+    }
+
+    /**
+     * Add a polyline with optional bulges (arc segments) to the passed group.
+     *
+     * @param group    to add polyline to
+     * @param t        transformation to apply
+     * @param vertices of the polyline
+     * @param closed   whether the polyline is closed
+     */
+    private void addPolyline(GeometryGroup group, Transform2D t, Vertices vertices, boolean closed) {
+        if (vertices.count < 2) {
+            return;
+        }
+
+        int segmentCount = closed ? vertices.count : vertices.count - 1;
+
+        group.beginPolyline();
+        addPolylineVertex(group, t, vertices.x[0], vertices.y[0]);
+        for (int i = 0; i < segmentCount; i++) {
+            int next = (i + 1) % vertices.count;
+
+            if (vertices.bulge[i] != 0) {
+                addBulge(group, t, vertices.x[i], vertices.y[i], vertices.x[next], vertices.y[next], vertices.bulge[i]);
+            }
+            if (next != 0) {
+                addPolylineVertex(group, t, vertices.x[next], vertices.y[next]);
+            }
+        }
+        group.endPolyline(closed);
+    }
+
+    /**
+     * Add the intermediate vertices of the arc described by a polyline bulge.
+     * The bulge is the tangent of a quarter of the included angle, negative for clockwise arcs.
+     *
+     * @param group to add vertices to
+     * @param t     transformation to apply
+     * @param x1    X-coordinate of the arc start
+     * @param y1    Y-coordinate of the arc start
+     * @param x2    X-coordinate of the arc end
+     * @param y2    Y-coordinate of the arc end
+     * @param bulge of the segment
+     */
+    private void addBulge(GeometryGroup group, Transform2D t, double x1, double y1, double x2, double y2, double bulge) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double chord = Math.hypot(dx, dy);
+        if (chord == 0) {
+            return;
+        }
+
+        double sweep = 4 * Math.atan(bulge);
+
+        // Distance of the center from the chord midpoint along the chords left normal
+        double distance = chord / 2 / Math.tan(sweep / 2);
+        double cx = (x1 + x2) / 2 - dy / chord * distance;
+        double cy = (y1 + y2) / 2 + dx / chord * distance;
+
+        double radius = Math.hypot(x1 - cx, y1 - cy);
+        double start = Math.atan2(y1 - cy, x1 - cx);
+
+        int segments = segments(Math.abs(sweep), radius * t.getScale());
+        for (int i = 1; i < segments; i++) {
+            double angle = start + sweep * i / segments;
+            addPolylineVertex(group, t, cx + radius * Math.cos(angle), cy + radius * Math.sin(angle));
+        }
+    }
+
+    /**
+     * Evaluate a (rational) B-spline at the passed parameter using de Boor's algorithm.
+     *
+     * @param degree   of the spline
+     * @param knots    knot vector
+     * @param controlX X-coordinates of the control points
+     * @param controlY Y-coordinates of the control points
+     * @param weights  of the control points or null for a non-rational spline
+     * @param u        parameter to evaluate at
+     * @param result   array to write the X- and Y-coordinate of the point to
+     */
+    private static void evaluateSpline(
+            int degree,
+            double[] knots,
+            double[] controlX,
+            double[] controlY,
+            double[] weights,
+            double u,
+            double[] result
+    ) {
+        int controlCount = Math.min(controlX.length, controlY.length);
+
+        // Find the knot span the parameter is in
+        int span = degree;
+        while (span < controlCount - 1 && u >= knots[span + 1]) {
+            span++;
+        }
+
+        double[] x = new double[degree + 1];
+        double[] y = new double[degree + 1];
+        double[] w = new double[degree + 1];
+        for (int j = 0; j <= degree; j++) {
+            int i = span - degree + j;
+            double weight = weights != null ? weights[i] : 1;
+
+            x[j] = controlX[i] * weight;
+            y[j] = controlY[i] * weight;
+            w[j] = weight;
+        }
+
+        for (int r = 1; r <= degree; r++) {
+            for (int j = degree; j >= r; j--) {
+                int i = span - degree + j;
+                double denominator = knots[i + degree - r + 1] - knots[i];
+                double alpha = denominator == 0 ? 0 : (u - knots[i]) / denominator;
+
+                x[j] = (1 - alpha) * x[j - 1] + alpha * x[j];
+                y[j] = (1 - alpha) * y[j - 1] + alpha * y[j];
+                w[j] = (1 - alpha) * w[j - 1] + alpha * w[j];
+            }
+        }
+
+        result[0] = x[degree] / w[degree];
+        result[1] = y[degree] / w[degree];
+    }
+
+    /**
+     * Read the four corners of a SOLID, TRACE or 3DFACE entity and transform them.
+     * A missing fourth corner equals the third one.
+     *
+     * @param entity to read corners of
+     * @param t      transformation to apply
+     * @return transformed corners as X/Y pairs
+     * @throws DxfFormatException in case a corner is malformed
+     */
+    private static double[] readCorners(DxfEntity entity, Transform2D t) throws DxfFormatException {
+        double[] corners = new double[8];
+        for (int i = 0; i < 4; i++) {
+            double x = entity.getDouble(10 + i, i == 3 ? entity.getDouble(12, 0) : 0);
+            double y = entity.getDouble(20 + i, i == 3 ? entity.getDouble(22, 0) : 0);
+
+            corners[i * 2] = t.applyX(x, y);
+            corners[i * 2 + 1] = t.applyY(x, y);
+        }
+
+        return corners;
+    }
+
+    private static void addTriangle(GeometryGroup group, double[] corners, int a, int b, int c) {
+        group.addTriangle(
+                corners[a * 2], corners[a * 2 + 1],
+                corners[b * 2], corners[b * 2 + 1],
+                corners[c * 2], corners[c * 2 + 1]
+        );
+    }
+
+    private static void addText(GeometryGroup group, Transform2D t, double x, double y, double height, double rotation, String text) {
+        group.addText(
+                t.applyX(x, y),
+                t.applyY(x, y),
+                height * t.getScale(),
+                rotation + t.getRotation(),
+                text
+        );
+    }
+
+    private static void addPolylineVertex(GeometryGroup group, Transform2D t, double x, double y) {
+        group.addPolylineVertex(t.applyX(x, y), t.applyY(x, y));
+    }
+
+    /**
+     * Get the number of segments to tessellate an arc with the passed sweep angle into.
+     * With a tolerance the angle of each segment is chosen so that the sagitta
+     * (the distance between the chord and the arc) does not exceed the tolerance.
+     *
+     * @param sweep  angle in radians
+     * @param radius of the arc in drawing units
+     * @return number of segments
+     */
+    private int segments(double sweep, double radius) {
+        double fraction = Math.abs(sweep) / (2 * Math.PI);
+        if (tolerance <= 0) {
+            return Math.max(1, (int) Math.ceil(fraction * SEGMENTS_PER_CIRCLE));
+        }
+
+        int perCircle = MIN_SEGMENTS_PER_CIRCLE;
+        if (radius > tolerance) {
+            double segmentAngle = 2 * Math.acos(1 - tolerance / radius);
+            perCircle = (int) Math.ceil(2 * Math.PI / segmentAngle);
+        }
+        perCircle = Math.max(MIN_SEGMENTS_PER_CIRCLE, Math.min(MAX_SEGMENTS_PER_CIRCLE, perCircle));
+
+        return Math.max(1, (int) Math.ceil(fraction * perCircle));
+    }
+
+    /**
+     * Get the number of segments to tessellate the passed span of a spline into.
+     * With a tolerance the count is estimated from the flatness of the span's control polygon,
+     * the distance of its inner control points from the chord between its outer ones,
+     * as the deviation of a uniform tessellation decreases quadratically with the segment count.
+     *
+     * @param degree   of the spline
+     * @param controlX X-coordinates of the control points
+     * @param controlY Y-coordinates of the control points
+     * @param span     index of the knot span
+     * @param scale    of the transformation applied to the spline
+     * @return number of segments
+     */
+    private int splineSegments(int degree, double[] controlX, double[] controlY, int span, double scale) {
+        if (tolerance <= 0) {
+            return SEGMENTS_PER_SPLINE_SPAN;
+        }
+
+        int first = span - degree;
+        double dx = controlX[span] - controlX[first];
+        double dy = controlY[span] - controlY[first];
+        double length = Math.hypot(dx, dy);
+
+        double flatness = 0;
+        for (int i = first + 1; i < span; i++) {
+            double px = controlX[i] - controlX[first];
+            double py = controlY[i] - controlY[first];
+            double distance = length > 0 ? Math.abs(px * dy - py * dx) / length : Math.hypot(px, py);
+            flatness = Math.max(flatness, distance);
+        }
+
+        int segments = (int) Math.ceil(Math.sqrt(flatness * scale / tolerance));
+        return Math.max(1, Math.min(MAX_SEGMENTS_PER_SPLINE_SPAN, segments));
+    }
+
+    private static String trim(String value) {
+        return value != null ? value.trim() : null;
+    }
+
+    /**
+     * Growable list of polyline vertices with bulges.
+     */
+    private static class Vertices {
+
+        private double[] x = new double[16];
+        private double[] y = new double[16];
+        private double[] bulge = new double[16];
+        private int count;
+
+        /**
+         * Add a new vertex starting with its X-coordinate.
+         *
+         * @param vertexX X-coordinate of the vertex
+         */
+        void add(double vertexX) {
+            if (count == x.length) {
+                x = Arrays.copyOf(x, count * 2);
+                y = Arrays.copyOf(y, count * 2);
+                bulge = Arrays.copyOf(bulge, count * 2);
+            }
+
+            x[count] = vertexX;
+            y[count] = 0;
+            bulge[count] = 0;
+            count++;
+        }
+
+        void setY(double vertexY) {
+            if (count > 0) {
+                y[count - 1] = vertexY;
+            }
+        }
+
+        void setBulge(double vertexBulge) {
+            if (count > 0) {
+                bulge[count - 1] = vertexBulge;
+            }
+        }
+
+    }
+
+}
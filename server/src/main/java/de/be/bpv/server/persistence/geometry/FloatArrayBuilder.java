@@ -0,0 +1,102 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive floats.
+ */
+public class FloatArrayBuilder {
+
+    /**
+     * Elements of the array (may have more capacity than size).
+     */
+    private float[] elements;
+
+    /**
+     * Number of elements in the array.
+     */
+    private int size;
+
+    public FloatArrayBuilder() {
+        this(16);
+    }
+
+    public FloatArrayBuilder(int initialCapacity) {
+        this.elements = new float[Math.max(initialCapacity, 2)];
+    }
+
+    /**
+     * Add an element.
+     *
+     * @param value to add
+     */
+    public void add(float value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1));
+        }
+
+        elements[size++] = value;
+    }
+
+    /**
+     * Add a pair of elements (for example a 2D vertex).
+     *
+     * @param x first value to add
+     * @param y second value to add
+     */
+    public void add(float x, float y) {
+        add(x);
+        add(y);
+    }
+
+    /**
+     * Get the element at the passed index.
+     *
+     * @param index of the element
+     * @return element
+     */
+    public float get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Remove all elements at and after the passed size.
+     *
+     * @param newSize to truncate to
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Cannot truncate array of size " + size + " to " + newSize);
+        }
+
+        size = newSize;
+    }
+
+    /**
+     * Get the number of elements.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the backing array, which may be longer than {@link #size()}.
+     *
+     * @return backing array
+     */
+    public float[] elements() {
+        return elements;
+    }
+
+    /**
+     * Get a copy of the elements trimmed to the size.
+     *
+     * @return elements
+     */
+    public float[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+}
@@ -0,0 +1,388 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact, preprocessed geometry of a CAD file grouped by layer and color.
+ * <p>
+ * The binary format written by {@link #writeTo(OutputStream)} is little endian and
+ * keeps all arrays aligned to four bytes so that they can be wrapped by typed arrays
+ * in the browser without copying:
+ * <pre>
+ * char[4]   magic "BPVG"
+ * int32     format version
+ * float64   originX, originY   (all following coordinates are relative to the origin)
+ * float32   minX, minY, maxX, maxY
+ * int32     group count
+ * per group:
+ *   string  layer name         (int32 byte length, UTF-8 bytes, zero padded to 4 bytes)
+ *   int32   color number
+ *   int32   line vertex count, float32[2 * count] line segment vertices
+ *   int32   polyline count, int32 polyline vertex count,
+ *           int32[count + 1] polyline vertex offsets, int32[count] polyline flags,
+ *           float32[2 * vertex count] polyline vertices
+ *   int32   point count, float32[2 * count] points
+ *   int32   triangle vertex count, float32[2 * count] triangle vertices
+ *   int32   text count, per text: float32 x, y, height, rotation and the string
+ * </pre>
+ */
+public class GeometryBuffer {
+
+    /**
+     * Version of the binary format, to be increased whenever the format changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Magic bytes at the start of the binary format.
+     */
+    private static final byte[] MAGIC = {'B', 'P', 'V', 'G'};
+
+    /**
+     * Absolute coordinates beyond this value are considered invalid.
+     */
+    private static final double MAX_COORDINATE = 1e12;
+
+    /**
+     * Groups by their layer and color.
+     */
+    private final Map<String, GeometryGroup> groups = new LinkedHashMap<>();
+
+    /**
+     * Whether the origin has been set yet.
+     */
+    private boolean hasOrigin;
+
+    /**
+     * X-coordinate of the origin all coordinates are relative to.
+     */
+    private double originX;
+
+    /**
+     * Y-coordinate of the origin all coordinates are relative to.
+     */
+    private double originY;
+
+    /**
+     * Bounds of all vertices (relative to the origin).
+     */
+    private float minX = Float.POSITIVE_INFINITY;
+    private float minY = Float.POSITIVE_INFINITY;
+    private float maxX = Float.NEGATIVE_INFINITY;
+    private float maxY = Float.NEGATIVE_INFINITY;
+
+    public GeometryBuffer() {
+    }
+
+    /**
+     * Create an empty buffer whose coordinates are relative to the passed origin.
+     * Used for buffers holding a part of another buffer, like the tiles cut from it.
+     *
+     * @param originX X-coordinate of the origin
+     * @param originY Y-coordinate of the origin
+     */
+    GeometryBuffer(double originX, double originY) {
+        this.originX = originX;
+        this.originY = originY;
+        this.hasOrigin = true;
+    }
+
+    /**
+     * Read a buffer written in the binary format by {@link #writeTo(OutputStream)}.
+     *
+     * @param in to read from
+     * @return the read buffer
+     * @throws IOException in case the buffer could not be read or is not in the current format
+     */
+    public static GeometryBuffer read(InputStream in) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            data.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || data.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported geometry format");
+            }
+
+            GeometryBuffer buffer = new GeometryBuffer(data.getDouble(), data.getDouble());
+            float minX = data.getFloat();
+            float minY = data.getFloat();
+            float maxX = data.getFloat();
+            float maxY = data.getFloat();
+
+            int groupCount = data.getInt();
+            for (int g = 0; g < groupCount; g++) {
+                GeometryGroup group = buffer.group(readString(data), data.getInt());
+
+                readVertices(data, group.getLines());
+
+                int polylineCount = data.getInt();
+                int polylineVertexCount = data.getInt();
+                for (int i = 0; i <= polylineCount; i++) {
+                    int offset = data.getInt();
+                    if (i < polylineCount) {
+                        group.getPolylineOffsets().add(offset);
+                    }
+                }
+                for (int i = 0; i < polylineCount; i++) {
+                    group.getPolylineFlags().add(data.getInt());
+                }
+                for (int i = 0; i < polylineVertexCount * 2; i++) {
+                    group.getPolylineVertices().add(data.getFloat());
+                }
+
+                readVertices(data, group.getPoints());
+                readVertices(data, group.getTriangles());
+
+                int textCount = data.getInt();
+                for (int i = 0; i < textCount; i++) {
+                    group.getTexts().add(new GeometryText(
+                            data.getFloat(),
+                            data.getFloat(),
+                            data.getFloat(),
+                            data.getFloat(),
+                            readString(data)
+                    ));
+                }
+            }
+
+            // Bounds are taken over as written, the vertices have been added without updating them
+            if (groupCount > 0) {
+                buffer.includeBounds(minX, minY);
+                buffer.includeBounds(maxX, maxY);
+            }
+
+            return buffer;
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed geometry", e);
+        }
+    }
+
+    /**
+     * Get the group for the passed layer and color, creating it if necessary.
+     *
+     * @param layer name of the layer
+     * @param color number
+     * @return group
+     */
+    public GeometryGroup group(String layer, int color) {
+        return groups.computeIfAbsent(layer + '\u0000' + color, key -> new GeometryGroup(this, layer, color));
+    }
+
+    /**
+     * Get all groups.
+     *
+     * @return groups
+     */
+    public Collection<GeometryGroup> getGroups() {
+        return groups.values();
+    }
+
+    /**
+     * Check whether the passed coordinates are valid.
+     *
+     * @param x coordinate to check
+     * @param y coordinate to check
+     * @return whether the coordinates are valid
+     */
+    boolean isValid(double x, double y) {
+        return Double.isFinite(x) && Double.isFinite(y)
+                && Math.abs(x) < MAX_COORDINATE && Math.abs(y) < MAX_COORDINATE;
+    }
+
+    /**
+     * Add a vertex relative to the origin to the passed array and update the bounds.
+     * The first vertex ever added becomes the origin, which keeps the precision loss
+     * of storing the coordinates as 32-bit floats small even for geo-referenced plans.
+     *
+     * @param target to add vertex to
+     * @param x      absolute coordinate of the vertex
+     * @param y      absolute coordinate of the vertex
+     */
+    void addVertex(FloatArrayBuilder target, double x, double y) {
+        if (!hasOrigin) {
+            originX = x;
+            originY = y;
+            hasOrigin = true;
+        }
+
+        addLocalVertex(target, (float) (x - originX), (float) (y - originY));
+    }
+
+    /**
+     * Add a vertex already relative to the origin to the passed array and update the bounds.
+     *
+     * @param target to add vertex to
+     * @param x      coordinate of the vertex relative to the origin
+     * @param y      coordinate of the vertex relative to the origin
+     */
+    void addLocalVertex(FloatArrayBuilder target, float x, float y) {
+        includeBounds(x, y);
+        target.add(x, y);
+    }
+
+    /**
+     * Extend the bounds to include the passed vertex.
+     *
+     * @param x coordinate relative to the origin
+     * @param y coordinate relative to the origin
+     */
+    void includeBounds(float x, float y) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+    }
+
+    public double getOriginX() {
+        return originX;
+    }
+
+    public double getOriginY() {
+        return originY;
+    }
+
+    /**
+     * Check whether the buffer does not contain any vertex.
+     *
+     * @return whether the buffer is empty
+     */
+    public boolean isEmpty() {
+        return minX > maxX;
+    }
+
+    public float getMinX() {
+        return isEmpty() ? 0 : minX;
+    }
+
+    public float getMinY() {
+        return isEmpty() ? 0 : minY;
+    }
+
+    public float getMaxX() {
+        return isEmpty() ? 0 : maxX;
+    }
+
+    public float getMaxY() {
+        return isEmpty() ? 0 : maxY;
+    }
+
+    /**
+     * Write the geometry in the binary format to the passed stream.
+     *
+     * @param out to write to
+     * @throws IOException in case the geometry could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        LittleEndianOutputStream leOut = new LittleEndianOutputStream(out);
+
+        leOut.write(MAGIC, 0, MAGIC.length);
+        leOut.writeInt(FORMAT_VERSION);
+        leOut.writeDouble(originX);
+        leOut.writeDouble(originY);
+        leOut.writeFloat(getMinX());
+        leOut.writeFloat(getMinY());
+        leOut.writeFloat(getMaxX());
+        leOut.writeFloat(getMaxY());
+
+        int groupCount = 0;
+        for (GeometryGroup group : groups.values()) {
+            if (!group.isEmpty()) {
+                groupCount++;
+            }
+        }
+        leOut.writeInt(groupCount);
+
+        for (GeometryGroup group : groups.values()) {
+            if (!group.isEmpty()) {
+                writeGroup(group, leOut);
+            }
+        }
+
+        leOut.flush();
+    }
+
+    /**
+     * Write the passed group.
+     *
+     * @param group to write
+     * @param out   to write to
+     * @throws IOException in case the group could not be written
+     */
+    private void writeGroup(GeometryGroup group, LittleEndianOutputStream out) throws IOException {
+        out.writeString(group.getLayer());
+        out.writeInt(group.getColor());
+
+        writeVertices(group.getLines(), out);
+
+        int polylineCount = group.getPolylineFlags().size();
+        int polylineVertexCount = group.getPolylineVertices().size() / 2;
+        out.writeInt(polylineCount);
+        out.writeInt(polylineVertexCount);
+        out.writeInts(group.getPolylineOffsets().elements(), polylineCount);
+        out.writeInt(polylineVertexCount);
+        out.writeInts(group.getPolylineFlags().elements(), polylineCount);
+        out.writeFloats(group.getPolylineVertices().elements(), polylineVertexCount * 2);
+
+        writeVertices(group.getPoints(), out);
+        writeVertices(group.getTriangles(), out);
+
+        out.writeInt(group.getTexts().size());
+        for (GeometryText text : group.getTexts()) {
+            out.writeFloat(text.getX());
+            out.writeFloat(text.getY());
+            out.writeFloat(text.getHeight());
+            out.writeFloat(text.getRotation());
+            out.writeString(text.getText());
+        }
+    }
+
+    /**
+     * Write the vertex count followed by the vertices.
+     *
+     * @param vertices to write
+     * @param out      to write to
+     * @throws IOException in case the vertices could not be written
+     */
+    private void writeVertices(FloatArrayBuilder vertices, LittleEndianOutputStream out) throws IOException {
+        out.writeInt(vertices.size() / 2);
+        out.writeFloats(vertices.elements(), vertices.size());
+    }
+
+    /**
+     * Read the vertex count followed by the vertices into the passed array.
+     *
+     * @param data   to read from
+     * @param target to add the vertices to
+     */
+    private static void readVertices(ByteBuffer data, FloatArrayBuilder target) {
+        int count = data.getInt();
+        for (int i = 0; i < count * 2; i++) {
+            target.add(data.getFloat());
+        }
+    }
+
+    /**
+     * Read a string written by {@link LittleEndianOutputStream#writeString(String)}.
+     *
+     * @param data to read from
+     * @return the read string
+     */
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        String value = new String(data.array(), data.arrayOffset() + data.position(), length, StandardCharsets.UTF_8);
+        data.position(data.position() + length + (4 - length % 4) % 4);
+
+        return value;
+    }
+
+}
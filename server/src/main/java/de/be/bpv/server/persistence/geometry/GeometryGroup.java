@@ -0,0 +1,231 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geometry of all entities sharing a layer and color,
+ * held as compact primitive arrays per entity kind.
+ * All coordinates are stored relative to the origin of the owning {@link GeometryBuffer}.
+ */
+public class GeometryGroup {
+
+    /**
+     * Polyline flag marking a closed polyline.
+     */
+    public static final int FLAG_CLOSED = 1;
+
+    /**
+     * Buffer the group belongs to.
+     */
+    private final GeometryBuffer owner;
+
+    /**
+     * Name of the layer of the group.
+     */
+    private final String layer;
+
+    /**
+     * Color number of the group.
+     */
+    private final int color;
+
+    /**
+     * Vertices of single line segments (two vertices per segment).
+     */
+    private final FloatArrayBuilder lines = new FloatArrayBuilder();
+
+    /**
+     * Index of the first vertex of each polyline in the polyline vertices.
+     */
+    private final IntArrayBuilder polylineOffsets = new IntArrayBuilder();
+
+    /**
+     * Flags of each polyline (see {@link #FLAG_CLOSED}).
+     */
+    private final IntArrayBuilder polylineFlags = new IntArrayBuilder();
+
+    /**
+     * Vertices of all polylines.
+     */
+    private final FloatArrayBuilder polylineVertices = new FloatArrayBuilder();
+
+    /**
+     * Point vertices.
+     */
+    private final FloatArrayBuilder points = new FloatArrayBuilder();
+
+    /**
+     * Vertices of filled triangles (three vertices per triangle).
+     */
+    private final FloatArrayBuilder triangles = new FloatArrayBuilder();
+
+    /**
+     * Texts of the group.
+     */
+    private final List<GeometryText> texts = new ArrayList<>();
+
+    GeometryGroup(GeometryBuffer owner, String layer, int color) {
+        this.owner = owner;
+        this.layer = layer;
+        this.color = color;
+    }
+
+    /**
+     * Add a single line segment.
+     *
+     * @param x1 X-coordinate of the start
+     * @param y1 Y-coordinate of the start
+     * @param x2 X-coordinate of the end
+     * @param y2 Y-coordinate of the end
+     */
+    public void addLine(double x1, double y1, double x2, double y2) {
+        if (!owner.isValid(x1, y1) || !owner.isValid(x2, y2)) {
+            return;
+        }
+
+        owner.addVertex(lines, x1, y1);
+        owner.addVertex(lines, x2, y2);
+    }
+
+    /**
+     * Begin a new polyline.
+     * Add vertices using {@link #addPolylineVertex(double, double)} and finish it with {@link #endPolyline(boolean)}.
+     */
+    public void beginPolyline() {
+        polylineOffsets.add(polylineVertices.size() / 2);
+    }
+
+    /**
+     * Add a vertex to the current polyline.
+     *
+     * @param x coordinate of the vertex
+     * @param y coordinate of the vertex
+     */
+    public void addPolylineVertex(double x, double y) {
+        if (owner.isValid(x, y)) {
+            owner.addVertex(polylineVertices, x, y);
+        }
+    }
+
+    /**
+     * Finish the current polyline.
+     * Polylines with less than two vertices are dropped.
+     *
+     * @param closed whether the polyline is closed
+     */
+    public void endPolyline(boolean closed) {
+        int start = polylineOffsets.get(polylineOffsets.size() - 1);
+        int vertexCount = polylineVertices.size() / 2 - start;
+
+        if (vertexCount < 2) {
+            polylineOffsets.truncate(polylineOffsets.size() - 1);
+            polylineVertices.truncate(start * 2);
+            return;
+        }
+
+        polylineFlags.add(closed ? FLAG_CLOSED : 0);
+    }
+
+    /**
+     * Add a point.
+     *
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     */
+    public void addPoint(double x, double y) {
+        if (owner.isValid(x, y)) {
+            owner.addVertex(points, x, y);
+        }
+    }
+
+    /**
+     * Add a filled triangle.
+     *
+     * @param x1 X-coordinate of the first corner
+     * @param y1 Y-coordinate of the first corner
+     * @param x2 X-coordinate of the second corner
+     * @param y2 Y-coordinate of the second corner
+     * @param x3 X-coordinate of the third corner
+     * @param y3 Y-coordinate of the third corner
+     */
+    public void addTriangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+        if (!owner.isValid(x1, y1) || !owner.isValid(x2, y2) || !owner.isValid(x3, y3)) {
+            return;
+        }
+
+        owner.addVertex(triangles, x1, y1);
+        owner.addVertex(triangles, x2, y2);
+        owner.addVertex(triangles, x3, y3);
+    }
+
+    /**
+     * Add a text.
+     *
+     * @param x        coordinate of the insertion point
+     * @param y        coordinate of the insertion point
+     * @param height   of the text
+     * @param rotation of the text in radians
+     * @param text     to add
+     */
+    public void addText(double x, double y, double height, double rotation, String text) {
+        if (!owner.isValid(x, y)) {
+            return;
+        }
+
+        FloatArrayBuilder position = new FloatArrayBuilder(2);
+        owner.addVertex(position, x, y);
+
+        texts.add(new GeometryText(position.get(0), position.get(1), (float) height, (float) rotation, text));
+    }
+
+    /**
+     * Check whether the group does not contain any geometry.
+     *
+     * @return whether the group is empty
+     */
+    public boolean isEmpty() {
+        return lines.size() == 0
+                && polylineFlags.size() == 0
+                && points.size() == 0
+                && triangles.size() == 0
+                && texts.isEmpty();
+    }
+
+    public String getLayer() {
+        return layer;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public FloatArrayBuilder getLines() {
+        return lines;
+    }
+
+    public IntArrayBuilder getPolylineOffsets() {
+        return polylineOffsets;
+    }
+
+    public IntArrayBuilder getPolylineFlags() {
+        return polylineFlags;
+    }
+
+    public FloatArrayBuilder getPolylineVertices() {
+        return polylineVertices;
+    }
+
+    public FloatArrayBuilder getPoints() {
+        return points;
+    }
+
+    public FloatArrayBuilder getTriangles() {
+        return triangles;
+    }
+
+    public List<GeometryText> getTexts() {
+        return texts;
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.be.bpv.server.persistence.geometry;
+
+/**
+ * Text placed in a geometry (for example a room label).
+ */
+public class GeometryText {
+
+    /**
+     * X-coordinate of the insertion point (relative to the geometry origin).
+     */
+    private final float x;
+
+    /**
+     * Y-coordinate of the insertion point (relative to the geometry origin).
+     */
+    private final float y;
+
+    /**
+     * Height of the text.
+     */
+    private final float height;
+
+    /**
+     * Rotation of the text in radians.
+     */
+    private final float rotation;
+
+    /**
+     * The text itself.
+     */
+    private final String text;
+
+    public GeometryText(float x, float y, float height, float rotation, String text) {
+        this.x = x;
+        this.y = y;
+        this.height = height;
+        this.rotation = rotation;
+        this.text = text;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public float getRotation() {
+        return rotation;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+}
@@ -0,0 +1,233 @@
+package de.be.bpv.server.persistence.geometry;
+
+import de.be.bpv.server.persistence.cad.CADFileDataReleasedEvent;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Service providing level of detail vector tiles of CAD file geometries (see {@link GeometryTiler}).
+ * Tiles are cut on first request and cached on disk, so that clients only fetch
+ * the geometry visible at their current zoom level.
+ */
+@Service
+public class GeometryTileService {
+
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(GeometryTileService.class.getName());
+
+    /**
+     * Maximum number of source geometries to keep in memory for cutting tiles.
+     */
+    private static final int TILER_CACHE_SIZE = 4;
+
+    /**
+     * Service providing the geometries to cut tiles from.
+     */
+    private final CADGeometryService cadGeometryService;
+
+    /**
+     * Repository of the CAD files whose tiles are cached.
+     */
+    private final CADFileRepository cadFileRepository;
+
+    /**
+     * Folder the tiles are cached in.
+     */
+    private final Path root;
+
+    /**
+     * Recently used tilers by the hash of their geometry.
+     */
+    private final Map<String, GeometryTiler> tilerCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(TILER_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, GeometryTiler> eldest) {
+                    return size() > TILER_CACHE_SIZE;
+                }
+            }
+    );
+
+    public GeometryTileService(
+            CADGeometryService cadGeometryService,
+            CADFileRepository cadFileRepository,
+            @Value("${tiles.cache.path}") String path
+    ) throws IOException {
+        this.cadGeometryService = cadGeometryService;
+        this.cadFileRepository = cadFileRepository;
+        this.root = Paths.get(path).toAbsolutePath().normalize();
+
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Get the description of the tile quadtree of the passed CAD file.
+     *
+     * @param cadFile to get tile set of
+     * @return the tile set or an empty optional if the CAD file has no geometry
+     * @throws IOException in case the geometry could not be computed or read
+     */
+    public Optional<GeometryTileSet> getTileSet(CADFileMetadata cadFile) throws IOException {
+        CADGeometry geometry = cadGeometryService.getGeometry(cadFile).orElse(null);
+        if (geometry == null) {
+            return Optional.empty();
+        }
+
+        GeometryTiler tiler = getTiler(geometry);
+        GeometryBuffer source = tiler.getSource();
+
+        return Optional.of(new GeometryTileSet(
+                source.getOriginX(),
+                source.getOriginY(),
+                source.getMinX(),
+                source.getMinY(),
+                tiler.getSize()
+        ));
+    }
+
+    /**
+     * Get the file of the passed tile of the passed CAD file, cutting it if it is not cached yet.
+     *
+     * @param cadFile to get tile of
+     * @param z       zoom level
+     * @param x       column of the tile
+     * @param y       row of the tile
+     * @return the tile file or an empty optional if the CAD file has no geometry or the tile does not exist
+     * @throws IOException in case the tile could not be cut or written
+     */
+    public Optional<Path> getTile(CADFileMetadata cadFile, int z, int x, int y) throws IOException {
+        if (!GeometryTiler.isValid(z, x, y) || cadFile.getContentHash() == null) {
+            return Optional.empty();
+        }
+
+        Path tile = folderOf(cadFile.getContentHash()).resolve(z + "/" + x + "_" + y + ".bin");
+        if (Files.isRegularFile(tile)) {
+            return Optional.of(tile);
+        }
+
+        CADGeometry geometry = cadGeometryService.getGeometry(cadFile).orElse(null);
+        if (geometry == null) {
+            return Optional.empty();
+        }
+
+        GeometryBuffer buffer = getTiler(geometry).cut(z, x, y);
+
+        // Written to a temporary file first, so that concurrent requests never see a partial tile
+        Files.createDirectories(tile.getParent());
+        Path tempFile = Files.createTempFile(tile.getParent(), "tile-", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                buffer.writeTo(out);
+            }
+            try {
+                Files.move(tempFile, tile, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // Cut concurrently
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        return Optional.of(tile);
+    }
+
+    /**
+     * Delete the cached tiles of CAD file data that has been released.
+     *
+     * @param event describing the released data
+     */
+    @EventListener
+    public void onDataReleased(CADFileDataReleasedEvent event) {
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(root, event.getContentHash() + "-*")) {
+            for (Path folder : folders) {
+                delete(folder);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete the tiles of " + event.getContentHash(), e);
+        }
+    }
+
+    /**
+     * Delete the cached tiles of CAD file data no longer referenced by any CAD file
+     * or cut with an outdated format once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sweep() {
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(root)) {
+            for (Path folder : folders) {
+                String contentHash = folder.getFileName().toString().split("-", 2)[0];
+                if (!folder.equals(folderOf(contentHash)) || cadFileRepository.countByContentHash(contentHash) == 0) {
+                    delete(folder);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete the outdated tiles", e);
+        }
+    }
+
+    /**
+     * Get the folder the tiles of the CAD file data with the passed hash are cached in.
+     * The folder name contains the geometry format and tile versions, so that outdated tiles are never served.
+     *
+     * @param contentHash of the CAD file data
+     * @return the folder
+     */
+    private Path folderOf(String contentHash) {
+        return root.resolve(contentHash + "-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION);
+    }
+
+    /**
+     * Get the tiler of the passed geometry, reading the geometry if necessary.
+     *
+     * @param geometry to get tiler for
+     * @return the tiler
+     * @throws IOException in case the geometry could not be read
+     */
+    private GeometryTiler getTiler(CADGeometry geometry) throws IOException {
+        GeometryTiler tiler = tilerCache.get(geometry.getGeometryHash());
+        if (tiler == null) {
+            tiler = new GeometryTiler(cadGeometryService.readGeometry(geometry));
+            tilerCache.put(geometry.getGeometryHash(), tiler);
+        }
+
+        return tiler;
+    }
+
+    /**
+     * Delete the passed folder with all its content.
+     *
+     * @param folder to delete
+     * @throws IOException in case the folder could not be deleted
+     */
+    private static void delete(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+}
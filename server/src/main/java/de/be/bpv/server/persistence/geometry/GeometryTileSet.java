@@ -0,0 +1,80 @@
+package de.be.bpv.server.persistence.geometry;
+
+/**
+ * Description of the tile quadtree of a CAD file's geometry (see {@link GeometryTiler}).
+ * Clients use it to determine the tiles covering their viewport.
+ */
+public class GeometryTileSet {
+
+    /**
+     * X-coordinate of the origin all tile coordinates are relative to.
+     */
+    private final double originX;
+
+    /**
+     * Y-coordinate of the origin all tile coordinates are relative to.
+     */
+    private final double originY;
+
+    /**
+     * X-coordinate of the lower left corner of the root tile (relative to the origin).
+     */
+    private final float minX;
+
+    /**
+     * Y-coordinate of the lower left corner of the root tile (relative to the origin).
+     */
+    private final float minY;
+
+    /**
+     * Length of the sides of the root tile.
+     */
+    private final float size;
+
+    public GeometryTileSet(double originX, double originY, float minX, float minY, float size) {
+        this.originX = originX;
+        this.originY = originY;
+        this.minX = minX;
+        this.minY = minY;
+        this.size = size;
+    }
+
+    public double getOriginX() {
+        return originX;
+    }
+
+    public double getOriginY() {
+        return originY;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getSize() {
+        return size;
+    }
+
+    /**
+     * Get the maximum zoom level.
+     *
+     * @return maximum zoom level
+     */
+    public int getMaxZoom() {
+        return GeometryTiler.MAX_ZOOM;
+    }
+
+    /**
+     * Get the resolution in pixels along a side the tiles are cut for.
+     *
+     * @return tile resolution
+     */
+    public int getTileResolution() {
+        return GeometryTiler.TILE_RESOLUTION;
+    }
+
+}
@@ -0,0 +1,286 @@
+package de.be.bpv.server.persistence.geometry;
+
+/**
+ * Cutter of level of detail tiles from a {@link GeometryBuffer}.
+ * <p>
+ * The tiles form a quadtree over the square enclosing the bounds of the geometry:
+ * tile (0, 0, 0) covers the whole square and every tile (z, x, y) has the four children
+ * (z + 1, 2x + {0, 1}, 2y + {0, 1}). The y-axis points up like in the CAD file,
+ * so y = 0 is the bottom row.
+ * <p>
+ * A tile contains every primitive whose bounding box intersects it, primitives are not clipped.
+ * Primitives smaller than a pixel of a tile rendered at {@link #TILE_RESOLUTION} pixels are dropped
+ * and polylines are simplified to the same tolerance, so that tiles of low zoom levels
+ * stay small even for very large plans. Tiles are written in the binary format of the
+ * {@link GeometryBuffer} with the origin of the source geometry.
+ */
+public class GeometryTiler {
+
+    /**
+     * Version of the tiling, to be increased whenever the tiles change for the same geometry.
+     */
+    public static final int TILE_VERSION = 1;
+
+    /**
+     * Maximum zoom level.
+     */
+    public static final int MAX_ZOOM = 20;
+
+    /**
+     * Resolution in pixels along a side the tiles are cut for.
+     */
+    public static final int TILE_RESOLUTION = 512;
+
+    /**
+     * Minimum height of texts in pixels to be included in a tile.
+     */
+    private static final float MIN_TEXT_HEIGHT = 2;
+
+    /**
+     * Geometry to cut tiles from.
+     */
+    private final GeometryBuffer source;
+
+    /**
+     * Length of the sides of the root tile.
+     */
+    private final float size;
+
+    public GeometryTiler(GeometryBuffer source) {
+        this.source = source;
+        this.size = Math.max(Math.max(source.getMaxX() - source.getMinX(), source.getMaxY() - source.getMinY()), 1);
+    }
+
+    /**
+     * Check whether the passed tile coordinates are valid.
+     *
+     * @param z zoom level
+     * @param x column of the tile
+     * @param y row of the tile
+     * @return whether the tile exists
+     */
+    public static boolean isValid(int z, int x, int y) {
+        return z >= 0 && z <= MAX_ZOOM
+                && x >= 0 && x < (1 << z)
+                && y >= 0 && y < (1 << z);
+    }
+
+    /**
+     * Get the geometry tiles are cut from.
+     *
+     * @return source geometry
+     */
+    public GeometryBuffer getSource() {
+        return source;
+    }
+
+    /**
+     * Get the length of the sides of the root tile.
+     *
+     * @return length of the sides
+     */
+    public float getSize() {
+        return size;
+    }
+
+    /**
+     * Cut the passed tile.
+     *
+     * @param z zoom level
+     * @param x column of the tile
+     * @param y row of the tile
+     * @return the tile
+     * @throws IllegalArgumentException in case the tile coordinates are invalid
+     */
+    public GeometryBuffer cut(int z, int x, int y) {
+        if (!isValid(z, x, y)) {
+            throw new IllegalArgumentException("Invalid tile " + z + "/" + x + "/" + y);
+        }
+
+        float tileSize = size / (1 << z);
+        Bounds tile = new Bounds(
+                source.getMinX() + x * tileSize,
+                source.getMinY() + y * tileSize,
+                source.getMinX() + (x + 1) * tileSize,
+                source.getMinY() + (y + 1) * tileSize
+        );
+        float tolerance = tileSize / TILE_RESOLUTION;
+
+        GeometryBuffer target = new GeometryBuffer(source.getOriginX(), source.getOriginY());
+        for (GeometryGroup group : source.getGroups()) {
+            GeometryGroup targetGroup = target.group(group.getLayer(), group.getColor());
+
+            cutLines(group.getLines(), tile, tolerance, target, targetGroup);
+            cutPolylines(group, tile, tolerance, target, targetGroup);
+            cutPoints(group.getPoints(), tile, target, targetGroup);
+            cutTriangles(group.getTriangles(), tile, tolerance, target, targetGroup);
+
+            for (GeometryText text : group.getTexts()) {
+                if (tile.contains(text.getX(), text.getY()) && text.getHeight() >= MIN_TEXT_HEIGHT * tolerance) {
+                    target.includeBounds(text.getX(), text.getY());
+                    targetGroup.getTexts().add(text);
+                }
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Add the line segments visible in the tile.
+     *
+     * @param lines       vertices of the line segments
+     * @param tile        bounds of the tile
+     * @param tolerance   size of a pixel
+     * @param target      buffer of the tile
+     * @param targetGroup group to add the segments to
+     */
+    private static void cutLines(FloatArrayBuilder lines, Bounds tile, float tolerance, GeometryBuffer target, GeometryGroup targetGroup) {
+        float[] v = lines.elements();
+        for (int i = 0; i + 3 < lines.size(); i += 4) {
+            float minX = Math.min(v[i], v[i + 2]);
+            float minY = Math.min(v[i + 1], v[i + 3]);
+            float maxX = Math.max(v[i], v[i + 2]);
+            float maxY = Math.max(v[i + 1], v[i + 3]);
+
+            if (tile.intersects(minX, minY, maxX, maxY) && isVisible(minX, minY, maxX, maxY, tolerance)) {
+                target.addLocalVertex(targetGroup.getLines(), v[i], v[i + 1]);
+                target.addLocalVertex(targetGroup.getLines(), v[i + 2], v[i + 3]);
+            }
+        }
+    }
+
+    /**
+     * Add the polylines visible in the tile, simplified to the tolerance.
+     *
+     * @param group       holding the polylines
+     * @param tile        bounds of the tile
+     * @param tolerance   size of a pixel
+     * @param target      buffer of the tile
+     * @param targetGroup group to add the polylines to
+     */
+    private static void cutPolylines(GeometryGroup group, Bounds tile, float tolerance, GeometryBuffer target, GeometryGroup targetGroup) {
+        float[] v = group.getPolylineVertices().elements();
+        int vertexCount = group.getPolylineVertices().size() / 2;
+        int count = group.getPolylineFlags().size();
+
+        for (int p = 0; p < count; p++) {
+            int start = group.getPolylineOffsets().get(p);
+            int end = p + 1 < count ? group.getPolylineOffsets().get(p + 1) : vertexCount;
+
+            float minX = Float.POSITIVE_INFINITY;
+            float minY = Float.POSITIVE_INFINITY;
+            float maxX = Float.NEGATIVE_INFINITY;
+            float maxY = Float.NEGATIVE_INFINITY;
+            for (int i = start; i < end; i++) {
+                minX = Math.min(minX, v[i * 2]);
+                minY = Math.min(minY, v[i * 2 + 1]);
+                maxX = Math.max(maxX, v[i * 2]);
+                maxY = Math.max(maxY, v[i * 2 + 1]);
+            }
+            if (!tile.intersects(minX, minY, maxX, maxY) || !isVisible(minX, minY, maxX, maxY, tolerance)) {
+                continue;
+            }
+
+            // Keep only vertices at least a pixel away from the previously kept one, but always the last
+            targetGroup.beginPolyline();
+            float lastX = v[start * 2];
+            float lastY = v[start * 2 + 1];
+            target.addLocalVertex(targetGroup.getPolylineVertices(), lastX, lastY);
+            for (int i = start + 1; i < end; i++) {
+                float x = v[i * 2];
+                float y = v[i * 2 + 1];
+                if (i == end - 1 || Math.abs(x - lastX) >= tolerance || Math.abs(y - lastY) >= tolerance) {
+                    target.addLocalVertex(targetGroup.getPolylineVertices(), x, y);
+                    lastX = x;
+                    lastY = y;
+                }
+            }
+            targetGroup.endPolyline((group.getPolylineFlags().get(p) & GeometryGroup.FLAG_CLOSED) != 0);
+        }
+    }
+
+    /**
+     * Add the points in the tile.
+     *
+     * @param points      vertices of the points
+     * @param tile        bounds of the tile
+     * @param target      buffer of the tile
+     * @param targetGroup group to add the points to
+     */
+    private static void cutPoints(FloatArrayBuilder points, Bounds tile, GeometryBuffer target, GeometryGroup targetGroup) {
+        float[] v = points.elements();
+        for (int i = 0; i + 1 < points.size(); i += 2) {
+            if (tile.contains(v[i], v[i + 1])) {
+                target.addLocalVertex(targetGroup.getPoints(), v[i], v[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Add the triangles visible in the tile.
+     *
+     * @param triangles   vertices of the triangles
+     * @param tile        bounds of the tile
+     * @param tolerance   size of a pixel
+     * @param target      buffer of the tile
+     * @param targetGroup group to add the triangles to
+     */
+    private static void cutTriangles(FloatArrayBuilder triangles, Bounds tile, float tolerance, GeometryBuffer target, GeometryGroup targetGroup) {
+        float[] v = triangles.elements();
+        for (int i = 0; i + 5 < triangles.size(); i += 6) {
+            float minX = Math.min(v[i], Math.min(v[i + 2], v[i + 4]));
+            float minY = Math.min(v[i + 1], Math.min(v[i + 3], v[i + 5]));
+            float maxX = Math.max(v[i], Math.max(v[i + 2], v[i + 4]));
+            float maxY = Math.max(v[i + 1], Math.max(v[i + 3], v[i + 5]));
+
+            if (tile.intersects(minX, minY, maxX, maxY) && isVisible(minX, minY, maxX, maxY, tolerance)) {
+                for (int j = 0; j < 6; j += 2) {
+                    target.addLocalVertex(targetGroup.getTriangles(), v[i + j], v[i + j + 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a primitive with the passed bounding box is at least a pixel large.
+     *
+     * @param minX      of the bounding box
+     * @param minY      of the bounding box
+     * @param maxX      of the bounding box
+     * @param maxY      of the bounding box
+     * @param tolerance size of a pixel
+     * @return whether the primitive is visible
+     */
+    private static boolean isVisible(float minX, float minY, float maxX, float maxY, float tolerance) {
+        return maxX - minX >= tolerance || maxY - minY >= tolerance;
+    }
+
+    /**
+     * Axis aligned bounds of a tile.
+     */
+    private static class Bounds {
+
+        private final float minX;
+        private final float minY;
+        private final float maxX;
+        private final float maxY;
+
+        Bounds(float minX, float minY, float maxX, float maxY) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        boolean contains(float x, float y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        boolean intersects(float minX, float minY, float maxX, float maxY) {
+            return minX <= this.maxX && maxX >= this.minX && minY <= this.maxY && maxY >= this.minY;
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of primitive integers.
+ */
+public class IntArrayBuilder {
+
+    /**
+     * Elements of the array (may have more capacity than size).
+     */
+    private int[] elements;
+
+    /**
+     * Number of elements in the array.
+     */
+    private int size;
+
+    public IntArrayBuilder() {
+        this(16);
+    }
+
+    public IntArrayBuilder(int initialCapacity) {
+        this.elements = new int[Math.max(initialCapacity, 2)];
+    }
+
+    /**
+     * Add an element.
+     *
+     * @param value to add
+     */
+    public void add(int value) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size + (size >> 1));
+        }
+
+        elements[size++] = value;
+    }
+
+    /**
+     * Get the element at the passed index.
+     *
+     * @param index of the element
+     * @return element
+     */
+    public int get(int index) {
+        return elements[index];
+    }
+
+    /**
+     * Remove all elements at and after the passed size.
+     *
+     * @param newSize to truncate to
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > size) {
+            throw new IndexOutOfBoundsException("Cannot truncate array of size " + size + " to " + newSize);
+        }
+
+        size = newSize;
+    }
+
+    /**
+     * Get the number of elements.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the backing array, which may be longer than {@link #size()}.
+     *
+     * @return backing array
+     */
+    public int[] elements() {
+        return elements;
+    }
+
+    /**
+     * Get a copy of the elements trimmed to the size.
+     *
+     * @return elements
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+}
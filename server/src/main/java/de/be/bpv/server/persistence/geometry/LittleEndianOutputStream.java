@@ -0,0 +1,160 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output stream writing primitive values in little endian byte order,
+ * which is the byte order of typed arrays in the browser on all common platforms.
+ */
+public class LittleEndianOutputStream extends FilterOutputStream {
+
+    /**
+     * Buffer to collect primitive values in before writing them.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Number of bytes written so far.
+     */
+    private long written;
+
+    public LittleEndianOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Write a 32-bit integer.
+     *
+     * @param value to write
+     * @throws IOException in case the value could not be written
+     */
+    public void writeInt(int value) throws IOException {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    /**
+     * Write a 32-bit float.
+     *
+     * @param value to write
+     * @throws IOException in case the value could not be written
+     */
+    public void writeFloat(float value) throws IOException {
+        ensureRemaining(Float.BYTES);
+        buffer.putFloat(value);
+    }
+
+    /**
+     * Write a 64-bit float.
+     *
+     * @param value to write
+     * @throws IOException in case the value could not be written
+     */
+    public void writeDouble(double value) throws IOException {
+        ensureRemaining(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * Write the first elements of the passed array.
+     *
+     * @param values to write
+     * @param length number of values to write
+     * @throws IOException in case the values could not be written
+     */
+    public void writeFloats(float[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            writeFloat(values[i]);
+        }
+    }
+
+    /**
+     * Write the first elements of the passed array.
+     *
+     * @param values to write
+     * @param length number of values to write
+     * @throws IOException in case the values could not be written
+     */
+    public void writeInts(int[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Write a string as its UTF-8 byte length followed by the UTF-8 bytes,
+     * padded with zeros to a multiple of four bytes to keep following values aligned.
+     *
+     * @param value to write
+     * @throws IOException in case the value could not be written
+     */
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+
+        int padding = (4 - bytes.length % 4) % 4;
+        flushBuffer();
+        out.write(bytes);
+        out.write(new byte[padding]);
+        written += bytes.length + padding;
+    }
+
+    /**
+     * Get the number of bytes written so far.
+     *
+     * @return number of written bytes
+     */
+    public long getWritten() {
+        return written + buffer.position();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureRemaining(1);
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        flushBuffer();
+        out.write(b, off, len);
+        written += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Make sure the buffer has at least the passed number of bytes remaining.
+     *
+     * @param bytes needed in the buffer
+     * @throws IOException in case the buffer could not be flushed
+     */
+    private void ensureRemaining(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Write the buffered bytes to the underlying stream.
+     *
+     * @throws IOException in case the bytes could not be written
+     */
+    private void flushBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            out.write(buffer.array(), 0, buffer.position());
+            written += buffer.position();
+            buffer.clear();
+        }
+    }
+
+}
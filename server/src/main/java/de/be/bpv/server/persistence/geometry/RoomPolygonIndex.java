@@ -0,0 +1,412 @@
+package de.be.bpv.server.persistence.geometry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Spatial index of the closed polygons (possible rooms) of a CAD file.
+ * The polygons are bucketed into a uniform grid over their bounding boxes,
+ * so that resolving a point to the polygon containing it only needs to test
+ * the few polygons overlapping the grid cell of the point.
+ * <p>
+ * The IDs of the polygons are their indices in the order they appear in the
+ * {@link GeometryBuffer} the index has been built from.
+ */
+public class RoomPolygonIndex {
+
+    /**
+     * Version of the binary format, to be increased whenever the format changes.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Magic bytes at the start of the binary format.
+     */
+    private static final byte[] MAGIC = {'B', 'P', 'V', 'R'};
+
+    /**
+     * Maximum number of grid cells in each direction.
+     */
+    private static final int MAX_GRID_SIZE = 1024;
+
+    /**
+     * X-coordinate of the origin all coordinates are relative to.
+     */
+    private final double originX;
+
+    /**
+     * Y-coordinate of the origin all coordinates are relative to.
+     */
+    private final double originY;
+
+    /**
+     * Offsets of the first vertex of each polygon (plus the total vertex count at the end).
+     */
+    private final int[] offsets;
+
+    /**
+     * Vertices of all polygons as X/Y pairs relative to the origin.
+     */
+    private final float[] vertices;
+
+    /**
+     * Bounding boxes of the polygons as minX, minY, maxX, maxY.
+     */
+    private final float[] bounds;
+
+    /**
+     * Absolute area of the polygons.
+     */
+    private final double[] areas;
+
+    /**
+     * Lower left corner of the grid.
+     */
+    private float gridMinX;
+    private float gridMinY;
+
+    /**
+     * Size of a single grid cell.
+     */
+    private float cellWidth;
+    private float cellHeight;
+
+    /**
+     * Number of grid columns.
+     */
+    private int columns;
+
+    /**
+     * Number of grid rows.
+     */
+    private int rows;
+
+    /**
+     * Offsets into {@link #cellPolygons} for each cell (plus the total count at the end).
+     */
+    private int[] cellOffsets;
+
+    /**
+     * IDs of the polygons overlapping each cell.
+     */
+    private int[] cellPolygons;
+
+    private RoomPolygonIndex(double originX, double originY, int[] offsets, float[] vertices) {
+        this.originX = originX;
+        this.originY = originY;
+        this.offsets = offsets;
+        this.vertices = vertices;
+
+        int count = size();
+        bounds = new float[count * 4];
+        areas = new double[count];
+        for (int i = 0; i < count; i++) {
+            computeBoundsAndArea(i);
+        }
+
+        buildGrid();
+    }
+
+    /**
+     * Build the index of all closed polylines in the passed geometry.
+     *
+     * @param buffer to index
+     * @return the index
+     */
+    public static RoomPolygonIndex build(GeometryBuffer buffer) {
+        IntArrayBuilder offsets = new IntArrayBuilder();
+        FloatArrayBuilder vertices = new FloatArrayBuilder();
+
+        for (GeometryGroup group : buffer.getGroups()) {
+            IntArrayBuilder groupOffsets = group.getPolylineOffsets();
+            IntArrayBuilder groupFlags = group.getPolylineFlags();
+            FloatArrayBuilder groupVertices = group.getPolylineVertices();
+            int groupVertexCount = groupVertices.size() / 2;
+
+            for (int i = 0; i < groupFlags.size(); i++) {
+                int start = groupOffsets.get(i);
+                int end = i + 1 < groupFlags.size() ? groupOffsets.get(i + 1) : groupVertexCount;
+                if ((groupFlags.get(i) & GeometryGroup.FLAG_CLOSED) == 0 || end - start < 3) {
+                    continue;
+                }
+
+                offsets.add(vertices.size() / 2);
+                for (int v = start; v < end; v++) {
+                    vertices.add(groupVertices.get(v * 2), groupVertices.get(v * 2 + 1));
+                }
+            }
+        }
+        offsets.add(vertices.size() / 2);
+
+        return new RoomPolygonIndex(buffer.getOriginX(), buffer.getOriginY(), offsets.toArray(), vertices.toArray());
+    }
+
+    /**
+     * Read an index in the binary format written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in to read from
+     * @return the index
+     * @throws IOException in case the index could not be read
+     */
+    public static RoomPolygonIndex read(InputStream in) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            data.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || data.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported room polygon index format");
+            }
+
+            double originX = data.getDouble();
+            double originY = data.getDouble();
+            int count = data.getInt();
+            int vertexCount = data.getInt();
+
+            int[] offsets = new int[count + 1];
+            data.asIntBuffer().get(offsets);
+            data.position(data.position() + offsets.length * Integer.BYTES);
+
+            float[] vertices = new float[vertexCount * 2];
+            data.asFloatBuffer().get(vertices);
+
+            return new RoomPolygonIndex(originX, originY, offsets, vertices);
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed room polygon index", e);
+        }
+    }
+
+    /**
+     * Write the polygons of the index in a little endian binary format.
+     * The grid is not written, as it is cheap to rebuild.
+     *
+     * @param out to write to
+     * @throws IOException in case the index could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        LittleEndianOutputStream leOut = new LittleEndianOutputStream(out);
+
+        leOut.write(MAGIC, 0, MAGIC.length);
+        leOut.writeInt(FORMAT_VERSION);
+        leOut.writeDouble(originX);
+        leOut.writeDouble(originY);
+        leOut.writeInt(size());
+        leOut.writeInt(vertices.length / 2);
+        leOut.writeInts(offsets, offsets.length);
+        leOut.writeFloats(vertices, vertices.length);
+
+        leOut.flush();
+    }
+
+    /**
+     * Get the number of polygons in the index.
+     *
+     * @return number of polygons
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Find the polygon containing the passed point.
+     * If multiple polygons contain the point the smallest is chosen,
+     * which prevents resolving to the outline of a building or floor.
+     *
+     * @param x absolute coordinate of the point
+     * @param y absolute coordinate of the point
+     * @return ID of the polygon or -1 if no polygon contains the point
+     */
+    public int find(double x, double y) {
+        double localX = x - originX;
+        double localY = y - originY;
+
+        int column = (int) Math.floor((localX - gridMinX) / cellWidth);
+        int row = (int) Math.floor((localY - gridMinY) / cellHeight);
+        if (column < 0 || row < 0) {
+            return -1;
+        }
+
+        // Points beyond the last cell are rejected by the bounds check of the polygons
+        column = Math.min(column, columns - 1);
+        row = Math.min(row, rows - 1);
+
+        int result = -1;
+        int cell = row * columns + column;
+        for (int i = cellOffsets[cell]; i < cellOffsets[cell + 1]; i++) {
+            int polygon = cellPolygons[i];
+            if ((result == -1 || areas[polygon] < areas[result]) && contains(polygon, localX, localY)) {
+                result = polygon;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the absolute vertices of the polygon with the passed ID.
+     *
+     * @param id of the polygon
+     * @return vertices as X/Y pairs
+     */
+    public double[] getVertices(int id) {
+        int start = offsets[id];
+        int end = offsets[id + 1];
+
+        double[] result = new double[(end - start) * 2];
+        for (int v = start; v < end; v++) {
+            result[(v - start) * 2] = vertices[v * 2] + originX;
+            result[(v - start) * 2 + 1] = vertices[v * 2 + 1] + originY;
+        }
+
+        return result;
+    }
+
+    /**
+     * Check whether the polygon with the passed ID contains the point (even-odd rule).
+     *
+     * @param id of the polygon
+     * @param x  coordinate relative to the origin
+     * @param y  coordinate relative to the origin
+     * @return whether the point is inside the polygon
+     */
+    private boolean contains(int id, double x, double y) {
+        if (x < bounds[id * 4] || y < bounds[id * 4 + 1] || x > bounds[id * 4 + 2] || y > bounds[id * 4 + 3]) {
+            return false;
+        }
+
+        boolean inside = false;
+        int start = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = start, j = end - 1; i < end; j = i++) {
+            double xi = vertices[i * 2];
+            double yi = vertices[i * 2 + 1];
+            double xj = vertices[j * 2];
+            double yj = vertices[j * 2 + 1];
+
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) {
+                inside = !inside;
+            }
+        }
+
+        return inside;
+    }
+
+    /**
+     * Compute the bounding box and area of the polygon with the passed ID.
+     *
+     * @param id of the polygon
+     */
+    private void computeBoundsAndArea(int id) {
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        double area = 0;
+
+        int start = offsets[id];
+        int end = offsets[id + 1];
+        for (int i = start, j = end - 1; i < end; j = i++) {
+            float x = vertices[i * 2];
+            float y = vertices[i * 2 + 1];
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+
+            area += (double) vertices[j * 2] * y - (double) x * vertices[j * 2 + 1];
+        }
+
+        bounds[id * 4] = minX;
+        bounds[id * 4 + 1] = minY;
+        bounds[id * 4 + 2] = maxX;
+        bounds[id * 4 + 3] = maxY;
+        areas[id] = Math.abs(area / 2);
+    }
+
+    /**
+     * Bucket all polygons into a uniform grid with about as many cells as there are polygons.
+     */
+    private void buildGrid() {
+        int count = size();
+
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            minX = Math.min(minX, bounds[i * 4]);
+            minY = Math.min(minY, bounds[i * 4 + 1]);
+            maxX = Math.max(maxX, bounds[i * 4 + 2]);
+            maxY = Math.max(maxY, bounds[i * 4 + 3]);
+        }
+        if (count == 0) {
+            minX = minY = 0;
+            maxX = maxY = 1;
+        }
+
+        float width = Math.max(maxX - minX, Float.MIN_NORMAL);
+        float height = Math.max(maxY - minY, Float.MIN_NORMAL);
+
+        columns = (int) Math.max(1, Math.min(MAX_GRID_SIZE, Math.round(Math.sqrt(count * (double) width / height))));
+        rows = (int) Math.max(1, Math.min(MAX_GRID_SIZE, Math.round((double) count / columns)));
+        gridMinX = minX;
+        gridMinY = minY;
+        cellWidth = width / columns;
+        cellHeight = height / rows;
+
+        // Count the polygons per cell first, then fill the cells (compressed row storage)
+        cellOffsets = new int[columns * rows + 1];
+        for (int i = 0; i < count; i++) {
+            forEachCell(i, cell -> cellOffsets[cell + 1]++);
+        }
+        for (int cell = 0; cell < columns * rows; cell++) {
+            cellOffsets[cell + 1] += cellOffsets[cell];
+        }
+
+        cellPolygons = new int[cellOffsets[columns * rows]];
+        int[] fill = Arrays.copyOf(cellOffsets, cellOffsets.length - 1);
+        for (int i = 0; i < count; i++) {
+            int polygon = i;
+            forEachCell(i, cell -> cellPolygons[fill[cell]++] = polygon);
+        }
+    }
+
+    /**
+     * Call the passed consumer for every grid cell the bounding box of the polygon overlaps.
+     *
+     * @param id       of the polygon
+     * @param consumer to call with the cell index
+     */
+    private void forEachCell(int id, CellConsumer consumer) {
+        int fromColumn = clamp((int) Math.floor((bounds[id * 4] - gridMinX) / cellWidth), columns);
+        int fromRow = clamp((int) Math.floor((bounds[id * 4 + 1] - gridMinY) / cellHeight), rows);
+        int toColumn = clamp((int) Math.floor((bounds[id * 4 + 2] - gridMinX) / cellWidth), columns);
+        int toRow = clamp((int) Math.floor((bounds[id * 4 + 3] - gridMinY) / cellHeight), rows);
+
+        for (int row = fromRow; row <= toRow; row++) {
+            for (int column = fromColumn; column <= toColumn; column++) {
+                consumer.accept(row * columns + column);
+            }
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * Consumer of grid cell indices.
+     */
+    @FunctionalInterface
+    private interface CellConsumer {
+
+        void accept(int cell);
+
+    }
+
+}
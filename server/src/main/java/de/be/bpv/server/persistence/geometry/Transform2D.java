@@ -0,0 +1,147 @@
+package de.be.bpv.server.persistence.geometry;
+
+/**
+ * Immutable 2D affine transformation.
+ * Points are transformed as {@code x' = a * x + c * y + e} and {@code y' = b * x + d * y + f}.
+ */
+public final class Transform2D {
+
+    /**
+     * The identity transformation.
+     */
+    public static final Transform2D IDENTITY = new Transform2D(1, 0, 0, 1, 0, 0);
+
+    /**
+     * Components of the linear part of the transformation (column-major).
+     */
+    private final double a;
+    private final double b;
+    private final double c;
+    private final double d;
+
+    /**
+     * Components of the translation part of the transformation.
+     */
+    private final double e;
+    private final double f;
+
+    private Transform2D(double a, double b, double c, double d, double e, double f) {
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.d = d;
+        this.e = e;
+        this.f = f;
+    }
+
+    /**
+     * Create a translation.
+     *
+     * @param x translation in X-direction
+     * @param y translation in Y-direction
+     * @return translation
+     */
+    public static Transform2D translation(double x, double y) {
+        return new Transform2D(1, 0, 0, 1, x, y);
+    }
+
+    /**
+     * Create a rotation around the origin.
+     *
+     * @param radians to rotate by (counter-clockwise)
+     * @return rotation
+     */
+    public static Transform2D rotation(double radians) {
+        double cos = Math.cos(radians);
+        double sin = Math.sin(radians);
+
+        return new Transform2D(cos, sin, -sin, cos, 0, 0);
+    }
+
+    /**
+     * Create a scaling.
+     *
+     * @param x scale factor in X-direction
+     * @param y scale factor in Y-direction
+     * @return scaling
+     */
+    public static Transform2D scaling(double x, double y) {
+        return new Transform2D(x, 0, 0, y, 0, 0);
+    }
+
+    /**
+     * Create a transformation first applying the passed transformation and then this one.
+     *
+     * @param other to apply first
+     * @return the combined transformation
+     */
+    public Transform2D multiply(Transform2D other) {
+        return new Transform2D(
+                a * other.a + c * other.b,
+                b * other.a + d * other.b,
+                a * other.c + c * other.d,
+                b * other.c + d * other.d,
+                a * other.e + c * other.f + e,
+                b * other.e + d * other.f + f
+        );
+    }
+
+    /**
+     * Transform the X-coordinate of the passed point.
+     *
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     * @return transformed X-coordinate
+     */
+    public double applyX(double x, double y) {
+        return a * x + c * y + e;
+    }
+
+    /**
+     * Transform the Y-coordinate of the passed point.
+     *
+     * @param x coordinate of the point
+     * @param y coordinate of the point
+     * @return transformed Y-coordinate
+     */
+    public double applyY(double x, double y) {
+        return b * x + d * y + f;
+    }
+
+    /**
+     * Get the rotation angle of the transformation.
+     *
+     * @return rotation in radians
+     */
+    public double getRotation() {
+        return Math.atan2(b, a);
+    }
+
+    /**
+     * Get the (average) scale factor of the transformation.
+     *
+     * @return scale factor
+     */
+    public double getScale() {
+        return Math.sqrt(Math.abs(a * d - b * c));
+    }
+
+    /**
+     * Check whether the transformation mirrors (changes the orientation).
+     *
+     * @return whether the transformation mirrors
+     */
+    public boolean isMirroring() {
+        return a * d - b * c < 0;
+    }
+
+    /**
+     * Get the components of the transformation in the order a, b, c, d, e, f.
+     *
+     * @return components
+     */
+    public double[] toArray() {
+        return new double[]{a, b, c, d, e, f};
+    }
+
+}
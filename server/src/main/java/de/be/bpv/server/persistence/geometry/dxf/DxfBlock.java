@@ -0,0 +1,73 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Block definition read from a DXF file.
+ */
+public class DxfBlock {
+
+    /**
+     * Name of the block.
+     */
+    private final String name;
+
+    /**
+     * X-coordinate of the base point of the block.
+     */
+    private final double baseX;
+
+    /**
+     * Y-coordinate of the base point of the block.
+     */
+    private final double baseY;
+
+    /**
+     * Entities of the block.
+     */
+    private final List<DxfEntity> entities = new ArrayList<>();
+
+    public DxfBlock(String name, double baseX, double baseY) {
+        this.name = name;
+        this.baseX = baseX;
+        this.baseY = baseY;
+    }
+
+    /**
+     * Get the name of the block.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the X-coordinate of the base point.
+     *
+     * @return X-coordinate
+     */
+    public double getBaseX() {
+        return baseX;
+    }
+
+    /**
+     * Get the Y-coordinate of the base point.
+     *
+     * @return Y-coordinate
+     */
+    public double getBaseY() {
+        return baseY;
+    }
+
+    /**
+     * Get the entities of the block.
+     *
+     * @return entities
+     */
+    public List<DxfEntity> getEntities() {
+        return entities;
+    }
+
+}
@@ -0,0 +1,22 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+/**
+ * Special color numbers of the DXF format.
+ */
+public final class DxfColors {
+
+    /**
+     * Color number meaning the color of the enclosing block insert is used.
+     */
+    public static final int BY_BLOCK = 0;
+
+    /**
+     * Color number meaning the color of the layer is used.
+     */
+    public static final int BY_LAYER = 256;
+
+    private DxfColors() {
+        // Constants class
+    }
+
+}
@@ -0,0 +1,70 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tables and blocks read from a DXF file.
+ * The entities are not part of the document, they are streamed by the {@link DxfParser}.
+ */
+public class DxfDocument {
+
+    /**
+     * Color numbers of the layers by the layer names.
+     */
+    private final Map<String, Integer> layerColors = new HashMap<>();
+
+    /**
+     * Block definitions by their names.
+     */
+    private final Map<String, DxfBlock> blocks = new HashMap<>();
+
+    /**
+     * Get the color number of the layer with the passed name.
+     *
+     * @param layer name of the layer
+     * @return color number of the layer or 7 (the default foreground color) if the layer is unknown
+     */
+    public int getLayerColor(String layer) {
+        return layerColors.getOrDefault(layer, 7);
+    }
+
+    /**
+     * Get the block with the passed name.
+     *
+     * @param name of the block
+     * @return the block or null if there is no such block
+     */
+    public DxfBlock getBlock(String name) {
+        return blocks.get(name);
+    }
+
+    /**
+     * Get all blocks by their names.
+     *
+     * @return blocks
+     */
+    public Map<String, DxfBlock> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Set the color number of a layer.
+     *
+     * @param layer name of the layer
+     * @param color number of the layer
+     */
+    void setLayerColor(String layer, int color) {
+        layerColors.put(layer, color);
+    }
+
+    /**
+     * Add a block definition.
+     *
+     * @param block to add
+     */
+    void addBlock(DxfBlock block) {
+        blocks.put(block.getName(), block);
+    }
+
+}
@@ -0,0 +1,264 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Entity read from a DXF file.
+ * Keeps the raw group code/value pairs in order, since some entities
+ * (for example LWPOLYLINE or SPLINE) repeat group codes.
+ */
+public class DxfEntity {
+
+    /**
+     * Group code of the layer name.
+     */
+    private static final int LAYER_CODE = 8;
+
+    /**
+     * Group code of the color number.
+     */
+    private static final int COLOR_CODE = 62;
+
+    /**
+     * Group code of the extrusion direction Z-component.
+     */
+    private static final int EXTRUSION_Z_CODE = 230;
+
+    /**
+     * Type of the entity (for example LINE).
+     */
+    private final String type;
+
+    /**
+     * Group codes of the entity.
+     */
+    private int[] codes = new int[16];
+
+    /**
+     * Values of the entity, in the same order as the codes.
+     */
+    private String[] values = new String[16];
+
+    /**
+     * Number of pairs of the entity.
+     */
+    private int size;
+
+    /**
+     * Child entities (for example the VERTEX entities of a POLYLINE).
+     */
+    private List<DxfEntity> children = Collections.emptyList();
+
+    public DxfEntity(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Add a group code/value pair.
+     *
+     * @param code  to add
+     * @param value to add
+     */
+    void add(int code, String value) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+
+        codes[size] = code;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Add a child entity.
+     *
+     * @param child to add
+     */
+    void addChild(DxfEntity child) {
+        if (children.isEmpty()) {
+            children = new ArrayList<>();
+        }
+
+        children.add(child);
+    }
+
+    /**
+     * Get the type of the entity.
+     *
+     * @return type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Get the number of pairs of the entity.
+     *
+     * @return number of pairs
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the group code of the pair at the passed index.
+     *
+     * @param index of the pair
+     * @return group code
+     */
+    public int getCode(int index) {
+        return codes[index];
+    }
+
+    /**
+     * Get the value of the pair at the passed index.
+     *
+     * @param index of the pair
+     * @return value
+     */
+    public String getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Get the value of the pair at the passed index as double.
+     *
+     * @param index of the pair
+     * @return value as double
+     * @throws DxfFormatException in case the value is not a number
+     */
+    public double getDoubleValue(int index) throws DxfFormatException {
+        try {
+            return Double.parseDouble(values[index].trim());
+        } catch (NumberFormatException e) {
+            throw new DxfFormatException("Invalid number '" + values[index] + "' for group code " + codes[index] + " of " + type, e);
+        }
+    }
+
+    /**
+     * Get the child entities.
+     *
+     * @return children
+     */
+    public List<DxfEntity> getChildren() {
+        return children;
+    }
+
+    /**
+     * Get the first value for the passed group code.
+     *
+     * @param code to get value for
+     * @return the value or null if the entity has no such group code
+     */
+    public String getString(int code) {
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                return values[i];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the first value for the passed group code as double.
+     *
+     * @param code         to get value for
+     * @param defaultValue to return if the entity has no such group code
+     * @return the value
+     * @throws DxfFormatException in case the value is not a number
+     */
+    public double getDouble(int code, double defaultValue) throws DxfFormatException {
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                return getDoubleValue(i);
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Get the first value for the passed group code as integer.
+     *
+     * @param code         to get value for
+     * @param defaultValue to return if the entity has no such group code
+     * @return the value
+     * @throws DxfFormatException in case the value is not a number
+     */
+    public int getInt(int code, int defaultValue) throws DxfFormatException {
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                try {
+                    return Integer.parseInt(values[i].trim());
+                } catch (NumberFormatException e) {
+                    throw new DxfFormatException("Invalid integer '" + values[i] + "' for group code " + code + " of " + type, e);
+                }
+            }
+        }
+
+        return defaultValue;
+    }
+
+    /**
+     * Get all values for the passed group code as doubles.
+     *
+     * @param code to get values for
+     * @return values in the order they appear
+     * @throws DxfFormatException in case a value is not a number
+     */
+    public double[] getDoubles(int code) throws DxfFormatException {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                count++;
+            }
+        }
+
+        double[] result = new double[count];
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            if (codes[i] == code) {
+                result[index++] = getDoubleValue(i);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get the name of the layer the entity is on.
+     *
+     * @return layer name
+     */
+    public String getLayer() {
+        String layer = getString(LAYER_CODE);
+        return layer != null ? layer.trim() : "0";
+    }
+
+    /**
+     * Get the color number of the entity.
+     *
+     * @return color number ({@link DxfColors#BY_LAYER} if not specified)
+     * @throws DxfFormatException in case the color number is invalid
+     */
+    public int getColor() throws DxfFormatException {
+        return getInt(COLOR_CODE, DxfColors.BY_LAYER);
+    }
+
+    /**
+     * Check whether the object coordinate system of the entity is mirrored,
+     * meaning its extrusion direction points into negative Z-direction.
+     *
+     * @return whether the entity is mirrored
+     * @throws DxfFormatException in case the extrusion direction is invalid
+     */
+    public boolean isExtrusionMirrored() throws DxfFormatException {
+        return getDouble(EXTRUSION_Z_CODE, 1.0) < 0;
+    }
+
+}
@@ -0,0 +1,18 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a DXF file could not be read because it is malformed or unsupported.
+ */
+public class DxfFormatException extends IOException {
+
+    public DxfFormatException(String message) {
+        super(message);
+    }
+
+    public DxfFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
@@ -0,0 +1,266 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming parser for ASCII DXF files.
+ * Tables and blocks are collected into a {@link DxfDocument} while the entities
+ * of the ENTITIES section are passed to a consumer one by one, so that they never
+ * have to be held in memory all at once.
+ */
+public class DxfParser {
+
+    /**
+     * Group code of names (sections, blocks, table entries).
+     */
+    private static final int NAME_CODE = 2;
+
+    /**
+     * Group code of the "entities follow" flag.
+     */
+    private static final int ENTITIES_FOLLOW_CODE = 66;
+
+    /**
+     * Consumer of parsed entities.
+     */
+    @FunctionalInterface
+    public interface EntityConsumer {
+
+        /**
+         * Consume the passed entity.
+         *
+         * @param entity   to consume
+         * @param document holding the tables and blocks read so far
+         * @throws IOException in case the entity could not be consumed
+         */
+        void accept(DxfEntity entity, DxfDocument document) throws IOException;
+
+    }
+
+    /**
+     * Parse the passed DXF data.
+     *
+     * @param in       stream to read the DXF data from
+     * @param charset  the DXF data is encoded with
+     * @param consumer to pass the entities of the ENTITIES section to
+     * @return document holding the tables and blocks of the DXF file
+     * @throws IOException in case the data could not be read or is no valid DXF
+     */
+    public DxfDocument parse(InputStream in, Charset charset, EntityConsumer consumer) throws IOException {
+        DxfDocument document = new DxfDocument();
+
+        try (DxfReader reader = new DxfReader(new BufferedReader(new InputStreamReader(in, charset), 64 * 1024))) {
+            while (reader.next()) {
+                if (reader.isMarker("EOF")) {
+                    break;
+                }
+                if (!reader.isMarker("SECTION")) {
+                    continue;
+                }
+
+                String section = readName(reader);
+                switch (section) {
+                    case "TABLES":
+                        parseTables(reader, document);
+                        break;
+                    case "BLOCKS":
+                        parseBlocks(reader, document);
+                        break;
+                    case "ENTITIES":
+                        parseEntities(reader, document, consumer);
+                        break;
+                    default:
+                        skipSection(reader);
+                        break;
+                }
+            }
+        }
+
+        return document;
+    }
+
+    /**
+     * Parse the TABLES section.
+     * Currently only the layer table is of interest.
+     *
+     * @param reader   to read from
+     * @param document to fill
+     * @throws IOException in case the section could not be read
+     */
+    private void parseTables(DxfReader reader, DxfDocument document) throws IOException {
+        while (reader.next()) {
+            if (reader.isMarker("ENDSEC")) {
+                return;
+            }
+
+            if (reader.isMarker("LAYER")) {
+                DxfEntity layer = readEntity(reader, "LAYER");
+
+                String name = layer.getString(NAME_CODE);
+                if (name != null) {
+                    // Negative color numbers mark layers that are turned off
+                    document.setLayerColor(name.trim(), Math.abs(layer.getColor()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the BLOCKS section.
+     *
+     * @param reader   to read from
+     * @param document to fill
+     * @throws IOException in case the section could not be read
+     */
+    private void parseBlocks(DxfReader reader, DxfDocument document) throws IOException {
+        DxfBlock block = null;
+
+        while (reader.next()) {
+            if (reader.isMarker("ENDSEC")) {
+                return;
+            }
+            if (reader.getCode() != 0) {
+                continue;
+            }
+
+            String type = reader.getValue().trim();
+            if (type.equals("BLOCK")) {
+                DxfEntity header = readEntity(reader, type);
+                String name = header.getString(NAME_CODE);
+
+                block = new DxfBlock(
+                        name != null ? name.trim() : "",
+                        header.getDouble(10, 0),
+                        header.getDouble(20, 0)
+                );
+                document.addBlock(block);
+            } else if (type.equals("ENDBLK")) {
+                readEntity(reader, type);
+                block = null;
+            } else {
+                DxfEntity entity = readEntityWithChildren(reader, type);
+                if (block != null) {
+                    block.getEntities().add(entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the ENTITIES section.
+     *
+     * @param reader   to read from
+     * @param document holding the tables and blocks
+     * @param consumer to pass the entities to
+     * @throws IOException in case the section could not be read
+     */
+    private void parseEntities(DxfReader reader, DxfDocument document, EntityConsumer consumer) throws IOException {
+        while (reader.next()) {
+            if (reader.isMarker("ENDSEC")) {
+                return;
+            }
+            if (reader.getCode() != 0) {
+                continue;
+            }
+
+            consumer.accept(readEntityWithChildren(reader, reader.getValue().trim()), document);
+        }
+    }
+
+    /**
+     * Skip the current section.
+     *
+     * @param reader to read from
+     * @throws IOException in case the section could not be read
+     */
+    private void skipSection(DxfReader reader) throws IOException {
+        while (reader.next()) {
+            if (reader.isMarker("ENDSEC")) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read the name of the current section.
+     *
+     * @param reader to read from
+     * @return name of the section
+     * @throws IOException in case the name could not be read
+     */
+    private String readName(DxfReader reader) throws IOException {
+        if (!reader.next() || reader.getCode() != NAME_CODE) {
+            throw new DxfFormatException("Expected section name");
+        }
+
+        return reader.getValue().trim();
+    }
+
+    /**
+     * Read an entity including its children.
+     * POLYLINE entities are followed by VERTEX entities and INSERT entities
+     * may be followed by ATTRIB entities, both terminated by a SEQEND entity.
+     *
+     * @param reader to read from
+     * @param type   of the entity
+     * @return the read entity
+     * @throws IOException in case the entity could not be read
+     */
+    private DxfEntity readEntityWithChildren(DxfReader reader, String type) throws IOException {
+        DxfEntity entity = readEntity(reader, type);
+
+        boolean hasChildren = type.equals("POLYLINE")
+                || (type.equals("INSERT") && entity.getInt(ENTITIES_FOLLOW_CODE, 0) == 1);
+        if (!hasChildren) {
+            return entity;
+        }
+
+        while (reader.next()) {
+            if (reader.getCode() != 0) {
+                continue;
+            }
+
+            String childType = reader.getValue().trim();
+            if (childType.equals("SEQEND")) {
+                readEntity(reader, childType);
+                break;
+            } else if (childType.equals("VERTEX") || childType.equals("ATTRIB")) {
+                entity.addChild(readEntity(reader, childType));
+            } else {
+                // Missing SEQEND, let the caller deal with the next entity
+                reader.pushBack();
+                break;
+            }
+        }
+
+        return entity;
+    }
+
+    /**
+     * Read all pairs of an entity up to the next group code 0.
+     *
+     * @param reader to read from
+     * @param type   of the entity
+     * @return the read entity
+     * @throws IOException in case the entity could not be read
+     */
+    private DxfEntity readEntity(DxfReader reader, String type) throws IOException {
+        DxfEntity entity = new DxfEntity(type);
+
+        while (reader.next()) {
+            if (reader.getCode() == 0) {
+                reader.pushBack();
+                break;
+            }
+
+            entity.add(reader.getCode(), reader.getValue());
+        }
+
+        return entity;
+    }
+
+}
@@ -0,0 +1,120 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reader for the group code/value pairs of an ASCII DXF file.
+ * Pairs are read one by one so that the file never has to be held in memory.
+ */
+public class DxfReader implements Closeable {
+
+    /**
+     * Sentinel at the start of binary DXF files which are not supported.
+     */
+    private static final String BINARY_DXF_SENTINEL = "AutoCAD Binary DXF";
+
+    /**
+     * Reader to read lines from.
+     */
+    private final BufferedReader reader;
+
+    /**
+     * Group code of the current pair.
+     */
+    private int code;
+
+    /**
+     * Value of the current pair.
+     */
+    private String value;
+
+    /**
+     * Whether the current pair has been pushed back to be read again.
+     */
+    private boolean pushedBack;
+
+    /**
+     * Number of the line read last (for error messages).
+     */
+    private long lineNumber;
+
+    public DxfReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Read the next pair.
+     *
+     * @return whether there was a next pair
+     * @throws IOException in case the pair could not be read
+     */
+    public boolean next() throws IOException {
+        if (pushedBack) {
+            pushedBack = false;
+            return true;
+        }
+
+        String codeLine = reader.readLine();
+        String valueLine = reader.readLine();
+        if (codeLine == null || valueLine == null) {
+            return false;
+        }
+        lineNumber += 2;
+
+        try {
+            code = Integer.parseInt(codeLine.trim());
+        } catch (NumberFormatException e) {
+            if (lineNumber == 2 && codeLine.startsWith(BINARY_DXF_SENTINEL)) {
+                throw new DxfFormatException("Binary DXF files are not supported");
+            }
+
+            throw new DxfFormatException("Invalid group code '" + codeLine + "' at line " + (lineNumber - 1), e);
+        }
+        value = valueLine;
+
+        return true;
+    }
+
+    /**
+     * Push back the current pair so that it is returned by the next call to {@link #next()} again.
+     */
+    public void pushBack() {
+        pushedBack = true;
+    }
+
+    /**
+     * Get the group code of the current pair.
+     *
+     * @return group code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Get the value of the current pair.
+     *
+     * @return value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Check whether the current pair is the passed entity/section marker (group code 0).
+     *
+     * @param marker to check for
+     * @return whether the current pair is the marker
+     */
+    public boolean isMarker(String marker) {
+        return code == 0 && marker.equals(value.trim());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+}
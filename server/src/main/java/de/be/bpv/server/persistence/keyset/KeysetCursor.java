@@ -0,0 +1,87 @@
+package de.be.bpv.server.persistence.keyset;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position in a sorted result to continue a page after.
+ * Consists of the value of the sort attribute and the ID of the last row of the previous page.
+ */
+public class KeysetCursor {
+
+    /**
+     * Value of the sort attribute, either a {@link String} or a {@link Date}.
+     */
+    private final Comparable<?> value;
+
+    /**
+     * ID of the row.
+     */
+    private final long id;
+
+    public KeysetCursor(Comparable<?> value, long id) {
+        this.value = value;
+        this.id = id;
+    }
+
+    /**
+     * Decode a cursor previously encoded by {@link #encode()}.
+     *
+     * @param encoded cursor
+     * @return the cursor
+     * @throws IllegalArgumentException in case the cursor is invalid
+     */
+    public static KeysetCursor decode(String encoded) {
+        String decoded = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+
+        int separator = decoded.lastIndexOf('\n');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        long id = Long.parseLong(decoded.substring(separator + 1));
+        String value = decoded.substring(1, separator);
+        switch (decoded.charAt(0)) {
+            case 's':
+                return new KeysetCursor(value, id);
+            case 'd':
+                return new KeysetCursor(new Date(Long.parseLong(value)), id);
+            default:
+                throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Encode the cursor as opaque URL safe string.
+     *
+     * @return encoded cursor
+     */
+    public String encode() {
+        String encodedValue = value instanceof Date
+                ? "d" + ((Date) value).getTime()
+                : "s" + value;
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((encodedValue + "\n" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the value of the sort attribute.
+     *
+     * @return value
+     */
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    /**
+     * Get the ID of the row.
+     *
+     * @return ID
+     */
+    public long getId() {
+        return id;
+    }
+
+}
@@ -0,0 +1,49 @@
+package de.be.bpv.server.persistence.keyset;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Page of a keyset paginated result.
+ *
+ * @param <T> type of the rows
+ */
+public class KeysetPage<T> {
+
+    /**
+     * Rows of the page.
+     */
+    private final List<T> items;
+
+    /**
+     * Cursor to get the next page with, null if this is the last page.
+     */
+    @Nullable
+    private final KeysetCursor next;
+
+    public KeysetPage(List<T> items, @Nullable KeysetCursor next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * Get the rows of the page.
+     *
+     * @return rows
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Get the cursor to get the next page with.
+     *
+     * @return cursor or null if this is the last page
+     */
+    @Nullable
+    public KeysetCursor getNext() {
+        return next;
+    }
+
+}
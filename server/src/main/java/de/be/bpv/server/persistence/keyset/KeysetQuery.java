@@ -0,0 +1,153 @@
+package de.be.bpv.server.persistence.keyset;
+
+import org.springframework.lang.Nullable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset paginated queries of entities with an ID, a name and a created timestamp.
+ * Instead of skipping an offset, a page continues after the sort values of the last row of the previous page,
+ * so that deep pages are as fast as the first one when the sort attribute is indexed.
+ */
+public final class KeysetQuery {
+
+    /**
+     * Character to escape wildcards in like patterns with.
+     */
+    private static final char ESCAPE = '\\';
+
+    private KeysetQuery() {
+        // Utility class
+    }
+
+    /**
+     * Find a page of entities.
+     *
+     * @param entityManager to query with
+     * @param type          of the entities
+     * @param filter        adding the predicates to filter entities by
+     * @param sort          order of the entities
+     * @param after         cursor to continue after, null for the first page
+     * @param size          maximum number of entities on the page
+     * @param cursorOf      getting the cursor to continue after an entity
+     * @param <T>           type of the entities
+     * @return the page
+     */
+    public static <T> KeysetPage<T> find(
+            EntityManager entityManager,
+            Class<T> type,
+            Filter<T> filter,
+            KeysetSort sort,
+            @Nullable KeysetCursor after,
+            int size,
+            Function<T, KeysetCursor> cursorOf
+    ) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+
+        List<Predicate> predicates = new ArrayList<>();
+        filter.addTo(cb, root, predicates);
+        if (after != null) {
+            predicates.add(after(cb, root, sort, after));
+        }
+
+        Expression<?> attribute = root.get(sort.getAttribute());
+        Expression<?> id = root.get("id");
+        query.select(root)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(sort.isAscending()
+                        ? List.of(cb.asc(attribute), cb.asc(id))
+                        : List.of(cb.desc(attribute), cb.desc(id)));
+
+        // One more row than requested tells whether there is a next page
+        List<T> rows = entityManager.createQuery(query)
+                .setMaxResults(size + 1)
+                .getResultList();
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, size);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(size - 1)));
+    }
+
+    /**
+     * Get a predicate matching names starting with the passed prefix.
+     * The match is case sensitive, so that it can use an index on the name.
+     *
+     * @param cb     to build the predicate with
+     * @param root   of the query
+     * @param prefix names have to start with
+     * @return the predicate
+     */
+    public static Predicate nameStartsWith(CriteriaBuilder cb, Root<?> root, String prefix) {
+        String escaped = prefix
+                .replace(String.valueOf(ESCAPE), String.valueOf(ESCAPE) + ESCAPE)
+                .replace("%", ESCAPE + "%")
+                .replace("_", ESCAPE + "_");
+
+        return cb.like(root.<String>get("name"), escaped + "%", ESCAPE);
+    }
+
+    /**
+     * Get a predicate matching the rows after the passed cursor.
+     *
+     * @param cb     to build the predicate with
+     * @param root   of the query
+     * @param sort   order of the rows
+     * @param cursor to continue after
+     * @return the predicate
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate after(CriteriaBuilder cb, Root<?> root, KeysetSort sort, KeysetCursor cursor) {
+        Expression<Comparable> attribute = root.get(sort.getAttribute());
+        Expression<Long> id = root.get("id");
+
+        Class<?> expectedType = attribute.getJavaType();
+        if (!expectedType.isInstance(cursor.getValue())) {
+            throw new IllegalArgumentException("Cursor does not match the sort order");
+        }
+
+        Comparable value = cursor.getValue();
+        if (sort.isAscending()) {
+            return cb.or(
+                    cb.greaterThan(attribute, value),
+                    cb.and(cb.equal(attribute, value), cb.greaterThan(id, cursor.getId()))
+            );
+        } else {
+            return cb.or(
+                    cb.lessThan(attribute, value),
+                    cb.and(cb.equal(attribute, value), cb.lessThan(id, cursor.getId()))
+            );
+        }
+    }
+
+    /**
+     * Filter of a keyset paginated query.
+     *
+     * @param <T> type of the entities
+     */
+    @FunctionalInterface
+    public interface Filter<T> {
+
+        /**
+         * Add the predicates to filter entities by.
+         *
+         * @param cb         to build predicates with
+         * @param root       of the query
+         * @param predicates to add to
+         */
+        void addTo(CriteriaBuilder cb, Root<T> root, List<Predicate> predicates);
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package de.be.bpv.server.persistence.keyset;
+
+import org.springframework.lang.Nullable;
+
+import java.util.Date;
+
+/**
+ * Sort orders supported by keyset pagination.
+ * Every order is made unique by the ID as tie-breaker, so that a page can continue after any row.
+ */
+public enum KeysetSort {
+
+    /**
+     * Newest first.
+     */
+    CREATED_DESC("createdTimestamp", false),
+
+    /**
+     * Oldest first.
+     */
+    CREATED_ASC("createdTimestamp", true),
+
+    /**
+     * By name in ascending order.
+     */
+    NAME_ASC("name", true),
+
+    /**
+     * By name in descending order.
+     */
+    NAME_DESC("name", false);
+
+    /**
+     * Name of the attribute to sort by.
+     */
+    private final String attribute;
+
+    /**
+     * Whether to sort in ascending order.
+     */
+    private final boolean ascending;
+
+    KeysetSort(String attribute, boolean ascending) {
+        this.attribute = attribute;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Parse a sort order in the form "attribute[,asc|desc]" (for example "name,asc").
+     *
+     * @param value to parse, the newest first order is used if null or empty
+     * @return the sort order
+     * @throws IllegalArgumentException in case the value is no supported sort order
+     */
+    public static KeysetSort parse(@Nullable String value) {
+        if (value == null || value.isBlank()) {
+            return CREATED_DESC;
+        }
+
+        String[] parts = value.split(",");
+        String attribute = parts[0].trim();
+        boolean ascending = parts.length < 2 || parts[1].trim().equalsIgnoreCase("asc");
+        if (parts.length > 2 || (parts.length == 2 && !ascending && !parts[1].trim().equalsIgnoreCase("desc"))) {
+            throw new IllegalArgumentException("Invalid sort order: " + value);
+        }
+
+        for (KeysetSort sort : values()) {
+            if (sort.attribute.equals(attribute) && sort.ascending == ascending) {
+                return sort;
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported sort order: " + value);
+    }
+
+    /**
+     * Get the cursor continuing after the row with the passed values.
+     *
+     * @param id               of the row
+     * @param name             of the row
+     * @param createdTimestamp of the row
+     * @return the cursor
+     */
+    public KeysetCursor cursorOf(long id, String name, Date createdTimestamp) {
+        return new KeysetCursor(attribute.equals("name") ? name : createdTimestamp, id);
+    }
+
+    /**
+     * Check whether the passed cursor continues this sort order.
+     *
+     * @param cursor to check
+     * @return whether the cursor holds a value of the sort attribute
+     */
+    public boolean matches(KeysetCursor cursor) {
+        return attribute.equals("name") ? cursor.getValue() instanceof String : cursor.getValue() instanceof Date;
+    }
+
+    /**
+     * Get the name of the attribute to sort by.
+     *
+     * @return attribute name
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Check whether to sort in ascending order.
+     *
+     * @return whether ascending
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+}
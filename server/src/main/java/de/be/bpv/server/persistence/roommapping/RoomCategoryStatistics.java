@@ -0,0 +1,56 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Statistics of the rooms of one category in a room mapping collection.
+ * Used as projection of the grouped statistics queries.
+ */
+public interface RoomCategoryStatistics {
+
+    /**
+     * Get the ID of the room mapping collection.
+     *
+     * @return ID of the collection
+     */
+    Long getMappingID();
+
+    /**
+     * Get the ID of the CAD file (building plan) the collection belongs to.
+     *
+     * @return ID of the CAD file
+     */
+    Long getCadFileID();
+
+    /**
+     * Get the category.
+     *
+     * @return category
+     */
+    Integer getCategory();
+
+    /**
+     * Get the number of rooms of the category.
+     *
+     * @return number of rooms
+     */
+    Long getRoomCount();
+
+    /**
+     * Get the number of rooms of the category with a known area,
+     * which are the rooms mapped by explicit vertices forming a polygon.
+     * Rooms mapped by a mapping vertex only are not measured.
+     *
+     * @return number of rooms with area
+     */
+    Long getMeasuredRoomCount();
+
+    /**
+     * Get the total area of the measured rooms of the category.
+     *
+     * @return area or null if no room of the category has a known area
+     */
+    @Nullable
+    Double getArea();
+
+}
@@ -13,14 +13,22 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Transient;
 import java.util.List;
 
 /**
  * Representation of a mapping of a room.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_room_mapping_room_name", columnList = "collection_id, roomName"),
+        @Index(name = "idx_room_mapping_category", columnList = "collection_id, category, area")
+})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class RoomMapping {
 
@@ -29,7 +37,8 @@ public class RoomMapping {
      */
     @Id
     @Column(unique = true, nullable = false)
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_mapping_id")
+    @SequenceGenerator(name = "room_mapping_id", sequenceName = "room_mapping_id_seq", allocationSize = 1000)
     private Long id;
 
     /**
@@ -71,6 +80,29 @@ public class RoomMapping {
     @Column(nullable = true)
     private List<RoomMappingVertex> vertices;
 
+    /**
+     * Area of the polygon formed by the explicit vertices, kept up to date when the vertices are set.
+     * Stored so that the area per category can be aggregated without loading any vertices.
+     * Mappings with a mapping vertex only have no area, the room polygon it resolves to
+     * depends on the current geometry of the CAD file and is never persisted.
+     */
+    @Column(nullable = true)
+    private Double area;
+
+    /**
+     * ID of the room polygon in the CAD file the mapping vertex resolved to.
+     * Only set in responses, it is not persisted.
+     */
+    @Transient
+    private Integer roomPolygonID;
+
+    /**
+     * Vertices of the room polygon in the CAD file the mapping vertex resolved to.
+     * Only set in responses, it is not persisted.
+     */
+    @Transient
+    private List<RoomMappingVertex> roomPolygon;
+
     /**
      * Get the ID of the mapping.
      *
@@ -180,6 +212,56 @@ public class RoomMapping {
      */
     public void setVertices(@Nullable List<RoomMappingVertex> vertices) {
         this.vertices = vertices;
+        this.area = RoomMappingVertex.polygonArea(vertices);
+    }
+
+    /**
+     * Get the area of the polygon formed by the explicit vertices.
+     * The room polygon a mapping vertex resolves to is not taken into account.
+     *
+     * @return area or null if the vertices do not form a polygon
+     */
+    @Nullable
+    public Double getArea() {
+        return area;
+    }
+
+    /**
+     * Get the ID of the room polygon the mapping vertex resolved to.
+     *
+     * @return room polygon ID
+     */
+    @Nullable
+    public Integer getRoomPolygonID() {
+        return roomPolygonID;
+    }
+
+    /**
+     * Set the ID of the room polygon the mapping vertex resolved to.
+     *
+     * @param roomPolygonID to set
+     */
+    public void setRoomPolygonID(@Nullable Integer roomPolygonID) {
+        this.roomPolygonID = roomPolygonID;
+    }
+
+    /**
+     * Get the vertices of the room polygon the mapping vertex resolved to.
+     *
+     * @return room polygon vertices
+     */
+    @Nullable
+    public List<RoomMappingVertex> getRoomPolygon() {
+        return roomPolygon;
+    }
+
+    /**
+     * Set the vertices of the room polygon the mapping vertex resolved to.
+     *
+     * @param roomPolygon to set
+     */
+    public void setRoomPolygon(@Nullable List<RoomMappingVertex> roomPolygon) {
+        this.roomPolygon = roomPolygon;
     }
 
     /**
@@ -2,6 +2,7 @@ package de.be.bpv.server.persistence.roommapping;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
@@ -10,7 +11,11 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Date;
 import java.util.List;
 
@@ -18,6 +23,11 @@ import java.util.List;
  * Collection of room mappings.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_room_mapping_collection_name", columnList = "name, id"),
+        @Index(name = "idx_room_mapping_collection_created", columnList = "createdTimestamp, id"),
+        @Index(name = "idx_room_mapping_collection_cad_file", columnList = "cadFileID, createdTimestamp, id")
+})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class RoomMappingCollection {
 
@@ -26,9 +36,16 @@ public class RoomMappingCollection {
      */
     @Id
     @Column(unique = true, nullable = false)
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_mapping_collection_id")
+    @SequenceGenerator(name = "room_mapping_collection_id", sequenceName = "room_mapping_collection_id_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Version of the mapping, incremented on every change.
+     */
+    @Version
+    private Long version;
+
     /**
      * Name of the room mapping.
      */
@@ -42,6 +59,13 @@ public class RoomMappingCollection {
     @CreationTimestamp
     private Date createdTimestamp;
 
+    /**
+     * Timestamp of when the mapping was last changed.
+     */
+    @Column(nullable = false)
+    @UpdateTimestamp
+    private Date updatedTimestamp;
+
     /**
      * ID of the CAD file this mapping belongs to.
      */
@@ -54,7 +78,8 @@ public class RoomMappingCollection {
     @OneToMany(
             mappedBy = "collection",
             fetch = FetchType.LAZY,
-            cascade = CascadeType.ALL
+            cascade = CascadeType.ALL,
+            orphanRemoval = true
     )
     private List<RoomMapping> mappings;
 
@@ -76,6 +101,24 @@ public class RoomMappingCollection {
         this.id = id;
     }
 
+    /**
+     * Get the version of the mapping.
+     *
+     * @return version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the mapping.
+     *
+     * @param version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     /**
      * Get the name of the mapping.
      *
@@ -112,6 +155,24 @@ public class RoomMappingCollection {
         this.createdTimestamp = createdTimestamp;
     }
 
+    /**
+     * Get the timestamp of the last change.
+     *
+     * @return updated timestamp
+     */
+    public Date getUpdatedTimestamp() {
+        return updatedTimestamp;
+    }
+
+    /**
+     * Set the timestamp of the last change.
+     *
+     * @param updatedTimestamp to set
+     */
+    public void setUpdatedTimestamp(Date updatedTimestamp) {
+        this.updatedTimestamp = updatedTimestamp;
+    }
+
     /**
      * Get the ID of the CAD file this mapping belongs to.
      *
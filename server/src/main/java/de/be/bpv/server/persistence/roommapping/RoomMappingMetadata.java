@@ -0,0 +1,39 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import java.util.Date;
+
+/**
+ * Metadata of a room mapping collection without its mappings.
+ * Used as projection to validate cached copies without loading the mappings.
+ */
+public interface RoomMappingMetadata {
+
+    /**
+     * Get the ID of the mapping.
+     *
+     * @return ID
+     */
+    Long getId();
+
+    /**
+     * Get the version of the mapping.
+     *
+     * @return version
+     */
+    Long getVersion();
+
+    /**
+     * Get the ID of the CAD file the mapping belongs to.
+     *
+     * @return ID of the CAD file
+     */
+    Long getCadFileID();
+
+    /**
+     * Get the timestamp of the last change.
+     *
+     * @return updated timestamp
+     */
+    Date getUpdatedTimestamp();
+
+}
@@ -1,13 +1,25 @@
 package de.be.bpv.server.persistence.roommapping;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Spring data repository for room mapping collection entities.
  */
-public interface RoomMappingRepository extends CrudRepository<RoomMappingCollection, Long> {
+public interface RoomMappingRepository extends PagingAndSortingRepository<RoomMappingCollection, Long>, RoomMappingRepositoryCustom {
+
+    /**
+     * Select part of the statistics queries, grouping the mappings of a collection by category.
+     * Covered by the (collection_id, category, area) index of the mappings.
+     */
+    String STATISTICS_SELECT = "SELECT c.id AS mappingID, c.cadFileID AS cadFileID, m.category AS category, "
+            + "COUNT(m) AS roomCount, COUNT(m.area) AS measuredRoomCount, SUM(m.area) AS area "
+            + "FROM RoomMapping m JOIN m.collection c";
 
     /**
      * Get all mappings by the passed CAD file ID.
@@ -17,4 +29,62 @@ public interface RoomMappingRepository extends CrudRepository<RoomMappingCollect
      */
     List<RoomMappingCollection> findAllByCadFileID(long cadFileID);
 
+    /**
+     * Get the mappings of the passed rooms in the collection with the passed ID.
+     *
+     * @param collectionID ID of the collection
+     * @param roomNames    names of the rooms to get mappings for
+     * @return the mappings of the rooms
+     */
+    @Query("SELECT m FROM RoomMapping m WHERE m.collection.id = :collectionID AND m.roomName IN :roomNames")
+    List<RoomMapping> findMappingsByRoomNames(
+            @Param("collectionID") long collectionID,
+            @Param("roomNames") Collection<String> roomNames
+    );
+
+    /**
+     * Get the statistics per category of all collections.
+     *
+     * @return statistics ordered by collection and category
+     */
+    @Query(STATISTICS_SELECT + " GROUP BY c.id, c.cadFileID, m.category ORDER BY c.id, m.category")
+    List<RoomCategoryStatistics> findCategoryStatistics();
+
+    /**
+     * Get the statistics per category of the collections with the passed IDs.
+     *
+     * @param ids of the collections
+     * @return statistics ordered by collection and category
+     */
+    @Query(STATISTICS_SELECT + " WHERE c.id IN :ids GROUP BY c.id, c.cadFileID, m.category ORDER BY c.id, m.category")
+    List<RoomCategoryStatistics> findCategoryStatisticsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Get the statistics per category of the collections belonging to the CAD files with the passed IDs.
+     *
+     * @param cadFileIDs IDs of the CAD files
+     * @return statistics ordered by collection and category
+     */
+    @Query(STATISTICS_SELECT + " WHERE c.cadFileID IN :cadFileIDs GROUP BY c.id, c.cadFileID, m.category ORDER BY c.id, m.category")
+    List<RoomCategoryStatistics> findCategoryStatisticsByCadFileIDs(@Param("cadFileIDs") Collection<Long> cadFileIDs);
+
+    /**
+     * Get the version of the mapping with the passed ID without loading the mapping.
+     *
+     * @param id of the mapping
+     * @return version of the mapping
+     */
+    @Query("SELECT c.version FROM RoomMappingCollection c WHERE c.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    /**
+     * Get the metadata of the mapping with the passed ID without loading its mappings.
+     *
+     * @param id of the mapping
+     * @return metadata of the mapping
+     */
+    @Query("SELECT c.id AS id, c.version AS version, c.cadFileID AS cadFileID, "
+            + "c.updatedTimestamp AS updatedTimestamp FROM RoomMappingCollection c WHERE c.id = :id")
+    Optional<RoomMappingMetadata> findMetadataById(@Param("id") long id);
+
 }
@@ -0,0 +1,46 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import de.be.bpv.server.persistence.keyset.KeysetCursor;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Custom queries of the room mapping repository.
+ */
+public interface RoomMappingRepositoryCustom {
+
+    /**
+     * Find the collection with the passed ID with all its mappings and their vertices loaded.
+     * Takes two queries regardless of the number of mappings, one for the collection
+     * with its mappings and one for the vertices of all mappings.
+     *
+     * @param id of the collection
+     * @return the collection with initialized mappings
+     */
+    @Transactional(readOnly = true)
+    Optional<RoomMappingCollection> findWithMappingsById(long id);
+
+    /**
+     * Find a keyset paginated page of room mapping collections.
+     * The mappings of the collections are not loaded.
+     *
+     * @param cadFileID  of the CAD file the collections have to belong to (optional)
+     * @param namePrefix the names have to start with (optional)
+     * @param sort       order of the collections
+     * @param after      cursor to continue after, null for the first page
+     * @param size       maximum number of collections on the page
+     * @return the page
+     */
+    KeysetPage<RoomMappingCollection> findPage(
+            @Nullable Long cadFileID,
+            @Nullable String namePrefix,
+            KeysetSort sort,
+            @Nullable KeysetCursor after,
+            int size
+    );
+
+}
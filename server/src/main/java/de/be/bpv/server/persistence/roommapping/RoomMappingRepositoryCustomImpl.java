@@ -0,0 +1,78 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import de.be.bpv.server.persistence.keyset.KeysetCursor;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetQuery;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.lang.Nullable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Implementation of the custom room mapping queries.
+ */
+public class RoomMappingRepositoryCustomImpl implements RoomMappingRepositoryCustom {
+
+    /**
+     * Entity manager to query with.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<RoomMappingCollection> findWithMappingsById(long id) {
+        // Mappings and vertices are both bags and cannot be fetched in a single query
+        List<RoomMappingCollection> collections = entityManager.createQuery(
+                "SELECT DISTINCT c FROM RoomMappingCollection c LEFT JOIN FETCH c.mappings WHERE c.id = :id",
+                RoomMappingCollection.class
+        )
+                .setParameter("id", id)
+                .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                .getResultList();
+        if (collections.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // Initializes the vertices of the mappings already in the persistence context
+        entityManager.createQuery(
+                "SELECT DISTINCT m FROM RoomMapping m LEFT JOIN FETCH m.vertices WHERE m.collection.id = :id",
+                RoomMapping.class
+        )
+                .setParameter("id", id)
+                .setHint(QueryHints.HINT_PASS_DISTINCT_THROUGH, false)
+                .getResultList();
+
+        return Optional.of(collections.get(0));
+    }
+
+    @Override
+    public KeysetPage<RoomMappingCollection> findPage(
+            @Nullable Long cadFileID,
+            @Nullable String namePrefix,
+            KeysetSort sort,
+            @Nullable KeysetCursor after,
+            int size
+    ) {
+        return KeysetQuery.find(
+                entityManager,
+                RoomMappingCollection.class,
+                (cb, root, predicates) -> {
+                    if (cadFileID != null) {
+                        predicates.add(cb.equal(root.get("cadFileID"), cadFileID));
+                    }
+                    if (namePrefix != null && !namePrefix.isEmpty()) {
+                        predicates.add(KeysetQuery.nameStartsWith(cb, root, namePrefix));
+                    }
+                },
+                sort,
+                after,
+                size,
+                mapping -> sort.cursorOf(mapping.getId(), mapping.getName(), mapping.getCreatedTimestamp())
+        );
+    }
+
+}
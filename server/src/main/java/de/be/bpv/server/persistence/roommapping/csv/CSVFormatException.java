@@ -0,0 +1,34 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+import java.io.IOException;
+
+/**
+ * Exception thrown when a CSV file could not be imported because it is malformed or contains invalid values.
+ */
+public class CSVFormatException extends IOException {
+
+    /**
+     * Number of the line the problem has been found in.
+     */
+    private final long line;
+
+    public CSVFormatException(String message, long line) {
+        super("Line " + line + ": " + message);
+        this.line = line;
+    }
+
+    public CSVFormatException(String message, long line, Throwable cause) {
+        super("Line " + line + ": " + message, cause);
+        this.line = line;
+    }
+
+    /**
+     * Get the number of the line the problem has been found in.
+     *
+     * @return line number (1-based)
+     */
+    public long getLine() {
+        return line;
+    }
+
+}
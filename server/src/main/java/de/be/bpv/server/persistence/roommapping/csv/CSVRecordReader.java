@@ -0,0 +1,192 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of CSV records (RFC 4180).
+ * Fields may be quoted to contain delimiters, line breaks or (doubled) quotes.
+ * Only the current record is held in memory.
+ */
+public class CSVRecordReader {
+
+    /**
+     * Character used to quote fields.
+     */
+    private static final char QUOTE = '"';
+
+    /**
+     * Byte order mark, which editors like Excel write at the start of UTF-8 files.
+     */
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * Reader to read characters from.
+     */
+    private final Reader reader;
+
+    /**
+     * Delimiter separating the fields of a record.
+     */
+    private final char delimiter;
+
+    /**
+     * Buffer of the current field.
+     */
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * Character read ahead, -2 if none has been read ahead.
+     */
+    private int lookahead = -2;
+
+    /**
+     * Number of the line currently being read (1-based).
+     */
+    private long line = 1;
+
+    /**
+     * Number of the line the last record returned started in.
+     */
+    private long recordLine = 0;
+
+    /**
+     * Whether the first character of the input has been read.
+     */
+    private boolean started = false;
+
+    public CSVRecordReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Read the next record.
+     * Empty lines are skipped.
+     *
+     * @return fields of the record or null if the end of the input has been reached
+     * @throws IOException in case the input could not be read or a quoted field is not terminated
+     */
+    @Nullable
+    public List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        recordLine = line;
+
+        boolean quoted = false;
+        boolean empty = true;
+        while (true) {
+            int c = read();
+
+            if (quoted) {
+                if (c == -1) {
+                    throw new CSVFormatException("Quoted field is not terminated", recordLine);
+                } else if (c == QUOTE) {
+                    if (peek() == QUOTE) {
+                        read();
+                        field.append(QUOTE);
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == -1 || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+
+                if (empty && fields.isEmpty() && field.length() == 0) {
+                    if (c == -1) {
+                        return null;
+                    }
+
+                    // Skip empty line
+                    line++;
+                    recordLine = line;
+                    continue;
+                }
+
+                fields.add(field.toString());
+                if (c != -1) {
+                    line++;
+                }
+                return fields;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+                empty = false;
+            } else if (c == QUOTE && field.length() == 0) {
+                quoted = true;
+                empty = false;
+            } else {
+                field.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Get the number of the line the last record returned by {@link #next()} started in.
+     *
+     * @return line number (1-based)
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Read the next character.
+     *
+     * @return character or -1 at the end of the input
+     * @throws IOException in case the input could not be read
+     */
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+
+        return readFromReader();
+    }
+
+    /**
+     * Peek at the next character without consuming it.
+     *
+     * @return character or -1 at the end of the input
+     * @throws IOException in case the input could not be read
+     */
+    private int peek() throws IOException {
+        if (lookahead == -2) {
+            lookahead = readFromReader();
+        }
+
+        return lookahead;
+    }
+
+    /**
+     * Read the next character from the reader, skipping a byte order mark at the start of the input.
+     *
+     * @return character or -1 at the end of the input
+     * @throws IOException in case the input could not be read
+     */
+    private int readFromReader() throws IOException {
+        int c = reader.read();
+        if (!started) {
+            started = true;
+            if (c == BYTE_ORDER_MARK) {
+                c = reader.read();
+            }
+        }
+
+        return c;
+    }
+
+}
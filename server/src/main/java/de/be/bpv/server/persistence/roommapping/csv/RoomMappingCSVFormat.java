@@ -0,0 +1,147 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+/**
+ * Format of a room mapping CSV file.
+ * The defaults match the format of docs/room_mapping.csv.
+ */
+public class RoomMappingCSVFormat {
+
+    /**
+     * Delimiter separating the fields of a record.
+     */
+    private char delimiter = ',';
+
+    /**
+     * Header of the room name column (required).
+     */
+    private String roomNameHeader = "RoomNumber";
+
+    /**
+     * Header of the category column (required).
+     */
+    private String categoryHeader = "Cluster";
+
+    /**
+     * Header of the description column (optional).
+     */
+    private String descriptionHeader = "Description";
+
+    /**
+     * Header of the mapping vertex column (optional), values look like "(x, y)".
+     */
+    private String mappingVertexHeader = "MappingVertex";
+
+    /**
+     * Header of the polygon column (optional), values look like "[(x, y), (x, y), ...]".
+     */
+    private String polygonHeader = "Polygon";
+
+    /**
+     * Get the delimiter separating the fields of a record.
+     *
+     * @return delimiter
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Set the delimiter separating the fields of a record.
+     *
+     * @param delimiter to set
+     */
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Get the header of the room name column.
+     *
+     * @return room name header
+     */
+    public String getRoomNameHeader() {
+        return roomNameHeader;
+    }
+
+    /**
+     * Set the header of the room name column.
+     *
+     * @param roomNameHeader to set
+     */
+    public void setRoomNameHeader(String roomNameHeader) {
+        this.roomNameHeader = roomNameHeader;
+    }
+
+    /**
+     * Get the header of the category column.
+     *
+     * @return category header
+     */
+    public String getCategoryHeader() {
+        return categoryHeader;
+    }
+
+    /**
+     * Set the header of the category column.
+     *
+     * @param categoryHeader to set
+     */
+    public void setCategoryHeader(String categoryHeader) {
+        this.categoryHeader = categoryHeader;
+    }
+
+    /**
+     * Get the header of the description column.
+     *
+     * @return description header
+     */
+    public String getDescriptionHeader() {
+        return descriptionHeader;
+    }
+
+    /**
+     * Set the header of the description column.
+     *
+     * @param descriptionHeader to set
+     */
+    public void setDescriptionHeader(String descriptionHeader) {
+        this.descriptionHeader = descriptionHeader;
+    }
+
+    /**
+     * Get the header of the mapping vertex column.
+     *
+     * @return mapping vertex header
+     */
+    public String getMappingVertexHeader() {
+        return mappingVertexHeader;
+    }
+
+    /**
+     * Set the header of the mapping vertex column.
+     *
+     * @param mappingVertexHeader to set
+     */
+    public void setMappingVertexHeader(String mappingVertexHeader) {
+        this.mappingVertexHeader = mappingVertexHeader;
+    }
+
+    /**
+     * Get the header of the polygon column.
+     *
+     * @return polygon header
+     */
+    public String getPolygonHeader() {
+        return polygonHeader;
+    }
+
+    /**
+     * Set the header of the polygon column.
+     *
+     * @param polygonHeader to set
+     */
+    public void setPolygonHeader(String polygonHeader) {
+        this.polygonHeader = polygonHeader;
+    }
+
+}
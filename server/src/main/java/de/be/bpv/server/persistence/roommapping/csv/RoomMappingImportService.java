@@ -0,0 +1,276 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+import de.be.bpv.server.persistence.roommapping.RoomMapping;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Service importing room mapping collections from CSV files.
+ * The file is parsed while streaming and the mappings are written in JDBC batches,
+ * so the memory used does not depend on the size of the file.
+ */
+@Service
+public class RoomMappingImportService {
+
+    /**
+     * Number of rows written per JDBC batch.
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    /**
+     * Maximum length of a room mapping description.
+     */
+    private static final int MAX_DESCRIPTION_LENGTH = 5000;
+
+    /**
+     * Pattern of a single vertex like "(x, y)".
+     */
+    private static final Pattern VERTEX = Pattern.compile("\\(\\s*([^,()\\s]+)\\s*,\\s*([^,()\\s]+)\\s*\\)");
+
+    /**
+     * Statement inserting a room mapping.
+     * The table and column names are the ones derived from {@link RoomMapping}.
+     */
+    private static final String INSERT_MAPPING = "INSERT INTO room_mapping "
+            + "(id, room_name, category, description, x, y, area, collection_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Statement inserting a vertex of a room mapping.
+     */
+    private static final String INSERT_VERTEX = "INSERT INTO room_mapping_vertices (room_mapping_id, x, y) VALUES (?, ?, ?)";
+
+    /**
+     * Repository managing room mapping entities.
+     */
+    private final RoomMappingRepository roomMappingRepository;
+
+    /**
+     * Template to execute the batched inserts with.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Entity manager providing the ID generator of room mappings.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RoomMappingImportService(RoomMappingRepository roomMappingRepository, JdbcTemplate jdbcTemplate) {
+        this.roomMappingRepository = roomMappingRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Create the passed collection with the mappings read from the passed CSV file.
+     * Nothing is created in case the file is invalid.
+     *
+     * @param collection to create (without mappings)
+     * @param csv        reader of the CSV file
+     * @param format     of the CSV file
+     * @return the created collection (its mappings are not loaded)
+     * @throws CSVFormatException in case the file is malformed or contains invalid values
+     * @throws IOException        in case the file could not be read
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public RoomMappingCollection importCSV(RoomMappingCollection collection, Reader csv, RoomMappingCSVFormat format) throws IOException {
+        collection.setMappings(null);
+        collection = roomMappingRepository.save(collection);
+        entityManager.flush();
+
+        CSVRecordReader records = new CSVRecordReader(csv, format.getDelimiter());
+        List<String> header = records.next();
+        if (header == null) {
+            throw new CSVFormatException("The file is empty", 1);
+        }
+
+        int roomNameColumn = indexOf(header, format.getRoomNameHeader(), true);
+        int categoryColumn = indexOf(header, format.getCategoryHeader(), true);
+        int descriptionColumn = indexOf(header, format.getDescriptionHeader(), false);
+        int mappingVertexColumn = indexOf(header, format.getMappingVertexHeader(), false);
+        int polygonColumn = indexOf(header, format.getPolygonHeader(), false);
+
+        // Use the pooled ID generator of the entity, so IDs never collide with mappings saved by JPA
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator idGenerator = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactoryImplementor.class)
+                .getMetamodel()
+                .entityPersister(RoomMapping.class)
+                .getIdentifierGenerator();
+
+        List<Object[]> mappingRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> vertexRows = new ArrayList<>(BATCH_SIZE);
+        List<String> record;
+        while ((record = records.next()) != null) {
+            long line = records.getRecordLine();
+
+            String roomName = field(record, roomNameColumn);
+            if (roomName == null || roomName.isBlank()) {
+                throw new CSVFormatException("Room name is missing", line);
+            }
+
+            String categoryValue = field(record, categoryColumn);
+            int category;
+            try {
+                category = Integer.parseInt(categoryValue != null ? categoryValue.trim() : "");
+            } catch (NumberFormatException e) {
+                throw new CSVFormatException("Category '" + categoryValue + "' is not a number", line, e);
+            }
+
+            String description = emptyToNull(field(record, descriptionColumn));
+            if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+                throw new CSVFormatException("Description is longer than " + MAX_DESCRIPTION_LENGTH + " characters", line);
+            }
+
+            RoomMappingVertex mappingVertex = null;
+            String mappingVertexValue = emptyToNull(field(record, mappingVertexColumn));
+            if (mappingVertexValue != null) {
+                List<RoomMappingVertex> vertices = parseVertices(mappingVertexValue, line);
+                if (vertices.size() != 1) {
+                    throw new CSVFormatException("Mapping vertex '" + mappingVertexValue + "' is not a single vertex", line);
+                }
+                mappingVertex = vertices.get(0);
+            }
+
+            String polygonValue = emptyToNull(field(record, polygonColumn));
+            List<RoomMappingVertex> polygon = polygonValue != null ? parseVertices(polygonValue, line) : List.of();
+
+            long id = ((Number) idGenerator.generate(session, null)).longValue();
+            mappingRows.add(new Object[]{
+                    id,
+                    roomName,
+                    category,
+                    description,
+                    mappingVertex != null ? mappingVertex.getX() : null,
+                    mappingVertex != null ? mappingVertex.getY() : null,
+                    RoomMappingVertex.polygonArea(polygon),
+                    collection.getId()
+            });
+            for (RoomMappingVertex vertex : polygon) {
+                vertexRows.add(new Object[]{id, vertex.getX(), vertex.getY()});
+            }
+
+            if (mappingRows.size() >= BATCH_SIZE || vertexRows.size() >= BATCH_SIZE) {
+                writeBatch(mappingRows, vertexRows);
+            }
+        }
+        writeBatch(mappingRows, vertexRows);
+
+        return collection;
+    }
+
+    /**
+     * Write and clear the passed rows.
+     * Mappings are written first, as the vertices reference them.
+     *
+     * @param mappingRows rows of the mappings to write
+     * @param vertexRows  rows of the vertices to write
+     */
+    private void writeBatch(List<Object[]> mappingRows, List<Object[]> vertexRows) {
+        if (!mappingRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_MAPPING, mappingRows);
+            mappingRows.clear();
+        }
+        if (!vertexRows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_VERTEX, vertexRows);
+            vertexRows.clear();
+        }
+    }
+
+    /**
+     * Find the column with the passed header.
+     *
+     * @param header   record of the CSV file
+     * @param name     of the column to find
+     * @param required whether the column has to exist
+     * @return index of the column or -1 if the column does not exist
+     * @throws CSVFormatException in case a required column does not exist
+     */
+    private static int indexOf(List<String> header, @Nullable String name, boolean required) throws CSVFormatException {
+        int index = -1;
+        if (name != null) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().equals(name)) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+
+        if (index == -1 && required) {
+            throw new CSVFormatException("Column '" + name + "' is missing", 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Get a field of the passed record.
+     *
+     * @param record to get field of
+     * @param column index of the field, -1 for a missing column
+     * @return the field or null if the record does not have it
+     */
+    @Nullable
+    private static String field(List<String> record, int column) {
+        return column >= 0 && column < record.size() ? record.get(column) : null;
+    }
+
+    /**
+     * Map empty (or blank) values to null.
+     *
+     * @param value to map
+     * @return the value or null
+     */
+    @Nullable
+    private static String emptyToNull(@Nullable String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    /**
+     * Parse the vertices like "(x, y)" in the passed value.
+     *
+     * @param value to parse
+     * @param line  the value is from
+     * @return the parsed vertices
+     * @throws CSVFormatException in case a coordinate is not a number
+     */
+    private static List<RoomMappingVertex> parseVertices(String value, long line) throws CSVFormatException {
+        List<RoomMappingVertex> vertices = new ArrayList<>();
+
+        Matcher matcher = VERTEX.matcher(value);
+        while (matcher.find()) {
+            try {
+                RoomMappingVertex vertex = new RoomMappingVertex();
+                vertex.setX(Double.parseDouble(matcher.group(1)));
+                vertex.setY(Double.parseDouble(matcher.group(2)));
+                vertices.add(vertex);
+            } catch (NumberFormatException e) {
+                throw new CSVFormatException("Vertex '" + matcher.group() + "' has an invalid coordinate", line, e);
+            }
+        }
+
+        if (vertices.isEmpty()) {
+            throw new CSVFormatException("'" + value + "' does not contain any vertex", line);
+        }
+
+        return vertices;
+    }
+
+}
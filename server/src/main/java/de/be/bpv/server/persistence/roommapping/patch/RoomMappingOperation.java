@@ -0,0 +1,162 @@
+package de.be.bpv.server.persistence.roommapping.patch;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Operation on the mapping of a single room, identified by its room name.
+ * Fields left null are not changed by an update.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoomMappingOperation {
+
+    /**
+     * Type of the operation.
+     */
+    private RoomMappingOperationType op;
+
+    /**
+     * Name of the room the operation applies to.
+     */
+    private String roomName;
+
+    /**
+     * Category to set.
+     */
+    @Nullable
+    private Integer category;
+
+    /**
+     * Description to set.
+     */
+    @Nullable
+    private String description;
+
+    /**
+     * Mapping vertex to set.
+     */
+    @Nullable
+    private RoomMappingVertex mappingVertex;
+
+    /**
+     * Vertices to set.
+     */
+    @Nullable
+    private List<RoomMappingVertex> vertices;
+
+    /**
+     * Get the type of the operation.
+     *
+     * @return type
+     */
+    public RoomMappingOperationType getOp() {
+        return op;
+    }
+
+    /**
+     * Set the type of the operation.
+     *
+     * @param op to set
+     */
+    public void setOp(RoomMappingOperationType op) {
+        this.op = op;
+    }
+
+    /**
+     * Get the name of the room the operation applies to.
+     *
+     * @return room name
+     */
+    public String getRoomName() {
+        return roomName;
+    }
+
+    /**
+     * Set the name of the room the operation applies to.
+     *
+     * @param roomName to set
+     */
+    public void setRoomName(String roomName) {
+        this.roomName = roomName;
+    }
+
+    /**
+     * Get the category to set.
+     *
+     * @return category
+     */
+    @Nullable
+    public Integer getCategory() {
+        return category;
+    }
+
+    /**
+     * Set the category to set.
+     *
+     * @param category to set
+     */
+    public void setCategory(@Nullable Integer category) {
+        this.category = category;
+    }
+
+    /**
+     * Get the description to set.
+     *
+     * @return description
+     */
+    @Nullable
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Set the description to set.
+     *
+     * @param description to set
+     */
+    public void setDescription(@Nullable String description) {
+        this.description = description;
+    }
+
+    /**
+     * Get the mapping vertex to set.
+     *
+     * @return mapping vertex
+     */
+    @Nullable
+    public RoomMappingVertex getMappingVertex() {
+        return mappingVertex;
+    }
+
+    /**
+     * Set the mapping vertex to set.
+     *
+     * @param mappingVertex to set
+     */
+    public void setMappingVertex(@Nullable RoomMappingVertex mappingVertex) {
+        this.mappingVertex = mappingVertex;
+    }
+
+    /**
+     * Get the vertices to set.
+     *
+     * @return vertices
+     */
+    @Nullable
+    public List<RoomMappingVertex> getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Set the vertices to set.
+     *
+     * @param vertices to set
+     */
+    public void setVertices(@Nullable List<RoomMappingVertex> vertices) {
+        this.vertices = vertices;
+    }
+
+}
@@ -0,0 +1,23 @@
+package de.be.bpv.server.persistence.roommapping.patch;
+
+/**
+ * Type of an operation on a single room of a room mapping collection.
+ */
+public enum RoomMappingOperationType {
+
+    /**
+     * Add a mapping for a room not yet mapped.
+     */
+    ADD,
+
+    /**
+     * Change the passed fields of the mapping of a room.
+     */
+    UPDATE,
+
+    /**
+     * Remove the mapping of a room.
+     */
+    DELETE
+
+}
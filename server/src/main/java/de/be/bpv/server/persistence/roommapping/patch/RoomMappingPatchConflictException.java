@@ -0,0 +1,13 @@
+package de.be.bpv.server.persistence.roommapping.patch;
+
+/**
+ * Exception thrown when an operation does not fit the current state of a room mapping collection,
+ * like adding a room that is already mapped or updating one that is not.
+ */
+public class RoomMappingPatchConflictException extends RuntimeException {
+
+    public RoomMappingPatchConflictException(String message) {
+        super(message);
+    }
+
+}
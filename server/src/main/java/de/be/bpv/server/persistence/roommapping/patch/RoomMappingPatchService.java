@@ -0,0 +1,144 @@
+package de.be.bpv.server.persistence.roommapping.patch;
+
+import de.be.bpv.server.persistence.roommapping.RoomMapping;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Service applying operations on single rooms to room mapping collections.
+ * Only the mappings of the rooms named by the operations are loaded and written,
+ * so changing a room costs the same regardless of the size of the collection.
+ */
+@Service
+public class RoomMappingPatchService {
+
+    /**
+     * Repository managing room mapping entities.
+     */
+    private final RoomMappingRepository roomMappingRepository;
+
+    /**
+     * Entity manager to add and remove single mappings with.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public RoomMappingPatchService(RoomMappingRepository roomMappingRepository) {
+        this.roomMappingRepository = roomMappingRepository;
+    }
+
+    /**
+     * Apply the passed operations in order to the passed collection.
+     * Nothing is changed if any of the operations conflicts with the collection.
+     *
+     * @param collection to apply operations to
+     * @param operations to apply
+     * @return the changed collection (its mappings are not loaded)
+     * @throws RoomMappingPatchConflictException      in case an operation does not fit the collection
+     * @throws ObjectOptimisticLockingFailureException in case the collection has been changed or deleted concurrently
+     */
+    @Transactional
+    public RoomMappingCollection apply(RoomMappingCollection collection, List<RoomMappingOperation> operations) {
+        // Merging the passed collection would load all its mappings and cascade over them,
+        // which would also revert the removal of deleted mappings
+        RoomMappingCollection managed = entityManager.find(RoomMappingCollection.class, collection.getId());
+        if (managed == null || !Objects.equals(managed.getVersion(), collection.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(RoomMappingCollection.class, collection.getId());
+        }
+        managed.setName(collection.getName());
+
+        Set<String> roomNames = new HashSet<>();
+        for (RoomMappingOperation operation : operations) {
+            roomNames.add(operation.getRoomName());
+        }
+
+        // Room names are not unique, operations apply to all mappings of a room
+        Map<String, List<RoomMapping>> mappingsByRoomName = new HashMap<>();
+        if (!roomNames.isEmpty()) {
+            for (RoomMapping mapping : roomMappingRepository.findMappingsByRoomNames(managed.getId(), roomNames)) {
+                mappingsByRoomName.computeIfAbsent(mapping.getRoomName(), k -> new ArrayList<>()).add(mapping);
+            }
+        }
+
+        for (RoomMappingOperation operation : operations) {
+            String roomName = operation.getRoomName();
+            List<RoomMapping> mappings = mappingsByRoomName.get(roomName);
+
+            switch (operation.getOp()) {
+                case ADD:
+                    if (mappings != null) {
+                        throw new RoomMappingPatchConflictException("Room '" + roomName + "' is already mapped");
+                    }
+
+                    RoomMapping mapping = new RoomMapping();
+                    mapping.setRoomName(roomName);
+                    mapping.setCollection(managed);
+                    applyFields(mapping, operation);
+                    entityManager.persist(mapping);
+
+                    mappingsByRoomName.put(roomName, new ArrayList<>(List.of(mapping)));
+                    break;
+                case UPDATE:
+                    if (mappings == null) {
+                        throw new RoomMappingPatchConflictException("Room '" + roomName + "' is not mapped");
+                    }
+
+                    for (RoomMapping m : mappings) {
+                        applyFields(m, operation);
+                    }
+                    break;
+                case DELETE:
+                    if (mappings == null) {
+                        throw new RoomMappingPatchConflictException("Room '" + roomName + "' is not mapped");
+                    }
+
+                    for (RoomMapping m : mappings) {
+                        entityManager.remove(m);
+                    }
+                    mappingsByRoomName.remove(roomName);
+                    break;
+            }
+        }
+
+        // Changes to the mappings alone do not mark the collection dirty, so its version would not be incremented
+        managed.setUpdatedTimestamp(new Date());
+
+        return managed;
+    }
+
+    /**
+     * Set the fields of the passed mapping that are set in the operation.
+     *
+     * @param mapping   to change
+     * @param operation to take the fields from
+     */
+    private static void applyFields(RoomMapping mapping, RoomMappingOperation operation) {
+        if (operation.getCategory() != null) {
+            mapping.setCategory(operation.getCategory());
+        }
+        if (operation.getDescription() != null) {
+            mapping.setDescription(operation.getDescription());
+        }
+        if (operation.getMappingVertex() != null) {
+            mapping.setMappingVertex(operation.getMappingVertex());
+        }
+        if (operation.getVertices() != null) {
+            mapping.setVertices(new ArrayList<>(operation.getVertices()));
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 package de.be.bpv.server.persistence.roommapping.vertex;
 
+import org.springframework.lang.Nullable;
+
 import javax.persistence.Column;
 import javax.persistence.Embeddable;
+import java.util.List;
 
 /**
  * Vertex of a room mapping.
@@ -57,4 +60,27 @@ public class RoomMappingVertex {
         this.y = y;
     }
 
+    /**
+     * Calculate the area of the polygon with the passed vertices (shoelace formula).
+     *
+     * @param vertices of the polygon in order
+     * @return the area or null if the vertices do not form a polygon
+     */
+    @Nullable
+    public static Double polygonArea(@Nullable List<RoomMappingVertex> vertices) {
+        if (vertices == null || vertices.size() < 3) {
+            return null;
+        }
+
+        double doubleArea = 0;
+        for (int i = 0; i < vertices.size(); i++) {
+            RoomMappingVertex current = vertices.get(i);
+            RoomMappingVertex next = vertices.get((i + 1) % vertices.size());
+
+            doubleArea += current.getX() * next.getY() - next.getX() * current.getY();
+        }
+
+        return Math.abs(doubleArea) / 2;
+    }
+
 }
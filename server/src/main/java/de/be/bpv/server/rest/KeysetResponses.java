@@ -0,0 +1,96 @@
+package de.be.bpv.server.rest;
+
+import de.be.bpv.server.persistence.keyset.KeysetCursor;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Responses of keyset paginated listings.
+ * The rows of a page are sent as JSON array, the link to the next page is sent in the Link header.
+ */
+public final class KeysetResponses {
+
+    /**
+     * Default number of rows on a page.
+     */
+    public static final String DEFAULT_SIZE = "100";
+
+    /**
+     * Maximum number of rows on a page.
+     */
+    private static final int MAX_SIZE = 1000;
+
+    private KeysetResponses() {
+        // Utility class
+    }
+
+    /**
+     * Limit the requested page size to the supported range.
+     *
+     * @param size requested
+     * @return the page size to use
+     */
+    public static int limitSize(int size) {
+        return Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Decode the passed cursor sent by the client.
+     * The cursor is checked against the sort order before querying,
+     * since the repository translates exceptions of the query into data access exceptions.
+     *
+     * @param after cursor to decode (optional)
+     * @param sort  order the cursor has to continue
+     * @return the cursor or null if none was sent
+     * @throws IllegalArgumentException in case the cursor is invalid or belongs to another sort order
+     */
+    @Nullable
+    public static KeysetCursor parseCursor(@Nullable String after, KeysetSort sort) {
+        if (after == null || after.isEmpty()) {
+            return null;
+        }
+
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        if (!sort.matches(cursor)) {
+            throw new IllegalArgumentException("Cursor does not match the sort order");
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Create the response of the passed page.
+     *
+     * @param page   to respond with
+     * @param mapper mapping the rows to their representation
+     * @param <T>    type of the rows
+     * @param <R>    type of the representation
+     * @return the response
+     */
+    public static <T, R> ResponseEntity<Iterable<R>> toResponse(KeysetPage<T> page, Function<T, R> mapper) {
+        List<R> items = new ArrayList<>(page.getItems().size());
+        for (T item : page.getItems()) {
+            items.add(mapper.apply(item));
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNext() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.getNext().encode())
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+
+        return response.body(items);
+    }
+
+}
@@ -0,0 +1,68 @@
+package de.be.bpv.server.rest;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.Nullable;
+
+/**
+ * Checks of the preconditions of requests changing versioned entities.
+ * The entity tag of a version is the quoted version, representations that depend on other entities
+ * as well use entity tags starting with the version followed by a dash.
+ */
+public final class VersionPreconditions {
+
+    private VersionPreconditions() {
+        // Utility class
+    }
+
+    /**
+     * Get the entity tag of the passed version.
+     *
+     * @param version of the entity
+     * @return entity tag
+     */
+    public static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Check whether the If-Match header of the request matches the current version of the entity.
+     * Weak entity tags never match.
+     *
+     * @param headers of the request
+     * @param version of the entity
+     * @return whether the precondition holds, also if there is no If-Match header
+     */
+    public static boolean matchesIfMatch(HttpHeaders headers, Long version) {
+        if (!headers.containsKey(HttpHeaders.IF_MATCH)) {
+            return true;
+        }
+
+        for (String tag : headers.getIfMatch()) {
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/") || tag.length() < 2) {
+                continue;
+            }
+
+            String value = tag.substring(1, tag.length() - 1);
+            if (value.equals(String.valueOf(version)) || value.startsWith(version + "-")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check whether the version sent with an entity matches the current version.
+     *
+     * @param expected version sent by the client, null if the client did not send one
+     * @param version  of the entity
+     * @return whether the versions match or the client did not send one
+     */
+    public static boolean matchesVersion(@Nullable Long expected, Long version) {
+        return expected == null || expected.equals(version);
+    }
+
+}
@@ -1,21 +1,56 @@
 package de.be.bpv.server.rest.cad;
 
 import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileDataService;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
 import de.be.bpv.server.persistence.cad.CADFileRepository;
+import de.be.bpv.server.persistence.cad.CADFileType;
+import de.be.bpv.server.persistence.geometry.CADGeometry;
+import de.be.bpv.server.persistence.geometry.CADGeometryLevel;
+import de.be.bpv.server.persistence.geometry.CADGeometryService;
+import de.be.bpv.server.persistence.geometry.GeometryBuffer;
+import de.be.bpv.server.persistence.geometry.GeometryTileService;
+import de.be.bpv.server.persistence.geometry.GeometryTileSet;
+import de.be.bpv.server.persistence.geometry.GeometryTiler;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import de.be.bpv.server.rest.KeysetResponses;
+import de.be.bpv.server.rest.VersionPreconditions;
 import de.be.bpv.server.rest.cad.response.CADFileReference;
+import de.be.bpv.server.rest.export.ExportCache;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.ArrayList;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * REST controller for CAD files.
@@ -24,41 +59,456 @@ import java.util.List;
 @RequestMapping("/api/cad")
 public class CADFileController {
 
+    /**
+     * Cache control of responses requested by content hash, which never change.
+     */
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+
     /**
      * Repository managing CAD files.
      */
     private final CADFileRepository cadFileRepository;
 
-    public CADFileController(CADFileRepository cadFileRepository) {
+    /**
+     * Service streaming CAD file data.
+     */
+    private final CADFileDataService cadFileDataService;
+
+    /**
+     * Service providing the preprocessed geometry of CAD files.
+     */
+    private final CADGeometryService cadGeometryService;
+
+    /**
+     * Service providing the vector tiles of CAD files.
+     */
+    private final GeometryTileService geometryTileService;
+
+    /**
+     * Cache of exports to evict on changes.
+     */
+    private final ExportCache exportCache;
+
+    public CADFileController(
+            CADFileRepository cadFileRepository,
+            CADFileDataService cadFileDataService,
+            CADGeometryService cadGeometryService,
+            GeometryTileService geometryTileService,
+            ExportCache exportCache
+    ) {
         this.cadFileRepository = cadFileRepository;
+        this.cadFileDataService = cadFileDataService;
+        this.cadGeometryService = cadGeometryService;
+        this.geometryTileService = geometryTileService;
+        this.exportCache = exportCache;
     }
 
     /**
-     * Get references to all available CAD files.
+     * Get references to the available CAD files, newest first by default.
+     * The listing is keyset paginated: the link to the next page is sent in the Link header.
      *
-     * @return reference to all available CAD files
+     * @param namePrefix the names have to start with (case sensitive, optional)
+     * @param sort       order in the form "attribute[,asc|desc]" with the attribute being name or createdTimestamp
+     * @param after      cursor of the page to get, taken from the link to the next page
+     * @param size       maximum number of references on the page (at most 1000)
+     * @return references to the CAD files on the page or 400 in case of an invalid sort order or cursor
      */
     @GetMapping
-    public ResponseEntity<Iterable<CADFileReference>> getAll() {
-        List<CADFileReference> references = new ArrayList<>();
-        for (CADFile file : cadFileRepository.findAll()) {
-            references.add(new CADFileReference(file));
+    public ResponseEntity<Iterable<CADFileReference>> getAll(
+            @RequestParam(value = "name", required = false) String namePrefix,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = KeysetResponses.DEFAULT_SIZE) int size
+    ) {
+        KeysetPage<CADFile> page;
+        try {
+            KeysetSort keysetSort = KeysetSort.parse(sort);
+            page = cadFileRepository.findPage(
+                    namePrefix,
+                    keysetSort,
+                    KeysetResponses.parseCursor(after, keysetSort),
+                    KeysetResponses.limitSize(size)
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
 
-        return ResponseEntity.ok(references);
+        return KeysetResponses.toResponse(page, CADFileReference::new);
     }
 
     /**
      * Get a CAD file by its ID.
+     * Clients with an unchanged copy are answered with 304 before the data is read.
      *
-     * @param id to get file for
+     * @param id      to get file for
+     * @param request to check the conditional headers of
      * @return the requested CAD file
      */
     @GetMapping("/{id}")
-    public ResponseEntity<CADFile> getByID(@PathVariable long id) {
-        return cadFileRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CADFile> getByID(@PathVariable long id, WebRequest request) throws IOException {
+        CADFileMetadata metadata = cadFileRepository.findMetadataById(id).orElse(null);
+        if (metadata == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (request.checkNotModified(VersionPreconditions.eTag(metadata.getVersion()), metadata.getUpdatedTimestamp().getTime())) {
+            return null;
+        }
+
+        CADFile cadFile = cadFileRepository.findById(id).orElse(null);
+        if (cadFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        cadFile.setData(cadFileDataService.readData(cadFile));
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(cadFile);
+    }
+
+    /**
+     * Get the raw data of a CAD file by its ID.
+     * The data is streamed to the client and single byte ranges
+     * may be requested using the Range header.
+     * The content hash is used as ETag. When the data is requested by its hash
+     * the response never changes and is cached without revalidation.
+     *
+     * @param id       to get data for
+     * @param hash     of the requested data (optional)
+     * @param headers  of the request
+     * @param request  to check the conditional headers of
+     * @param response to stream the data to
+     * @throws IOException in case the data could not be streamed
+     */
+    @GetMapping(path = "/{id}/data", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getDataByID(
+            @PathVariable long id,
+            @RequestParam(value = "hash", required = false) String hash,
+            @RequestHeader HttpHeaders headers,
+            WebRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        CADFileMetadata cadFile = cadFileRepository.findMetadataById(id).orElse(null);
+        if (cadFile == null || cadFile.getSize() == null || !matchesHash(cadFile, hash)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        if (checkNotModified(cadFile, cadFile.getContentHash(), hash, request, response)) {
+            return;
+        }
+
+        long size = cadFile.getSize();
+        long offset = 0;
+        long length = size;
+
+        try {
+            List<HttpRange> ranges = headers.getRange();
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                offset = range.getRangeStart(size);
+                length = range.getRangeEnd(size) - offset + 1;
+
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + offset + "-" + (offset + length - 1) + "/" + size);
+            }
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentLengthLong(length);
+
+        if (length > 0) {
+            cadFileDataService.transferData(cadFile, offset, length, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Get the preprocessed geometry of a CAD file by its ID.
+     * The geometry is served in the compact binary format described by
+     * {@link de.be.bpv.server.persistence.geometry.GeometryBuffer}, which
+     * saves the client from parsing the CAD file itself.
+     * When a tolerance is passed, the coarsest level of detail whose curves deviate at most
+     * by the tolerance is served instead (see {@link #getGeometryLevelsByID}).
+     * Caching works like for the data of the CAD file.
+     *
+     * @param id        to get geometry for
+     * @param hash      of the CAD file data to get the geometry of (optional)
+     * @param tolerance maximum deviation of tessellated curves in drawing units (optional)
+     * @param request   to check the conditional headers of
+     * @param response  to stream the geometry to
+     * @throws IOException in case the geometry could not be computed or streamed
+     */
+    @GetMapping(path = "/{id}/geometry", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getGeometryByID(
+            @PathVariable long id,
+            @RequestParam(value = "hash", required = false) String hash,
+            @RequestParam(value = "tolerance", required = false) Double tolerance,
+            WebRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        CADFileMetadata cadFile = cadFileRepository.findMetadataById(id).orElse(null);
+        if (cadFile == null || cadFile.getContentHash() == null || !matchesHash(cadFile, hash)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (!cadGeometryService.isSupported(cadFile.getType())) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+            return;
+        }
+
+        if (tolerance != null && !(tolerance >= 0)) {
+            response.sendError(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+
+        // Answer unchanged copies before the geometry is computed
+        String eTag = cadFile.getContentHash() + "-g" + GeometryBuffer.FORMAT_VERSION;
+        if (tolerance != null) {
+            eTag += "-l" + CADGeometryService.LEVEL_VERSION + "-" + tolerance;
+        }
+        if (checkNotModified(cadFile, eTag, hash, request, response)) {
+            return;
+        }
+
+        // Levels of detail are computed on the first request for one
+        CADGeometry geometry = (tolerance != null
+                ? cadGeometryService.getGeometryWithLevels(cadFile)
+                : cadGeometryService.getGeometry(cadFile)).orElse(null);
+        if (geometry == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        CADGeometryLevel level = tolerance != null
+                ? cadGeometryService.getLevel(geometry, tolerance).orElse(null)
+                : null;
+
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        if (level != null) {
+            response.setContentLengthLong(level.getSize());
+            cadGeometryService.transferLevel(level, Channels.newChannel(response.getOutputStream()));
+        } else {
+            response.setContentLengthLong(geometry.getSize());
+            cadGeometryService.transferGeometry(geometry, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Get the tolerances of the levels of detail of the geometry of a CAD file by its ID,
+     * from the coarsest to the finest. Clients pick the coarsest level whose tolerance
+     * is below the size of a pixel at their zoom level and pass it to {@link #getGeometryByID}.
+     * The levels are computed on the first request.
+     *
+     * @param id      to get levels for
+     * @param hash    of the CAD file data to get the levels of (optional)
+     * @param request to check the conditional headers of
+     * @return the tolerances in drawing units
+     * @throws IOException in case the geometry could not be computed
+     */
+    @GetMapping("/{id}/geometry/levels")
+    public ResponseEntity<List<Double>> getGeometryLevelsByID(
+            @PathVariable long id,
+            @RequestParam(value = "hash", required = false) String hash,
+            WebRequest request
+    ) throws IOException {
+        CADFileMetadata cadFile = cadFileRepository.findMetadataById(id).orElse(null);
+        if (cadFile == null || cadFile.getContentHash() == null || !matchesHash(cadFile, hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!cadGeometryService.isSupported(cadFile.getType())) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+
+        String eTag = cadFile.getContentHash() + "-g" + GeometryBuffer.FORMAT_VERSION + "-l" + CADGeometryService.LEVEL_VERSION;
+        if (request.checkNotModified(eTag, cadFile.getUpdatedTimestamp().getTime())) {
+            return null;
+        }
+
+        return cadGeometryService.getGeometryWithLevels(cadFile)
+                .map(geometry -> ResponseEntity.ok()
+                        .header(HttpHeaders.CACHE_CONTROL, hash != null ? IMMUTABLE : "no-cache")
+                        .body(geometry.getLevels().stream()
+                                .map(CADGeometryLevel::getTolerance)
+                                .collect(Collectors.toList())))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the description of the vector tile quadtree of a CAD file by its ID,
+     * needed by clients to determine the tiles covering their viewport.
+     *
+     * @param id      to get tile set for
+     * @param hash    of the CAD file data to get the tile set of (optional)
+     * @param request to check the conditional headers of
+     * @return the tile set
+     * @throws IOException in case the geometry could not be computed
+     */
+    @GetMapping("/{id}/tiles")
+    public ResponseEntity<GeometryTileSet> getTileSetByID(
+            @PathVariable long id,
+            @RequestParam(value = "hash", required = false) String hash,
+            WebRequest request
+    ) throws IOException {
+        CADFileMetadata cadFile = cadFileRepository.findMetadataById(id).orElse(null);
+        if (cadFile == null || cadFile.getContentHash() == null || !matchesHash(cadFile, hash)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!cadGeometryService.isSupported(cadFile.getType())) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+
+        String eTag = cadFile.getContentHash() + "-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION;
+        if (request.checkNotModified(eTag, cadFile.getUpdatedTimestamp().getTime())) {
+            return null;
+        }
+
+        return geometryTileService.getTileSet(cadFile)
+                .map(tileSet -> ResponseEntity.ok()
+                        .header(HttpHeaders.CACHE_CONTROL, hash != null ? IMMUTABLE : "no-cache")
+                        .body(tileSet))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get a vector tile of the geometry of a CAD file by its ID.
+     * Tile (z, x, y) is the tile in column x and row y (counted from the bottom) of zoom level z
+     * of the quadtree described by {@link #getTileSetByID}. It holds the geometry visible in it
+     * at that zoom level in the binary format of the {@link GeometryBuffer}.
+     * Caching works like for the geometry of the CAD file.
+     *
+     * @param id       to get tile for
+     * @param z        zoom level
+     * @param x        column of the tile
+     * @param y        row of the tile
+     * @param hash     of the CAD file data to get the tile of (optional)
+     * @param request  to check the conditional headers of
+     * @param response to stream the tile to
+     * @throws IOException in case the tile could not be cut or streamed
+     */
+    @GetMapping(path = "/{id}/tiles/{z}/{x}/{y}", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public void getTileByID(
+            @PathVariable long id,
+            @PathVariable int z,
+            @PathVariable int x,
+            @PathVariable int y,
+            @RequestParam(value = "hash", required = false) String hash,
+            WebRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        CADFileMetadata cadFile = cadFileRepository.findMetadataById(id).orElse(null);
+        if (cadFile == null || cadFile.getContentHash() == null || !matchesHash(cadFile, hash)
+                || !GeometryTiler.isValid(z, x, y)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        if (!cadGeometryService.isSupported(cadFile.getType())) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value());
+            return;
+        }
+
+        // Answer unchanged copies before the tile is cut
+        String eTag = cadFile.getContentHash() + "-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION;
+        if (checkNotModified(cadFile, eTag, hash, request, response)) {
+            return;
+        }
+
+        Path tile = geometryTileService.getTile(cadFile, z, x, y).orElse(null);
+        if (tile == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(tile)) {
+            long size = channel.size();
+
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(size);
+
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break; // The file has been truncated meanwhile
+                }
+
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Upload a new CAD file as multipart request.
+     * In contrast to {@link #create(CADFile)} the file data is streamed
+     * into the storage instead of being sent as base64 encoded JSON.
+     *
+     * @param file        to upload
+     * @param name        of the CAD file, defaults to the original file name
+     * @param type        of the CAD file
+     * @param charsetName of the CAD file data
+     * @return the reference of the created CAD file
+     * @throws IOException in case the file could not be read
+     */
+    @PostMapping(path = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<CADFileReference> upload(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "type", defaultValue = "DXF") CADFileType type,
+            @RequestParam(value = "charsetName", required = false) String charsetName
+    ) throws IOException {
+        CADFile cadFile = new CADFile();
+        cadFile.setName(name != null ? name : file.getOriginalFilename());
+        cadFile.setType(type);
+        cadFile.setCharsetName(charsetName);
+
+        try (InputStream in = file.getInputStream()) {
+            cadFile = cadFileDataService.create(cadFile, in);
+        }
+
+        return ResponseEntity.created(
+                ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/cad/{id}")
+                        .buildAndExpand(cadFile.getId())
+                        .toUri())
+                .body(new CADFileReference(cadFile));
+    }
+
+    /**
+     * Replace the data of the CAD file with the passed ID by the raw request body.
+     * Fails with 412 if the If-Match header does not match the current version.
+     *
+     * @param id      of the CAD file to replace data for
+     * @param data    the request body to stream into the storage
+     * @param headers of the request
+     * @return a reference to the updated CAD file
+     * @throws IOException in case the request body could not be read
+     */
+    @PutMapping(path = "/{id}/data", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<CADFileReference> updateData(
+            @PathVariable long id,
+            InputStream data,
+            @RequestHeader HttpHeaders headers
+    ) throws IOException {
+        CADFile existingCADFile = cadFileRepository.findById(id).orElse(null);
+        if (existingCADFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!VersionPreconditions.matchesIfMatch(headers, existingCADFile.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+
+        cadFileDataService.replaceData(existingCADFile, data);
+        exportCache.evictCADFile(existingCADFile.getId());
+
+        return ResponseEntity.ok()
+                .eTag(VersionPreconditions.eTag(existingCADFile.getVersion()))
+                .body(new CADFileReference(existingCADFile));
     }
 
     /**
@@ -68,8 +518,11 @@ public class CADFileController {
      * @return the ID of the file created
      */
     @PostMapping
-    public ResponseEntity<CADFileReference> create(@RequestBody CADFile cadFile) {
-        cadFile = cadFileRepository.save(cadFile);
+    public ResponseEntity<CADFileReference> create(@RequestBody CADFile cadFile) throws IOException {
+        byte[] data = cadFile.getData() != null ? cadFile.getData() : new byte[0];
+        cadFile.setData(null);
+
+        cadFile = cadFileDataService.create(cadFile, new ByteArrayInputStream(data));
 
         return ResponseEntity.created(
                 ServletUriComponentsBuilder.fromCurrentRequest()
@@ -81,36 +534,110 @@ public class CADFileController {
 
     /**
      * Update the CAD file with the same ID as in the provided CAD file instance.
+     * Fails with 412 if the If-Match header does not match the current version
+     * and with 409 if the version of the provided instance is outdated.
      *
      * @param cadFile to update
+     * @param headers of the request
      * @return a reference to the updated CAD file
      */
     @PutMapping
-    public ResponseEntity<CADFileReference> update(@RequestBody CADFile cadFile) {
-        return cadFileRepository.findById(cadFile.getId()).map(existingCADFile -> {
-            existingCADFile.setName(cadFile.getName());
-            existingCADFile.setType(cadFile.getType());
-            existingCADFile.setData(cadFile.getData());
-            existingCADFile.setCharsetName(cadFile.getCharsetName());
-
-            return ResponseEntity.ok(new CADFileReference(existingCADFile));
-        }).orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<CADFileReference> update(
+            @RequestBody CADFile cadFile,
+            @RequestHeader HttpHeaders headers
+    ) throws IOException {
+        CADFile existingCADFile = cadFileRepository.findById(cadFile.getId()).orElse(null);
+        if (existingCADFile == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!VersionPreconditions.matchesIfMatch(headers, existingCADFile.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        if (!VersionPreconditions.matchesVersion(cadFile.getVersion(), existingCADFile.getVersion())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        existingCADFile.setName(cadFile.getName());
+        existingCADFile.setType(cadFile.getType());
+        existingCADFile.setCharsetName(cadFile.getCharsetName());
+
+        if (cadFile.getData() != null) {
+            cadFileDataService.replaceData(existingCADFile, new ByteArrayInputStream(cadFile.getData()));
+        } else {
+            cadFileRepository.save(existingCADFile);
+        }
+        exportCache.evictCADFile(existingCADFile.getId());
+
+        return ResponseEntity.ok()
+                .eTag(VersionPreconditions.eTag(existingCADFile.getVersion()))
+                .body(new CADFileReference(existingCADFile));
     }
 
     /**
      * Delete the CAD file with the passed ID.
+     * Fails with 412 if the If-Match header does not match the current version.
      *
-     * @param id to delete CAD file for
+     * @param id      to delete CAD file for
+     * @param headers of the request
      * @return a reference to the deleted CAD file
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<CADFileReference> delete(@PathVariable long id) {
+    public ResponseEntity<CADFileReference> delete(@PathVariable long id, @RequestHeader HttpHeaders headers) {
         return cadFileRepository.findById(id).map(cadFile -> {
+            if (!VersionPreconditions.matchesIfMatch(headers, cadFile.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<CADFileReference>build();
+            }
+
             CADFileReference reference = new CADFileReference(cadFile);
-            cadFileRepository.delete(cadFile);
+            cadFileDataService.delete(cadFile);
+            exportCache.evictCADFile(id);
 
             return ResponseEntity.ok(reference);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Answer concurrent changes of the same CAD file that lost the race with 409.
+     *
+     * @return the response
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> onConcurrentChange() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Check whether the passed hash requested by the client matches the data of the CAD file.
+     *
+     * @param cadFile to check
+     * @param hash    requested by the client, null if no specific data was requested
+     * @return whether the hash matches
+     */
+    private static boolean matchesHash(CADFileMetadata cadFile, @Nullable String hash) {
+        return hash == null || hash.equals(cadFile.getContentHash());
+    }
+
+    /**
+     * Check whether the client's copy of a response derived from the passed CAD file's data is still valid
+     * and set the caching headers of the response.
+     *
+     * @param cadFile  the response is derived from
+     * @param eTag     of the response
+     * @param hash     requested by the client, null if no specific data was requested
+     * @param request  to check the conditional headers of
+     * @param response to set the caching headers on
+     * @return whether the copy is still valid and 304 has been sent
+     */
+    private static boolean checkNotModified(
+            CADFileMetadata cadFile,
+            String eTag,
+            @Nullable String hash,
+            WebRequest request,
+            HttpServletResponse response
+    ) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, hash != null ? IMMUTABLE : "no-cache");
+
+        return request.checkNotModified(eTag, cadFile.getUpdatedTimestamp().getTime());
+    }
+
 }
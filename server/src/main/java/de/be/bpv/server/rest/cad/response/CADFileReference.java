@@ -1,6 +1,8 @@
 package de.be.bpv.server.rest.cad.response;
 
-import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileType;
+import org.springframework.lang.Nullable;
 
 import java.util.Date;
 
@@ -19,11 +21,44 @@ public class CADFileReference {
      */
     private long id;
 
+    /**
+     * Version of the CAD file, to be passed as If-Match precondition when changing it.
+     */
+    private Long version;
+
     /**
      * Timestamp of when the CAD file was created.
      */
     private Date createdTimestamp;
 
+    /**
+     * Type of the CAD file.
+     */
+    private CADFileType type;
+
+    /**
+     * Name of the charset the CAD file data is encoded in.
+     */
+    @Nullable
+    private String charsetName;
+
+    /**
+     * Size of the CAD file data in bytes.
+     */
+    @Nullable
+    private Long size;
+
+    /**
+     * Hash of the CAD file data, to request the data by content-addressed URL.
+     */
+    @Nullable
+    private String contentHash;
+
+    /**
+     * Timestamp of when the CAD file was last changed.
+     */
+    private Date updatedTimestamp;
+
     public CADFileReference() {
         // Default constructor for Jackson
     }
@@ -33,10 +68,16 @@ public class CADFileReference {
      *
      * @param from the file to create the reference from
      */
-    public CADFileReference(CADFile from) {
+    public CADFileReference(CADFileMetadata from) {
         this.id = from.getId();
+        this.version = from.getVersion();
         this.name = from.getName();
         this.createdTimestamp = from.getCreatedTimestamp();
+        this.type = from.getType();
+        this.charsetName = from.getCharsetName();
+        this.size = from.getSize();
+        this.contentHash = from.getContentHash();
+        this.updatedTimestamp = from.getUpdatedTimestamp();
     }
 
     /**
@@ -75,6 +116,24 @@ public class CADFileReference {
         this.id = id;
     }
 
+    /**
+     * Get the version of the CAD file.
+     *
+     * @return version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the CAD file.
+     *
+     * @param version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     /**
      * Get the timestamp of when the CAD file was created.
      *
@@ -93,4 +152,97 @@ public class CADFileReference {
         this.createdTimestamp = createdTimestamp;
     }
 
+    /**
+     * Get the type of the CAD file.
+     *
+     * @return type
+     */
+    public CADFileType getType() {
+        return type;
+    }
+
+    /**
+     * Set the type of the CAD file.
+     *
+     * @param type to set
+     */
+    public void setType(CADFileType type) {
+        this.type = type;
+    }
+
+    /**
+     * Get the name of the charset the CAD file data is encoded in.
+     *
+     * @return charset name
+     */
+    @Nullable
+    public String getCharsetName() {
+        return charsetName;
+    }
+
+    /**
+     * Set the name of the charset the CAD file data is encoded in.
+     *
+     * @param charsetName to set
+     */
+    public void setCharsetName(@Nullable String charsetName) {
+        this.charsetName = charsetName;
+    }
+
+    /**
+     * Get the size of the CAD file data in bytes.
+     *
+     * @return size
+     */
+    @Nullable
+    public Long getSize() {
+        return size;
+    }
+
+    /**
+     * Set the size of the CAD file data in bytes.
+     *
+     * @param size to set
+     */
+    public void setSize(@Nullable Long size) {
+        this.size = size;
+    }
+
+    /**
+     * Get the hash of the CAD file data.
+     *
+     * @return content hash
+     */
+    @Nullable
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Set the hash of the CAD file data.
+     *
+     * @param contentHash to set
+     */
+    public void setContentHash(@Nullable String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Get the timestamp of when the CAD file was last changed.
+     *
+     * @return timestamp
+     */
+    public Date getUpdatedTimestamp() {
+        return updatedTimestamp;
+    }
+
+    /**
+     * Set the timestamp of when the CAD file was last changed.
+     *
+     * @param updatedTimestamp to set
+     */
+    public void setUpdatedTimestamp(Date updatedTimestamp) {
+        this.updatedTimestamp = updatedTimestamp;
+    }
+
 }
@@ -0,0 +1,154 @@
+package de.be.bpv.server.rest.export;
+
+import de.be.bpv.server.persistence.cad.CADFileDataReleasedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Cache of exported HTML files served by link.
+ * Identical export requests reuse the existing file and extend its lifetime
+ * instead of writing a new file.
+ */
+@Service
+public class ExportCache {
+
+    /**
+     * Minutes an exported file is kept after it has last been requested.
+     */
+    public static final long LIFETIME = 15;
+
+    /**
+     * Cached exports by their key.
+     */
+    private final Map<ExportCacheKey, CachedExport> exports = new ConcurrentHashMap<>();
+
+    /**
+     * Scheduler deleting the exported files.
+     */
+    private final ExportSchedulerService exportSchedulerService;
+
+    public ExportCache(ExportSchedulerService exportSchedulerService) {
+        this.exportSchedulerService = exportSchedulerService;
+    }
+
+    /**
+     * Get the link of the cached export for the passed key and extend its lifetime.
+     *
+     * @param key of the export
+     * @return link to the export or an empty optional if there is no cached export
+     */
+    public Optional<String> get(ExportCacheKey key) {
+        CachedExport export = exports.get(key);
+        if (export == null) {
+            return Optional.empty();
+        }
+
+        // The file may just be about to be deleted, in which case it is exported again
+        if (!exportSchedulerService.extendDeletion(export.path, LIFETIME) || !Files.exists(export.path)) {
+            exports.remove(key, export);
+            return Optional.empty();
+        }
+
+        return Optional.of(export.link);
+    }
+
+    /**
+     * Put an exported file into the cache and schedule its deletion.
+     * In case an identical export has been cached meanwhile, its link may already have been
+     * handed out, so it is kept and the passed file is deleted instead.
+     *
+     * @param key  of the export
+     * @param path of the exported file
+     * @param link to the exported file
+     * @return the link to hand out for the export
+     */
+    public String put(ExportCacheKey key, Path path, String link) {
+        exportSchedulerService.scheduleForDeletion(path, LIFETIME);
+
+        CachedExport export = new CachedExport(path, link);
+        while (true) {
+            CachedExport previous = exports.putIfAbsent(key, export);
+            if (previous == null) {
+                return link;
+            }
+
+            if (exportSchedulerService.extendDeletion(previous.path, LIFETIME) && Files.exists(previous.path)) {
+                exportSchedulerService.extendDeletion(path, 0);
+                return previous.link;
+            }
+
+            // The cached file is about to be deleted, so it is replaced
+            if (exports.replace(key, previous, export)) {
+                return link;
+            }
+        }
+    }
+
+    /**
+     * Evict all exports of the mapping with the passed ID.
+     *
+     * @param mappingId of the mapping
+     */
+    public void evictMapping(long mappingId) {
+        evict(key -> key.getMappingId() != null && key.getMappingId() == mappingId);
+    }
+
+    /**
+     * Evict all exports of the CAD file with the passed ID.
+     *
+     * @param cadFileId of the CAD file
+     */
+    public void evictCADFile(long cadFileId) {
+        evict(key -> key.getCadFileId() == cadFileId);
+    }
+
+    /**
+     * Evict all exports of CAD file data that has been released.
+     *
+     * @param event describing the released data
+     */
+    @EventListener
+    public void onDataReleased(CADFileDataReleasedEvent event) {
+        evict(key -> event.getContentHash().equals(key.getContentHash()));
+    }
+
+    /**
+     * Evict all exports whose key matches the passed predicate, so that they are not reused.
+     * Their files stay until their scheduled deletion, as their links may already have been shared.
+     *
+     * @param predicate to match keys with
+     */
+    private void evict(Predicate<ExportCacheKey> predicate) {
+        exports.keySet().removeIf(predicate);
+    }
+
+    /**
+     * A cached export.
+     */
+    private static class CachedExport {
+
+        /**
+         * Path of the exported file.
+         */
+        private final Path path;
+
+        /**
+         * Link to the exported file.
+         */
+        private final String link;
+
+        CachedExport(Path path, String link) {
+            this.path = path;
+            this.link = link;
+        }
+
+    }
+
+}
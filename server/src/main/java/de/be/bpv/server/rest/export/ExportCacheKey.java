@@ -0,0 +1,108 @@
+package de.be.bpv.server.rest.export;
+
+import java.util.Objects;
+
+/**
+ * Key of a cached export.
+ * Since it contains the versions of the CAD file and the mapping,
+ * any change to them results in a different key.
+ */
+public class ExportCacheKey {
+
+    /**
+     * ID of the exported CAD file.
+     */
+    private final long cadFileId;
+
+    /**
+     * Version of the exported CAD file.
+     */
+    private final Long cadFileVersion;
+
+    /**
+     * Hash of the exported CAD file data.
+     */
+    private final String contentHash;
+
+    /**
+     * ID of the exported mapping (may be null).
+     */
+    private final Long mappingId;
+
+    /**
+     * Version of the exported mapping (may be null).
+     */
+    private final Long mappingVersion;
+
+    /**
+     * Name of the color map to use (may be null).
+     */
+    private final String colorMap;
+
+    public ExportCacheKey(
+            long cadFileId,
+            Long cadFileVersion,
+            String contentHash,
+            Long mappingId,
+            Long mappingVersion,
+            String colorMap
+    ) {
+        this.cadFileId = cadFileId;
+        this.cadFileVersion = cadFileVersion;
+        this.contentHash = contentHash;
+        this.mappingId = mappingId;
+        this.mappingVersion = mappingVersion;
+        this.colorMap = colorMap;
+    }
+
+    /**
+     * Get the ID of the exported CAD file.
+     *
+     * @return CAD file ID
+     */
+    public long getCadFileId() {
+        return cadFileId;
+    }
+
+    /**
+     * Get the hash of the exported CAD file data.
+     *
+     * @return content hash
+     */
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Get the ID of the exported mapping.
+     *
+     * @return mapping ID or null
+     */
+    public Long getMappingId() {
+        return mappingId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        ExportCacheKey that = (ExportCacheKey) o;
+        return cadFileId == that.cadFileId
+                && Objects.equals(cadFileVersion, that.cadFileVersion)
+                && Objects.equals(contentHash, that.contentHash)
+                && Objects.equals(mappingId, that.mappingId)
+                && Objects.equals(mappingVersion, that.mappingVersion)
+                && Objects.equals(colorMap, that.colorMap);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(cadFileId, cadFileVersion, contentHash, mappingId, mappingVersion, colorMap);
+    }
+
+}
@@ -1,40 +1,29 @@
 package de.be.bpv.server.rest.export;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
 import de.be.bpv.server.persistence.cad.CADFileRepository;
-import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
-import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
 import de.be.bpv.server.rest.export.request.ExportRequest;
-import de.be.bpv.server.rest.export.ExportSchedulerService;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
+import de.be.bpv.server.rest.export.response.ExportJobReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.springframework.http.HttpStatus;
-import org.springframework.beans.factory.annotation.Value;
-
+import org.springframework.web.context.request.async.DeferredResult;
 
-import java.io.InputStreamReader;
-import java.io.BufferedReader;
-import java.io.InputStream;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.File;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * REST controller for exporting.
@@ -44,201 +33,153 @@ import java.util.stream.Collectors;
 public class ExportController {
 
     /**
-     * Repository managing CAD files.
-     */
-    private final CADFileRepository cadFileRepository;
-
-    /**
-     * Repository managing room mappings.
+     * Maximum time in seconds a poll for an export job may wait for the job to finish.
      */
-    private final RoomMappingRepository roomMappingRepository;
+    private static final long MAX_WAIT = 30;
 
     /**
-     * Object mapper to use.
+     * Seconds clients should wait before retrying a rejected export job.
      */
-    private final ObjectMapper objectMapper;
+    private static final String RETRY_AFTER = "5";
 
     /**
-     * Export Scheduler to use.
+     * Repository managing CAD files.
      */
-    private ExportSchedulerService exportSchedulerService;
+    private final CADFileRepository cadFileRepository;
 
     /**
-     * Environment Variable of Server IP
+     * Service doing the exports.
      */
-    @Value("${viewer.server.link}")
-    private String serverIP;
+    private final ExportService exportService;
 
     /**
-     * Environment Variable of Upload Folder
+     * Writer streaming exports.
      */
-    @Value("${upload.folder.path}")
-    private String uploadFolder;
+    private final ExportWriter exportWriter;
 
     /**
-     * The base HTML for export resource.
+     * Service running exports in the background.
      */
-    @Value("classpath:static/export.html")
-    Resource exportHTMLResource;
+    private final ExportJobService exportJobService;
 
     public ExportController(
             CADFileRepository cadFileRepository,
-            RoomMappingRepository roomMappingRepository,
-            ObjectMapper objectMapper,
-            ExportSchedulerService exportSchedulerService
+            ExportService exportService,
+            ExportWriter exportWriter,
+            ExportJobService exportJobService
     ) {
         this.cadFileRepository = cadFileRepository;
-        this.roomMappingRepository = roomMappingRepository;
-        this.objectMapper = objectMapper;
-        this.exportSchedulerService = exportSchedulerService;
+        this.exportService = exportService;
+        this.exportWriter = exportWriter;
+        this.exportJobService = exportJobService;
     }
 
     /**
      * Export the passed CAD file and mapping (optionally) as HTML.
+     * The export is streamed to the client.
      *
      * @param exportRequest to do export for
-     * @return the exported HTML as string
+     * @param response      to stream the exported HTML to
+     * @throws IOException in case the export could not be written
      */
     @PostMapping("/html")
-    public ResponseEntity<String> export(@RequestBody ExportRequest exportRequest) throws IOException {
-        Document doc = getBaseExportHTMLDocument();
-
-        CADFile cadFile = cadFileRepository.findById(exportRequest.getCadFileId()).orElse(null);
-        if (cadFile == null) {
-            return ResponseEntity.notFound().build();
+    public void export(@RequestBody ExportRequest exportRequest, HttpServletResponse response) throws IOException {
+        ExportSettings exportSettings = exportService.buildExportSettings(exportRequest);
+        if (exportSettings == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
         }
 
-        RoomMappingCollection roomMappingCollection = exportRequest.getMappingId() != null
-                ? roomMappingRepository.findById(exportRequest.getMappingId()).orElse(null)
-                : null;
-
-        // Build export settings
-        ExportSettings exportSettings = new ExportSettings();
-        exportSettings.setCadFile(cadFile);
-        exportSettings.setRoomMappingCollection(roomMappingCollection);
-        exportSettings.setColorMap(exportRequest.getColorMap());
+        ExportTemplate template = exportService.getExportTemplate();
 
-        // Serialize export settings
-        StringBuilder sb = new StringBuilder();
-        sb.append("var app_isExportMode = true;");
-
-        sb.append("var app_exportSettings = ");
-        sb.append(objectMapper.writeValueAsString(exportSettings));
-        sb.append(";");
-
-        // Add export settings to export HTML
-        Element headElement = doc.getElementsByTag("head").first();
-        Element scriptElement = doc.createElement("script");
-        scriptElement.appendText(sb.toString());
-        headElement.insertChildren(0, scriptElement);
-
-        return ResponseEntity.ok(doc.toString());
+        response.setContentType(MediaType.TEXT_HTML_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        exportWriter.write(template, exportSettings, response.getOutputStream());
     }
 
     /**
      * Receive a Link to an Exported HTML-File.
+     * Identical requests for unchanged CAD files and mappings reuse the previously exported file.
      * @param exportRequest to do export for
      * @return the Link as string
      */
     @CrossOrigin(maxAge = 3600)
     @PostMapping("/getLink")
     public ResponseEntity<String> getLink(@RequestBody ExportRequest exportRequest) throws IOException {
+        return exportService.createLink(exportRequest)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
 
-        Document doc = getBaseExportHTMLDocument();
-
-        CADFile cadFile = cadFileRepository.findById(exportRequest.getCadFileId()).orElse(null);
-        if (cadFile == null) {
+    /**
+     * Submit an export job writing the passed CAD file and mapping (optionally) as HTML file in the background.
+     * The job is processed by a bounded worker pool instead of the request thread, poll it to get the link.
+     *
+     * @param exportRequest to do export for
+     * @return reference to the submitted job or 503 in case the export queue is full
+     */
+    @CrossOrigin(maxAge = 3600)
+    @PostMapping("/jobs")
+    public ResponseEntity<ExportJobReference> submitJob(@RequestBody ExportRequest exportRequest) {
+        CADFileMetadata cadFileMetadata = cadFileRepository.findMetadataById(exportRequest.getCadFileId()).orElse(null);
+        if (cadFileMetadata == null) {
             return ResponseEntity.notFound().build();
         }
 
-        RoomMappingCollection roomMappingCollection = exportRequest.getMappingId() != null
-                ? roomMappingRepository.findById(exportRequest.getMappingId()).orElse(null)
-                : null;
-
-        // Build export settings
-        ExportSettings exportSettings = new ExportSettings();
-        exportSettings.setCadFile(cadFile);
-        exportSettings.setRoomMappingCollection(roomMappingCollection);
-        exportSettings.setColorMap(exportRequest.getColorMap());
-
-        // Serialize export settings
-        StringBuilder sb = new StringBuilder();
-        sb.append("var app_isExportMode = true;");
-
-        sb.append("var app_exportSettings = ");
-        sb.append(objectMapper.writeValueAsString(exportSettings));
-        sb.append(";");
-
-        // Add export settings to export HTML
-        Element headElement = doc.getElementsByTag("head").first();
-        Element scriptElement = doc.createElement("script");
-        scriptElement.appendText(sb.toString());
-        headElement.insertChildren(0, scriptElement);
-
-        //Get IDs from Export Request for file naming
-        Long cadFileId = exportRequest.getCadFileId();
-        Long mappingId = exportRequest.getMappingId();
-
-        //Initialize Variables
-        Calendar calendar = Calendar.getInstance();
-        String returntext = "";
-        File convFile;
-
-        //Get timestamp for file naming
-        SimpleDateFormat formatter = new SimpleDateFormat("ddMMyyyy-HHmmss");
-        String timestamp = formatter.format(calendar.getTime());
-
-        //Generate file path, file name and link to file
-        if(mappingId == null){
-            convFile = new File(uploadFolder + "/response_" + cadFileId + "_" + timestamp + ".html");
-            returntext = serverIP +  "response_" + cadFileId.toString() + "_" + timestamp + ".html";
-        }
-        else {
-            convFile = new File(uploadFolder + "/response_" + cadFileId + "_" + mappingId + "_" + timestamp + ".html");
-            returntext = serverIP +"response_" + cadFileId.toString() + "_" + mappingId.toString() + "_" + timestamp + ".html";
-        }
-
-        //Write HTML Doc to file
-        FileWriter fw = new FileWriter(convFile.getAbsoluteFile());
-        BufferedWriter bw = new BufferedWriter(fw);
-        bw.write(doc.toString().replace("Ro(\"ngIf\",e.showPlaceholder),", ""));
-        bw.close();
+        // Smaller CAD files are exported first
+        long priority = cadFileMetadata.getSize() != null ? cadFileMetadata.getSize() : Long.MAX_VALUE;
 
-        //Delete File after X minutes
-        exportSchedulerService.scheduleForDeletion(convFile.toPath(), 15);
+        ExportJob job;
+        try {
+            job = exportJobService.submit(exportRequest, priority);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+                    .build();
+        }
 
-        return new ResponseEntity<>(returntext, HttpStatus.OK);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/export/jobs/" + job.getId()))
+                .body(new ExportJobReference(job));
     }
 
     /**
-     * Get the base export HTML document.
+     * Get the status of an export job and the link to the exported file once it is done.
+     * Pass a wait time to long-poll until the job is finished instead of polling repeatedly.
      *
-     * @return base export HTML document
-     * @throws IOException in case the HTML document could not be read
+     * @param id   of the job
+     * @param wait maximum seconds to wait for the job to finish (at most 30)
+     * @return reference to the job
      */
-    private Document getBaseExportHTMLDocument() throws IOException {
-        // Read base HTML export file from resources
-        String exportHTML = readExportHTML();
+    @CrossOrigin(maxAge = 3600)
+    @GetMapping("/jobs/{id}")
+    public DeferredResult<ResponseEntity<ExportJobReference>> getJob(
+            @PathVariable("id") String id,
+            @RequestParam(value = "wait", defaultValue = "0") long wait
+    ) {
+        long timeout = Math.max(0, Math.min(wait, MAX_WAIT));
+        DeferredResult<ResponseEntity<ExportJobReference>> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(timeout + 5)
+        );
+
+        ExportJob job = exportJobService.get(id).orElse(null);
+        if (job == null) {
+            result.setResult(ResponseEntity.notFound().build());
+            return result;
+        }
 
-        // Parse export HTML in preparation of adding the CAD file and mapping
-        return Jsoup.parse(exportHTML);
-    }
+        if (timeout == 0 || job.isFinished()) {
+            result.setResult(ResponseEntity.ok(new ExportJobReference(job)));
+            return result;
+        }
 
-    /**
-     * Read the base export HTML from resources.
-     *
-     * @return base export HTML string
-     * @throws IOException in case the HTML could not be read
-     */
-    private String readExportHTML() throws IOException {
-        // Read base HTML export file from resources
-        InputStream exportHTMLStream = exportHTMLResource.getInputStream();
+        // Time out on a dependent future, the completion of the job is shared by all pollers
+        job.getCompletion()
+                .thenApply(finished -> finished)
+                .completeOnTimeout(job, timeout, TimeUnit.SECONDS)
+                .thenAccept(finished -> result.setResult(ResponseEntity.ok(new ExportJobReference(finished))));
 
-        return new BufferedReader(new InputStreamReader(exportHTMLStream, StandardCharsets.UTF_8))
-                .lines()
-                .collect(Collectors.joining("\n"));
+        return result;
     }
 
-
-
 }
@@ -0,0 +1,141 @@
+package de.be.bpv.server.rest.export;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * REST controller serving the exported HTML files linked by {@link ExportController#getLink}.
+ * The gzip compressed variant written at export time is served to clients accepting it,
+ * and unchanged files are answered with 304 using their ETag.
+ * Every access extends the lifetime of the file.
+ */
+@RestController
+public class ExportFileController {
+
+    /**
+     * Scheduler deleting the exported files.
+     */
+    private final ExportSchedulerService exportSchedulerService;
+
+    /**
+     * Environment Variable of Upload Folder
+     */
+    @Value("${upload.folder.path}")
+    private String uploadFolder;
+
+    public ExportFileController(ExportSchedulerService exportSchedulerService) {
+        this.exportSchedulerService = exportSchedulerService;
+    }
+
+    /**
+     * Get an exported HTML file.
+     *
+     * @param fileName of the exported file
+     * @param headers  of the request
+     * @param response to stream the file to
+     * @throws IOException in case the file could not be streamed
+     */
+    @GetMapping("/{fileName:response_[\\w-]+\\.html}")
+    public void getExport(
+            @PathVariable String fileName,
+            @RequestHeader HttpHeaders headers,
+            HttpServletResponse response
+    ) throws IOException {
+        Path path = Paths.get(uploadFolder).resolve(fileName);
+        if (!Files.isRegularFile(path)) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        exportSchedulerService.onFileAccess(path);
+
+        Path gzipPath = ExportFiles.gzipVariant(path);
+        boolean gzip = acceptsGzip(headers) && Files.isRegularFile(gzipPath);
+        Path servedPath = gzip ? gzipPath : path;
+
+        // Exported files are never modified after they have been written
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String eTag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(Files.size(path))
+                + (gzip ? "-gzip" : "") + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        List<String> ifNoneMatch = headers.getIfNoneMatch();
+        if (ifNoneMatch.contains(eTag) || ifNoneMatch.contains("*")) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(servedPath)) {
+            long size = channel.size();
+
+            response.setContentType(MediaType.TEXT_HTML_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setContentLengthLong(size);
+            if (gzip) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break; // The file has been truncated meanwhile
+                }
+
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * Check whether the client accepts gzip encoded responses.
+     *
+     * @param headers of the request
+     * @return whether gzip is accepted
+     */
+    private static boolean acceptsGzip(HttpHeaders headers) {
+        for (String value : headers.getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (String coding : value.split(",")) {
+                String[] parts = coding.trim().split(";");
+                if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                    continue;
+                }
+
+                // Explicitly refused with a quality of zero
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim().replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,173 @@
+package de.be.bpv.server.rest.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility methods for exported files and their precompressed variants.
+ */
+public final class ExportFiles {
+
+    /**
+     * File extension of the gzip compressed variant.
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Prefix of the temporary files exports are written to before being moved into place.
+     */
+    public static final String TEMP_PREFIX = "export-";
+
+    /**
+     * Suffix of the temporary files exports are written to before being moved into place.
+     */
+    public static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Size of the write buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExportFiles() {
+        // Utility class
+    }
+
+    /**
+     * Get the path of the gzip compressed variant of the passed exported file.
+     *
+     * @param path of the exported file
+     * @return path of the compressed variant
+     */
+    public static Path gzipVariant(Path path) {
+        return path.resolveSibling(path.getFileName() + GZIP_EXTENSION);
+    }
+
+    /**
+     * Write the passed exported file and its gzip compressed variant.
+     * Everything written by the writer is written to both files in the same pass.
+     * The files are written under temporary names and only moved into place once
+     * the export is complete, so a partially written export is never served.
+     * In case writing fails, both files are deleted.
+     *
+     * @param path   of the exported file
+     * @param writer writing the export
+     * @throws IOException in case the files could not be written
+     */
+    public static void write(Path path, ExportContentWriter writer) throws IOException {
+        Path tempPath = Files.createTempFile(path.getParent(), TEMP_PREFIX, TEMP_SUFFIX);
+        Path tempGzipPath = gzipVariant(tempPath);
+        boolean gzipMoved = false;
+        try {
+            try (OutputStream out = create(tempPath, tempGzipPath)) {
+                writer.writeTo(out);
+            }
+
+            // The compressed variant is moved first, as it is only served next to the plain file
+            Files.move(tempGzipPath, gzipVariant(path), StandardCopyOption.ATOMIC_MOVE);
+            gzipMoved = true;
+            Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempPath);
+            Files.deleteIfExists(tempGzipPath);
+            if (gzipMoved) {
+                Files.deleteIfExists(gzipVariant(path));
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Create the passed file and its gzip compressed variant.
+     *
+     * @param path     of the file
+     * @param gzipPath of the compressed variant
+     * @return stream writing to both files
+     * @throws IOException in case the files could not be created
+     */
+    private static OutputStream create(Path path, Path gzipPath) throws IOException {
+        OutputStream plain = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+        try {
+            OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(gzipPath), BUFFER_SIZE);
+
+            return new TeeOutputStream(plain, gzip);
+        } catch (IOException e) {
+            plain.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Delete the passed exported file and its compressed variant.
+     *
+     * @param path of the exported file
+     * @throws IOException in case the files could not be deleted
+     */
+    public static void delete(Path path) throws IOException {
+        Files.deleteIfExists(gzipVariant(path));
+        Files.delete(path);
+    }
+
+    /**
+     * Writer of the content of an export.
+     */
+    @FunctionalInterface
+    public interface ExportContentWriter {
+
+        /**
+         * Write the export to the passed stream.
+         *
+         * @param out to write to
+         * @throws IOException in case the export could not be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+    }
+
+    /**
+     * Output stream writing to two streams at once.
+     */
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                first.close();
+            } finally {
+                second.close();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+package de.be.bpv.server.rest.export;
+
+import de.be.bpv.server.rest.export.request.ExportRequest;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Export running in the background on the export worker pool.
+ */
+public class ExportJob {
+
+    /**
+     * ID of the job to poll it with.
+     */
+    private final String id = UUID.randomUUID().toString();
+
+    /**
+     * Request to do the export for.
+     */
+    private final ExportRequest request;
+
+    /**
+     * Timestamp of when the job was submitted.
+     */
+    private final Date submittedTimestamp = new Date();
+
+    /**
+     * Future completing with this job once it is done or failed.
+     */
+    private final CompletableFuture<ExportJob> completion = new CompletableFuture<>();
+
+    /**
+     * Current status of the job.
+     */
+    private volatile ExportJobStatus status = ExportJobStatus.QUEUED;
+
+    /**
+     * Timestamp of when the job was started.
+     */
+    private volatile Date startedTimestamp;
+
+    /**
+     * Timestamp of when the job was done or failed.
+     */
+    private volatile Date finishedTimestamp;
+
+    /**
+     * Link to the exported file once the job is done.
+     */
+    private volatile String link;
+
+    /**
+     * Message describing why the job failed.
+     */
+    private volatile String error;
+
+    public ExportJob(ExportRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Mark the job as running.
+     */
+    void start() {
+        startedTimestamp = new Date();
+        status = ExportJobStatus.RUNNING;
+    }
+
+    /**
+     * Mark the job as done.
+     *
+     * @param link to the exported file
+     */
+    void finish(String link) {
+        this.link = link;
+        finishedTimestamp = new Date();
+        status = ExportJobStatus.DONE;
+        completion.complete(this);
+    }
+
+    /**
+     * Mark the job as failed.
+     *
+     * @param error describing why the job failed
+     */
+    void fail(String error) {
+        this.error = error;
+        finishedTimestamp = new Date();
+        status = ExportJobStatus.FAILED;
+        completion.complete(this);
+    }
+
+    /**
+     * Check whether the job is done or failed.
+     *
+     * @return whether the job is finished
+     */
+    public boolean isFinished() {
+        return status == ExportJobStatus.DONE || status == ExportJobStatus.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public ExportRequest getRequest() {
+        return request;
+    }
+
+    public Date getSubmittedTimestamp() {
+        return submittedTimestamp;
+    }
+
+    public CompletableFuture<ExportJob> getCompletion() {
+        return completion;
+    }
+
+    public ExportJobStatus getStatus() {
+        return status;
+    }
+
+    public Date getStartedTimestamp() {
+        return startedTimestamp;
+    }
+
+    public Date getFinishedTimestamp() {
+        return finishedTimestamp;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+}
@@ -0,0 +1,198 @@
+package de.be.bpv.server.rest.export;
+
+import de.be.bpv.server.rest.export.request.ExportRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service running exports in the background on a bounded worker pool separate from the request threads.
+ * Queued jobs for small CAD files are run first, so that they are not stuck behind large exports.
+ * Once the queue is full further jobs are rejected instead of piling up.
+ */
+@Service
+public class ExportJobService {
+
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ExportJobService.class.getName());
+
+    /**
+     * Time in milliseconds finished jobs can still be polled.
+     */
+    private static final long RETENTION = TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Service doing the exports.
+     */
+    private final ExportService exportService;
+
+    /**
+     * Maximum number of jobs waiting for a worker.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Executor running the jobs.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Number of jobs currently waiting for a worker.
+     */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Sequence keeping jobs of the same priority in submission order.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Known jobs by their ID.
+     */
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    public ExportJobService(
+            ExportService exportService,
+            @Value("${export.jobs.threads:2}") int threads,
+            @Value("${export.jobs.queue-capacity:100}") int queueCapacity
+    ) {
+        this.exportService = exportService;
+        this.queueCapacity = queueCapacity;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "export-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    /**
+     * Submit an export to run in the background.
+     *
+     * @param request  to do the export for
+     * @param priority of the job, jobs with a lower value are run first
+     * @return the submitted job
+     * @throws RejectedExecutionException in case the queue is full
+     */
+    public ExportJob submit(ExportRequest request, long priority) {
+        removeExpiredJobs();
+
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("Export queue is full");
+        }
+
+        ExportJob job = new ExportJob(request);
+        jobs.put(job.getId(), job);
+
+        try {
+            executor.execute(new Task(job, priority, sequence.getAndIncrement()));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            jobs.remove(job.getId());
+            throw e;
+        }
+
+        return job;
+    }
+
+    /**
+     * Get the job with the passed ID.
+     *
+     * @param id of the job
+     * @return the job or an empty optional if there is no such job (anymore)
+     */
+    public Optional<ExportJob> get(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Stop the workers on shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Run the passed job.
+     *
+     * @param job to run
+     */
+    private void run(ExportJob job) {
+        job.start();
+
+        try {
+            Optional<String> link = exportService.createLink(job.getRequest());
+            if (link.isPresent()) {
+                job.finish(link.get());
+            } else {
+                job.fail("CAD file not found");
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Export job " + job.getId() + " failed", e);
+            job.fail("Export could not be written");
+        }
+    }
+
+    /**
+     * Forget jobs that finished longer than the retention time ago.
+     */
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isFinished()
+                && now - job.getFinishedTimestamp().getTime() > RETENTION);
+    }
+
+    /**
+     * Queued job ordered by priority and submission.
+     */
+    private class Task implements Runnable, Comparable<Task> {
+
+        private final ExportJob job;
+        private final long priority;
+        private final long sequence;
+
+        Task(ExportJob job, long priority, long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            ExportJobService.this.run(job);
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int result = Long.compare(priority, other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+
+    }
+
+}
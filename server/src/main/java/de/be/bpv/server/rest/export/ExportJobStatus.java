@@ -0,0 +1,28 @@
+package de.be.bpv.server.rest.export;
+
+/**
+ * Status of an export job.
+ */
+public enum ExportJobStatus {
+
+    /**
+     * The job waits for a free worker.
+     */
+    QUEUED,
+
+    /**
+     * The export is being written.
+     */
+    RUNNING,
+
+    /**
+     * The export is available by link.
+     */
+    DONE,
+
+    /**
+     * The export could not be done.
+     */
+    FAILED
+
+}
@@ -1,55 +1,650 @@
 package de.be.bpv.server.rest.export;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Service deleting exported files once their lifetime has expired.
+ * <p>
+ * Pending deletions are kept in a hashed timing wheel driven by a single thread,
+ * so every pending file costs one small entry regardless of how many files are pending.
+ * Extending the lifetime of a file only moves its deadline, the entry is moved to the
+ * right slot when the wheel passes its old slot.
+ * <p>
+ * All exported files are recorded in a manifest in the upload folder. On startup the manifest is
+ * reconciled with the folder: expired and unknown files are deleted, the others are re-armed,
+ * so that exported files are still deleted after a restart.
+ * The total size of the exported files is limited, exceeding the quota evicts the least recently
+ * used files first.
+ */
 @Service
 public class ExportSchedulerService {
 
-    private Map<Path, ScheduledFuture> futures = new HashMap<>();
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ExportSchedulerService.class.getName());
 
-    private ScheduledExecutorService executor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+    /**
+     * Unit of the delays passed to the service.
+     */
+    private static final TimeUnit UNITS = TimeUnit.MINUTES;
 
-    private Logger logger;
+    /**
+     * Milliseconds covered by one slot of the wheel.
+     */
+    private static final long TICK = TimeUnit.SECONDS.toMillis(1);
 
-    private static final TimeUnit UNITS = TimeUnit.MINUTES; // your time unit
+    /**
+     * Number of slots of the wheel, deadlines further ahead take additional rounds.
+     */
+    private static final int WHEEL_SIZE = 512;
 
+    /**
+     * Minimum milliseconds between two writes of the expiry index.
+     */
+    private static final long PERSIST_INTERVAL = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Name of the manifest file formerly written into the upload folder.
+     */
+    private static final String LEGACY_MANIFEST_FILE_NAME = ".export-manifest";
+
+    /**
+     * Pattern matching the names of exported files and their compressed variants.
+     */
+    private static final Pattern EXPORT_FILE_NAME = Pattern.compile("response_[\\w-]+\\.html(\\.gz)?");
+
+    /**
+     * Pending deletions by the absolute path of the file.
+     */
+    private final Map<Path, Expiry> expiries = new ConcurrentHashMap<>();
+
+    /**
+     * Deletions scheduled since the last tick, inserted into the wheel by the wheel thread.
+     */
+    private final Queue<Expiry> incoming = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Slots of the wheel, only accessed by the wheel thread.
+     */
+    private final List<ArrayDeque<Expiry>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    /**
+     * Thread driving the wheel.
+     */
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "export-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Folder the exported files are written to.
+     */
+    private final Path uploadPath;
+
+    /**
+     * Path of the manifest.
+     */
+    private final Path manifestPath;
+
+    /**
+     * Maximum total size of the exported files in bytes.
+     */
+    private final long quota;
+
+    /**
+     * Total size of the exported files in bytes.
+     */
+    private final AtomicLong totalSize = new AtomicLong();
+
+    /**
+     * Last tick processed by the wheel thread.
+     */
+    private long currentTick;
+
+    /**
+     * Timestamp of when the expiry index was last written.
+     */
+    private long lastPersisted;
+
+    /**
+     * Whether the manifest changed since it was last written.
+     */
+    private volatile boolean dirty;
+
+    public ExportSchedulerService(
+            @Value("${upload.folder.path}") String uploadFolder,
+            @Value("${export.manifest.path}") String manifestFile,
+            @Value("${export.quota:1GB}") DataSize quota
+    ) {
+        this.uploadPath = Paths.get(uploadFolder).toAbsolutePath().normalize();
+        this.manifestPath = Paths.get(manifestFile).toAbsolutePath().normalize();
+        this.quota = quota.toBytes();
+
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Reconcile the manifest with the upload folder and start the wheel.
+     */
+    @PostConstruct
+    public void start() {
+        currentTick = System.currentTimeMillis() / TICK;
+        reconcile();
+
+        executor.scheduleAtFixedRate(this::tick, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the wheel and persist the manifest.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writeManifest();
+    }
+
+    /**
+     * Schedule the passed exported file for deletion, replacing a previously scheduled deletion.
+     * The delay is also the lifetime the file is extended by when it is accessed.
+     * The file has to be written completely, as its size is counted towards the quota.
+     *
+     * @param path  of the file
+     * @param delay in minutes until the file is deleted
+     */
     public void scheduleForDeletion(Path path, long delay) {
-        ScheduledFuture future = executor.schedule(() -> {
-            try {
-                Files.delete(path);
-                logger.info("file on path:" + path.toString() + "was deleted");
-            } catch (IOException e) {
-                logger.warning("file on path:" + path.toString() + "was deleted");
-                // failed to delete
+        Path normalized = normalize(path);
+        long now = System.currentTimeMillis();
+        long ttl = UNITS.toMillis(delay);
+        Expiry expiry = new Expiry(normalized, now, ttl, sizeOf(normalized), now, now + ttl);
+
+        totalSize.addAndGet(expiry.size);
+        Expiry previous = expiries.put(expiry.path, expiry);
+        if (previous != null) {
+            totalSize.addAndGet(-previous.size);
+        }
+        incoming.add(expiry);
+        dirty = true;
+    }
+
+    /**
+     * Replace the scheduled deletion of the passed file by one after the given delay.
+     *
+     * @param path  of the file
+     * @param delay in minutes until the file is deleted
+     * @return whether the deletion could be rescheduled (false if the file is or is being deleted)
+     */
+    public boolean extendDeletion(Path path, long delay) {
+        Expiry expiry = expiries.get(normalize(path));
+        if (expiry == null) {
+            return false;
+        }
+
+        long deadline = System.currentTimeMillis() + UNITS.toMillis(delay);
+        synchronized (expiry) {
+            // Already expired by the wheel
+            if (expiries.get(expiry.path) != expiry) {
+                return false;
             }
-        }, delay, UNITS);
 
-        futures.put(path, future);
+            // Later deadlines are picked up lazily, earlier ones need an earlier slot
+            if (deadline < expiry.deadline) {
+                incoming.add(expiry);
+            } else {
+                expiry.lastAccess = System.currentTimeMillis();
+            }
+            expiry.deadline = deadline;
+        }
+        dirty = true;
+
+        return true;
     }
 
+    /**
+     * Extend the lifetime of the passed file by the delay it was scheduled with.
+     *
+     * @param path of the file that has been accessed
+     */
     public void onFileAccess(Path path) {
-        ScheduledFuture future = futures.get(path);
-        if (future != null) {
-
-            boolean result = future.cancel(false);
-            if (result) {
-                // reschedule the task
-                futures.remove(path);
-                scheduleForDeletion(path, future.getDelay(UNITS));
-            } else {
-                // too late, task was already running
+        Expiry expiry = expiries.get(normalize(path));
+        if (expiry == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (expiry) {
+            // Already expired by the wheel
+            if (expiries.get(expiry.path) != expiry) {
+                return;
+            }
+
+            expiry.lastAccess = now;
+            expiry.deadline = Math.max(expiry.deadline, now + expiry.ttl);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Get the number of files pending deletion.
+     *
+     * @return number of pending files
+     */
+    public int size() {
+        return expiries.size();
+    }
+
+    /**
+     * Get the total size of the files pending deletion.
+     *
+     * @return total size in bytes
+     */
+    public long getTotalSize() {
+        return totalSize.get();
+    }
+
+    /**
+     * Advance the wheel to the current time, deleting all expired files on the way.
+     */
+    private void tick() {
+        try {
+            Expiry scheduled;
+            while ((scheduled = incoming.poll()) != null) {
+                insert(scheduled);
+            }
+
+            long now = System.currentTimeMillis();
+            long nowTick = now / TICK;
+            while (currentTick < nowTick) {
+                currentTick++;
+                expireSlot(wheel.get((int) (currentTick % WHEEL_SIZE)), now);
+            }
+
+            if (totalSize.get() > quota) {
+                evictLeastRecentlyUsed();
+            }
+
+            if (dirty && now - lastPersisted >= PERSIST_INTERVAL) {
+                writeManifest();
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the periodic tick
+            LOGGER.log(Level.WARNING, "Could not advance the export expiry wheel", e);
+        }
+    }
+
+    /**
+     * Delete the expired files of the passed slot and move the others to the slot of their deadline.
+     *
+     * @param slot to process
+     * @param now  current timestamp
+     */
+    private void expireSlot(ArrayDeque<Expiry> slot, long now) {
+        for (int i = slot.size(); i > 0; i--) {
+            Expiry expiry = slot.poll();
+
+            // Replaced or already deleted
+            if (expiries.get(expiry.path) != expiry) {
+                continue;
+            }
+
+            boolean expired;
+            synchronized (expiry) {
+                expired = expiry.deadline <= now && expiries.remove(expiry.path, expiry);
+            }
+
+            if (expired) {
+                release(expiry);
+            } else if (expiries.get(expiry.path) == expiry) {
+                insert(expiry);
+            }
+        }
+    }
+
+    /**
+     * Insert the passed entry into the slot of its deadline.
+     *
+     * @param expiry to insert
+     */
+    private void insert(Expiry expiry) {
+        long tick = Math.max(expiry.deadline / TICK, currentTick + 1);
+        wheel.get((int) (tick % WHEEL_SIZE)).add(expiry);
+    }
+
+    /**
+     * Delete the least recently used files until the total size is within the quota again.
+     * The most recently used file is always kept, even if it exceeds the quota on its own.
+     */
+    private void evictLeastRecentlyUsed() {
+        List<Expiry> candidates = new ArrayList<>(expiries.values());
+        candidates.sort(Comparator.comparingLong(expiry -> expiry.lastAccess));
+
+        int evicted = 0;
+        for (int i = 0; i < candidates.size() - 1 && totalSize.get() > quota; i++) {
+            Expiry expiry = candidates.get(i);
+
+            boolean removed;
+            synchronized (expiry) {
+                removed = expiries.remove(expiry.path, expiry);
+            }
+
+            if (removed) {
+                release(expiry);
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            int count = evicted;
+            LOGGER.info(() -> "Evicted " + count + " exports exceeding the quota of " + quota + " bytes");
+        }
+    }
+
+    /**
+     * Delete the file of the passed entry, which has already been removed from the pending deletions.
+     *
+     * @param expiry of the file
+     */
+    private void release(Expiry expiry) {
+        totalSize.addAndGet(-expiry.size);
+        delete(expiry.path);
+        dirty = true;
+    }
+
+    /**
+     * Delete the passed exported file.
+     *
+     * @param path of the file
+     */
+    private void delete(Path path) {
+        try {
+            ExportFiles.delete(path);
+            LOGGER.fine(() -> "Deleted expired export " + path);
+        } catch (NoSuchFileException e) {
+            // Already gone
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete expired export " + path, e);
+        }
+    }
+
+    /**
+     * Reconcile the manifest with the exported files in the upload folder.
+     * Files of the manifest are re-armed with their size on disk, files that are not in the manifest
+     * are adopted with the default lifetime counted from their last modification.
+     * Expired files are deleted on the first tick, orphaned compressed variants and
+     * temporary files of interrupted exports right away.
+     * The files are checked in parallel, as the folder may contain many files after a crash.
+     */
+    private void reconcile() {
+        Map<Path, Expiry> manifest = readManifest();
+
+        try {
+            // The upload folder is served statically, so a manifest left there must not remain
+            Files.deleteIfExists(uploadPath.resolve(LEGACY_MANIFEST_FILE_NAME));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not delete the export manifest in the upload folder", e);
+        }
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(uploadPath)) {
+            files = stream
+                    .filter(path -> EXPORT_FILE_NAME.matcher(path.getFileName().toString()).matches()
+                            || isTempFile(path))
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not list the exported files", e);
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        long defaultTtl = UNITS.toMillis(ExportCache.LIFETIME);
+        AtomicInteger orphans = new AtomicInteger();
+
+        List<Expiry> rearmed = files.parallelStream()
+                .map(path -> {
+                    try {
+                        if (isTempFile(path)) {
+                            // Left over by an export interrupted by the last shutdown
+                            Files.deleteIfExists(path);
+                            return null;
+                        }
+
+                        String fileName = path.getFileName().toString();
+                        if (fileName.endsWith(ExportFiles.GZIP_EXTENSION)) {
+                            String plainName = fileName.substring(0, fileName.length() - ExportFiles.GZIP_EXTENSION.length());
+                            if (!Files.exists(path.resolveSibling(plainName))) {
+                                Files.deleteIfExists(path);
+                                orphans.incrementAndGet();
+                            }
+                            return null;
+                        }
+
+                        long size = sizeOf(path);
+                        Expiry known = manifest.get(path);
+                        if (known != null) {
+                            return new Expiry(path, known.created, known.ttl, size, known.lastAccess, known.deadline);
+                        }
+
+                        orphans.incrementAndGet();
+                        long modified = Files.getLastModifiedTime(path).toMillis();
+                        return new Expiry(path, modified, defaultTtl, size, modified, modified + defaultTtl);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Could not reconcile exported file " + path, e);
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        int expired = 0;
+        for (Expiry expiry : rearmed) {
+            expiries.put(expiry.path, expiry);
+            totalSize.addAndGet(expiry.size);
+            insert(expiry);
+
+            if (expiry.deadline <= now) {
+                expired++;
             }
         }
+        dirty = true;
+
+        int expiredCount = expired;
+        LOGGER.info(() -> "Reconciled " + rearmed.size() + " exported files (" + expiredCount + " expired, "
+                + orphans.get() + " not in the manifest)");
     }
-}
\ No newline at end of file
+
+    /**
+     * Check whether the passed file is a temporary file of an export being written.
+     *
+     * @param path of the file
+     * @return whether the file is a temporary export file
+     */
+    private static boolean isTempFile(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.startsWith(ExportFiles.TEMP_PREFIX)
+                && (fileName.endsWith(ExportFiles.TEMP_SUFFIX) || fileName.endsWith(ExportFiles.TEMP_SUFFIX + ExportFiles.GZIP_EXTENSION));
+    }
+
+    /**
+     * Read the manifest written before the last shutdown.
+     *
+     * @return the entries of the manifest by the path of their file
+     */
+    private Map<Path, Expiry> readManifest() {
+        Map<Path, Expiry> manifest = new HashMap<>();
+        if (!Files.isRegularFile(manifestPath)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 6) {
+                    continue;
+                }
+
+                Path path = Paths.get(parts[0]);
+                manifest.put(path, new Expiry(
+                        path,
+                        Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]),
+                        Long.parseLong(parts[3]),
+                        Long.parseLong(parts[4]),
+                        Long.parseLong(parts[5])
+                ));
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not read the export manifest", e);
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Write the pending deletions to the manifest, replacing it atomically.
+     * Each line holds the path, creation timestamp, lifetime, size, last access timestamp and deadline.
+     */
+    private synchronized void writeManifest() {
+        dirty = false;
+        lastPersisted = System.currentTimeMillis();
+
+        Path tempPath = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(manifestPath.getParent());
+            try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                for (Expiry expiry : expiries.values()) {
+                    writer.write(expiry.path.toString());
+                    for (long value : new long[]{expiry.created, expiry.ttl, expiry.size, expiry.lastAccess, expiry.deadline}) {
+                        writer.write('\t');
+                        writer.write(Long.toString(value));
+                    }
+                    writer.newLine();
+                }
+            }
+
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            LOGGER.log(Level.WARNING, "Could not write the export manifest", e);
+        }
+    }
+
+    /**
+     * Get the size of the passed exported file including its compressed variant.
+     *
+     * @param path of the exported file
+     * @return size in bytes or 0 if the file does not exist
+     */
+    private static long sizeOf(Path path) {
+        long size = 0;
+        for (Path file : new Path[]{path, ExportFiles.gzipVariant(path)}) {
+            try {
+                size += Files.size(file);
+            } catch (IOException e) {
+                // Missing files do not count
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Normalize the passed path to be used as key.
+     *
+     * @param path to normalize
+     * @return the absolute, normalized path
+     */
+    private static Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    /**
+     * Manifest entry of an exported file pending deletion.
+     */
+    private static class Expiry {
+
+        /**
+         * Absolute path of the file.
+         */
+        private final Path path;
+
+        /**
+         * Timestamp of when the file was created.
+         */
+        private final long created;
+
+        /**
+         * Milliseconds the lifetime is extended by on access.
+         */
+        private final long ttl;
+
+        /**
+         * Size of the file including its compressed variant in bytes.
+         */
+        private final long size;
+
+        /**
+         * Timestamp of when the file was last accessed.
+         */
+        private volatile long lastAccess;
+
+        /**
+         * Timestamp the file is deleted at.
+         */
+        private volatile long deadline;
+
+        Expiry(Path path, long created, long ttl, long size, long lastAccess, long deadline) {
+            this.path = path;
+            this.created = created;
+            this.ttl = ttl;
+            this.size = size;
+            this.lastAccess = lastAccess;
+            this.deadline = deadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,263 @@
+package de.be.bpv.server.rest.export;
+
+import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import de.be.bpv.server.rest.export.request.ExportRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Service exporting CAD files and mappings as HTML.
+ */
+@Service
+public class ExportService {
+
+    /**
+     * Logger of the service.
+     */
+    private static final Logger LOGGER = Logger.getLogger(ExportService.class.getName());
+
+    /**
+     * Script snippet disabling the placeholder of the viewer, removed from exports served by link.
+     */
+    private static final String PLACEHOLDER_SNIPPET = "Ro(\"ngIf\",e.showPlaceholder),";
+
+    /**
+     * Repository managing CAD files.
+     */
+    private final CADFileRepository cadFileRepository;
+
+    /**
+     * Repository managing room mappings.
+     */
+    private final RoomMappingRepository roomMappingRepository;
+
+    /**
+     * Writer streaming exports.
+     */
+    private final ExportWriter exportWriter;
+
+    /**
+     * Cache of exports served by link.
+     */
+    private final ExportCache exportCache;
+
+    /**
+     * Environment Variable of Server IP
+     */
+    @Value("${viewer.server.link}")
+    private String serverIP;
+
+    /**
+     * Environment Variable of Upload Folder
+     */
+    @Value("${upload.folder.path}")
+    private String uploadFolder;
+
+    /**
+     * The base HTML for export resource.
+     */
+    @Value("classpath:static/export.html")
+    Resource exportHTMLResource;
+
+    /**
+     * Precomputed export HTML template.
+     */
+    private volatile ExportTemplate exportTemplate;
+
+    /**
+     * Precomputed export HTML template for exports served by link.
+     */
+    private volatile ExportTemplate linkExportTemplate;
+
+    public ExportService(
+            CADFileRepository cadFileRepository,
+            RoomMappingRepository roomMappingRepository,
+            ExportWriter exportWriter,
+            ExportCache exportCache
+    ) {
+        this.cadFileRepository = cadFileRepository;
+        this.roomMappingRepository = roomMappingRepository;
+        this.exportWriter = exportWriter;
+        this.exportCache = exportCache;
+    }
+
+    /**
+     * Export the passed CAD file and mapping (optionally) as HTML file and get a link to it.
+     * Identical requests for unchanged CAD files and mappings reuse the previously exported file.
+     * The transaction keeps the lazily loaded mapping readable while the export is written,
+     * which matters when this is called outside of a request.
+     *
+     * @param exportRequest to do export for
+     * @return the link to the exported file or an empty optional if the CAD file does not exist
+     * @throws IOException in case the export could not be written
+     */
+    @Transactional(readOnly = true)
+    public Optional<String> createLink(ExportRequest exportRequest) throws IOException {
+        CADFileMetadata cadFileMetadata = cadFileRepository.findMetadataById(exportRequest.getCadFileId()).orElse(null);
+        if (cadFileMetadata == null) {
+            return Optional.empty();
+        }
+
+        // Look up the versions only, a cache hit must not load the CAD file or mapping
+        Long mappingVersion = exportRequest.getMappingId() != null
+                ? roomMappingRepository.findVersionById(exportRequest.getMappingId()).orElse(null)
+                : null;
+        ExportCacheKey cacheKey = new ExportCacheKey(
+                cadFileMetadata.getId(),
+                cadFileMetadata.getVersion(),
+                cadFileMetadata.getContentHash(),
+                mappingVersion != null ? exportRequest.getMappingId() : null,
+                mappingVersion,
+                exportRequest.getColorMap()
+        );
+
+        String cachedLink = exportCache.get(cacheKey).orElse(null);
+        if (cachedLink != null) {
+            return Optional.of(cachedLink);
+        }
+
+        ExportSettings exportSettings = buildExportSettings(exportRequest);
+        if (exportSettings == null) {
+            return Optional.empty();
+        }
+
+        //Get IDs from Export Request for file naming
+        Long cadFileId = exportRequest.getCadFileId();
+        Long mappingId = exportRequest.getMappingId();
+
+        //Initialize Variables
+        Calendar calendar = Calendar.getInstance();
+        String returntext = "";
+        File convFile;
+
+        //Get timestamp for file naming, made unique as exports of different cache keys may be created in the same second
+        SimpleDateFormat formatter = new SimpleDateFormat("ddMMyyyy-HHmmss");
+        String timestamp = formatter.format(calendar.getTime()) + "-" + UUID.randomUUID();
+
+        //Generate file path, file name and link to file
+        if(mappingId == null){
+            convFile = new File(uploadFolder + "/response_" + cadFileId + "_" + timestamp + ".html");
+            returntext = serverIP +  "response_" + cadFileId.toString() + "_" + timestamp + ".html";
+        }
+        else {
+            convFile = new File(uploadFolder + "/response_" + cadFileId + "_" + mappingId + "_" + timestamp + ".html");
+            returntext = serverIP +"response_" + cadFileId.toString() + "_" + mappingId.toString() + "_" + timestamp + ".html";
+        }
+
+        //Write HTML Doc to file
+        ExportTemplate template = getLinkExportTemplate();
+        ExportFiles.write(convFile.getAbsoluteFile().toPath(), out -> exportWriter.write(template, exportSettings, out));
+
+        //Delete File after X minutes unless requested again, an identical export cached meanwhile is reused
+        return Optional.of(exportCache.put(cacheKey, convFile.toPath(), returntext));
+    }
+
+    /**
+     * Precompute the export HTML templates at startup.
+     * The template is only bundled with the full build, so a missing template is not fatal here.
+     */
+    @PostConstruct
+    public void loadExportTemplates() {
+        if (!exportHTMLResource.exists()) {
+            LOGGER.warning("Export HTML template not found, exporting will not be available");
+            return;
+        }
+
+        try {
+            getExportTemplate();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not load the export HTML template", e);
+        }
+    }
+
+    /**
+     * Build the export settings for the passed request.
+     *
+     * @param exportRequest to build settings for
+     * @return the export settings or null if the CAD file does not exist
+     */
+    public ExportSettings buildExportSettings(ExportRequest exportRequest) {
+        CADFile cadFile = cadFileRepository.findById(exportRequest.getCadFileId()).orElse(null);
+        if (cadFile == null) {
+            return null;
+        }
+
+        RoomMappingCollection roomMappingCollection = exportRequest.getMappingId() != null
+                ? roomMappingRepository.findWithMappingsById(exportRequest.getMappingId()).orElse(null)
+                : null;
+
+        ExportSettings exportSettings = new ExportSettings();
+        exportSettings.setCadFile(cadFile);
+        exportSettings.setRoomMappingCollection(roomMappingCollection);
+        exportSettings.setColorMap(exportRequest.getColorMap());
+
+        return exportSettings;
+    }
+
+    /**
+     * Get the precomputed export HTML template, reading it from resources on first use.
+     *
+     * @return export HTML template
+     * @throws IOException in case the template could not be read
+     */
+    public ExportTemplate getExportTemplate() throws IOException {
+        if (exportTemplate == null) {
+            loadTemplates();
+        }
+
+        return exportTemplate;
+    }
+
+    /**
+     * Get the precomputed export HTML template for exports served by link.
+     *
+     * @return export HTML template
+     * @throws IOException in case the template could not be read
+     */
+    private ExportTemplate getLinkExportTemplate() throws IOException {
+        if (linkExportTemplate == null) {
+            loadTemplates();
+        }
+
+        return linkExportTemplate;
+    }
+
+    /**
+     * Read and precompute the export HTML templates.
+     *
+     * @throws IOException in case the template could not be read
+     */
+    private synchronized void loadTemplates() throws IOException {
+        if (exportTemplate != null) {
+            return;
+        }
+
+        String exportHTML;
+        try (InputStream in = exportHTMLResource.getInputStream()) {
+            exportHTML = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        ExportTemplate template = ExportTemplate.parse(exportHTML);
+        linkExportTemplate = template.replace(PLACEHOLDER_SNIPPET, "");
+        exportTemplate = template;
+    }
+
+}
@@ -0,0 +1,115 @@
+package de.be.bpv.server.rest.export;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precomputed export HTML template.
+ * The template is parsed once and split at the start of the head element,
+ * so that rendering an export only needs to write the bytes before the split,
+ * the settings script and the bytes after the split without any DOM parsing.
+ */
+public class ExportTemplate {
+
+    /**
+     * Pattern matching the start tag of the head element.
+     */
+    private static final Pattern HEAD_START_TAG = Pattern.compile("<head(\\s[^>]*)?>", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Start tag of the inserted script element.
+     */
+    private static final byte[] SCRIPT_START_TAG = "<script>".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * End tag of the inserted script element.
+     */
+    private static final byte[] SCRIPT_END_TAG = "</script>".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Bytes of the template up to and including the head start tag.
+     */
+    private final byte[] prefix;
+
+    /**
+     * Bytes of the template after the head start tag.
+     */
+    private final byte[] suffix;
+
+    private ExportTemplate(String html) {
+        Matcher matcher = HEAD_START_TAG.matcher(html);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Export template has no head element");
+        }
+
+        prefix = html.substring(0, matcher.end()).getBytes(StandardCharsets.UTF_8);
+        suffix = html.substring(matcher.end()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Precompute the template from the passed HTML.
+     * The HTML is normalized by Jsoup once, which guarantees a head element to exist.
+     *
+     * @param html of the template
+     * @return the template
+     */
+    public static ExportTemplate parse(String html) {
+        Document doc = Jsoup.parse(html);
+
+        return new ExportTemplate(doc.toString());
+    }
+
+    /**
+     * Get a copy of the template with all occurrences of the passed target replaced.
+     *
+     * @param target      to replace
+     * @param replacement to replace target with
+     * @return the new template
+     */
+    public ExportTemplate replace(String target, String replacement) {
+        return new ExportTemplate(toString().replace(target, replacement));
+    }
+
+    /**
+     * Write the template with a script inserted as first child of the head element.
+     *
+     * @param out    to write to
+     * @param script writing the content of the script (must not write a closing script tag)
+     * @throws IOException in case the export could not be written
+     */
+    public void writeTo(OutputStream out, ScriptWriter script) throws IOException {
+        out.write(prefix);
+        out.write(SCRIPT_START_TAG);
+        script.writeTo(out);
+        out.write(SCRIPT_END_TAG);
+        out.write(suffix);
+    }
+
+    @Override
+    public String toString() {
+        return new String(prefix, StandardCharsets.UTF_8) + new String(suffix, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writer of the content of the inserted script.
+     */
+    @FunctionalInterface
+    public interface ScriptWriter {
+
+        /**
+         * Write the content of the script to the passed stream.
+         *
+         * @param out to write to
+         * @throws IOException in case the script could not be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package de.be.bpv.server.rest.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.CharacterEscapes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileDataService;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Writer streaming exports to an output stream.
+ * The export settings are written with Jackson's streaming generator and the CAD file data
+ * is base64 encoded on the fly while it is read from the blob store, so the memory needed
+ * per export does not depend on the size of the CAD file.
+ */
+@Service
+public class ExportWriter {
+
+    /**
+     * Script declaring the export settings variable, followed by the settings as JSON.
+     */
+    private static final byte[] SETTINGS_SCRIPT_START = "var app_isExportMode = true;var app_exportSettings = "
+            .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * End of the settings script.
+     */
+    private static final byte[] SETTINGS_SCRIPT_END = ";".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Object mapper to use.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Service reading CAD file data.
+     */
+    private final CADFileDataService cadFileDataService;
+
+    public ExportWriter(ObjectMapper objectMapper, CADFileDataService cadFileDataService) {
+        this.objectMapper = objectMapper;
+        this.cadFileDataService = cadFileDataService;
+    }
+
+    /**
+     * Write the export of the passed settings to the given stream.
+     * The stream is flushed but not closed.
+     *
+     * @param template to write the export with
+     * @param settings to export
+     * @param out      to write to
+     * @throws IOException in case the export could not be written
+     */
+    public void write(ExportTemplate template, ExportSettings settings, OutputStream out) throws IOException {
+        template.writeTo(out, scriptOut -> {
+            scriptOut.write(SETTINGS_SCRIPT_START);
+            writeSettings(settings, scriptOut);
+            scriptOut.write(SETTINGS_SCRIPT_END);
+        });
+
+        out.flush();
+    }
+
+    /**
+     * Write the passed settings as JSON.
+     *
+     * @param settings to write
+     * @param out      to write to
+     * @throws IOException in case the settings could not be written
+     */
+    private void writeSettings(ExportSettings settings, OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setCharacterEscapes(new ScriptSafeCharacterEscapes());
+
+        generator.writeStartObject();
+
+        if (settings.getCadFile() != null) {
+            generator.writeFieldName("cadFile");
+            writeCADFile(settings.getCadFile(), generator);
+        }
+        if (settings.getRoomMappingCollection() != null) {
+            generator.writeObjectField("roomMappingCollection", settings.getRoomMappingCollection());
+        }
+        if (settings.getColorMap() != null) {
+            generator.writeStringField("colorMap", settings.getColorMap());
+        }
+
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    /**
+     * Write the passed CAD file including its base64 encoded data streamed from the blob store.
+     *
+     * @param cadFile   to write
+     * @param generator to write with
+     * @throws IOException in case the CAD file could not be written
+     */
+    private void writeCADFile(CADFile cadFile, JsonGenerator generator) throws IOException {
+        ObjectNode node = objectMapper.valueToTree(cadFile);
+        node.remove("data");
+
+        generator.writeStartObject();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            generator.writeFieldName(field.getKey());
+            generator.writeTree(field.getValue());
+        }
+
+        Long size = cadFile.getSize();
+        int length = size != null && size <= Integer.MAX_VALUE ? size.intValue() : -1;
+
+        generator.writeFieldName("data");
+        try (InputStream in = cadFileDataService.openData(cadFile)) {
+            generator.writeBinary(in, length);
+        }
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Character escapes additionally escaping '&lt;', so that the JSON can never close the script element it is embedded in.
+     */
+    private static class ScriptSafeCharacterEscapes extends CharacterEscapes {
+
+        /**
+         * Escape codes for ASCII characters.
+         */
+        private final int[] asciiEscapes;
+
+        ScriptSafeCharacterEscapes() {
+            asciiEscapes = CharacterEscapes.standardAsciiEscapesForJSON();
+            asciiEscapes['<'] = CharacterEscapes.ESCAPE_STANDARD;
+        }
+
+        @Override
+        public int[] getEscapeCodesForAscii() {
+            return asciiEscapes;
+        }
+
+        @Override
+        public SerializableString getEscapeSequence(int ch) {
+            return null;
+        }
+
+    }
+
+}
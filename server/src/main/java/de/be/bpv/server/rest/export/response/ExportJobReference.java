@@ -0,0 +1,132 @@
+package de.be.bpv.server.rest.export.response;
+
+import de.be.bpv.server.rest.export.ExportJob;
+import de.be.bpv.server.rest.export.ExportJobStatus;
+import org.springframework.lang.Nullable;
+
+import java.util.Date;
+
+/**
+ * Reference to an export job.
+ */
+public class ExportJobReference {
+
+    /**
+     * ID of the job to poll it with.
+     */
+    private String id;
+
+    /**
+     * Current status of the job.
+     */
+    private ExportJobStatus status;
+
+    /**
+     * Timestamp of when the job was submitted.
+     */
+    private Date submittedTimestamp;
+
+    /**
+     * Timestamp of when the job was started.
+     */
+    @Nullable
+    private Date startedTimestamp;
+
+    /**
+     * Timestamp of when the job was done or failed.
+     */
+    @Nullable
+    private Date finishedTimestamp;
+
+    /**
+     * Link to the exported file once the job is done.
+     */
+    @Nullable
+    private String link;
+
+    /**
+     * Message describing why the job failed.
+     */
+    @Nullable
+    private String error;
+
+    public ExportJobReference() {
+        // Default constructor for Jackson
+    }
+
+    /**
+     * Create a reference to the passed job.
+     *
+     * @param from the job to create the reference from
+     */
+    public ExportJobReference(ExportJob from) {
+        this.id = from.getId();
+        this.status = from.getStatus();
+        this.submittedTimestamp = from.getSubmittedTimestamp();
+        this.startedTimestamp = from.getStartedTimestamp();
+        this.finishedTimestamp = from.getFinishedTimestamp();
+        this.link = from.getLink();
+        this.error = from.getError();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public ExportJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(ExportJobStatus status) {
+        this.status = status;
+    }
+
+    public Date getSubmittedTimestamp() {
+        return submittedTimestamp;
+    }
+
+    public void setSubmittedTimestamp(Date submittedTimestamp) {
+        this.submittedTimestamp = submittedTimestamp;
+    }
+
+    @Nullable
+    public Date getStartedTimestamp() {
+        return startedTimestamp;
+    }
+
+    public void setStartedTimestamp(@Nullable Date startedTimestamp) {
+        this.startedTimestamp = startedTimestamp;
+    }
+
+    @Nullable
+    public Date getFinishedTimestamp() {
+        return finishedTimestamp;
+    }
+
+    public void setFinishedTimestamp(@Nullable Date finishedTimestamp) {
+        this.finishedTimestamp = finishedTimestamp;
+    }
+
+    @Nullable
+    public String getLink() {
+        return link;
+    }
+
+    public void setLink(@Nullable String link) {
+        this.link = link;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
+    public void setError(@Nullable String error) {
+        this.error = error;
+    }
+
+}
@@ -1,22 +1,62 @@
 package de.be.bpv.server.rest.roommapping;
 
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import de.be.bpv.server.persistence.geometry.CADGeometryService;
+import de.be.bpv.server.persistence.geometry.RoomPolygonIndex;
+import de.be.bpv.server.persistence.roommapping.RoomCategoryStatistics;
 import de.be.bpv.server.persistence.roommapping.RoomMapping;
 import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingMetadata;
 import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import de.be.bpv.server.persistence.roommapping.csv.CSVFormatException;
+import de.be.bpv.server.persistence.roommapping.csv.RoomMappingCSVFormat;
+import de.be.bpv.server.persistence.roommapping.csv.RoomMappingImportService;
+import de.be.bpv.server.persistence.roommapping.patch.RoomMappingOperation;
+import de.be.bpv.server.persistence.roommapping.patch.RoomMappingPatchConflictException;
+import de.be.bpv.server.persistence.roommapping.patch.RoomMappingPatchService;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import de.be.bpv.server.persistence.keyset.KeysetPage;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import de.be.bpv.server.rest.KeysetResponses;
+import de.be.bpv.server.rest.VersionPreconditions;
+import de.be.bpv.server.rest.export.ExportCache;
+import de.be.bpv.server.rest.roommapping.request.RoomMappingPatch;
 import de.be.bpv.server.rest.roommapping.response.RoomMappingReference;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * REST controller for room mappings.
@@ -25,57 +65,174 @@ import java.util.List;
 @RequestMapping("/api/room-mapping")
 public class RoomMappingController {
 
+    /**
+     * Logger of the controller.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RoomMappingController.class.getName());
+
     /**
      * Repository managing room mapping entities.
      */
     private final RoomMappingRepository roomMappingRepository;
 
-    public RoomMappingController(RoomMappingRepository roomMappingRepository) {
+    /**
+     * Repository managing CAD files.
+     */
+    private final CADFileRepository cadFileRepository;
+
+    /**
+     * Service providing the room polygon index of CAD files.
+     */
+    private final CADGeometryService cadGeometryService;
+
+    /**
+     * Cache of exports to evict on changes.
+     */
+    private final ExportCache exportCache;
+
+    /**
+     * Service importing mappings from CSV files.
+     */
+    private final RoomMappingImportService roomMappingImportService;
+
+    /**
+     * Service applying changes of single rooms.
+     */
+    private final RoomMappingPatchService roomMappingPatchService;
+
+    public RoomMappingController(
+            RoomMappingRepository roomMappingRepository,
+            CADFileRepository cadFileRepository,
+            CADGeometryService cadGeometryService,
+            ExportCache exportCache,
+            RoomMappingImportService roomMappingImportService,
+            RoomMappingPatchService roomMappingPatchService
+    ) {
         this.roomMappingRepository = roomMappingRepository;
+        this.cadFileRepository = cadFileRepository;
+        this.cadGeometryService = cadGeometryService;
+        this.exportCache = exportCache;
+        this.roomMappingImportService = roomMappingImportService;
+        this.roomMappingPatchService = roomMappingPatchService;
     }
 
     /**
-     * Get references to all available room mappings.
+     * Get references to the available room mappings, newest first by default.
+     * The listing is keyset paginated: the link to the next page is sent in the Link header.
      *
-     * @return reference to all available room mappings
+     * @param namePrefix the names have to start with (case sensitive, optional)
+     * @param sort       order in the form "attribute[,asc|desc]" with the attribute being name or createdTimestamp
+     * @param after      cursor of the page to get, taken from the link to the next page
+     * @param size       maximum number of references on the page (at most 1000)
+     * @return references to the mappings on the page or 400 in case of an invalid sort order or cursor
      */
     @GetMapping
-    public ResponseEntity<Iterable<RoomMappingReference>> getAll() {
-        List<RoomMappingReference> references = new ArrayList<>();
-        for (RoomMappingCollection mapping : roomMappingRepository.findAll()) {
-            references.add(new RoomMappingReference(mapping));
-        }
-
-        return ResponseEntity.ok(references);
+    public ResponseEntity<Iterable<RoomMappingReference>> getAll(
+            @RequestParam(value = "name", required = false) String namePrefix,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = KeysetResponses.DEFAULT_SIZE) int size
+    ) {
+        return getPage(null, namePrefix, sort, after, size);
     }
 
     /**
-     * Get all mapping for the passed CAD file ID.
+     * Get references to the mappings for the passed CAD file ID, newest first by default.
      *
-     * @param cadFileId to get mapping for
-     * @return references to mappings for the passed CAD file ID
+     * @param cadFileId  to get mapping for
+     * @param namePrefix the names have to start with (case sensitive, optional)
+     * @param sort       order in the form "attribute[,asc|desc]" with the attribute being name or createdTimestamp
+     * @param after      cursor of the page to get, taken from the link to the next page
+     * @param size       maximum number of references on the page (at most 1000)
+     * @return references to mappings for the passed CAD file ID or 400 in case of an invalid sort order or cursor
      */
     @GetMapping("/for/{cadFileId}")
-    public ResponseEntity<Iterable<RoomMappingReference>> getForCADFileID(@PathVariable long cadFileId) {
-        List<RoomMappingReference> references = new ArrayList<>();
-        for (RoomMappingCollection mapping : roomMappingRepository.findAllByCadFileID(cadFileId)) {
-            references.add(new RoomMappingReference(mapping));
+    public ResponseEntity<Iterable<RoomMappingReference>> getForCADFileID(
+            @PathVariable long cadFileId,
+            @RequestParam(value = "name", required = false) String namePrefix,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", defaultValue = KeysetResponses.DEFAULT_SIZE) int size
+    ) {
+        return getPage(cadFileId, namePrefix, sort, after, size);
+    }
+
+    /**
+     * Get the number of rooms and their total area per category of room mappings,
+     * without loading any of the mappings.
+     * Only rooms mapped by explicit vertices have an area, see {@link RoomMapping#getArea()}.
+     * Restricted to the passed mapping IDs or the mappings of the passed CAD files, if any.
+     *
+     * @param ids        of the mappings to get statistics for
+     * @param cadFileIDs IDs of the CAD files to get statistics of their mappings for
+     * @return statistics per mapping and category
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<List<RoomCategoryStatistics>> getStatistics(
+            @RequestParam(value = "id", required = false) List<Long> ids,
+            @RequestParam(value = "cadFileID", required = false) List<Long> cadFileIDs
+    ) {
+        List<RoomCategoryStatistics> statistics;
+        if (ids != null && cadFileIDs != null) {
+            return ResponseEntity.badRequest().build();
+        } else if (ids != null) {
+            statistics = roomMappingRepository.findCategoryStatisticsByIds(ids);
+        } else if (cadFileIDs != null) {
+            statistics = roomMappingRepository.findCategoryStatisticsByCadFileIDs(cadFileIDs);
+        } else {
+            statistics = roomMappingRepository.findCategoryStatistics();
         }
 
-        return ResponseEntity.ok(references);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(statistics);
     }
 
     /**
      * Get a mapping by its ID.
+     * The mapping vertices are resolved to the room polygons of the CAD file
+     * the mapping belongs to, so that the client does not have to hit test them.
+     * Mappings are sent unresolved as long as the room polygons of the CAD file are not available.
+     * Clients with an unchanged copy are answered with 304 before the mappings are loaded.
      *
-     * @param id to get mapping for
+     * @param id      to get mapping for
+     * @param request to check the conditional headers of
      * @return the requested mapping
      */
     @GetMapping("/{id}")
-    public ResponseEntity<RoomMappingCollection> getByID(@PathVariable long id) {
-        return roomMappingRepository.findById(id)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<RoomMappingCollection> getByID(@PathVariable long id, WebRequest request) {
+        RoomMappingMetadata metadata = roomMappingRepository.findMetadataById(id).orElse(null);
+        if (metadata == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // The resolved room polygons depend on the data of the CAD file as well
+        CADFileMetadata cadFile = metadata.getCadFileID() != null
+                ? cadFileRepository.findMetadataById(metadata.getCadFileID()).orElse(null)
+                : null;
+
+        // Mappings are answered unresolved until the room polygon index has been computed
+        RoomPolygonIndex index = findRoomPolygonIndex(cadFile);
+
+        String eTag = metadata.getVersion() + "-" + (cadFile != null ? cadFile.getContentHash() : null) + "-" + (index != null);
+        long lastModified = metadata.getUpdatedTimestamp().getTime();
+        if (cadFile != null) {
+            lastModified = Math.max(lastModified, cadFile.getUpdatedTimestamp().getTime());
+        }
+        if (request.checkNotModified(eTag, lastModified)) {
+            return null;
+        }
+
+        RoomMappingCollection mapping = roomMappingRepository.findWithMappingsById(id).orElse(null);
+        if (mapping == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        resolveRoomPolygons(mapping, index);
+
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(mapping);
     }
 
     /**
@@ -100,37 +257,339 @@ public class RoomMappingController {
                 .body(new RoomMappingReference(mapping));
     }
 
+    /**
+     * Create a new mapping from an uploaded CSV file.
+     * The file is parsed while streaming and written in batches, so it may be arbitrarily large.
+     * Fails with 400 and the offending line in the body in case the file is invalid.
+     *
+     * @param file                CSV file to import
+     * @param cadFileID           ID of the CAD file the mapping belongs to
+     * @param name                of the mapping, defaults to the file name
+     * @param delimiter           of the CSV fields
+     * @param charsetName         of the CSV file
+     * @param roomNameHeader      header of the room name column
+     * @param categoryHeader      header of the category column
+     * @param descriptionHeader   header of the description column
+     * @param mappingVertexHeader header of the mapping vertex column
+     * @param polygonHeader       header of the polygon column
+     * @return the reference of the created mapping or 400 in case the CAD file does not exist or the charset is not supported
+     * @throws IOException in case the file could not be read or is invalid
+     */
+    @PostMapping(path = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<RoomMappingReference> importCSV(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("cadFileID") long cadFileID,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "delimiter", defaultValue = ",") char delimiter,
+            @RequestParam(value = "charsetName", required = false) String charsetName,
+            @RequestParam(value = "roomNameHeader", required = false) String roomNameHeader,
+            @RequestParam(value = "categoryHeader", required = false) String categoryHeader,
+            @RequestParam(value = "descriptionHeader", required = false) String descriptionHeader,
+            @RequestParam(value = "mappingVertexHeader", required = false) String mappingVertexHeader,
+            @RequestParam(value = "polygonHeader", required = false) String polygonHeader
+    ) throws IOException {
+        if (!cadFileRepository.existsById(cadFileID) || !isSupportedCharset(charsetName)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        RoomMappingCSVFormat format = new RoomMappingCSVFormat();
+        format.setDelimiter(delimiter);
+        if (roomNameHeader != null) {
+            format.setRoomNameHeader(roomNameHeader);
+        }
+        if (categoryHeader != null) {
+            format.setCategoryHeader(categoryHeader);
+        }
+        if (descriptionHeader != null) {
+            format.setDescriptionHeader(descriptionHeader);
+        }
+        if (mappingVertexHeader != null) {
+            format.setMappingVertexHeader(mappingVertexHeader);
+        }
+        if (polygonHeader != null) {
+            format.setPolygonHeader(polygonHeader);
+        }
+
+        RoomMappingCollection mapping = new RoomMappingCollection();
+        mapping.setCadFileID(cadFileID);
+        mapping.setName(name != null ? name : file.getOriginalFilename());
+
+        Charset charset = charsetName != null ? Charset.forName(charsetName) : StandardCharsets.UTF_8;
+        try (Reader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), charset))) {
+            mapping = roomMappingImportService.importCSV(mapping, reader, format);
+        }
+
+        return ResponseEntity.created(
+                ServletUriComponentsBuilder.fromCurrentRequestUri()
+                        .replacePath("/api/room-mapping/{id}")
+                        .buildAndExpand(mapping.getId())
+                        .toUri())
+                .body(new RoomMappingReference(mapping));
+    }
+
     /**
      * Update the mapping with the same ID as in the provided mapping instance.
+     * Fails with 412 if the If-Match header does not match the current version
+     * and with 409 if the version of the provided instance is outdated.
      *
      * @param mapping to update
+     * @param headers of the request
      * @return a reference to the updated mapping
      */
     @PutMapping
-    public ResponseEntity<RoomMappingReference> update(@RequestBody RoomMappingCollection mapping) {
-        return roomMappingRepository.findById(mapping.getId()).map(existingMapping -> {
-            existingMapping.setName(mapping.getName());
-            existingMapping.setCadFileID(mapping.getCadFileID());
-            existingMapping.setMappings(mapping.getMappings());
+    public ResponseEntity<RoomMappingReference> update(
+            @RequestBody RoomMappingCollection mapping,
+            @RequestHeader HttpHeaders headers
+    ) {
+        RoomMappingCollection existingMapping = roomMappingRepository.findById(mapping.getId()).orElse(null);
+        if (existingMapping == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!VersionPreconditions.matchesIfMatch(headers, existingMapping.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        if (!VersionPreconditions.matchesVersion(mapping.getVersion(), existingMapping.getVersion())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
 
-            return ResponseEntity.ok(new RoomMappingReference(existingMapping));
-        }).orElse(ResponseEntity.notFound().build());
+        existingMapping.setName(mapping.getName());
+        existingMapping.setCadFileID(mapping.getCadFileID());
+
+        // Replace the mappings in place, so that removed mappings are deleted as orphans
+        existingMapping.getMappings().clear();
+        if (mapping.getMappings() != null) {
+            for (RoomMapping m : mapping.getMappings()) {
+                m.setId(null);
+                m.setCollection(existingMapping);
+                existingMapping.getMappings().add(m);
+            }
+        }
+
+        // Changes to the mappings alone do not mark the collection dirty, so its version would not be incremented
+        existingMapping.setUpdatedTimestamp(new Date());
+
+        existingMapping = roomMappingRepository.save(existingMapping);
+        exportCache.evictMapping(existingMapping.getId());
+
+        return ResponseEntity.ok()
+                .eTag(VersionPreconditions.eTag(existingMapping.getVersion()))
+                .body(new RoomMappingReference(existingMapping));
+    }
+
+    /**
+     * Change single rooms of the mapping with the passed ID.
+     * Only the rooms named by the operations are loaded and written.
+     * Fails with 412 if the If-Match header does not match the current version,
+     * with 409 if the passed version is outdated or an operation does not fit the mapping
+     * (adding a room that is already mapped, updating or deleting one that is not).
+     *
+     * @param id      of the mapping to change
+     * @param patch   changes to apply
+     * @param headers of the request
+     * @return a reference to the changed mapping
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<RoomMappingReference> patch(
+            @PathVariable long id,
+            @RequestBody RoomMappingPatch patch,
+            @RequestHeader HttpHeaders headers
+    ) {
+        List<RoomMappingOperation> operations = patch.getOperations() != null ? patch.getOperations() : List.of();
+        for (RoomMappingOperation operation : operations) {
+            if (operation.getOp() == null || operation.getRoomName() == null) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        RoomMappingCollection existingMapping = roomMappingRepository.findById(id).orElse(null);
+        if (existingMapping == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!VersionPreconditions.matchesIfMatch(headers, existingMapping.getVersion())) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        if (!VersionPreconditions.matchesVersion(patch.getVersion(), existingMapping.getVersion())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        if (patch.getName() != null) {
+            existingMapping.setName(patch.getName());
+        }
+
+        existingMapping = roomMappingPatchService.apply(existingMapping, operations);
+        exportCache.evictMapping(existingMapping.getId());
+
+        return ResponseEntity.ok()
+                .eTag(VersionPreconditions.eTag(existingMapping.getVersion()))
+                .body(new RoomMappingReference(existingMapping));
     }
 
     /**
      * Delete the mapping with the passed ID.
+     * Fails with 412 if the If-Match header does not match the current version.
      *
-     * @param id to delete mapping for
+     * @param id      to delete mapping for
+     * @param headers of the request
      * @return a reference to the deleted mapping
      */
     @DeleteMapping("/{id}")
-    public ResponseEntity<RoomMappingReference> delete(@PathVariable long id) {
+    public ResponseEntity<RoomMappingReference> delete(@PathVariable long id, @RequestHeader HttpHeaders headers) {
         return roomMappingRepository.findById(id).map(mapping -> {
+            if (!VersionPreconditions.matchesIfMatch(headers, mapping.getVersion())) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).<RoomMappingReference>build();
+            }
+
             RoomMappingReference reference = new RoomMappingReference(mapping);
             roomMappingRepository.delete(mapping);
+            exportCache.evictMapping(id);
 
             return ResponseEntity.ok(reference);
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Get a keyset paginated page of references to mappings.
+     *
+     * @param cadFileID  of the CAD file the mappings have to belong to (optional)
+     * @param namePrefix the names have to start with (optional)
+     * @param sort       order of the mappings
+     * @param after      cursor of the page to get
+     * @param size       maximum number of references on the page
+     * @return references to the mappings on the page
+     */
+    private ResponseEntity<Iterable<RoomMappingReference>> getPage(
+            @Nullable Long cadFileID,
+            @Nullable String namePrefix,
+            @Nullable String sort,
+            @Nullable String after,
+            int size
+    ) {
+        KeysetPage<RoomMappingCollection> page;
+        try {
+            KeysetSort keysetSort = KeysetSort.parse(sort);
+            page = roomMappingRepository.findPage(
+                    cadFileID,
+                    namePrefix,
+                    keysetSort,
+                    KeysetResponses.parseCursor(after, keysetSort),
+                    KeysetResponses.limitSize(size)
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return KeysetResponses.toResponse(page, RoomMappingReference::new);
+    }
+
+    /**
+     * Answer concurrent changes of the same mapping that lost the race with 409.
+     *
+     * @return the response
+     */
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Void> onConcurrentChange() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    /**
+     * Answer operations that do not fit the current mapping with 409 and the reason.
+     *
+     * @param e the conflicting operation
+     * @return the response
+     */
+    @ExceptionHandler(RoomMappingPatchConflictException.class)
+    public ResponseEntity<String> onPatchConflict(RoomMappingPatchConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(e.getMessage());
+    }
+
+    /**
+     * Answer imports of invalid CSV files with 400 and the problem found.
+     *
+     * @param e the problem found in the file
+     * @return the response
+     */
+    @ExceptionHandler(CSVFormatException.class)
+    public ResponseEntity<String> onInvalidCSV(CSVFormatException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(e.getMessage());
+    }
+
+    /**
+     * Check whether the passed charset name (if any) denotes a supported charset.
+     *
+     * @param charsetName to check (may be null)
+     * @return whether the charset is supported
+     */
+    private static boolean isSupportedCharset(@Nullable String charsetName) {
+        if (charsetName == null) {
+            return true;
+        }
+
+        try {
+            return Charset.isSupported(charsetName);
+        } catch (IllegalArgumentException e) {
+            return false; // Illegal charset name
+        }
+    }
+
+    /**
+     * Get the room polygon index of the passed CAD file without waiting for it to be computed.
+     *
+     * @param cadFile to get room polygon index of
+     * @return the index or null if it is not available
+     */
+    @Nullable
+    private RoomPolygonIndex findRoomPolygonIndex(@Nullable CADFileMetadata cadFile) {
+        if (cadFile == null) {
+            return null;
+        }
+
+        try {
+            return cadGeometryService.findRoomPolygonIndex(cadFile).orElse(null);
+        } catch (IOException e) {
+            // The client falls back to hit testing the mapping vertices
+            LOGGER.log(Level.WARNING, "Could not read room polygon index of " + cadFile.getContentHash(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Resolve the mapping vertices of the passed collection to the room polygons of its CAD file.
+     *
+     * @param mapping to resolve mapping vertices for
+     * @param index   of the room polygons of the CAD file
+     */
+    private void resolveRoomPolygons(RoomMappingCollection mapping, @Nullable RoomPolygonIndex index) {
+        if (mapping.getMappings() == null || index == null) {
+            return;
+        }
+
+        for (RoomMapping m : mapping.getMappings()) {
+            RoomMappingVertex mappingVertex = m.getMappingVertex();
+            if (mappingVertex == null) {
+                continue;
+            }
+
+            int polygon = index.find(mappingVertex.getX(), mappingVertex.getY());
+            if (polygon < 0) {
+                continue;
+            }
+
+            double[] coordinates = index.getVertices(polygon);
+            List<RoomMappingVertex> vertices = new ArrayList<>(coordinates.length / 2);
+            for (int i = 0; i < coordinates.length; i += 2) {
+                RoomMappingVertex vertex = new RoomMappingVertex();
+                vertex.setX(coordinates[i]);
+                vertex.setY(coordinates[i + 1]);
+                vertices.add(vertex);
+            }
+
+            m.setRoomPolygonID(polygon);
+            m.setRoomPolygon(vertices);
+        }
+    }
+
 }
@@ -0,0 +1,90 @@
+package de.be.bpv.server.rest.roommapping.request;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.be.bpv.server.persistence.roommapping.patch.RoomMappingOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Request changing single rooms of a room mapping collection.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RoomMappingPatch {
+
+    /**
+     * Version of the collection the changes are based on (optional).
+     */
+    @Nullable
+    private Long version;
+
+    /**
+     * New name of the collection (optional).
+     */
+    @Nullable
+    private String name;
+
+    /**
+     * Operations on single rooms, applied in order.
+     */
+    @Nullable
+    private List<RoomMappingOperation> operations;
+
+    /**
+     * Get the version of the collection the changes are based on.
+     *
+     * @return version
+     */
+    @Nullable
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the collection the changes are based on.
+     *
+     * @param version to set
+     */
+    public void setVersion(@Nullable Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Get the new name of the collection.
+     *
+     * @return name
+     */
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set the new name of the collection.
+     *
+     * @param name to set
+     */
+    public void setName(@Nullable String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the operations on single rooms.
+     *
+     * @return operations
+     */
+    @Nullable
+    public List<RoomMappingOperation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Set the operations on single rooms.
+     *
+     * @param operations to set
+     */
+    public void setOperations(@Nullable List<RoomMappingOperation> operations) {
+        this.operations = operations;
+    }
+
+}
@@ -17,6 +17,11 @@ public class RoomMappingReference {
      */
     private long id;
 
+    /**
+     * Version of the mapping, to be passed as If-Match precondition when changing it.
+     */
+    private Long version;
+
     /**
      * Name of the mapping.
      */
@@ -39,6 +44,7 @@ public class RoomMappingReference {
      */
     public RoomMappingReference(RoomMappingCollection mapping) {
         this.id = mapping.getId();
+        this.version = mapping.getVersion();
         this.name = mapping.getName();
         this.createdTimestamp = mapping.getCreatedTimestamp();
     }
@@ -61,6 +67,24 @@ public class RoomMappingReference {
         this.id = id;
     }
 
+    /**
+     * Get the version of the mapping.
+     *
+     * @return version
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    /**
+     * Set the version of the mapping.
+     *
+     * @param version to set
+     */
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     /**
      * Get the name of the mapping.
      *
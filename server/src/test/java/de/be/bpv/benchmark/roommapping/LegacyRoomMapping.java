@@ -0,0 +1,101 @@
+package de.be.bpv.benchmark.roommapping;
+
+import de.be.bpv.server.persistence.roommapping.RoomMapping;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import java.util.List;
+
+/**
+ * Room mapping with the columns of {@link RoomMapping}
+ * and the ID strategy used before pooled sequences were configured.
+ */
+@Entity
+@Table(name = "legacy_room_mapping")
+public class LegacyRoomMapping {
+
+    /**
+     * ID of the mapping, taken from the shared hibernate_sequence one call per row.
+     */
+    @Id
+    @Column(unique = true, nullable = false)
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    /**
+     * Name of the room to map.
+     */
+    @Column(nullable = false)
+    private String roomName;
+
+    /**
+     * Category of the room.
+     */
+    private int category;
+
+    /**
+     * Description of the room.
+     */
+    @Column(length = 5000, nullable = true)
+    private String description;
+
+    /**
+     * Collection the mapping belongs to.
+     */
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "collection_id", nullable = false)
+    private LegacyRoomMappingCollection collection;
+
+    /**
+     * Vertex to map a shape of the CAD file to.
+     */
+    @Embedded
+    @Column(nullable = true)
+    private RoomMappingVertex mappingVertex;
+
+    /**
+     * Vertices of the room.
+     */
+    @ElementCollection
+    @CollectionTable(name = "legacy_room_mapping_vertices")
+    @Column(nullable = true)
+    private List<RoomMappingVertex> vertices;
+
+    /**
+     * Area of the polygon formed by the vertices.
+     */
+    @Column(nullable = true)
+    private Double area;
+
+    protected LegacyRoomMapping() {
+        // For JPA
+    }
+
+    /**
+     * Create a copy of the passed mapping.
+     *
+     * @param template   to copy
+     * @param collection the copy belongs to
+     */
+    LegacyRoomMapping(RoomMapping template, LegacyRoomMappingCollection collection) {
+        this.roomName = template.getRoomName();
+        this.category = template.getCategory();
+        this.description = template.getDescription();
+        this.mappingVertex = template.getMappingVertex();
+        this.vertices = template.getVertices();
+        this.area = template.getArea();
+        this.collection = collection;
+    }
+
+}
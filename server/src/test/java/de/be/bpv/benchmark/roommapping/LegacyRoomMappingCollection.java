@@ -0,0 +1,92 @@
+package de.be.bpv.benchmark.roommapping;
+
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Room mapping collection with the columns of {@link RoomMappingCollection}
+ * and the ID strategy used before pooled sequences were configured.
+ * Outside of the entity scan of the application, it is only registered by the insert benchmark.
+ */
+@Entity
+@Table(name = "legacy_room_mapping_collection")
+public class LegacyRoomMappingCollection {
+
+    /**
+     * ID of the collection, taken from the shared hibernate_sequence one call per row.
+     */
+    @Id
+    @Column(unique = true, nullable = false)
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    /**
+     * Version of the collection.
+     */
+    @Version
+    private Long version;
+
+    /**
+     * Name of the collection.
+     */
+    @Column(nullable = false)
+    private String name;
+
+    /**
+     * Timestamp the collection has been created at.
+     */
+    @Column(nullable = false, updatable = false)
+    @CreationTimestamp
+    private Date createdTimestamp;
+
+    /**
+     * Timestamp the collection has been updated at.
+     */
+    @Column(nullable = false)
+    @UpdateTimestamp
+    private Date updatedTimestamp;
+
+    /**
+     * ID of the CAD file the collection belongs to.
+     */
+    @Column(nullable = false)
+    private Long cadFileID;
+
+    /**
+     * Mappings of the collection.
+     */
+    @OneToMany(mappedBy = "collection", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<LegacyRoomMapping> mappings;
+
+    protected LegacyRoomMappingCollection() {
+        // For JPA
+    }
+
+    /**
+     * Create a copy of the passed collection and its mappings.
+     *
+     * @param template to copy
+     */
+    public LegacyRoomMappingCollection(RoomMappingCollection template) {
+        this.name = template.getName();
+        this.cadFileID = template.getCadFileID();
+        this.mappings = template.getMappings().stream()
+                .map(mapping -> new LegacyRoomMapping(mapping, this))
+                .collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,123 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DxfGeometryConverterTests {
+
+    /**
+     * Maximum deviation of converted coordinates.
+     */
+    private static final float EPSILON = 1e-4f;
+
+    /**
+     * Sample DXF file encoded with windows-1252, containing a LINE, an LWPOLYLINE with a bulge,
+     * an ARC, an INSERT of a block and a TEXT with umlauts.
+     */
+    private static final String SAMPLE = "sample.dxf";
+
+    @Test
+    void convertsLine() throws IOException {
+        GeometryGroup walls = group(convert(Charset.forName("windows-1252")), "Walls");
+
+        assertEquals(1, walls.getColor());
+        assertArrayEquals(new float[]{0, 0, 10, 0}, walls.getLines().toArray(), EPSILON);
+    }
+
+    @Test
+    void convertsLwPolylineBulgeToArc() throws IOException {
+        GeometryGroup walls = group(convert(Charset.forName("windows-1252")), "Walls");
+
+        assertArrayEquals(new int[]{0}, walls.getPolylineOffsets().toArray());
+        assertArrayEquals(new int[]{0}, walls.getPolylineFlags().toArray());
+
+        // A bulge of 1 is a counterclockwise half circle around (5, 0) tessellated into 32 segments
+        float[] vertices = walls.getPolylineVertices().toArray();
+        assertEquals((1 + 31 + 2) * 2, vertices.length);
+        assertArrayEquals(new float[]{0, 0}, new float[]{vertices[0], vertices[1]}, EPSILON);
+        for (int i = 1; i < 32; i++) {
+            float x = vertices[i * 2];
+            float y = vertices[i * 2 + 1];
+            assertEquals(5, Math.hypot(x - 5, y), EPSILON);
+            assertTrue(y < 0);
+        }
+        assertArrayEquals(new float[]{5, -5}, new float[]{vertices[16 * 2], vertices[16 * 2 + 1]}, EPSILON);
+        assertArrayEquals(new float[]{10, 0, 10, 5}, new float[]{vertices[64], vertices[65], vertices[66], vertices[67]}, EPSILON);
+    }
+
+    @Test
+    void convertsArc() throws IOException {
+        GeometryGroup rooms = group(convert(Charset.forName("windows-1252")), "Rooms");
+
+        // A quarter circle is tessellated into 16 segments
+        float[] vertices = rooms.getPolylineVertices().toArray();
+        assertEquals(17 * 2, vertices.length);
+        assertArrayEquals(new float[]{22, 0}, new float[]{vertices[0], vertices[1]}, EPSILON);
+        assertArrayEquals(new float[]{20, 2}, new float[]{vertices[32], vertices[33]}, EPSILON);
+        for (int i = 0; i < 17; i++) {
+            assertEquals(2, Math.hypot(vertices[i * 2] - 20, vertices[i * 2 + 1]), EPSILON);
+        }
+    }
+
+    @Test
+    void convertsInsertWithLayerAndColorOfTheInsert() throws IOException {
+        GeometryBuffer buffer = convert(Charset.forName("windows-1252"));
+
+        // The block line on layer 0 is scaled by 2, rotated by 90 degrees and placed at (30, 0)
+        GeometryGroup rooms = group(buffer, "Rooms");
+        assertEquals(3, rooms.getColor());
+        assertArrayEquals(new float[]{30, 0, 30, 2}, rooms.getLines().toArray(), EPSILON);
+
+        assertTrue(buffer.getGroups().stream().noneMatch(group -> group.getLayer().equals("0")));
+    }
+
+    @Test
+    void decodesTextWithCharset() throws IOException {
+        GeometryGroup rooms = group(convert(Charset.forName("windows-1252")), "Rooms");
+
+        assertEquals(1, rooms.getTexts().size());
+        GeometryText text = rooms.getTexts().get(0);
+        assertEquals("B\u00fcro \u00c4", text.getText());
+        assertEquals(40, text.getX(), EPSILON);
+        assertEquals(2.5f, text.getHeight(), EPSILON);
+
+        GeometryGroup misdecoded = group(convert(StandardCharsets.UTF_8), "Rooms");
+        assertNotEquals("B\u00fcro \u00c4", misdecoded.getTexts().get(0).getText());
+    }
+
+    @Test
+    void convertsOnceForEachTolerance() throws IOException {
+        GeometryBuffer[] buffers;
+        try (InputStream in = getClass().getResourceAsStream(SAMPLE)) {
+            buffers = DxfGeometryConverter.convert(in, Charset.forName("windows-1252"), new double[]{0, 1});
+        }
+
+        // A coarser tolerance tessellates the arcs into fewer segments, straight geometry is unchanged
+        assertEquals(2, buffers.length);
+        assertTrue(group(buffers[1], "Rooms").getPolylineVertices().size() < group(buffers[0], "Rooms").getPolylineVertices().size());
+        assertArrayEquals(group(buffers[0], "Rooms").getLines().toArray(), group(buffers[1], "Rooms").getLines().toArray());
+    }
+
+    private GeometryBuffer convert(Charset charset) throws IOException {
+        try (InputStream in = getClass().getResourceAsStream(SAMPLE)) {
+            return DxfGeometryConverter.convert(in, charset);
+        }
+    }
+
+    private static GeometryGroup group(GeometryBuffer buffer, String layer) {
+        return buffer.getGroups().stream()
+                .filter(group -> group.getLayer().equals(layer))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No group on layer " + layer));
+    }
+
+}
@@ -0,0 +1,124 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeometryBufferTests {
+
+    @Test
+    void readReturnsWrittenGeometry() throws IOException {
+        GeometryBuffer buffer = new GeometryBuffer();
+
+        GeometryGroup walls = buffer.group("Walls", 1);
+        walls.addLine(1000.5, 2000.25, 1010.5, 2000.25);
+        walls.beginPolyline();
+        walls.addPolylineVertex(1000, 2000);
+        walls.addPolylineVertex(1005, 2000);
+        walls.addPolylineVertex(1005, 2005);
+        walls.endPolyline(true);
+        walls.beginPolyline();
+        walls.addPolylineVertex(990, 1990);
+        walls.addPolylineVertex(995, 1995);
+        walls.endPolyline(false);
+
+        // Layer names and texts of different lengths exercise the padding of strings
+        GeometryGroup rooms = buffer.group("R\u00e4ume", 3);
+        rooms.addPoint(1001, 2001);
+        rooms.addTriangle(1000, 2000, 1001, 2000, 1000, 2001);
+        rooms.addText(1002, 2002, 2.5, 0.5, "B\u00fcro");
+        rooms.addText(1003, 2003, 1, 0, "WC");
+
+        // Empty groups are not written
+        buffer.group("Empty", 7);
+
+        GeometryBuffer read = roundTrip(buffer);
+
+        assertEquals(buffer.getOriginX(), read.getOriginX());
+        assertEquals(buffer.getOriginY(), read.getOriginY());
+        assertEquals(buffer.getMinX(), read.getMinX());
+        assertEquals(buffer.getMinY(), read.getMinY());
+        assertEquals(buffer.getMaxX(), read.getMaxX());
+        assertEquals(buffer.getMaxY(), read.getMaxY());
+
+        List<GeometryGroup> expectedGroups = new ArrayList<>(buffer.getGroups());
+        expectedGroups.removeIf(GeometryGroup::isEmpty);
+        assertEquals(expectedGroups.size(), read.getGroups().size());
+
+        Iterator<GeometryGroup> readGroups = read.getGroups().iterator();
+        for (GeometryGroup expected : expectedGroups) {
+            assertGroupEquals(expected, readGroups.next());
+        }
+    }
+
+    @Test
+    void readReturnsWrittenEmptyGeometry() throws IOException {
+        GeometryBuffer read = roundTrip(new GeometryBuffer());
+
+        assertTrue(read.isEmpty());
+        assertTrue(read.getGroups().isEmpty());
+    }
+
+    @Test
+    void readRejectsForeignData() {
+        byte[] data = "not a geometry".getBytes();
+
+        assertThrows(IOException.class, () -> GeometryBuffer.read(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    void readRejectsTruncatedData() throws IOException {
+        GeometryBuffer buffer = new GeometryBuffer();
+        buffer.group("Walls", 1).addLine(0, 0, 10, 10);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        byte[] data = out.toByteArray();
+
+        assertThrows(IOException.class, () -> GeometryBuffer.read(new ByteArrayInputStream(data, 0, data.length - 4)));
+    }
+
+    private static GeometryBuffer roundTrip(GeometryBuffer buffer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+
+        // All arrays are aligned to four bytes
+        assertEquals(0, out.size() % 4);
+
+        return GeometryBuffer.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertGroupEquals(GeometryGroup expected, GeometryGroup actual) {
+        assertEquals(expected.getLayer(), actual.getLayer());
+        assertEquals(expected.getColor(), actual.getColor());
+        assertArrayEquals(expected.getLines().toArray(), actual.getLines().toArray());
+        assertArrayEquals(expected.getPolylineOffsets().toArray(), actual.getPolylineOffsets().toArray());
+        assertArrayEquals(expected.getPolylineFlags().toArray(), actual.getPolylineFlags().toArray());
+        assertArrayEquals(expected.getPolylineVertices().toArray(), actual.getPolylineVertices().toArray());
+        assertArrayEquals(expected.getPoints().toArray(), actual.getPoints().toArray());
+        assertArrayEquals(expected.getTriangles().toArray(), actual.getTriangles().toArray());
+
+        assertEquals(expected.getTexts().size(), actual.getTexts().size());
+        for (int i = 0; i < expected.getTexts().size(); i++) {
+            GeometryText expectedText = expected.getTexts().get(i);
+            GeometryText actualText = actual.getTexts().get(i);
+
+            assertEquals(expectedText.getX(), actualText.getX());
+            assertEquals(expectedText.getY(), actualText.getY());
+            assertEquals(expectedText.getHeight(), actualText.getHeight());
+            assertEquals(expectedText.getRotation(), actualText.getRotation());
+            assertEquals(expectedText.getText(), actualText.getText());
+        }
+    }
+
+}
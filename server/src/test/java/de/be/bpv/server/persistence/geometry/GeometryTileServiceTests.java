@@ -0,0 +1,169 @@
+package de.be.bpv.server.persistence.geometry;
+
+import de.be.bpv.server.persistence.cad.CADFileDataReleasedEvent;
+import de.be.bpv.server.persistence.cad.CADFileMetadata;
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class GeometryTileServiceTests {
+
+    /**
+     * Hash of the content of the test CAD file.
+     */
+    private static final String CONTENT_HASH = "abc";
+
+    /**
+     * Name of the folder current tiles of the test CAD file are cached in.
+     */
+    private static final String TILE_FOLDER = CONTENT_HASH + "-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION;
+
+    /**
+     * Folder the tiles are cached in.
+     */
+    @TempDir
+    Path root;
+
+    /**
+     * Service providing the test plan as geometry.
+     */
+    private CADGeometryService cadGeometryService;
+
+    /**
+     * Repository referencing only the test CAD file.
+     */
+    private CADFileRepository cadFileRepository;
+
+    /**
+     * Test CAD file.
+     */
+    private CADFileMetadata cadFile;
+
+    /**
+     * Service under test.
+     */
+    private GeometryTileService geometryTileService;
+
+    @BeforeEach
+    void createService() throws IOException {
+        CADGeometry geometry = new CADGeometry();
+        geometry.setContentHash(CONTENT_HASH);
+        geometry.setGeometryHash("geometry");
+
+        cadGeometryService = mock(CADGeometryService.class);
+        when(cadGeometryService.getGeometry(any())).thenReturn(Optional.of(geometry));
+        when(cadGeometryService.readGeometry(geometry)).thenAnswer(invocation -> GeometryTilerTests.buildPlan());
+
+        cadFileRepository = mock(CADFileRepository.class);
+        when(cadFileRepository.countByContentHash(CONTENT_HASH)).thenReturn(1L);
+
+        cadFile = mock(CADFileMetadata.class);
+        when(cadFile.getContentHash()).thenReturn(CONTENT_HASH);
+
+        geometryTileService = new GeometryTileService(cadGeometryService, cadFileRepository, root.toString());
+    }
+
+    @Test
+    void describesTileSet() throws IOException {
+        GeometryBuffer plan = GeometryTilerTests.buildPlan();
+
+        GeometryTileSet tileSet = geometryTileService.getTileSet(cadFile).orElseThrow();
+
+        assertEquals(plan.getOriginX(), tileSet.getOriginX());
+        assertEquals(plan.getOriginY(), tileSet.getOriginY());
+        assertEquals(plan.getMinX(), tileSet.getMinX());
+        assertEquals(plan.getMinY(), tileSet.getMinY());
+        assertEquals(100, tileSet.getSize());
+    }
+
+    @Test
+    void findsNoTileOutsideQuadtree() throws IOException {
+        assertTrue(geometryTileService.getTile(cadFile, 1, 2, 0).isEmpty());
+        assertTrue(geometryTileService.getTile(cadFile, -1, 0, 0).isEmpty());
+        assertTrue(geometryTileService.getTile(cadFile, GeometryTiler.MAX_ZOOM + 1, 0, 0).isEmpty());
+
+        verifyNoInteractions(cadGeometryService);
+    }
+
+    @Test
+    void cutsTileOnceAndServesItFromCache() throws IOException {
+        Path tile = geometryTileService.getTile(cadFile, 1, 1, 0).orElseThrow();
+
+        assertEquals(root.resolve(TILE_FOLDER).resolve("1").resolve("1_0.bin"), tile);
+        GeometryBuffer read;
+        try (InputStream in = Files.newInputStream(tile)) {
+            read = GeometryBuffer.read(in);
+        }
+        GeometryBuffer expected = new GeometryTiler(GeometryTilerTests.buildPlan()).cut(1, 1, 0);
+        assertEquals(expected.getOriginX(), read.getOriginX());
+        assertArrayEquals(
+                GeometryTilerTests.group(expected, "Walls").getLines().toArray(),
+                GeometryTilerTests.group(read, "Walls").getLines().toArray()
+        );
+
+        assertEquals(tile, geometryTileService.getTile(cadFile, 1, 1, 0).orElseThrow());
+        verify(cadGeometryService, times(1)).getGeometry(cadFile);
+
+        // Other tiles of the same geometry are cut without reading the geometry again
+        geometryTileService.getTile(cadFile, 1, 0, 0).orElseThrow();
+        verify(cadGeometryService, times(1)).readGeometry(any());
+
+        try (Stream<Path> files = Files.list(tile.getParent())) {
+            assertEquals(Set.of("0_0.bin", "1_0.bin"), files.map(file -> file.getFileName().toString()).collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void sweepDeletesUnreferencedAndOutdatedTiles() throws IOException {
+        createTile(TILE_FOLDER);
+        createTile("unreferenced-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION);
+        createTile(CONTENT_HASH + "-g" + GeometryBuffer.FORMAT_VERSION + "-t" + (GeometryTiler.TILE_VERSION - 1));
+
+        geometryTileService.sweep();
+
+        assertEquals(Set.of(TILE_FOLDER), folderNames());
+    }
+
+    @Test
+    void deletesTilesOfReleasedData() throws IOException {
+        createTile(TILE_FOLDER);
+        createTile("abcd-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION);
+
+        geometryTileService.onDataReleased(new CADFileDataReleasedEvent(CONTENT_HASH));
+
+        assertEquals(Set.of("abcd-g" + GeometryBuffer.FORMAT_VERSION + "-t" + GeometryTiler.TILE_VERSION), folderNames());
+    }
+
+    private void createTile(String folder) throws IOException {
+        Path tile = root.resolve(folder).resolve("0").resolve("0_0.bin");
+        Files.createDirectories(tile.getParent());
+        Files.write(tile, new byte[]{1, 2, 3});
+    }
+
+    private Set<String> folderNames() throws IOException {
+        try (Stream<Path> folders = Files.list(root)) {
+            return folders.map(folder -> folder.getFileName().toString()).collect(Collectors.toSet());
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeometryTilerTests {
+
+    /**
+     * Geo-referenced offset of the test geometry, far away from the origin.
+     */
+    private static final double OFFSET_X = 3_500_000;
+    private static final double OFFSET_Y = 5_800_000;
+
+    @ParameterizedTest
+    @CsvSource({"0, 0, 0", "1, 1, 1", "1, 0, 1", "3, 7, 0", "20, 1048575, 1048575"})
+    void acceptsTilesWithinQuadtree(int z, int x, int y) {
+        assertTrue(GeometryTiler.isValid(z, x, y));
+    }
+
+    @ParameterizedTest
+    @CsvSource({"-1, 0, 0", "21, 0, 0", "0, 1, 0", "0, 0, 1", "1, 2, 0", "1, 0, 2", "3, 8, 0", "1, -1, 0", "1, 0, -1", "20, 1048576, 0"})
+    void rejectsTilesOutsideQuadtree(int z, int x, int y) {
+        assertFalse(GeometryTiler.isValid(z, x, y));
+        assertThrows(IllegalArgumentException.class, () -> new GeometryTiler(buildPlan()).cut(z, x, y));
+    }
+
+    @Test
+    void rootTileContainsAllGeometry() {
+        GeometryBuffer source = buildPlan();
+        GeometryTiler tiler = new GeometryTiler(source);
+
+        GeometryBuffer tile = tiler.cut(0, 0, 0);
+
+        assertEquals(100, tiler.getSize());
+        assertEquals(source.getOriginX(), tile.getOriginX());
+        assertEquals(source.getOriginY(), tile.getOriginY());
+        assertEquals(source.getMinX(), tile.getMinX());
+        assertEquals(source.getMinY(), tile.getMinY());
+        assertEquals(source.getMaxX(), tile.getMaxX());
+        assertEquals(source.getMaxY(), tile.getMaxY());
+
+        for (GeometryGroup expected : source.getGroups()) {
+            GeometryGroup actual = group(tile, expected.getLayer());
+            assertEquals(expected.getColor(), actual.getColor());
+            assertArrayEquals(expected.getLines().toArray(), actual.getLines().toArray());
+            assertArrayEquals(expected.getPolylineOffsets().toArray(), actual.getPolylineOffsets().toArray());
+            assertArrayEquals(expected.getPolylineFlags().toArray(), actual.getPolylineFlags().toArray());
+            assertArrayEquals(expected.getPolylineVertices().toArray(), actual.getPolylineVertices().toArray());
+            assertArrayEquals(expected.getPoints().toArray(), actual.getPoints().toArray());
+            assertArrayEquals(expected.getTriangles().toArray(), actual.getTriangles().toArray());
+            assertEquals(expected.getTexts(), actual.getTexts());
+        }
+    }
+
+    @Test
+    void includesUnclippedFeaturesInEveryTileTheyCross() {
+        GeometryTiler tiler = new GeometryTiler(buildPlan());
+
+        // Tiles of zoom level 1 are 50 by 50, y = 0 is the bottom row
+        GeometryBuffer bottomLeft = tiler.cut(1, 0, 0);
+        GeometryBuffer bottomRight = tiler.cut(1, 1, 0);
+        GeometryBuffer topLeft = tiler.cut(1, 0, 1);
+        GeometryBuffer topRight = tiler.cut(1, 1, 1);
+
+        assertArrayEquals(new float[]{10, 10, 40, 10, 20, 30, 80, 30}, group(bottomLeft, "Walls").getLines().toArray());
+        assertArrayEquals(new float[]{20, 30, 80, 30}, group(bottomRight, "Walls").getLines().toArray());
+        assertArrayEquals(new float[0], group(topLeft, "Walls").getLines().toArray());
+        assertArrayEquals(new float[0], group(topRight, "Walls").getLines().toArray());
+
+        float[] polyline = {25, 25, 75, 25, 75, 75, 25, 75};
+        for (GeometryBuffer tile : List.of(bottomLeft, bottomRight, topLeft, topRight)) {
+            assertArrayEquals(polyline, group(tile, "Walls").getPolylineVertices().toArray());
+            assertArrayEquals(new int[]{0}, group(tile, "Walls").getPolylineFlags().toArray());
+        }
+
+        // The point lies on the border between the upper tiles
+        assertArrayEquals(new float[0], group(bottomLeft, "Furniture").getPoints().toArray());
+        assertArrayEquals(new float[0], group(bottomRight, "Furniture").getPoints().toArray());
+        assertArrayEquals(new float[]{50, 60}, group(topLeft, "Furniture").getPoints().toArray());
+        assertArrayEquals(new float[]{50, 60}, group(topRight, "Furniture").getPoints().toArray());
+
+        assertArrayEquals(new float[0], group(topLeft, "Furniture").getTriangles().toArray());
+        assertArrayEquals(new float[]{60, 60, 90, 60, 60, 90}, group(topRight, "Furniture").getTriangles().toArray());
+        assertTrue(group(topLeft, "Furniture").getTexts().isEmpty());
+        assertEquals(1, group(topRight, "Furniture").getTexts().size());
+    }
+
+    @Test
+    void coversEveryLineAtEveryZoomLevel() {
+        GeometryBuffer source = buildPlan();
+        GeometryTiler tiler = new GeometryTiler(source);
+        Set<List<Float>> expected = segments(group(source, "Walls").getLines().toArray());
+
+        for (int z = 1; z <= 4; z++) {
+            Set<List<Float>> covered = new HashSet<>();
+            for (int x = 0; x < (1 << z); x++) {
+                for (int y = 0; y < (1 << z); y++) {
+                    covered.addAll(segments(group(tiler.cut(z, x, y), "Walls").getLines().toArray()));
+                }
+            }
+
+            assertEquals(expected, covered, "Zoom level " + z);
+        }
+    }
+
+    @Test
+    void dropsPrimitivesSmallerThanAPixel() {
+        GeometryBuffer source = buildPlan();
+        group(source, "Walls").addLine(OFFSET_X + 5, OFFSET_Y + 95, OFFSET_X + 5.1, OFFSET_Y + 95);
+        GeometryTiler tiler = new GeometryTiler(source);
+
+        // A pixel is 100 / 512 wide at zoom level 0 and 100 / 8 / 512 at zoom level 3
+        assertFalse(segments(group(tiler.cut(0, 0, 0), "Walls").getLines().toArray()).contains(List.of(5f, 95f, 5.1f, 95f)));
+        assertTrue(segments(group(tiler.cut(3, 0, 7), "Walls").getLines().toArray()).contains(List.of(5f, 95f, 5.1f, 95f)));
+    }
+
+    /**
+     * Build a plan of 100 by 100 with features inside single tiles and crossing tile borders of zoom level 1.
+     *
+     * @return the geometry of the plan
+     */
+    static GeometryBuffer buildPlan() {
+        GeometryBuffer buffer = new GeometryBuffer();
+
+        GeometryGroup outline = buffer.group("Outline", 7);
+        outline.beginPolyline();
+        outline.addPolylineVertex(OFFSET_X, OFFSET_Y);
+        outline.addPolylineVertex(OFFSET_X + 100, OFFSET_Y);
+        outline.addPolylineVertex(OFFSET_X + 100, OFFSET_Y + 100);
+        outline.addPolylineVertex(OFFSET_X, OFFSET_Y + 100);
+        outline.endPolyline(true);
+
+        GeometryGroup walls = buffer.group("Walls", 1);
+        walls.addLine(OFFSET_X + 10, OFFSET_Y + 10, OFFSET_X + 40, OFFSET_Y + 10);
+        walls.addLine(OFFSET_X + 20, OFFSET_Y + 30, OFFSET_X + 80, OFFSET_Y + 30);
+        walls.beginPolyline();
+        walls.addPolylineVertex(OFFSET_X + 25, OFFSET_Y + 25);
+        walls.addPolylineVertex(OFFSET_X + 75, OFFSET_Y + 25);
+        walls.addPolylineVertex(OFFSET_X + 75, OFFSET_Y + 75);
+        walls.addPolylineVertex(OFFSET_X + 25, OFFSET_Y + 75);
+        walls.endPolyline(false);
+
+        GeometryGroup furniture = buffer.group("Furniture", 3);
+        furniture.addPoint(OFFSET_X + 50, OFFSET_Y + 60);
+        furniture.addTriangle(OFFSET_X + 60, OFFSET_Y + 60, OFFSET_X + 90, OFFSET_Y + 60, OFFSET_X + 60, OFFSET_Y + 90);
+        furniture.addText(OFFSET_X + 70, OFFSET_Y + 80, 5, 0, "Desk");
+
+        return buffer;
+    }
+
+    private static Set<List<Float>> segments(float[] lines) {
+        Set<List<Float>> segments = new HashSet<>();
+        for (int i = 0; i + 3 < lines.length; i += 4) {
+            List<Float> segment = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                segment.add(lines[i + j]);
+            }
+            segments.add(segment);
+        }
+
+        return segments;
+    }
+
+    static GeometryGroup group(GeometryBuffer buffer, String layer) {
+        return buffer.getGroups().stream()
+                .filter(group -> group.getLayer().equals(layer))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No group on layer " + layer));
+    }
+
+}
@@ -0,0 +1,175 @@
+package de.be.bpv.server.persistence.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoomPolygonIndexTests {
+
+    /**
+     * Geo-referenced offset of the test geometry, far away from the origin.
+     */
+    private static final double OFFSET_X = 3_500_000;
+    private static final double OFFSET_Y = 5_800_000;
+
+    /**
+     * IDs of the polygons of the floor plan built by {@link #buildFloor()}.
+     */
+    private static final int FLOOR = 0;
+    private static final int ROOM_A = 1;
+    private static final int ROOM_B = 2;
+
+    @Test
+    void findsRoomContainingPoint() {
+        RoomPolygonIndex index = RoomPolygonIndex.build(buildFloor());
+
+        assertEquals(3, index.size());
+        assertEquals(ROOM_A, find(index, 5, 5));
+        assertEquals(ROOM_B, find(index, 15, 5));
+    }
+
+    @Test
+    void findsSmallestOfNestedRooms() {
+        RoomPolygonIndex index = RoomPolygonIndex.build(buildFloor());
+
+        // Inside both a room and the floor outline resolves to the room, elsewhere to the floor
+        assertEquals(ROOM_A, find(index, 1, 9));
+        assertEquals(FLOOR, find(index, 30, 15));
+        assertEquals(FLOOR, find(index, 5, 15));
+    }
+
+    @Test
+    void findsExactlyOneRoomForPointsOnEdgesAndVertices() {
+        RoomPolygonIndex index = RoomPolygonIndex.build(buildFloor());
+
+        // On the wall shared by both rooms and on their shared vertices
+        for (double[] point : new double[][]{{10, 5}, {10, 0}, {10, 10}, {0, 0}}) {
+            int id = find(index, point[0], point[1]);
+            assertTrue(id == ROOM_A || id == ROOM_B || id == FLOOR, "No room found at " + point[0] + ", " + point[1]);
+        }
+
+        // On the upper wall of room A, which lies within the floor outline
+        int id = find(index, 5, 10);
+        assertTrue(id == ROOM_A || id == FLOOR);
+    }
+
+    @Test
+    void findsNoRoomOutsideAllPolygons() {
+        RoomPolygonIndex index = RoomPolygonIndex.build(buildFloor());
+
+        assertEquals(-1, find(index, -5, 5));
+        assertEquals(-1, find(index, 5, -5));
+        assertEquals(-1, find(index, 45, 5));
+        assertEquals(-1, find(index, 100, 100));
+        assertEquals(-1, index.find(0, 0));
+    }
+
+    @Test
+    void findsNoRoomInEmptyIndex() {
+        RoomPolygonIndex index = RoomPolygonIndex.build(new GeometryBuffer());
+
+        assertEquals(0, index.size());
+        assertEquals(-1, index.find(0, 0));
+    }
+
+    @Test
+    void indexesOnlyClosedPolygons() {
+        GeometryBuffer buffer = new GeometryBuffer();
+        GeometryGroup group = buffer.group("Rooms", 1);
+        addRectangle(group, 0, 0, 10, 10, false);
+        group.beginPolyline();
+        group.addPolylineVertex(OFFSET_X, OFFSET_Y);
+        group.addPolylineVertex(OFFSET_X + 10, OFFSET_Y);
+        group.endPolyline(true);
+        addRectangle(group, 20, 0, 30, 10, true);
+
+        RoomPolygonIndex index = RoomPolygonIndex.build(buffer);
+
+        assertEquals(1, index.size());
+        assertEquals(-1, find(index, 5, 5));
+        assertEquals(0, find(index, 25, 5));
+    }
+
+    @Test
+    void findsRoomsInFinelyBucketedGrid() {
+        GeometryBuffer buffer = new GeometryBuffer();
+        GeometryGroup group = buffer.group("Rooms", 1);
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                addRectangle(group, column * 3, row * 2, column * 3 + 3, row * 2 + 2, true);
+            }
+        }
+
+        RoomPolygonIndex index = RoomPolygonIndex.build(buffer);
+
+        for (int row = 0; row < 20; row++) {
+            for (int column = 0; column < 20; column++) {
+                assertEquals(row * 20 + column, find(index, column * 3 + 1.5, row * 2 + 1));
+            }
+        }
+    }
+
+    @Test
+    void readReturnsWrittenIndex() throws IOException {
+        RoomPolygonIndex index = RoomPolygonIndex.build(buildFloor());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.writeTo(out);
+        RoomPolygonIndex read = RoomPolygonIndex.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(index.size(), read.size());
+        for (int id = 0; id < index.size(); id++) {
+            assertArrayEquals(index.getVertices(id), read.getVertices(id));
+        }
+        for (double x = -2.5; x <= 42.5; x += 2.5) {
+            for (double y = -2.5; y <= 22.5; y += 2.5) {
+                assertEquals(find(index, x, y), find(read, x, y));
+            }
+        }
+    }
+
+    @Test
+    void readRejectsForeignData() {
+        byte[] data = "not an index".getBytes();
+
+        assertThrows(IOException.class, () -> RoomPolygonIndex.read(new ByteArrayInputStream(data)));
+    }
+
+    /**
+     * Build a floor outline of 40 by 20 containing two adjacent rooms of 10 by 10 sharing a wall.
+     *
+     * @return the geometry of the floor
+     */
+    private static GeometryBuffer buildFloor() {
+        GeometryBuffer buffer = new GeometryBuffer();
+
+        addRectangle(buffer.group("Outline", 1), 0, 0, 40, 20, true);
+
+        GeometryGroup rooms = buffer.group("Rooms", 3);
+        addRectangle(rooms, 0, 0, 10, 10, true);
+        addRectangle(rooms, 10, 0, 20, 10, true);
+
+        return buffer;
+    }
+
+    private static void addRectangle(GeometryGroup group, double minX, double minY, double maxX, double maxY, boolean closed) {
+        group.beginPolyline();
+        group.addPolylineVertex(OFFSET_X + minX, OFFSET_Y + minY);
+        group.addPolylineVertex(OFFSET_X + maxX, OFFSET_Y + minY);
+        group.addPolylineVertex(OFFSET_X + maxX, OFFSET_Y + maxY);
+        group.addPolylineVertex(OFFSET_X + minX, OFFSET_Y + maxY);
+        group.endPolyline(closed);
+    }
+
+    private static int find(RoomPolygonIndex index, double x, double y) {
+        return index.find(OFFSET_X + x, OFFSET_Y + y);
+    }
+
+}
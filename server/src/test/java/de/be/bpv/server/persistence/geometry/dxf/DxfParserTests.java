@@ -0,0 +1,92 @@
+package de.be.bpv.server.persistence.geometry.dxf;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DxfParserTests {
+
+    @Test
+    void parsesTablesBlocksAndEntities() throws IOException {
+        List<DxfEntity> entities = new ArrayList<>();
+
+        DxfDocument document;
+        try (InputStream in = getClass().getResourceAsStream("/de/be/bpv/server/persistence/geometry/sample.dxf")) {
+            document = new DxfParser().parse(in, Charset.forName("windows-1252"), (entity, doc) -> entities.add(entity));
+        }
+
+        assertEquals(1, document.getLayerColor("Walls"));
+        assertEquals(3, document.getLayerColor("Rooms"));
+        assertEquals(7, document.getLayerColor("Unknown"));
+
+        DxfBlock door = document.getBlock("DOOR");
+        assertNotNull(door);
+        assertEquals(1, door.getEntities().size());
+        assertEquals("LINE", door.getEntities().get(0).getType());
+
+        assertEquals(List.of("LINE", "LWPOLYLINE", "ARC", "INSERT", "TEXT"),
+                entities.stream().map(DxfEntity::getType).collect(Collectors.toList()));
+
+        DxfEntity polyline = entities.get(1);
+        assertEquals(3, polyline.getDoubles(10).length);
+        assertEquals(1.0, polyline.getDouble(42, 0));
+
+        assertEquals("B\u00fcro \u00c4", entities.get(4).getString(1));
+    }
+
+    @Test
+    void passesPolylineVerticesAsChildren() throws IOException {
+        String dxf = String.join("\n",
+                "0", "SECTION", "2", "ENTITIES",
+                "0", "POLYLINE", "8", "Walls", "66", "1", "70", "1",
+                "0", "VERTEX", "10", "0.0", "20", "0.0",
+                "0", "VERTEX", "10", "1.0", "20", "0.0",
+                "0", "VERTEX", "10", "1.0", "20", "1.0",
+                "0", "SEQEND",
+                "0", "LINE", "10", "0.0", "20", "0.0", "11", "1.0", "21", "1.0",
+                "0", "ENDSEC", "0", "EOF", "");
+        List<DxfEntity> entities = parse(dxf);
+
+        assertEquals(2, entities.size());
+        assertEquals("POLYLINE", entities.get(0).getType());
+        assertEquals(3, entities.get(0).getChildren().size());
+        assertEquals("LINE", entities.get(1).getType());
+    }
+
+    @Test
+    void rejectsInvalidGroupCode() {
+        String dxf = String.join("\n", "0", "SECTION", "2", "ENTITIES", "zero", "LINE", "");
+
+        assertThrows(DxfFormatException.class, () -> parse(dxf));
+    }
+
+    @Test
+    void rejectsBinaryDxf() {
+        String dxf = "AutoCAD Binary DXF\r\n\u001a\u0000";
+
+        assertThrows(DxfFormatException.class, () -> parse(dxf));
+    }
+
+    private static List<DxfEntity> parse(String dxf) throws IOException {
+        List<DxfEntity> entities = new ArrayList<>();
+        new DxfParser().parse(
+                new ByteArrayInputStream(dxf.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8,
+                (entity, document) -> entities.add(entity)
+        );
+
+        return entities;
+    }
+
+}
@@ -0,0 +1,226 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import de.be.bpv.benchmark.roommapping.LegacyRoomMappingCollection;
+import de.be.bpv.server.BuildingPlanViewerServerApplication;
+import de.be.bpv.server.persistence.roommapping.csv.RoomMappingCSVFormat;
+import de.be.bpv.server.persistence.roommapping.csv.RoomMappingImportService;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark of the rows per second written when persisting room mappings.
+ * Run with {@code gradle :server:benchmark}, it is excluded from the regular test run.
+ * The entities with the old ID strategy are only registered in the context of the benchmark.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class RoomMappingInsertBenchmark {
+
+    /**
+     * Logger of the benchmark.
+     */
+    private static final Logger LOGGER = Logger.getLogger(RoomMappingInsertBenchmark.class.getName());
+
+    /**
+     * Number of mappings per collection.
+     */
+    private static final int MAPPINGS = 20000;
+
+    /**
+     * Number of vertices of every mapping.
+     */
+    private static final int VERTICES = 4;
+
+    /**
+     * Number of runs to warm up with before measuring.
+     */
+    private static final int WARM_UP_RUNS = 2;
+
+    /**
+     * Number of measured runs.
+     */
+    private static final int RUNS = 5;
+
+    @Autowired
+    private RoomMappingRepository roomMappingRepository;
+
+    @Autowired
+    private RoomMappingImportService roomMappingImportService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void saveUnbatched() {
+        // Statement per row and a hibernate_sequence call per ID, as before batching and pooled IDs were configured
+        report("JPA save, unbatched with AUTO IDs", () -> transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+            entityManager.persist(new LegacyRoomMappingCollection(createCollection()));
+        }), this::deleteLegacyCollections);
+    }
+
+    @Test
+    void saveUnbatchedPooled() {
+        // Statement per row with pooled IDs, measuring the effect of batching alone
+        report("JPA save, unbatched with pooled IDs", () -> transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(1);
+            roomMappingRepository.save(createCollection());
+        }));
+    }
+
+    @Test
+    void saveBatched() {
+        report("JPA save, batched", () -> transactionTemplate.executeWithoutResult(status ->
+                roomMappingRepository.save(createCollection())
+        ));
+    }
+
+    @Test
+    void importCSV() {
+        String csv = createCSV();
+        report("CSV import", () -> {
+            try {
+                roomMappingImportService.importCSV(createCollection(0), new StringReader(csv), new RoomMappingCSVFormat());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Measure the passed insert run and log the rows written per second.
+     *
+     * @param name of the measured variant
+     * @param run  inserting one collection
+     */
+    private void report(String name, Runnable run) {
+        report(name, run, roomMappingRepository::deleteAll);
+    }
+
+    /**
+     * Measure the passed insert run, log the rows written per second and delete the written rows.
+     *
+     * @param name    of the measured variant
+     * @param run     inserting one collection
+     * @param cleanUp deleting the inserted collections
+     */
+    private void report(String name, Runnable run, Runnable cleanUp) {
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            run.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            run.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Every mapping is one row and so is every vertex
+        long rows = (long) RUNS * MAPPINGS * (1 + VERTICES);
+        LOGGER.info(String.format("%s: %.0f rows/s (%d rows in %.2f s)", name, rows / seconds, rows, seconds));
+
+        cleanUp.run();
+    }
+
+    /**
+     * Delete all collections written with the old ID strategy.
+     */
+    private void deleteLegacyCollections() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM legacy_room_mapping_vertices").executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM legacy_room_mapping").executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM legacy_room_mapping_collection").executeUpdate();
+        });
+    }
+
+    /**
+     * Create a collection with {@link #MAPPINGS} mappings.
+     *
+     * @return the collection
+     */
+    private static RoomMappingCollection createCollection() {
+        return createCollection(MAPPINGS);
+    }
+
+    /**
+     * Create a collection with the passed number of mappings.
+     *
+     * @param count of mappings to create
+     * @return the collection
+     */
+    private static RoomMappingCollection createCollection(int count) {
+        RoomMappingCollection collection = new RoomMappingCollection();
+        collection.setName("benchmark");
+        collection.setCadFileID(1L);
+
+        List<RoomMapping> mappings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            RoomMapping mapping = new RoomMapping();
+            mapping.setRoomName("Room_" + i);
+            mapping.setCategory(i % 10);
+            mapping.setDescription("Bedroom");
+            mapping.setCollection(collection);
+
+            List<RoomMappingVertex> vertices = new ArrayList<>(VERTICES);
+            for (int v = 0; v < VERTICES; v++) {
+                RoomMappingVertex vertex = new RoomMappingVertex();
+                vertex.setX(i);
+                vertex.setY(v);
+                vertices.add(vertex);
+            }
+            mapping.setVertices(vertices);
+
+            mappings.add(mapping);
+        }
+        collection.setMappings(mappings);
+
+        return collection;
+    }
+
+    /**
+     * Create a CSV file with the same mappings as {@link #createCollection()}.
+     *
+     * @return the CSV file
+     */
+    private static String createCSV() {
+        StringBuilder csv = new StringBuilder("RoomNumber,Cluster,MappingVertex,Description,Polygon\n");
+        for (int i = 0; i < MAPPINGS; i++) {
+            csv.append("Room_").append(i).append(',').append(i % 10).append(",\"(").append(i).append(", 0)\",Bedroom,\"[");
+            for (int v = 0; v < VERTICES; v++) {
+                if (v > 0) {
+                    csv.append(", ");
+                }
+                csv.append('(').append(i).append(", ").append(v).append(')');
+            }
+            csv.append("]\"\n");
+        }
+
+        return csv.toString();
+    }
+
+    /**
+     * Configuration adding the entities with the old ID strategy to the entities of the application.
+     */
+    @TestConfiguration
+    @EntityScan(basePackageClasses = {BuildingPlanViewerServerApplication.class, LegacyRoomMappingCollection.class})
+    static class LegacyEntityConfiguration {
+    }
+
+}
@@ -0,0 +1,100 @@
+package de.be.bpv.server.persistence.roommapping;
+
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class RoomMappingRepositoryTests {
+
+    /**
+     * Number of mappings in the test collection.
+     */
+    private static final int MAPPINGS = 2000;
+
+    /**
+     * Number of vertices of every mapping.
+     */
+    private static final int VERTICES = 4;
+
+    @Autowired
+    private RoomMappingRepository roomMappingRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * ID of the saved test collection.
+     */
+    private long collectionID;
+
+    @BeforeEach
+    void saveCollection() {
+        RoomMappingCollection collection = new RoomMappingCollection();
+        collection.setName("test");
+        collection.setCadFileID(1L);
+
+        List<RoomMapping> mappings = new ArrayList<>(MAPPINGS);
+        for (int i = 0; i < MAPPINGS; i++) {
+            RoomMapping mapping = new RoomMapping();
+            mapping.setRoomName("Room " + i);
+            mapping.setCategory(i % 10);
+            mapping.setCollection(collection);
+
+            List<RoomMappingVertex> vertices = new ArrayList<>(VERTICES);
+            for (int v = 0; v < VERTICES; v++) {
+                RoomMappingVertex vertex = new RoomMappingVertex();
+                vertex.setX(i);
+                vertex.setY(v);
+                vertices.add(vertex);
+            }
+            mapping.setVertices(vertices);
+
+            mappings.add(mapping);
+        }
+        collection.setMappings(mappings);
+
+        collectionID = roomMappingRepository.save(collection).getId();
+    }
+
+    @AfterEach
+    void deleteCollection() {
+        roomMappingRepository.deleteById(collectionID);
+    }
+
+    @Test
+    void findWithMappingsByIdTakesConstantQueryCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        RoomMappingCollection collection = roomMappingRepository.findWithMappingsById(collectionID).orElseThrow();
+
+        // Everything serialized must be loaded, the collection is detached at this point
+        int vertexCount = 0;
+        for (RoomMapping mapping : collection.getMappings()) {
+            vertexCount += mapping.getVertices().size();
+        }
+
+        assertEquals(MAPPINGS, collection.getMappings().size());
+        assertEquals(MAPPINGS * VERTICES, vertexCount);
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findWithMappingsByIdOfMissingCollection() {
+        assertTrue(roomMappingRepository.findWithMappingsById(-1).isEmpty());
+    }
+
+}
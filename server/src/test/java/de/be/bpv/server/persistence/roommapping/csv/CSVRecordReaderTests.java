@@ -0,0 +1,98 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CSVRecordReaderTests {
+
+    @Test
+    void readsPlainRecords() throws IOException {
+        CSVRecordReader reader = reader("a,b,c\n1,,3\n");
+
+        assertEquals(List.of("a", "b", "c"), reader.next());
+        assertEquals(List.of("1", "", "3"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsDelimitersInQuotedFields() throws IOException {
+        CSVRecordReader reader = reader("Room_1,\"(95, 763)\",\"Bedroom, large\"");
+
+        assertEquals(List.of("Room_1", "(95, 763)", "Bedroom, large"), reader.next());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsEscapedQuotes() throws IOException {
+        CSVRecordReader reader = reader("\"The \"\"blue\"\" room\",\"\"\"\",\"\"\n");
+
+        assertEquals(List.of("The \"blue\" room", "\"", ""), reader.next());
+    }
+
+    @Test
+    void readsCRLFLineBreaks() throws IOException {
+        CSVRecordReader reader = reader("a,b\r\n1,2\r\n\r\n3,4\r\n");
+
+        assertEquals(List.of("a", "b"), reader.next());
+        assertEquals(List.of("1", "2"), reader.next());
+        assertEquals(List.of("3", "4"), reader.next());
+        assertEquals(4, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsLineBreaksInQuotedFields() throws IOException {
+        CSVRecordReader reader = reader("a,\"first\r\nsecond\nthird\"\nb,c\n");
+
+        assertEquals(List.of("a", "first\r\nsecond\nthird"), reader.next());
+        assertEquals(1, reader.getRecordLine());
+        assertEquals(List.of("b", "c"), reader.next());
+        assertEquals(4, reader.getRecordLine());
+    }
+
+    @Test
+    void skipsByteOrderMark() throws IOException {
+        CSVRecordReader reader = reader("\uFEFFRoomNumber,Cluster\n");
+
+        assertEquals(List.of("RoomNumber", "Cluster"), reader.next());
+    }
+
+    @Test
+    void skipsEmptyLines() throws IOException {
+        CSVRecordReader reader = reader("\n\na\n\n\nb");
+
+        assertEquals(List.of("a"), reader.next());
+        assertEquals(3, reader.getRecordLine());
+        assertEquals(List.of("b"), reader.next());
+        assertEquals(6, reader.getRecordLine());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsOtherDelimiters() throws IOException {
+        CSVRecordReader reader = new CSVRecordReader(new StringReader("a;\"b;c\";d,e"), ';');
+
+        assertEquals(List.of("a", "b;c", "d,e"), reader.next());
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedField() throws IOException {
+        CSVRecordReader reader = reader("a,b\n\"c,d\ne,f\n");
+
+        assertEquals(List.of("a", "b"), reader.next());
+        CSVFormatException e = assertThrows(CSVFormatException.class, reader::next);
+        assertEquals(2, e.getLine());
+    }
+
+    private static CSVRecordReader reader(String csv) {
+        return new CSVRecordReader(new StringReader(csv), ',');
+    }
+
+}
@@ -0,0 +1,177 @@
+package de.be.bpv.server.persistence.roommapping.csv;
+
+import de.be.bpv.server.persistence.cad.CADFile;
+import de.be.bpv.server.persistence.cad.CADFileRepository;
+import de.be.bpv.server.persistence.cad.CADFileType;
+import de.be.bpv.server.persistence.roommapping.RoomMapping;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RoomMappingImportServiceTests {
+
+    @Autowired
+    private RoomMappingImportService roomMappingImportService;
+
+    @Autowired
+    private RoomMappingRepository roomMappingRepository;
+
+    @Autowired
+    private CADFileRepository cadFileRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * ID of the CAD file the imported mappings belong to.
+     */
+    private long cadFileID;
+
+    @BeforeEach
+    void saveCADFile() {
+        CADFile cadFile = new CADFile();
+        cadFile.setName("plan.dxf");
+        cadFile.setType(CADFileType.DXF);
+
+        cadFileID = cadFileRepository.save(cadFile).getId();
+    }
+
+    @AfterEach
+    void deleteMappingsAndCADFile() {
+        roomMappingRepository.deleteAll(roomMappingRepository.findAllByCadFileID(cadFileID));
+        cadFileRepository.deleteById(cadFileID);
+    }
+
+    @Test
+    void importsQuotedFieldsWithByteOrderMarkAndCRLF() throws IOException {
+        String csv = "\uFEFFRoomNumber,Cluster,MappingVertex,Description,Polygon\r\n"
+                + "Room_1,1,\"(95, 763)\",\"Bedroom, large\",\"[(0, 0), (4, 0), (4, 3), (0, 3)]\"\r\n"
+                + "\r\n"
+                + "\"Room \"\"2\"\"\", 2 ,,\"Two\r\nlines\",\r\n";
+
+        RoomMappingCollection collection = importCSV(csv);
+
+        List<RoomMapping> mappings = roomMappingRepository.findWithMappingsById(collection.getId())
+                .orElseThrow()
+                .getMappings();
+        assertEquals(2, mappings.size());
+
+        RoomMapping first = mappingNamed(mappings, "Room_1");
+        assertEquals(1, first.getCategory());
+        assertEquals("Bedroom, large", first.getDescription());
+        assertEquals(95, first.getMappingVertex().getX());
+        assertEquals(763, first.getMappingVertex().getY());
+        assertEquals(4, first.getVertices().size());
+        assertEquals(Double.valueOf(12), first.getArea());
+
+        RoomMapping second = mappingNamed(mappings, "Room \"2\"");
+        assertEquals(2, second.getCategory());
+        assertEquals("Two\r\nlines", second.getDescription());
+        assertNull(second.getMappingVertex());
+        assertTrue(second.getVertices().isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "RoomNumber,Cluster\nRoom_1,\"1\nRoom_2,2\n",
+            "RoomNumber,Cluster\nRoom_1,one\n",
+            "RoomNumber,Cluster\n,1\n",
+            "RoomNumber,Category\nRoom_1,1\n",
+            "RoomNumber,Cluster,MappingVertex\nRoom_1,1,\"(95; 763)\"\n",
+            "RoomNumber,Cluster,MappingVertex\nRoom_1,1,\"(95, 763), (1, 2)\"\n",
+            "RoomNumber,Cluster,Polygon\nRoom_1,1,\"[(0, 0), (x, 0)]\"\n",
+            ""
+    })
+    void rejectsMalformedFilesWithoutCreatingMapping(String csv) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "mapping.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(multipart("/api/room-mapping/import")
+                .file(file)
+                .param("cadFileID", Long.toString(cadFileID)))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(startsWith("Line ")));
+
+        assertTrue(roomMappingRepository.findAllByCadFileID(cadFileID).isEmpty());
+    }
+
+    @Test
+    void importedIDsDoNotCollideWithSavedIDs() throws IOException {
+        List<Long> collectionIDs = new ArrayList<>();
+        collectionIDs.add(saveCollection(3).getId());
+        collectionIDs.add(importCSV("RoomNumber,Cluster\nA,1\nB,1\nC,1\n").getId());
+        collectionIDs.add(saveCollection(3).getId());
+        collectionIDs.add(importCSV("RoomNumber,Cluster\nD,1\nE,1\nF,1\n").getId());
+
+        Set<Long> mappingIDs = new HashSet<>();
+        int mappingCount = 0;
+        for (long collectionID : collectionIDs) {
+            for (RoomMapping mapping : roomMappingRepository.findWithMappingsById(collectionID).orElseThrow().getMappings()) {
+                mappingIDs.add(mapping.getId());
+                mappingCount++;
+            }
+        }
+
+        assertEquals(12, mappingCount);
+        assertEquals(12, mappingIDs.size());
+    }
+
+    private RoomMappingCollection importCSV(String csv) throws IOException {
+        RoomMappingCollection collection = new RoomMappingCollection();
+        collection.setName("imported");
+        collection.setCadFileID(cadFileID);
+
+        return roomMappingImportService.importCSV(collection, new StringReader(csv), new RoomMappingCSVFormat());
+    }
+
+    private RoomMappingCollection saveCollection(int mappingCount) {
+        RoomMappingCollection collection = new RoomMappingCollection();
+        collection.setName("saved");
+        collection.setCadFileID(cadFileID);
+
+        List<RoomMapping> mappings = new ArrayList<>();
+        for (int i = 0; i < mappingCount; i++) {
+            RoomMapping mapping = new RoomMapping();
+            mapping.setRoomName("Saved " + i);
+            mapping.setCollection(collection);
+            mappings.add(mapping);
+        }
+        collection.setMappings(mappings);
+
+        return roomMappingRepository.save(collection);
+    }
+
+    private static RoomMapping mappingNamed(List<RoomMapping> mappings, String roomName) {
+        return mappings.stream()
+                .filter(mapping -> mapping.getRoomName().equals(roomName))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No mapping for " + roomName));
+    }
+
+}
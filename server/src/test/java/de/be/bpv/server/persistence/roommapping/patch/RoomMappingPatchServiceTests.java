@@ -0,0 +1,244 @@
+package de.be.bpv.server.persistence.roommapping.patch;
+
+import de.be.bpv.server.persistence.roommapping.RoomMapping;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import de.be.bpv.server.persistence.roommapping.vertex.RoomMappingVertex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RoomMappingPatchServiceTests {
+
+    @Autowired
+    private RoomMappingPatchService roomMappingPatchService;
+
+    @Autowired
+    private RoomMappingRepository roomMappingRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * ID of the saved test collection.
+     */
+    private long collectionID;
+
+    @BeforeEach
+    void saveCollection() {
+        RoomMappingCollection collection = new RoomMappingCollection();
+        collection.setName("test");
+        collection.setCadFileID(1L);
+
+        // Room names are not unique, room C is mapped twice
+        List<RoomMapping> mappings = new ArrayList<>();
+        mappings.add(mapping(collection, "A", 1, "Office"));
+        mappings.add(mapping(collection, "B", 2, "Kitchen"));
+        mappings.add(mapping(collection, "C", 3, "Corridor"));
+        mappings.add(mapping(collection, "C", 3, "Corridor"));
+        collection.setMappings(mappings);
+
+        collectionID = roomMappingRepository.save(collection).getId();
+    }
+
+    @AfterEach
+    void deleteCollection() {
+        roomMappingRepository.deleteById(collectionID);
+    }
+
+    @Test
+    void addsUpdatesAndDeletesRoomsByName() {
+        RoomMappingOperation add = operation(RoomMappingOperationType.ADD, "D");
+        add.setCategory(4);
+        add.setVertices(List.of(vertex(0, 0), vertex(2, 0), vertex(2, 2)));
+        RoomMappingOperation update = operation(RoomMappingOperationType.UPDATE, "A");
+        update.setCategory(5);
+        RoomMappingOperation delete = operation(RoomMappingOperationType.DELETE, "B");
+
+        roomMappingPatchService.apply(load(), List.of(add, update, delete));
+
+        List<RoomMapping> mappings = loadMappings();
+        assertEquals(List.of("A", "C", "C", "D"), roomNames(mappings));
+
+        RoomMapping a = mappingNamed(mappings, "A");
+        assertEquals(5, a.getCategory());
+        assertEquals("Office", a.getDescription());
+
+        RoomMapping d = mappingNamed(mappings, "D");
+        assertEquals(4, d.getCategory());
+        assertEquals(3, d.getVertices().size());
+        assertEquals(Double.valueOf(2), d.getArea());
+    }
+
+    @Test
+    void updatesAndDeletesAllMappingsOfRoom() {
+        RoomMappingOperation update = operation(RoomMappingOperationType.UPDATE, "C");
+        update.setDescription("Hallway");
+
+        roomMappingPatchService.apply(load(), List.of(update));
+
+        List<RoomMapping> mappings = loadMappings();
+        assertEquals(List.of("Hallway", "Hallway"), mappings.stream()
+                .filter(mapping -> mapping.getRoomName().equals("C"))
+                .map(RoomMapping::getDescription)
+                .collect(Collectors.toList()));
+
+        roomMappingPatchService.apply(load(), List.of(operation(RoomMappingOperationType.DELETE, "C")));
+
+        assertEquals(List.of("A", "B"), roomNames(loadMappings()));
+    }
+
+    @Test
+    void rejectsAddOfMappedRoom() {
+        assertThrows(RoomMappingPatchConflictException.class, () -> roomMappingPatchService.apply(
+                load(),
+                List.of(operation(RoomMappingOperationType.ADD, "A"))
+        ));
+
+        // Rooms added earlier in the same patch are mapped as well
+        assertThrows(RoomMappingPatchConflictException.class, () -> roomMappingPatchService.apply(
+                load(),
+                List.of(operation(RoomMappingOperationType.ADD, "D"), operation(RoomMappingOperationType.ADD, "D"))
+        ));
+
+        assertEquals(List.of("A", "B", "C", "C"), roomNames(loadMappings()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = RoomMappingOperationType.class, names = {"UPDATE", "DELETE"})
+    void rejectsChangeOfUnmappedRoom(RoomMappingOperationType type) {
+        assertThrows(RoomMappingPatchConflictException.class, () -> roomMappingPatchService.apply(
+                load(),
+                List.of(operation(type, "Z"))
+        ));
+
+        // Rooms deleted earlier in the same patch are not mapped anymore
+        assertThrows(RoomMappingPatchConflictException.class, () -> roomMappingPatchService.apply(
+                load(),
+                List.of(operation(RoomMappingOperationType.DELETE, "A"), operation(type, "A"))
+        ));
+
+        assertEquals(List.of("A", "B", "C", "C"), roomNames(loadMappings()));
+    }
+
+    @Test
+    void appliesNothingIfAnyOperationConflicts() {
+        long version = load().getVersion();
+
+        RoomMappingOperation update = operation(RoomMappingOperationType.UPDATE, "A");
+        update.setCategory(9);
+
+        assertThrows(RoomMappingPatchConflictException.class, () -> roomMappingPatchService.apply(load(), List.of(
+                operation(RoomMappingOperationType.ADD, "D"),
+                update,
+                operation(RoomMappingOperationType.DELETE, "B"),
+                operation(RoomMappingOperationType.UPDATE, "Z")
+        )));
+
+        List<RoomMapping> mappings = loadMappings();
+        assertEquals(List.of("A", "B", "C", "C"), roomNames(mappings));
+        assertEquals(1, mappingNamed(mappings, "A").getCategory());
+        assertEquals(version, load().getVersion());
+    }
+
+    @Test
+    void incrementsVersion() {
+        long version = load().getVersion();
+
+        RoomMappingCollection patched = roomMappingPatchService.apply(load(), List.of(operation(RoomMappingOperationType.DELETE, "B")));
+
+        assertEquals(version + 1, patched.getVersion());
+        assertEquals(version + 1, roomMappingRepository.findVersionById(collectionID).orElseThrow());
+    }
+
+    @Test
+    void patchEndpointAnswersVersionAndConflicts() throws Exception {
+        long version = load().getVersion();
+
+        mockMvc.perform(patch("/api/room-mapping/{id}", collectionID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"version\": " + version + ", \"operations\": [{\"op\": \"ADD\", \"roomName\": \"D\", \"category\": 4}]}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + (version + 1) + "\""));
+
+        mockMvc.perform(patch("/api/room-mapping/{id}", collectionID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\": [{\"op\": \"ADD\", \"roomName\": \"A\"}]}"))
+                .andExpect(status().isConflict())
+                .andExpect(content().string(containsString("'A'")));
+
+        mockMvc.perform(patch("/api/room-mapping/{id}", collectionID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\": [{\"op\": \"DELETE\", \"roomName\": \"Z\"}]}"))
+                .andExpect(status().isConflict());
+
+        assertEquals(version + 1, load().getVersion());
+    }
+
+    private RoomMappingCollection load() {
+        return roomMappingRepository.findById(collectionID).orElseThrow();
+    }
+
+    private List<RoomMapping> loadMappings() {
+        return roomMappingRepository.findWithMappingsById(collectionID).orElseThrow().getMappings();
+    }
+
+    private static List<String> roomNames(List<RoomMapping> mappings) {
+        return mappings.stream().map(RoomMapping::getRoomName).sorted().collect(Collectors.toList());
+    }
+
+    private static RoomMapping mappingNamed(List<RoomMapping> mappings, String roomName) {
+        return mappings.stream()
+                .filter(mapping -> mapping.getRoomName().equals(roomName))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No mapping for " + roomName));
+    }
+
+    private static RoomMapping mapping(RoomMappingCollection collection, String roomName, int category, String description) {
+        RoomMapping mapping = new RoomMapping();
+        mapping.setRoomName(roomName);
+        mapping.setCategory(category);
+        mapping.setDescription(description);
+        mapping.setCollection(collection);
+
+        return mapping;
+    }
+
+    private static RoomMappingOperation operation(RoomMappingOperationType type, String roomName) {
+        RoomMappingOperation operation = new RoomMappingOperation();
+        operation.setOp(type);
+        operation.setRoomName(roomName);
+
+        return operation;
+    }
+
+    private static RoomMappingVertex vertex(double x, double y) {
+        RoomMappingVertex vertex = new RoomMappingVertex();
+        vertex.setX(x);
+        vertex.setY(y);
+
+        return vertex;
+    }
+
+}
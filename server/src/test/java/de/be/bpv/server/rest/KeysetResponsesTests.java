@@ -0,0 +1,214 @@
+package de.be.bpv.server.rest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.be.bpv.server.persistence.keyset.KeysetSort;
+import de.be.bpv.server.persistence.roommapping.RoomMappingCollection;
+import de.be.bpv.server.persistence.roommapping.RoomMappingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class KeysetResponsesTests {
+
+    /**
+     * ID of the CAD file the test collections belong to.
+     */
+    private static final long CAD_FILE_ID = 1L;
+
+    /**
+     * Link header pointing to the next page.
+     */
+    private static final Pattern NEXT_LINK = Pattern.compile("<(http://localhost/api/room-mapping/for/" + CAD_FILE_ID + "\\?[^>]*)>; rel=\"next\"");
+
+    @Autowired
+    private RoomMappingRepository roomMappingRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * IDs of the saved test collections.
+     */
+    private final List<Long> collectionIDs = new ArrayList<>();
+
+    @BeforeEach
+    void saveCollections() {
+        // Names and created timestamps are tied, so that only the ID tells the rows apart
+        Date earlier = new Date(1_600_000_000_000L);
+        Date later = new Date(1_600_000_060_000L);
+        for (int i = 0; i < 7; i++) {
+            RoomMappingCollection collection = new RoomMappingCollection();
+            collection.setName(i % 2 == 0 ? "Office" : "Kitchen");
+            collection.setCadFileID(CAD_FILE_ID);
+
+            long id = roomMappingRepository.save(collection).getId();
+            collectionIDs.add(id);
+            setCreatedTimestamp(id, i < 4 ? earlier : later);
+        }
+    }
+
+    @AfterEach
+    void deleteCollections() {
+        collectionIDs.forEach(roomMappingRepository::deleteById);
+        collectionIDs.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"name,asc", "name,desc", "createdTimestamp,asc", "createdTimestamp,desc", ""})
+    void pagesThroughTiedSortKeysWithoutSkipsOrDuplicates(String sort) throws Exception {
+        List<List<Long>> pages = getAllPages("/api/room-mapping/for/" + CAD_FILE_ID + "?sort=" + sort + "&size=2");
+
+        assertEquals(List.of(2, 2, 2, 1), pages.stream().map(List::size).collect(Collectors.toList()));
+
+        List<Long> ids = pages.stream().flatMap(List::stream).collect(Collectors.toList());
+        assertEquals(ids.size(), new HashSet<>(ids).size());
+        assertEquals(expectedOrder(KeysetSort.parse(sort)), ids);
+    }
+
+    @Test
+    void keepsFilterInNextLink() throws Exception {
+        List<List<Long>> pages = getAllPages("/api/room-mapping/for/" + CAD_FILE_ID + "?name=Kit&sort=name,asc&size=2");
+
+        assertEquals(2, pages.size());
+        assertEquals(
+                expectedOrder(KeysetSort.NAME_ASC).stream()
+                        .filter(id -> roomMappingRepository.findById(id).orElseThrow().getName().equals("Kitchen"))
+                        .collect(Collectors.toList()),
+                pages.stream().flatMap(List::stream).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void sendsNoNextLinkOnFullLastPage() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/room-mapping/for/" + CAD_FILE_ID + "?size=7"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals(7, readIDs(result).size());
+        assertNull(result.getResponse().getHeader(HttpHeaders.LINK));
+    }
+
+    @Test
+    void rejectsInvalidCursors() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/room-mapping/for/" + CAD_FILE_ID + "?sort=name,asc&size=2"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String after = nextLink(first).replaceAll(".*[?&]after=([^&]*).*", "$1");
+
+        // A cursor of the name order does not continue the created timestamp order
+        mockMvc.perform(get("/api/room-mapping/for/" + CAD_FILE_ID + "?sort=createdTimestamp,asc&after=" + after))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/room-mapping/for/" + CAD_FILE_ID + "?after=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Get all pages by following the links to the next page.
+     *
+     * @param url of the first page
+     * @return IDs of the rows on each page
+     */
+    private List<List<Long>> getAllPages(String url) throws Exception {
+        List<List<Long>> pages = new ArrayList<>();
+        MvcResult result = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+        pages.add(readIDs(result));
+
+        while (result.getResponse().getHeader(HttpHeaders.LINK) != null) {
+            String next = nextLink(result);
+
+            // The next link keeps all parameters of the request and only replaces the cursor
+            URI nextURI = URI.create(next);
+            String query = nextURI.getRawQuery();
+            assertEquals(1, query.split("after=", -1).length - 1, next);
+            assertEquals(
+                    URI.create(url).getRawQuery().replaceAll("&?after=[^&]*", ""),
+                    query.replaceAll("&?after=[^&]*", "")
+            );
+
+            result = mockMvc.perform(get(nextURI)).andExpect(status().isOk()).andReturn();
+            pages.add(readIDs(result));
+        }
+
+        return pages;
+    }
+
+    private String nextLink(MvcResult result) {
+        String link = result.getResponse().getHeader(HttpHeaders.LINK);
+        Matcher matcher = NEXT_LINK.matcher(link);
+        assertTrue(matcher.matches(), link);
+
+        return matcher.group(1);
+    }
+
+    private List<Long> readIDs(MvcResult result) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode reference : objectMapper.readTree(result.getResponse().getContentAsString())) {
+            ids.add(reference.get("id").asLong());
+        }
+
+        return ids;
+    }
+
+    private List<Long> expectedOrder(KeysetSort sort) {
+        Comparator<RoomMappingCollection> order = sort.getAttribute().equals("name")
+                ? Comparator.comparing(RoomMappingCollection::getName)
+                : Comparator.comparing(RoomMappingCollection::getCreatedTimestamp);
+        order = order.thenComparing(RoomMappingCollection::getId);
+        if (!sort.isAscending()) {
+            order = order.reversed();
+        }
+
+        return collectionIDs.stream()
+                .map(id -> roomMappingRepository.findById(id).orElseThrow())
+                .sorted(order)
+                .map(RoomMappingCollection::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void setCreatedTimestamp(long id, Date createdTimestamp) {
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createQuery("UPDATE RoomMappingCollection SET createdTimestamp = :createdTimestamp WHERE id = :id")
+                .setParameter("createdTimestamp", createdTimestamp)
+                .setParameter("id", id)
+                .executeUpdate());
+    }
+
+}